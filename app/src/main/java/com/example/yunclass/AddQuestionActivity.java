@@ -8,6 +8,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.provider.MediaStore;
 import android.provider.Settings;
+import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.Toast;
@@ -23,15 +24,18 @@ import com.bumptech.glide.Glide;
 import com.example.yunclass.api.ApiClient;
 import com.example.yunclass.api.ApiResponse;
 import com.example.yunclass.databinding.ActivityAddQuestionBinding;
+import com.example.yunclass.image.CompressedImageBody;
+import com.example.yunclass.image.ImageRequests;
 import com.example.yunclass.model.Question;
-import com.example.yunclass.utils.FileUtils;
 import com.example.yunclass.utils.SessionManager;
 
-import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
@@ -42,11 +46,15 @@ import retrofit2.Response;
 
 public class AddQuestionActivity extends AppCompatActivity {
 
+    private static final String TAG = "AddQuestionActivity";
     private ActivityAddQuestionBinding binding;
     private Uri selectedImageUri = null;
     private static final int PICK_IMAGE_REQUEST = 1;
     private static final int PERMISSION_REQUEST_CODE = 100;
     private SessionManager sessionManager;
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    // 上次显示的已上传大小（KB），避免每次写入都刷新界面
+    private volatile long uploadedKb = -1;
     
     // 定义需要的权限列表
     private String[] REQUIRED_PERMISSIONS = {
@@ -65,7 +73,7 @@ public class AddQuestionActivity extends AppCompatActivity {
         binding = ActivityAddQuestionBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
         
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
         
         // 确保用户已登录
         if (!sessionManager.isLoggedIn()) {
@@ -168,8 +176,11 @@ public class AddQuestionActivity extends AppCompatActivity {
             selectedImageUri = data.getData();
             binding.questionImageView.setVisibility(View.VISIBLE);
             binding.removeImageButton.setVisibility(View.VISIBLE);
+            // 相机照片可能有上千万像素，预览只按控件大小解码
+            int previewSize = getResources().getDimensionPixelSize(R.dimen.question_image_preview_size);
             Glide.with(this)
                     .load(selectedImageUri)
+                    .apply(ImageRequests.thumbnail(previewSize, previewSize))
                     .into(binding.questionImageView);
         }
     }
@@ -202,30 +213,54 @@ public class AddQuestionActivity extends AppCompatActivity {
     }
 
     private void submitQuestionWithImage(String title, String content) {
-        // 获取图片文件路径
-        String imagePath = FileUtils.getPathFromUri(this, selectedImageUri);
-        if (imagePath == null) {
-            Toast.makeText(this, "无法获取图片路径", Toast.LENGTH_SHORT).show();
-            binding.progressBar.setVisibility(View.GONE);
-            return;
-        }
+        Uri imageUri = selectedImageUri;
+        binding.submitButton.setEnabled(false);
+        binding.submitButton.setText("正在压缩图片");
 
-        File imageFile = new File(imagePath);
-        
-        // 确保文件存在且可读
-        if (!imageFile.exists() || !imageFile.canRead()) {
-            Toast.makeText(this, "图片文件不可读", Toast.LENGTH_SHORT).show();
-            binding.progressBar.setVisibility(View.GONE);
-            return;
-        }
-        
+        // 解码和缩小图片较慢，在后台线程进行
+        executorService.execute(() -> {
+            CompressedImageBody imageBody;
+            try {
+                imageBody = CompressedImageBody.fromUri(this, imageUri, this::onUploadProgress);
+            } catch (IOException | OutOfMemoryError e) {
+                Log.e(TAG, "压缩图片失败", e);
+                runOnUiThread(() -> {
+                    if (isFinishing()) return;
+                    resetSubmitButton();
+                    binding.progressBar.setVisibility(View.GONE);
+                    Toast.makeText(this, "图片读取失败: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                });
+                return;
+            }
+            runOnUiThread(() -> {
+                if (!isFinishing()) {
+                    uploadQuestion(title, content, imageBody);
+                }
+            });
+        });
+    }
+
+    // 在网络线程调用，更新按钮上的已上传大小
+    private void onUploadProgress(long bytesWritten) {
+        long kb = bytesWritten / 1024;
+        if (kb == uploadedKb) return;
+        uploadedKb = kb;
+        runOnUiThread(() -> binding.submitButton.setText("正在上传 " + kb + " KB"));
+    }
+
+    private void resetSubmitButton() {
+        uploadedKb = -1;
+        binding.submitButton.setEnabled(true);
+        binding.submitButton.setText("提交问题");
+    }
+
+    private void uploadQuestion(String title, String content, CompressedImageBody imageBody) {
         // 创建文本请求体
         RequestBody titlePart = RequestBody.create(MediaType.parse("text/plain"), title);
         RequestBody contentPart = RequestBody.create(MediaType.parse("text/plain"), content);
         
-        // 创建图片请求体 - 使用图片专用的 MediaType
-        RequestBody requestFile = RequestBody.create(MediaType.parse("image/jpeg"), imageFile);
-        MultipartBody.Part imagePart = MultipartBody.Part.createFormData("image", imageFile.getName(), requestFile);
+        MultipartBody.Part imagePart = MultipartBody.Part.createFormData("image",
+                "question_" + System.currentTimeMillis() + ".jpg", imageBody);
 
         // 改用带有正确参数的API调用
         Call<ApiResponse<Question>> call = ApiClient.getApiService().createQuestion(titlePart, contentPart, imagePart);
@@ -233,6 +268,7 @@ public class AddQuestionActivity extends AppCompatActivity {
             @Override
             public void onResponse(Call<ApiResponse<Question>> call, Response<ApiResponse<Question>> response) {
                 binding.progressBar.setVisibility(View.GONE);
+                resetSubmitButton();
                 if (response.isSuccessful() && response.body() != null && response.body().isSuccess()) {
                     Toast.makeText(AddQuestionActivity.this, "问题提交成功", Toast.LENGTH_SHORT).show();
                     finish();
@@ -255,6 +291,7 @@ public class AddQuestionActivity extends AppCompatActivity {
             @Override
             public void onFailure(Call<ApiResponse<Question>> call, Throwable t) {
                 binding.progressBar.setVisibility(View.GONE);
+                resetSubmitButton();
                 Toast.makeText(AddQuestionActivity.this, "网络错误: " + t.getMessage(), Toast.LENGTH_LONG).show();
             }
         });
@@ -296,6 +333,12 @@ public class AddQuestionActivity extends AppCompatActivity {
         });
     }
 
+    @Override
+    protected void onDestroy() {
+        executorService.shutdownNow();
+        super.onDestroy();
+    }
+
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
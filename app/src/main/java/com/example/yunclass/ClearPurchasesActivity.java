@@ -21,7 +21,7 @@ public class ClearPurchasesActivity extends AppCompatActivity {
         setContentView(R.layout.activity_clear_purchases);
         
         // 清除所有购买记录
-        PurchaseManager.clearPurchasedCourses(this);
+        PurchaseManager.getInstance(this).clearAll(this);
         Toast.makeText(this, "已清除所有购买记录", Toast.LENGTH_LONG).show();
         
         // 延迟1秒后关闭此Activity
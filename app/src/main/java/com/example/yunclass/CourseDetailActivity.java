@@ -16,12 +16,14 @@ import androidx.core.content.ContextCompat;
 import com.bumptech.glide.Glide;
 import com.example.yunclass.api.ApiClient;
 import com.example.yunclass.api.ApiResponse;
-import com.example.yunclass.config.AppConfig;
 import com.example.yunclass.databinding.ActivityCourseDetailBinding;
+import com.example.yunclass.image.CourseImage;
+import com.example.yunclass.image.ImageRequests;
 import com.example.yunclass.model.Course;
 import com.example.yunclass.model.Order;
 import com.example.yunclass.utils.DebugUtils;
 import com.example.yunclass.utils.PurchaseManager;
+import com.example.yunclass.utils.SessionManager;
 
 import java.text.NumberFormat;
 import java.util.HashMap;
@@ -41,6 +43,7 @@ public class CourseDetailActivity extends AppCompatActivity {
     private double coursePrice;
     private String contentType; // "pdf" or "video"
     private String contentPath; // Path to the content file
+    private int currentUserId;
     private static final String TAG = "CourseDetailActivity";
 
     @Override
@@ -49,6 +52,9 @@ public class CourseDetailActivity extends AppCompatActivity {
         binding = ActivityCourseDetailBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
+        // 购买记录按用户保存
+        currentUserId = SessionManager.getInstance(this).getUserId();
+
         // 设置工具栏
         setSupportActionBar(binding.toolbar);
         if (getSupportActionBar() != null) {
@@ -85,22 +91,28 @@ public class CourseDetailActivity extends AppCompatActivity {
             binding.coursePriceTextView.setText(format.format(coursePrice));
 
             // 加载课程图片
-            String imageUrl = AppConfig.BASE_URL + "api/course-image/" + courseImage;
             Glide.with(this)
-                    .load(imageUrl)
+                    .load(new CourseImage(courseImage))
+                    .apply(ImageRequests.cover())
                     .placeholder(R.drawable.ic_launcher_background)
                     .error(R.drawable.ic_launcher_background)
                     .into(binding.courseImageView);
             
-            // 检查课程是否已购买
-            if (PurchaseManager.getPurchasedCourseIds(this).contains(courseId)) {
+            // 检查课程是否已购买，使用本地缓存的授权令牌，不需要请求服务器
+            if (PurchaseManager.getInstance(this).isPurchased(currentUserId, courseId)) {
                 updateUIForPurchasedCourse();
             }
+            // 令牌缺失或即将过期时在后台更新
+            PurchaseManager.getInstance(this).refreshEntitlements(currentUserId, () -> {
+                if (!isFinishing() && PurchaseManager.getInstance(this).isPurchased(currentUserId, courseId)) {
+                    updateUIForPurchasedCourse();
+                }
+            });
         }
 
         // 设置购买按钮点击事件
         binding.enrollButton.setOnClickListener(v -> {
-            if (PurchaseManager.getPurchasedCourseIds(this).contains(courseId)) {
+            if (PurchaseManager.getInstance(this).isPurchased(currentUserId, courseId)) {
                 // 如果已购买，则跳转到内容查看器
                 startLearning();
             } else {
@@ -150,6 +162,12 @@ public class CourseDetailActivity extends AppCompatActivity {
                 if (response.isSuccessful() && response.body() != null) {
                     ApiResponse<Order> apiResponse = response.body();
                     if (apiResponse.isSuccess()) {
+                        // 响应中带有包含新课程的授权令牌，没有时重新获取
+                        PurchaseManager purchaseManager = PurchaseManager.getInstance(CourseDetailActivity.this);
+                        if (!purchaseManager.applyEntitlements(currentUserId, apiResponse.getEntitlements())) {
+                            purchaseManager.fetchEntitlements(currentUserId, null);
+                        }
+                        
                         Order order = apiResponse.getOrder();
                         if (order != null) {
                             Log.d(TAG, "购买成功：订单ID=" + order.getId() + 
@@ -166,11 +184,11 @@ public class CourseDetailActivity extends AppCompatActivity {
                                     "购买时间: " + (order.getCreatedAt() != null ? order.getCreatedAt().toString() : "未知"));
                             
                             // 使用 PurchaseManager 保存购买记录
-                            PurchaseManager.savePurchasedCourse(CourseDetailActivity.this, order.getCourseId());
+                            purchaseManager.savePurchase(currentUserId, order.getCourseId());
                         } else {
                             Log.w(TAG, "购买成功但订单对象为null");
                             // 即使订单对象为null，也保存当前课程ID
-                            PurchaseManager.savePurchasedCourse(CourseDetailActivity.this, courseId);
+                            purchaseManager.savePurchase(currentUserId, courseId);
                         }
                         
                         showPurchaseSuccessDialog();
@@ -336,6 +354,7 @@ public class CourseDetailActivity extends AppCompatActivity {
         Intent intent = new Intent(this, VideoPlayerActivity.class);
         intent.putExtra("course_title", courseTitle);
         intent.putExtra("video_path", videoPath);
+        intent.putExtra("course_id", courseId);
         startActivity(intent);
     }
 
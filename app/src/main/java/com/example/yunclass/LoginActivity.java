@@ -39,10 +39,10 @@ public class LoginActivity extends AppCompatActivity {
         // 显示当前配置的服务器地址
         Log.d(TAG, "当前服务器地址: " + AppConfig.BASE_URL);
         
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
 
         // 如果用户已登录，直接进入主页
-        if (sessionManager.isLoggedIn()) {
+        if (sessionManager.isLoggedIn() && ApiClient.hasSession()) {
             Log.d(TAG, "用户已登录，直接进入主页");
             startActivity(new Intent(LoginActivity.this, MainActivity.class));
             finish();
@@ -103,6 +103,7 @@ public class LoginActivity extends AppCompatActivity {
                         // 保存用户会话
                         User user = apiResponse.getUser();
                         Log.d(TAG, "登录成功: " + user.getEmail());
+                        // 播放进度和授权令牌的同步由YunClassApplication中的会话监听处理
                         sessionManager.createLoginSession(user);
                         
                         Toast.makeText(LoginActivity.this, "登录成功", Toast.LENGTH_SHORT).show();
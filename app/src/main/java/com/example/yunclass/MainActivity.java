@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
@@ -12,6 +13,7 @@ import androidx.navigation.fragment.NavHostFragment;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
 
+import com.example.yunclass.api.ApiClient;
 import com.example.yunclass.utils.PurchaseManager;
 import com.example.yunclass.utils.SessionManager;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
@@ -30,9 +32,15 @@ public class MainActivity extends AppCompatActivity {
         setSupportActionBar(findViewById(R.id.toolbar));
 
         // 初始化Session管理器
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
         
-        // 检查用户是否已登录，如果未登录则跳转到登录页面
+        // 本地会话仍在但保存的Cookie已过期时，服务器不再认可该会话，需要重新登录
+        if (sessionManager.isLoggedIn() && !ApiClient.hasSession()) {
+            sessionManager.logoutUser();
+            Toast.makeText(this, "登录已过期，请重新登录", Toast.LENGTH_SHORT).show();
+        }
+
+        // 检查用户是否已登录，如果未登录则跳转到登录页面；已登录时直接使用保存的会话，不等待网络请求
         if (!sessionManager.isLoggedIn()) {
             Intent intent = new Intent(this, LoginActivity.class);
             startActivity(intent);
@@ -73,7 +81,7 @@ public class MainActivity extends AppCompatActivity {
         int id = item.getItemId();
         if (id == R.id.action_clear_purchases) {
             // 清除购买记录
-            PurchaseManager.clearPurchasedCourses(this);
+            PurchaseManager.getInstance(this).clearAll(this);
             return true;
         } else if (id == R.id.action_logout) {
             // 注销登录
@@ -13,8 +13,8 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.yunclass.adapter.CourseAdapter;
-import com.example.yunclass.api.ApiClient;
-import com.example.yunclass.api.ApiResponse;
+import com.example.yunclass.data.CourseRepository;
+import com.example.yunclass.data.SyncManager;
 import com.example.yunclass.databinding.ActivityMyCoursesBinding;
 import com.example.yunclass.model.Course;
 import com.example.yunclass.model.Order;
@@ -28,10 +28,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 public class MyCoursesActivity extends AppCompatActivity implements CourseAdapter.OnCourseClickListener {
 
     private ActivityMyCoursesBinding binding;
@@ -55,7 +51,7 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
         setContentView(binding.getRoot());
 
         // 初始化SessionManager
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
         
         // 获取当前登录用户ID
         User currentUser = sessionManager.getUserDetails();
@@ -89,7 +85,7 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
                 purchasedCourseIds.add(purchasedCourseId);
                 
                 // 同时保存到持久化存储中
-                PurchaseManager.savePurchasedCourse(this, purchasedCourseId);
+                PurchaseManager.getInstance(this).savePurchase(currentUserId, purchasedCourseId);
             }
         }
 
@@ -110,7 +106,7 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
             
             // 检查购买按钮
             binding.checkPurchasesButton.setOnClickListener(v -> {
-                Set<Integer> storedIds = PurchaseManager.getPurchasedCourseIds(this);
+                Set<Integer> storedIds = PurchaseManager.getInstance(this).getPurchasedCourseIds(currentUserId);
                 StringBuilder sb = new StringBuilder();
                 sb.append("已购买课程ID (").append(storedIds.size()).append("个):\n");
                 for (Integer id : storedIds) {
@@ -130,7 +126,7 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
                         .setTitle("确认清除")
                         .setMessage("确定要清除所有购买记录吗？此操作不可恢复。")
                         .setPositiveButton("确认清除", (dialog, which) -> {
-                            PurchaseManager.clearPurchasedCourses(this);
+                            PurchaseManager.getInstance(this).clearAll(this);
                             Toast.makeText(this, "已清除所有购买记录", Toast.LENGTH_SHORT).show();
                             loadPurchasedCourses();
                         })
@@ -153,8 +149,9 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
     private void addTestCourses() {
         // 添加一些测试课程ID到本地存储
         int[] testCourseIds = {1, 2, 3}; // 假设这些是有效的课程ID
+        PurchaseManager purchaseManager = PurchaseManager.getInstance(this);
         for (int courseId : testCourseIds) {
-            PurchaseManager.savePurchasedCourse(this, courseId);
+            purchaseManager.savePurchase(currentUserId, courseId);
         }
         Toast.makeText(this, "已添加测试课程", Toast.LENGTH_SHORT).show();
         loadPurchasedCourses();
@@ -176,6 +173,7 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
         adapter = new CourseAdapter(this, new ArrayList<>(), this);
         binding.coursesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         binding.coursesRecyclerView.setAdapter(adapter);
+        adapter.attachPreloader(binding.coursesRecyclerView);
     }
 
     private void loadPurchasedCourses() {
@@ -186,7 +184,7 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
         
         // 初始化 purchasedCourseIds，从本地存储加载所有已购买课程ID
         purchasedCourseIds.clear();
-        purchasedCourseIds.addAll(PurchaseManager.getPurchasedCourseIds(this));
+        purchasedCourseIds.addAll(PurchaseManager.getInstance(this).getPurchasedCourseIds(currentUserId));
         
         if (!purchasedCourseIds.isEmpty()) {
             Log.d(TAG, "从本地存储获取到已购买课程，数量: " + purchasedCourseIds.size());
@@ -197,84 +195,57 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
             Log.d(TAG, "本地存储中没有已购买课程记录，尝试从服务器获取");
         }
         
-        // 无论如何都从服务器获取最新订单，以保持数据同步
-        loadOrdersFromServer();
+        // 无论如何都与服务器增量同步，以保持数据同步
+        syncWithServer();
     }
     
-    private void loadOrdersFromServer() {
-        Log.d(TAG, "从服务器获取订单数据，用户ID: " + currentUserId);
+    private void syncWithServer() {
+        Log.d(TAG, "与服务器增量同步课程和订单，用户ID: " + currentUserId);
+        
+        // 授权令牌缺失或即将过期时一并更新，之后打开课程时离线也能判断
+        PurchaseManager.getInstance(this).refreshEntitlements(currentUserId, null);
         
-        // 从API获取所有订单
-        Call<ApiResponse<List<Order>>> orderCall = ApiClient.getApiService().getOrders();
-        orderCall.enqueue(new Callback<ApiResponse<List<Order>>>() {
+        SyncManager.getInstance(this).sync(currentUserId, new SyncManager.SyncCallback() {
             @Override
-            public void onResponse(Call<ApiResponse<List<Order>>> call, Response<ApiResponse<List<Order>>> response) {
-                if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "订单API调用成功: " + response.code());
-                    
-                    if (response.body().isSuccess()) {
-                        List<Order> orders = response.body().getOrders();
-                        Log.d(TAG, "获取到订单数量: " + (orders != null ? orders.size() : "null"));
+            public void onSynced(List<Order> newOrders) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                Log.d(TAG, "新增订单数量: " + newOrders.size());
+                
+                // 全部订单一次保存，只写一次磁盘
+                PurchaseManager.getInstance(MyCoursesActivity.this).saveAll(newOrders);
+                for (Order order : newOrders) {
+                    // 只处理当前登录用户的订单
+                    if (order.getUserId() == currentUserId) {
+                        int courseId = order.getCourseId();
+                        purchasedCourseIds.add(courseId);
+                        Log.d(TAG, "添加当前用户的课程ID: " + courseId + ", 课程标题: " + order.getCourseTitle());
                         
-                        if (orders != null && !orders.isEmpty()) {
-                            // 只处理当前用户的订单
-                            int filteredOrderCount = 0;
-                            
-                            // 保留本地存储的课程ID，使用服务器数据进行补充而不是替换
-                            // purchasedCourseIds.clear(); // 不再清除本地缓存
-                            
-                            for (Order order : orders) {
-                                // 只处理当前登录用户的订单
-                                if (order.getUserId() == currentUserId) {
-                                    int courseId = order.getCourseId();
-                                    purchasedCourseIds.add(courseId);
-                                    PurchaseManager.savePurchasedCourse(MyCoursesActivity.this, courseId);
-                                    Log.d(TAG, "添加当前用户的课程ID: " + courseId + ", 课程标题: " + order.getCourseTitle());
-                                    filteredOrderCount++;
-                                    
-                                    // 记录订单信息到文件，便于调试
-                                    DebugUtils.logOrderInfo(MyCoursesActivity.this, order);
-                                }
-                            }
-                            
-                            Log.d(TAG, "当前用户的订单数量: " + filteredOrderCount);
-                        } else {
-                            Log.w(TAG, "服务器返回的订单列表为空");
-                        }
-                    } else {
-                        if ("未登录".equals(response.body().getMessage())) {
-                            Log.w(TAG, "用户未登录或会话已过期，仅使用本地存储的课程数据");
-                            // 会话可能已过期，但我们仍然可以使用本地存储的课程ID
-                        } else {
-                            Log.e(TAG, "API返回成功但状态为失败: " + response.body().getMessage());
-                        }
-                    }
-                } else {
-                    Log.e(TAG, "获取订单API返回错误: " + response.code());
-                    
-                    if (response.code() == 401) {
-                        Log.w(TAG, "用户未授权，仅使用本地存储的课程数据");
-                        // 会话可能已过期，但我们仍然可以使用本地存储的课程ID
+                        // 记录订单信息到文件，便于调试
+                        DebugUtils.logOrderInfo(MyCoursesActivity.this, order);
                     }
                 }
                 
                 Log.d(TAG, "综合订单信息后的课程ID总数: " + purchasedCourseIds.size());
                 
-                // 无论服务器响应如何，都继续加载所有课程
-                loadAllCourses();
+                // 同步完成后本地课程目录已是最新，直接读取本地数据
+                loadAllCourses(true);
             }
 
             @Override
-            public void onFailure(Call<ApiResponse<List<Order>>> call, Throwable t) {
-                Log.e(TAG, "获取订单网络请求失败", t);
-                
-                // 即使网络请求失败，仍然使用本地存储的课程ID加载课程
-                loadAllCourses();
+            public void onError(String message) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                // 会话可能已过期或网络不可用，但我们仍然可以使用本地存储的课程ID
+                Log.w(TAG, "同步失败，仅使用本地存储的课程数据: " + message);
+                loadAllCourses(false);
             }
         });
     }
 
-    private void loadAllCourses() {
+    private void loadAllCourses(boolean synced) {
         Log.d(TAG, "开始加载所有课程");
         
         // 检查是否有购买的课程ID
@@ -285,75 +256,63 @@ public class MyCoursesActivity extends AppCompatActivity implements CourseAdapte
             return;
         }
         
-        Call<ApiResponse<List<Course>>> courseCall = ApiClient.getApiService().getCourses();
-        courseCall.enqueue(new Callback<ApiResponse<List<Course>>>() {
+        // 课程目录从本地数据库读取；未同步成功时由仓库继续从服务器获取
+        CourseRepository.DataCallback<List<Course>> callback = new CourseRepository.DataCallback<List<Course>>() {
             @Override
-            public void onResponse(Call<ApiResponse<List<Course>>> call, Response<ApiResponse<List<Course>>> response) {
-                binding.progressBar.setVisibility(View.GONE);
-                
-                if (response.isSuccessful() && response.body() != null) {
-                    Log.d(TAG, "课程API调用成功: " + response.code());
-                    
-                    if (response.body().isSuccess()) {
-                        allCourses = response.body().getCourses();
-                        Log.d(TAG, "获取到总课程数量: " + (allCourses != null ? allCourses.size() : "null"));
-                        
-                        if (allCourses != null && !allCourses.isEmpty()) {
-                            // 筛选出已购买的课程
-                            myCourses.clear();
-                            for (Course course : allCourses) {
-                                int courseId = course.getId();
-                                if (purchasedCourseIds.contains(courseId)) {
-                                    Log.d(TAG, "匹配到已购买课程: ID=" + courseId + ", 标题=" + course.getTitle());
-                                    myCourses.add(course);
-                                }
-                            }
-                            
-                            Log.d(TAG, "筛选后的已购买课程数量: " + myCourses.size());
-                            
-                            // 更新UI
-                            adapter.setCourses(myCourses);
-                            
-                            // 处理空视图
-                            if (myCourses.isEmpty()) {
-                                Log.w(TAG, "没有匹配到任何已购买课程");
-                                binding.emptyView.setVisibility(View.VISIBLE);
-                            } else {
-                                binding.emptyView.setVisibility(View.GONE);
-                            }
-                        } else {
-                            Log.w(TAG, "获取到的课程列表为空");
-                            binding.emptyView.setVisibility(View.VISIBLE);
-                        }
-                    } else {
-                        Log.e(TAG, "API返回成功但状态为失败: " + response.body().getMessage());
-                        binding.emptyView.setVisibility(View.VISIBLE);
-                        Toast.makeText(MyCoursesActivity.this, "获取课程失败: " + response.body().getMessage(), Toast.LENGTH_SHORT).show();
-                    }
-                } else {
-                    String errorMsg = "获取课程API返回错误: " + response.code();
-                    if (response.errorBody() != null) {
-                        try {
-                            errorMsg += ", " + response.errorBody().string();
-                        } catch (Exception e) {
-                            Log.e(TAG, "读取错误响应失败", e);
-                        }
-                    }
-                    Log.e(TAG, errorMsg);
-                    
-                    binding.emptyView.setVisibility(View.VISIBLE);
-                    Toast.makeText(MyCoursesActivity.this, "获取课程失败", Toast.LENGTH_SHORT).show();
+            public void onData(List<Course> courses, boolean fromCache) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
                 }
+                binding.progressBar.setVisibility(View.GONE);
+                Log.d(TAG, "获取到总课程数量: " + courses.size() + (fromCache ? "（本地缓存）" : ""));
+                showPurchasedCourses(courses);
             }
 
             @Override
-            public void onFailure(Call<ApiResponse<List<Course>>> call, Throwable t) {
-                Log.e(TAG, "获取课程网络请求失败", t);
+            public void onError(String message) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                Log.e(TAG, "获取课程失败: " + message);
                 binding.progressBar.setVisibility(View.GONE);
                 binding.emptyView.setVisibility(View.VISIBLE);
-                Toast.makeText(MyCoursesActivity.this, "网络错误: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+                Toast.makeText(MyCoursesActivity.this, message, Toast.LENGTH_SHORT).show();
             }
-        });
+        };
+        
+        CourseRepository repository = CourseRepository.getInstance(this);
+        if (synced) {
+            repository.getCachedCourses(callback);
+        } else {
+            repository.getCourses(callback);
+        }
+    }
+    
+    private void showPurchasedCourses(List<Course> courses) {
+        allCourses = courses;
+        
+        // 筛选出已购买的课程
+        myCourses = new ArrayList<>();
+        for (Course course : allCourses) {
+            int courseId = course.getId();
+            if (purchasedCourseIds.contains(courseId)) {
+                Log.d(TAG, "匹配到已购买课程: ID=" + courseId + ", 标题=" + course.getTitle());
+                myCourses.add(course);
+            }
+        }
+        
+        Log.d(TAG, "筛选后的已购买课程数量: " + myCourses.size());
+        
+        // 更新UI
+        adapter.setCourses(myCourses);
+        
+        // 处理空视图
+        if (myCourses.isEmpty()) {
+            Log.w(TAG, "没有匹配到任何已购买课程");
+            binding.emptyView.setVisibility(View.VISIBLE);
+        } else {
+            binding.emptyView.setVisibility(View.GONE);
+        }
     }
 
     @Override
@@ -37,7 +37,7 @@ public class MyQuestionsActivity extends AppCompatActivity {
         setContentView(binding.getRoot());
 
         // 验证用户是否已登录
-        SessionManager sessionManager = new SessionManager(this);
+        SessionManager sessionManager = SessionManager.getInstance(this);
         if (!sessionManager.isLoggedIn()) {
             Toast.makeText(this, "请先登录", Toast.LENGTH_SHORT).show();
             finish();
@@ -45,7 +45,7 @@ public class MyQuestionsActivity extends AppCompatActivity {
         }
         
         // 获取当前登录用户ID
-        int currentUserId = sessionManager.getUserDetails().getId();
+        int currentUserId = sessionManager.getUserId();
         Log.d("MyQuestionsActivity", "当前登录用户ID: " + currentUserId);
 
         // 设置工具栏
@@ -80,7 +80,7 @@ public class MyQuestionsActivity extends AppCompatActivity {
         binding.noQuestionsTextView.setVisibility(View.GONE);
         
         // 获取当前用户ID
-        SessionManager sessionManager = new SessionManager(this);
+        SessionManager sessionManager = SessionManager.getInstance(this);
         if (!sessionManager.isLoggedIn()) {
             Log.e("MyQuestionsActivity", "用户未登录，无法加载问题");
             binding.progressBar.setVisibility(View.GONE);
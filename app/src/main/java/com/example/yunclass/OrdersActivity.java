@@ -11,21 +11,22 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.yunclass.adapter.OrderAdapter;
 import com.example.yunclass.api.ApiClient;
-import com.example.yunclass.api.ApiResponse;
 import com.example.yunclass.databinding.ActivityOrdersBinding;
 import com.example.yunclass.model.Order;
+import com.example.yunclass.utils.PagingLoader;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 public class OrdersActivity extends AppCompatActivity {
 
     private ActivityOrdersBinding binding;
     private OrderAdapter adapter;
+    private PagingLoader<Order> pagingLoader;
+    
+    // 每页订单数，以及距离列表末尾还剩多少条时预取下一页
+    private static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 5;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -51,41 +52,52 @@ public class OrdersActivity extends AppCompatActivity {
         adapter = new OrderAdapter(this, new ArrayList<>());
         binding.ordersRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         binding.ordersRecyclerView.setAdapter(adapter);
-    }
-
-    private void loadOrders() {
-        binding.progressBar.setVisibility(View.VISIBLE);
-        binding.emptyView.setVisibility(View.GONE);
+        
+        // 订单按页加载，滚动接近末尾时自动加载下一页
+        pagingLoader = new PagingLoader<>(Order.class, "orders", PAGE_SIZE, PREFETCH_DISTANCE,
+                (after, limit) -> ApiClient.getApiService().streamOrders(after, limit),
+                new PagingLoader.Listener<Order>() {
+            @Override
+            public void onItems(List<Order> items, boolean reset) {
+                if (reset) {
+                    adapter.setOrders(new ArrayList<>(items));
+                } else {
+                    adapter.addOrders(items);
+                }
+            }
 
-        Call<ApiResponse<List<Order>>> call = ApiClient.getApiService().getOrders();
-        call.enqueue(new Callback<ApiResponse<List<Order>>>() {
             @Override
-            public void onResponse(Call<ApiResponse<List<Order>>> call, Response<ApiResponse<List<Order>>> response) {
+            public void onPageLoaded(int totalLoaded, boolean hasMore) {
                 binding.progressBar.setVisibility(View.GONE);
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<List<Order>> apiResponse = response.body();
-                    if (apiResponse.isSuccess() && apiResponse.getOrders() != null) {
-                        List<Order> orders = apiResponse.getOrders();
-                        adapter.setOrders(orders);
-                        
-                        // 显示空视图
-                        if (orders.isEmpty()) {
-                            binding.emptyView.setVisibility(View.VISIBLE);
-                        } else {
-                            binding.emptyView.setVisibility(View.GONE);
-                        }
-                    }
+                
+                // 显示空视图
+                if (totalLoaded == 0) {
+                    binding.emptyView.setVisibility(View.VISIBLE);
                 } else {
-                    Toast.makeText(OrdersActivity.this, "获取订单失败", Toast.LENGTH_SHORT).show();
+                    binding.emptyView.setVisibility(View.GONE);
                 }
             }
 
             @Override
-            public void onFailure(Call<ApiResponse<List<Order>>> call, Throwable t) {
+            public void onError(String message) {
                 binding.progressBar.setVisibility(View.GONE);
-                Toast.makeText(OrdersActivity.this, "网络错误: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+                Toast.makeText(OrdersActivity.this, "获取订单失败: " + message, Toast.LENGTH_SHORT).show();
             }
         });
+        pagingLoader.attachTo(binding.ordersRecyclerView);
+    }
+
+    private void loadOrders() {
+        binding.progressBar.setVisibility(View.VISIBLE);
+        binding.emptyView.setVisibility(View.GONE);
+
+        pagingLoader.refresh();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        pagingLoader.cancel();
     }
 
     @Override
@@ -15,6 +15,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.load.DecodeFormat;
 import com.example.yunclass.api.ApiClient;
 import com.example.yunclass.api.ApiResponse;
 import com.example.yunclass.config.AppConfig;
@@ -55,7 +56,7 @@ public class QuestionDetailActivity extends AppCompatActivity {
         setContentView(binding.getRoot());
 
         // 验证用户是否登录
-        SessionManager sessionManager = new SessionManager(this);
+        SessionManager sessionManager = SessionManager.getInstance(this);
         if (!sessionManager.isLoggedIn()) {
             Toast.makeText(this, "请先登录", Toast.LENGTH_SHORT).show();
             finish();
@@ -234,6 +235,7 @@ public class QuestionDetailActivity extends AppCompatActivity {
             Glide.with(this)
                     .load(imageUrl)
                     .centerInside()
+                    .format(DecodeFormat.PREFER_RGB_565)
                     .into(binding.questionImageView);
         } else {
             binding.questionImageView.setVisibility(View.GONE);
@@ -277,7 +279,7 @@ public class QuestionDetailActivity extends AppCompatActivity {
                         binding.noRepliesTextView.setVisibility(View.GONE);
 
                         // 更新回复数量
-                        int replyCount = replyAdapter.getItemCount();
+                        int replyCount = replyAdapter.getItems().size();
                         binding.repliesTitleTextView.setText("全部回复 (" + replyCount + ")");
 
                         // 更新问题状态为已回答
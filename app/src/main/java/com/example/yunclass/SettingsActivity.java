@@ -36,7 +36,7 @@ public class SettingsActivity extends AppCompatActivity {
             getSupportActionBar().setTitle("设置");
         }
 
-        sessionManager = new SessionManager(this);
+        sessionManager = SessionManager.getInstance(this);
 
         // 设置各选项的点击事件
         setupClickListeners();
@@ -3,31 +3,33 @@ package com.example.yunclass;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.bumptech.glide.Glide;
 import com.example.yunclass.adapter.SubCourseAdapter;
-import com.example.yunclass.api.ApiClient;
-import com.example.yunclass.api.ApiResponse;
-import com.example.yunclass.config.AppConfig;
+import com.example.yunclass.data.CourseRepository;
 import com.example.yunclass.databinding.ActivitySubCoursesBinding;
+import com.example.yunclass.download.DownloadQueue;
+import com.example.yunclass.image.CourseImage;
+import com.example.yunclass.image.ImageRequests;
+import com.example.yunclass.media.MediaCache;
 import com.example.yunclass.model.Course;
 import com.example.yunclass.model.CourseContent;
 
 import java.util.List;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 public class SubCoursesActivity extends AppCompatActivity implements SubCourseAdapter.OnSubCourseClickListener {
     private static final String TAG = "SubCoursesActivity";
+    // 后台下载限速，每秒字节数
+    private static final long DOWNLOAD_SPEED_LIMIT = 1024L * 1024;
     private ActivitySubCoursesBinding binding;
     private SubCourseAdapter adapter;
     private int courseId;
@@ -125,11 +127,11 @@ public class SubCoursesActivity extends AppCompatActivity implements SubCourseAd
 
         // 加载课程图片
         if (courseImage != null && !courseImage.isEmpty()) {
-            String imageUrl = AppConfig.BASE_URL + "api/course-image/" + courseImage;
-            Log.d(TAG, "加载课程图片: " + imageUrl);
+            Log.d(TAG, "加载课程图片: " + courseImage);
             
             Glide.with(this)
-                    .load(imageUrl)
+                    .load(new CourseImage(courseImage))
+                    .apply(ImageRequests.cover())
                     .placeholder(android.R.drawable.ic_menu_gallery)
                     .error(android.R.drawable.ic_menu_close_clear_cancel)
                     .into(binding.courseImageView);
@@ -143,37 +145,32 @@ public class SubCoursesActivity extends AppCompatActivity implements SubCourseAd
         binding.progressBar.setVisibility(View.VISIBLE);
         binding.emptyView.setVisibility(View.GONE);
 
-        Call<ApiResponse<List<Course>>> call = ApiClient.getApiService().getSubCourses(courseId);
-        call.enqueue(new Callback<ApiResponse<List<Course>>>() {
+        CourseRepository.getInstance(this).getSubCourses(courseId, new CourseRepository.DataCallback<List<Course>>() {
             @Override
-            public void onResponse(Call<ApiResponse<List<Course>>> call, Response<ApiResponse<List<Course>>> response) {
+            public void onData(List<Course> subCourses, boolean fromCache) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
                 binding.progressBar.setVisibility(View.GONE);
 
-                if (response.isSuccessful() && response.body() != null) {
-                    ApiResponse<List<Course>> apiResponse = response.body();
-                    if (apiResponse.isSuccess() && apiResponse.getData() != null) {
-                        List<Course> subCourses = apiResponse.getData();
-                        if (!subCourses.isEmpty()) {
-                            adapter.setSubCourses(subCourses);
-                            Log.d(TAG, "加载了 " + subCourses.size() + " 个子课程");
-                        } else {
-                            showEmptyState();
-                        }
-                    } else {
-                        Log.e(TAG, "API响应失败: " + apiResponse.getMessage());
-                        showEmptyState();
-                    }
+                if (!subCourses.isEmpty()) {
+                    binding.emptyView.setVisibility(View.GONE);
+                    adapter.setSubCourses(subCourses);
+                    Log.d(TAG, "加载了 " + subCourses.size() + " 个子课程" + (fromCache ? "（本地缓存）" : ""));
                 } else {
-                    Log.e(TAG, "网络请求失败: " + response.code());
+                    adapter.setSubCourses(subCourses);
                     showEmptyState();
                 }
             }
 
             @Override
-            public void onFailure(Call<ApiResponse<List<Course>>> call, Throwable t) {
+            public void onError(String message) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
                 binding.progressBar.setVisibility(View.GONE);
-                Log.e(TAG, "网络请求异常", t);
-                Toast.makeText(SubCoursesActivity.this, "加载失败: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+                Log.e(TAG, "加载子课程失败: " + message);
+                Toast.makeText(SubCoursesActivity.this, message, Toast.LENGTH_SHORT).show();
                 showEmptyState();
             }
         });
@@ -183,6 +180,65 @@ public class SubCoursesActivity extends AppCompatActivity implements SubCourseAd
         binding.emptyView.setVisibility(View.VISIBLE);
     }
 
+    // 预缓存下一节课视频的开头部分，看完当前视频后打开下一节可以立即开始播放
+    private void preCacheNextVideo(Course current) {
+        List<Course> subCourses = adapter.getItems();
+        int index = subCourses.indexOf(current);
+        if (index < 0) {
+            return;
+        }
+        for (int i = index + 1; i < subCourses.size(); i++) {
+            String path = videoPathOf(subCourses.get(i));
+            if (path == null) {
+                continue;
+            }
+            // 已离线下载的视频不需要缓存
+            if (!DownloadQueue.getLocalFile(this, DownloadQueue.QUEUE_VIDEO, path).exists()) {
+                MediaCache.getInstance(this).preCache(DownloadQueue.resolveUrl(path));
+            }
+            return;
+        }
+    }
+
+    private static String videoPathOf(Course course) {
+        if (course.getContents() != null) {
+            for (CourseContent content : course.getContents()) {
+                if ("video".equalsIgnoreCase(content.getType()) && content.getPath() != null) {
+                    return content.getPath();
+                }
+            }
+        }
+        if ("video".equalsIgnoreCase(course.getContentType()) && course.getContentPath() != null) {
+            return course.getContentPath();
+        }
+        return null;
+    }
+
+    // 离线下载本课程的全部视频和PDF，由后台下载队列在满足条件时下载
+    private void showDownloadAllDialog() {
+        List<Course> subCourses = adapter.getItems();
+        if (subCourses.isEmpty()) {
+            Toast.makeText(this, "暂无可下载的内容", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        DownloadQueue queue = DownloadQueue.getInstance(this);
+        String[] options = {"仅在Wi-Fi下下载", "仅在充电时下载", "限速 " + (DOWNLOAD_SPEED_LIMIT / 1024 / 1024) + "MB/s"};
+        boolean[] checked = {queue.isWifiOnly(), queue.isChargingOnly(), queue.getMaxBytesPerSecond() > 0};
+
+        new AlertDialog.Builder(this)
+                .setTitle("下载全部资料")
+                .setMultiChoiceItems(options, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("下载", (dialog, which) -> {
+                    queue.setConstraints(checked[0], checked[1]);
+                    queue.setMaxBytesPerSecond(checked[2] ? DOWNLOAD_SPEED_LIMIT : 0);
+                    queue.enqueueCourses(subCourses, DownloadQueue.PRIORITY_NORMAL);
+                    Toast.makeText(this, "已加入下载队列", Toast.LENGTH_SHORT).show();
+                })
+                .setNegativeButton("取消", null)
+                .show();
+    }
+
     @Override
     public void onSubCourseClick(Course subCourse) {
         Log.d(TAG, "点击子课程: " + subCourse.getTitle() + ", 类型: " + subCourse.getContentType());
@@ -198,7 +254,9 @@ public class SubCoursesActivity extends AppCompatActivity implements SubCourseAd
             Intent intent = new Intent(this, VideoPlayerActivity.class);
             intent.putExtra("course_title", subCourse.getTitle());
             intent.putExtra("video_path", subCourse.getContentPath());
+            intent.putExtra("course_id", subCourse.getId());
             startActivity(intent);
+            preCacheNextVideo(subCourse);
         } else {
             Toast.makeText(this, "不支持的内容类型: " + subCourse.getContentType(), Toast.LENGTH_SHORT).show();
         }
@@ -219,18 +277,30 @@ public class SubCoursesActivity extends AppCompatActivity implements SubCourseAd
             Intent intent = new Intent(this, VideoPlayerActivity.class);
             intent.putExtra("course_title", subCourse.getTitle() + " - " + content.getLabel());
             intent.putExtra("video_path", content.getPath());
+            intent.putExtra("course_id", subCourse.getId());
             startActivity(intent);
+            preCacheNextVideo(subCourse);
         } else {
             Toast.makeText(this, "不支持的内容类型: " + content.getType(), Toast.LENGTH_SHORT).show();
         }
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.sub_courses_menu, menu);
+        return true;
+    }
+
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
             onBackPressed();
             return true;
         }
+        if (item.getItemId() == R.id.action_download_all) {
+            showDownloadAllDialog();
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 } 
\ No newline at end of file
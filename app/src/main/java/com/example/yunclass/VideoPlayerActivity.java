@@ -3,6 +3,8 @@ package com.example.yunclass;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
@@ -16,21 +18,44 @@ import androidx.media3.common.util.Util;
 import androidx.media3.exoplayer.ExoPlayer;
 import androidx.media3.ui.PlayerView;
 
-import com.example.yunclass.config.AppConfig;
+import com.example.yunclass.data.ProgressManager;
 import com.example.yunclass.databinding.ActivityVideoPlayerBinding;
+import com.example.yunclass.download.DownloadQueue;
+import com.example.yunclass.media.MediaUrlResolver;
+import com.example.yunclass.media.PlayerFactory;
 
-import java.util.ArrayList;
+import java.io.File;
 
 public class VideoPlayerActivity extends AppCompatActivity {
 
     private ActivityVideoPlayerBinding binding;
     private static final String TAG = "VideoPlayerActivity";
+    // 播放中保存进度的间隔
+    private static final long SAVE_PROGRESS_INTERVAL_MS = 5000;
     private String videoPath;
     private String courseTitle;
+    // 课程或子课程ID，播放进度按课程保存
+    private int courseId;
     private ExoPlayer player;
     private boolean playWhenReady = true;
     private int currentWindow = 0;
     private long playbackPosition = 0;
+    // 已离线下载的视频文件，存在时直接播放本地文件
+    private File localVideoFile;
+    // 在线播放的地址
+    private String videoUrl;
+    // 是否已尝试过备用地址
+    private boolean triedFallback = false;
+    // 是否已从本地记录恢复过播放位置
+    private boolean restoredPosition = false;
+    private final Handler progressHandler = new Handler(Looper.getMainLooper());
+    private final Runnable saveProgressTask = new Runnable() {
+        @Override
+        public void run() {
+            saveProgress();
+            progressHandler.postDelayed(this, SAVE_PROGRESS_INTERVAL_MS);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,6 +73,7 @@ public class VideoPlayerActivity extends AppCompatActivity {
         if (getIntent().getExtras() != null) {
             courseTitle = getIntent().getStringExtra("course_title");
             videoPath = getIntent().getStringExtra("video_path");
+            courseId = getIntent().getIntExtra("course_id", 0);
             
             // 设置标题
             if (getSupportActionBar() != null) {
@@ -58,8 +84,16 @@ public class VideoPlayerActivity extends AppCompatActivity {
             if (videoPath != null && !videoPath.isEmpty()) {
                 binding.progressBar.setVisibility(View.VISIBLE);
                 
-                // 测试多种URL格式
-                testMultipleUrls();
+                // 播放器在onStart中创建
+                File downloaded = DownloadQueue.getLocalFile(this, DownloadQueue.QUEUE_VIDEO, videoPath);
+                if (downloaded.exists()) {
+                    // 已下载的视频不需要网络
+                    Log.d(TAG, "播放已下载的视频: " + downloaded);
+                    localVideoFile = downloaded;
+                } else {
+                    // 直接使用服务器给出的地址，不可用时再由播放器错误回调尝试备用地址
+                    videoUrl = MediaUrlResolver.getInstance(this).resolve(videoPath);
+                }
                 
             } else {
                 showError("找不到视频文件路径");
@@ -69,168 +103,11 @@ public class VideoPlayerActivity extends AppCompatActivity {
         }
     }
     
-    // 测试多种URL格式
-    private void testMultipleUrls() {
-        new Thread(() -> {
-            // 获取基础URL和视频路径
-            String baseUrl = AppConfig.BASE_URL; // http://10.163.44.11:3000/
-            Log.d(TAG, "BASE_URL: " + baseUrl);
-            
-            // 测试不同的URL组合
-            ArrayList<String> testUrls = new ArrayList<>();
-            
-            // 根据Node.js静态文件托管的规则，正确的URL应该是:
-            // http://10.163.44.11:3000/book/dui.mp4
-            
-            // 首先测试可能性最高的URL格式
-            testUrls.add("http://10.163.44.11:3000/book/dui.mp4"); // 如果express.static('html')，应该是/book/dui.mp4
-            
-            // 其他可能的组合
-            testUrls.add(baseUrl + "book/dui.mp4");
-            testUrls.add("http://10.163.44.11:3000/html/book/dui.mp4"); // 如果express.static('.')
-            testUrls.add(baseUrl + "html/book/dui.mp4"); 
-            testUrls.add("http://10.163.44.11:3000/dui.mp4"); // 如果express.static('html/book')
-            
-            // 原始构建方式
-            testUrls.add(buildVideoUrl());
-            
-            // 测试每个URL
-            final StringBuilder resultBuilder = new StringBuilder("URL测试结果:\n");
-            boolean anyUrlWorks = false;
-            String workingUrl = null;
-            
-            for (String url : testUrls) {
-                boolean isAccessible = checkUrlAccessible(url);
-                resultBuilder.append(url).append(" -> ").append(isAccessible ? "可访问" : "不可访问").append("\n");
-                if (isAccessible && !anyUrlWorks) {
-                    anyUrlWorks = true;
-                    workingUrl = url;
-                }
-            }
-            
-            // 保存结果
-            final String results = resultBuilder.toString();
-            final boolean foundWorkingUrl = anyUrlWorks;
-            final String finalWorkingUrl = workingUrl;
-            
-            // 在UI线程显示结果和播放视频
-            runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    Log.d(TAG, results);
-                    
-                    if (foundWorkingUrl && finalWorkingUrl != null) {
-                        // 如果找到可用URL，使用该URL播放视频
-                        Toast.makeText(VideoPlayerActivity.this, "找到可访问的URL: " + finalWorkingUrl, Toast.LENGTH_LONG).show();
-                        // 设置有效的URL并播放
-                        playVideoWithUrl(finalWorkingUrl);
-                    } else {
-                        // 如果所有URL都不可用，显示错误
-                        showError("所有测试的URL均无法访问。请检查服务器和网络连接。\n" + results + 
-                            "\n\n可能原因:\n1. Node.js服务器未配置静态文件访问\n2. 视频文件路径不正确\n3. 防火墙阻止访问");
-                    }
-                }
-            });
-        }).start();
-    }
-    
-    private String buildVideoUrl() {
-        try {
-            // 增加详细日志以便调试
-            Log.d(TAG, "原始视频路径: " + videoPath);
-            
-            // 如果是完整的http/https URL，直接返回
-            if (videoPath != null && (videoPath.startsWith("http://") || videoPath.startsWith("https://"))) {
-                Log.d(TAG, "使用完整URL: " + videoPath);
-                return videoPath;
-            }
-            
-            // 获取基础URL
-            String baseUrl = AppConfig.BASE_URL;
-            if (!baseUrl.endsWith("/")) {
-                baseUrl += "/";
-            }
-            
-            // 处理特殊情况 - 数据结构与算法课程的视频
-            if (courseTitle != null && courseTitle.contains("数据结构与算法")) {
-                Log.d(TAG, "数据结构与算法课程，使用特定视频路径");
-                // 根据Node.js静态文件托管规则，正确的路径可能是:
-                // 如果express.static('html')，则URL是: http://10.163.44.11:3000/book/dui.mp4
-                return baseUrl + "book/dui.mp4";
-            }
-            
-            // 处理路径，确保格式正确
-            if (videoPath != null) {
-                String processedPath = videoPath;
-                
-                // 处理路径，移除不必要的前缀
-                if (processedPath.startsWith("/")) {
-                    processedPath = processedPath.substring(1);
-                }
-                
-                // 如果路径包含html/，移除它（因为express.static('html')会导致这部分路径冗余）
-                if (processedPath.startsWith("html/")) {
-                    processedPath = processedPath.substring(5); // 移除"html/"
-                }
-                
-                // 构建完整的URL
-                String fullUrl = baseUrl + processedPath;
-                
-                // 打印最终URL以便调试
-                Log.d(TAG, "最终视频URL: " + fullUrl);
-                return fullUrl;
-            } else {
-                Log.e(TAG, "视频路径为空");
-                return baseUrl; // 返回基础URL，虽然这可能会导致404错误
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "构建URL时出错", e);
-            return AppConfig.BASE_URL; // 出错时返回基础URL
-        }
-    }
-    
-    // 检查URL是否可访问
-    private boolean checkUrlAccessible(String urlString) {
-        try {
-            Log.d(TAG, "正在检查URL: " + urlString);
-            java.net.URL url = new java.net.URL(urlString);
-            java.net.HttpURLConnection connection = (java.net.HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("HEAD");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-            
-            // 设置一些请求头，避免某些服务器的限制
-            connection.setRequestProperty("User-Agent", "Mozilla/5.0");
-            connection.setRequestProperty("Accept", "*/*");
-            
-            int responseCode = connection.getResponseCode();
-            String responseMessage = connection.getResponseMessage();
-            String contentType = connection.getContentType();
-            long contentLength = connection.getContentLength();
-            
-            Log.d(TAG, String.format("URL检查结果: %s -> 响应码: %d, 消息: %s, 内容类型: %s, 内容长度: %d",
-                    urlString, responseCode, responseMessage, contentType, contentLength));
-            
-            // 如果响应码是2xx或3xx，都可能是有效的
-            boolean success = (responseCode >= 200 && responseCode < 400);
-            
-            // 如果是视频内容类型，更可能是有效的
-            if (success && contentType != null && contentType.startsWith("video/")) {
-                Log.d(TAG, "找到有效的视频URL: " + urlString);
-            }
-            
-            return success;
-        } catch (Exception e) {
-            Log.e(TAG, "检查URL可访问性时出错: " + urlString, e);
-            return false;
-        }
-    }
-    
     private void initializePlayer() {
-        if (player == null) {
+        if (player == null && (localVideoFile != null || videoUrl != null)) {
             try {
-                // 创建播放器实例
-                player = new ExoPlayer.Builder(this).build();
+                // 创建播放器实例，通过共享的缓存读取视频，HLS视频按网速自动切换码率
+                player = PlayerFactory.create(this);
                 
                 // 设置播放器视图
                 binding.playerView.setPlayer(player);
@@ -238,15 +115,14 @@ public class VideoPlayerActivity extends AppCompatActivity {
                 // 设置播放器参数
                 player.setPlayWhenReady(playWhenReady);
                 
-                // 构建视频URL
-                String fullVideoUrl = buildVideoUrl();
-                Log.d(TAG, "尝试加载视频URL: " + fullVideoUrl);
-                
-                // 显示视频URL以便调试
-                Toast.makeText(this, "正在加载视频: " + fullVideoUrl, Toast.LENGTH_LONG).show();
-                
                 // 创建媒体项
-                MediaItem mediaItem = MediaItem.fromUri(Uri.parse(fullVideoUrl));
+                MediaItem mediaItem;
+                if (localVideoFile != null) {
+                    mediaItem = MediaItem.fromUri(Uri.fromFile(localVideoFile));
+                } else {
+                    Log.d(TAG, "加载视频URL: " + videoUrl);
+                    mediaItem = MediaItem.fromUri(Uri.parse(videoUrl));
+                }
                 player.setMediaItem(mediaItem);
                 
                 // 设置监听器
@@ -256,22 +132,43 @@ public class VideoPlayerActivity extends AppCompatActivity {
                         if (playbackState == Player.STATE_READY) {
                             binding.progressBar.setVisibility(View.GONE);
                             Log.d(TAG, "视频准备就绪，开始播放");
+                            if (localVideoFile == null) {
+                                MediaUrlResolver.getInstance(VideoPlayerActivity.this).remember(videoPath, videoUrl);
+                            }
                         } else if (playbackState == Player.STATE_BUFFERING) {
                             binding.progressBar.setVisibility(View.VISIBLE);
                             Log.d(TAG, "视频缓冲中...");
                         } else if (playbackState == Player.STATE_ENDED) {
                             Log.d(TAG, "视频播放完成");
+                            saveProgress();
                             Toast.makeText(VideoPlayerActivity.this, "视频播放完成", Toast.LENGTH_SHORT).show();
                         } else if (playbackState == Player.STATE_IDLE) {
                             Log.d(TAG, "播放器处于空闲状态");
                         }
                     }
                     
+                    @Override
+                    public void onIsPlayingChanged(boolean isPlaying) {
+                        progressHandler.removeCallbacks(saveProgressTask);
+                        if (isPlaying) {
+                            progressHandler.postDelayed(saveProgressTask, SAVE_PROGRESS_INTERVAL_MS);
+                        } else {
+                            saveProgress();
+                        }
+                    }
+                    
                     @Override
                     public void onPlayerError(@NonNull androidx.media3.common.PlaybackException error) {
-                        binding.progressBar.setVisibility(View.GONE);
                         Log.e(TAG, "播放器错误: " + error.getMessage(), error);
                         
+                        // 地址不可用时尝试备用地址
+                        if (localVideoFile == null && !triedFallback && isSourceError(error)) {
+                            triedFallback = true;
+                            retryWithFallbackUrl();
+                            return;
+                        }
+                        binding.progressBar.setVisibility(View.GONE);
+                        
                         String errorMessage = "视频播放出错: " + error.getMessage();
                         if (error.getCause() instanceof androidx.media3.datasource.HttpDataSource.InvalidResponseCodeException) {
                             androidx.media3.datasource.HttpDataSource.InvalidResponseCodeException httpError = 
@@ -289,6 +186,15 @@ public class VideoPlayerActivity extends AppCompatActivity {
                     }
                 });
                 
+                // 首次打开时从上次的位置继续，在prepare之前定位，不会先从头缓冲
+                if (!restoredPosition) {
+                    restoredPosition = true;
+                    playbackPosition = ProgressManager.getInstance(this).getPosition(courseId, videoPath);
+                    if (playbackPosition > 0) {
+                        Log.d(TAG, "从上次的位置继续播放: " + playbackPosition + "ms");
+                    }
+                }
+                
                 // 准备播放器
                 player.seekTo(currentWindow, playbackPosition);
                 player.prepare();
@@ -300,8 +206,56 @@ public class VideoPlayerActivity extends AppCompatActivity {
         }
     }
     
+    private static boolean isSourceError(androidx.media3.common.PlaybackException error) {
+        int code = error.errorCode;
+        return code == androidx.media3.common.PlaybackException.ERROR_CODE_IO_BAD_HTTP_STATUS
+                || code == androidx.media3.common.PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND
+                || code == androidx.media3.common.PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED
+                || code == androidx.media3.common.PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_TIMEOUT;
+    }
+    
+    // 同时探测备用地址，找到可用地址后从当前位置继续播放
+    private void retryWithFallbackUrl() {
+        MediaUrlResolver.getInstance(this).resolveFallback(videoPath, videoUrl,
+                new MediaUrlResolver.ResolveCallback() {
+            @Override
+            public void onResolved(String url) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                videoUrl = url;
+                if (player != null) {
+                    releasePlayer();
+                    initializePlayer();
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                showError("视频加载失败: " + message + "\n\n请检查网络连接或视频文件是否存在");
+            }
+        });
+    }
+    
+    // 保存当前播放位置，由ProgressManager批量上传
+    private void saveProgress() {
+        if (player == null || videoPath == null || player.getPlaybackState() == Player.STATE_IDLE) {
+            return;
+        }
+        long duration = player.getDuration();
+        long position = player.getPlaybackState() == Player.STATE_ENDED && duration > 0
+                ? duration : player.getCurrentPosition();
+        ProgressManager.getInstance(this).save(courseId, videoPath, position, duration > 0 ? duration : 0);
+    }
+    
     private void releasePlayer() {
+        progressHandler.removeCallbacks(saveProgressTask);
         if (player != null) {
+            saveProgress();
+            ProgressManager.getInstance(this).flush();
             playWhenReady = player.getPlayWhenReady();
             playbackPosition = player.getCurrentPosition();
             currentWindow = player.getCurrentMediaItemIndex();
@@ -330,13 +284,8 @@ public class VideoPlayerActivity extends AppCompatActivity {
         // 添加点击事件，在浏览器中打开视频
         binding.errorTextView.setOnClickListener(v -> {
             try {
-                // 尝试使用可能有效的URL格式
-                String urlToOpen;
-                if (courseTitle != null && courseTitle.contains("数据结构与算法")) {
-                    urlToOpen = AppConfig.BASE_URL + "book/dui.mp4";
-                } else {
-                    urlToOpen = buildVideoUrl();
-                }
+                String urlToOpen = videoUrl != null ? videoUrl
+                        : MediaUrlResolver.getInstance(this).resolve(videoPath);
                 
                 Intent intent = new Intent(Intent.ACTION_VIEW);
                 intent.setData(Uri.parse(urlToOpen));
@@ -393,12 +342,4 @@ public class VideoPlayerActivity extends AppCompatActivity {
             releasePlayer();
         }
     }
-
-    // 使用指定的URL播放视频
-    private void playVideoWithUrl(String url) {
-        // 设置视频路径
-        videoPath = url;
-        // 初始化播放器
-        initializePlayer();
-    }
-} 
\ No newline at end of file
+}
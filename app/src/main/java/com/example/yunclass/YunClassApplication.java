@@ -0,0 +1,66 @@
+package com.example.yunclass;
+
+import android.app.Application;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.data.ProgressManager;
+import com.example.yunclass.utils.PurchaseManager;
+import com.example.yunclass.utils.SessionManager;
+
+/**
+ * 应用程序入口
+ * 负责初始化需要应用级Context的全局组件
+ */
+public class YunClassApplication extends Application {
+    private static final String TAG = "YunClassApplication";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // 初始化网络客户端（磁盘缓存需要应用缓存目录）
+        ApiClient.init(this);
+        ApiClient.setUnauthorizedHandler(() -> mainHandler.post(this::onSessionExpired));
+
+        // 提前在后台加载播放进度，打开视频时可以直接定位
+        ProgressManager.getInstance(this);
+
+        // 提前读取购买记录文件
+        PurchaseManager.getInstance(this);
+
+        // 登录后上传未登录时保存的播放进度，获取其他设备上的进度和离线授权令牌
+        SessionManager.getInstance(this).addListener(user -> {
+            if (user == null) {
+                ApiClient.clearCookies();
+                // 播放进度只属于退出的用户
+                ProgressManager.getInstance(this).clearAll();
+                return;
+            }
+            ProgressManager progressManager = ProgressManager.getInstance(this);
+            progressManager.flush();
+            progressManager.pullRemote();
+            PurchaseManager.getInstance(this).refreshEntitlements(user.getId(), null);
+        });
+    }
+
+    // 本地显示已登录，但服务器不再认可保存的会话（服务器重启或会话过期），退出登录并回到登录页面
+    private void onSessionExpired() {
+        SessionManager sessionManager = SessionManager.getInstance(this);
+        if (!sessionManager.isLoggedIn()) {
+            return;
+        }
+        Log.w(TAG, "服务器登录会话已失效，退出登录");
+        sessionManager.logoutUser();
+        Toast.makeText(this, "登录已过期，请重新登录", Toast.LENGTH_SHORT).show();
+        Intent intent = new Intent(this, LoginActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        startActivity(intent);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.yunclass.adapter;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,34 +9,79 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
 import com.example.yunclass.R;
-import com.example.yunclass.api.ApiClient;
-import com.example.yunclass.config.AppConfig;
+import com.example.yunclass.image.CourseImage;
+import com.example.yunclass.image.ImageRequests;
 import com.example.yunclass.model.Course;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
-public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseViewHolder> {
+public class CourseAdapter extends DiffListAdapter<Course, CourseAdapter.CourseViewHolder>
+        implements ListPreloader.PreloadModelProvider<Course> {
+
+    // 滚动时提前加载的封面数量
+    private static final int PRELOAD_ITEMS = 6;
 
-    private List<Course> courses;
-    private List<Course> originalCourses; // 存储原始数据，用于搜索功能
     private Context context;
     private OnCourseClickListener listener;
+    // 封面按固定的像素尺寸解码，绑定和预加载使用同一个请求，缓存才能命中
+    private final int thumbnailSize;
+    private final RequestBuilder<Drawable> thumbnailRequest;
 
     // 定义接口用于处理点击事件
     public interface OnCourseClickListener {
         void onCourseClick(Course course);
     }
 
+    // 比较列表中显示的字段
+    @VisibleForTesting
+    static final ItemDiff<Course> DIFF = new ItemDiff<Course>() {
+        @Override
+        public long getId(@NonNull Course course) {
+            return course.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Course oldItem, @NonNull Course newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getAuthor(), newItem.getAuthor())
+                    && Objects.equals(oldItem.getLevel(), newItem.getLevel())
+                    && Objects.equals(oldItem.getImage(), newItem.getImage())
+                    && oldItem.getRating() == newItem.getRating();
+        }
+    };
+
     public CourseAdapter(Context context, List<Course> courses, OnCourseClickListener listener) {
+        super(DIFF);
         this.context = context;
-        this.courses = courses;
-        this.originalCourses = new ArrayList<>(courses); // 初始化原始数据
         this.listener = listener;
+        thumbnailSize = context.getResources().getDimensionPixelSize(R.dimen.course_thumbnail_size);
+        thumbnailRequest = Glide.with(context)
+                .asDrawable()
+                .apply(ImageRequests.thumbnail(thumbnailSize, thumbnailSize))
+                .placeholder(R.mipmap.ic_launcher)
+                .error(R.mipmap.ic_launcher);
+        setItems(courses);
+    }
+
+    /**
+     * 在列表滚动时预加载即将显示的课程封面
+     */
+    public void attachPreloader(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerViewPreloader<>(Glide.with(context), this,
+                new FixedPreloadSizeProvider<>(thumbnailSize, thumbnailSize), PRELOAD_ITEMS));
     }
 
     @NonNull
@@ -47,7 +93,7 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
 
     @Override
     public void onBindViewHolder(@NonNull CourseViewHolder holder, int position) {
-        Course course = courses.get(position);
+        Course course = getItem(position);
         holder.titleTextView.setText(course.getTitle());
         holder.descriptionTextView.setText(course.getDescription());
         holder.authorTextView.setText(course.getAuthor());
@@ -55,11 +101,8 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
         holder.ratingTextView.setText(course.getRating() + "分");
 
         // 加载课程图片
-        String imageUrl = AppConfig.BASE_URL + "api/course-image/" + course.getImage();
-        Glide.with(context)
-                .load(imageUrl)
-                .placeholder(R.mipmap.ic_launcher)
-                .error(R.mipmap.ic_launcher)
+        thumbnailRequest.clone()
+                .load(new CourseImage(course.getImage()))
                 .into(holder.imageView);
 
         // 点击事件
@@ -70,23 +113,30 @@ public class CourseAdapter extends RecyclerView.Adapter<CourseAdapter.CourseView
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return courses != null ? courses.size() : 0;
-    }
-
     public void setCourses(List<Course> courses) {
-        this.courses = courses;
-        this.originalCourses = new ArrayList<>(courses); // 保存原始数据副本
-        notifyDataSetChanged();
+        setItems(courses);
     }
     
     /**
-     * 获取所有原始课程数据，用于搜索功能
-     * @return 原始课程列表
+     * 追加一批课程，用于流式加载时逐批显示
      */
-    public List<Course> getAllCourses() {
-        return originalCourses != null ? originalCourses : new ArrayList<>();
+    public void addCourses(List<Course> batch) {
+        appendItems(batch);
+    }
+
+    @NonNull
+    @Override
+    public List<Course> getPreloadItems(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(getItem(position));
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Course course) {
+        return thumbnailRequest.clone().load(new CourseImage(course.getImage()));
     }
 
     static class CourseViewHolder extends RecyclerView.ViewHolder {
@@ -0,0 +1,108 @@
+package com.example.yunclass.adapter;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 列表适配器基类
+ *
+ * 更新数据时在后台线程用DiffUtil比较新旧列表，只刷新真正变化的条目，
+ * 定时刷新或分页追加时未变化的条目不会重新绑定（也不会重新加载图片）。
+ * 子类通过 {@link ItemDiff} 提供条目ID和内容比较，条目ID同时作为稳定ID。
+ */
+public abstract class DiffListAdapter<T, VH extends RecyclerView.ViewHolder> extends ListAdapter<T, VH> {
+
+    // 所有列表共用一个比较线程，按提交顺序依次计算
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final ItemDiff<T> itemDiff;
+
+    // 最近一次提交的列表。submitList是异步的，连续追加时必须基于这份列表而不是getCurrentList()
+    private List<T> items = Collections.emptyList();
+
+    /**
+     * 条目比较规则
+     */
+    public abstract static class ItemDiff<T> extends DiffUtil.ItemCallback<T> {
+        /**
+         * 条目的唯一ID，用于判断是否为同一条数据，并作为RecyclerView的稳定ID
+         */
+        public abstract long getId(@NonNull T item);
+
+        /**
+         * 同一条数据的显示内容是否相同，只需比较界面上用到的字段
+         */
+        @Override
+        public abstract boolean areContentsTheSame(@NonNull T oldItem, @NonNull T newItem);
+
+        @Override
+        public boolean areItemsTheSame(@NonNull T oldItem, @NonNull T newItem) {
+            return getId(oldItem) == getId(newItem);
+        }
+    }
+
+    protected DiffListAdapter(@NonNull ItemDiff<T> itemDiff) {
+        super(new AsyncDifferConfig.Builder<>(itemDiff)
+                .setBackgroundThreadExecutor(DIFF_EXECUTOR)
+                .build());
+        this.itemDiff = itemDiff;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return itemDiff.getId(getItem(position));
+    }
+
+    /**
+     * 替换全部数据，只刷新有变化的条目
+     */
+    public void setItems(List<T> newItems) {
+        items = newItems != null ? new ArrayList<>(newItems) : new ArrayList<>();
+        submitList(items);
+    }
+
+    /**
+     * 在末尾追加一批数据，用于分页或流式加载
+     */
+    public void appendItems(List<T> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        List<T> newItems = new ArrayList<>(items.size() + batch.size());
+        newItems.addAll(items);
+        newItems.addAll(batch);
+        items = newItems;
+        submitList(items);
+    }
+
+    /**
+     * 在开头插入一条数据
+     */
+    public void prependItem(T item) {
+        if (item == null) {
+            return;
+        }
+        List<T> newItems = new ArrayList<>(items.size() + 1);
+        newItems.add(item);
+        newItems.addAll(items);
+        items = newItems;
+        submitList(items);
+    }
+
+    /**
+     * 最近一次提交的数据（可能还在后台比较中，尚未显示）
+     */
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+}
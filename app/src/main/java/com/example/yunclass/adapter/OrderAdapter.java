@@ -18,18 +18,34 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHolder> {
+public class OrderAdapter extends DiffListAdapter<Order, OrderAdapter.OrderViewHolder> {
 
     private Context context;
-    private List<Order> orders;
     private SimpleDateFormat dateFormat;
     private NumberFormat currencyFormat;
     private static final String TAG = "OrderAdapter";
 
+    // 比较列表中显示的字段
+    private static final ItemDiff<Order> DIFF = new ItemDiff<Order>() {
+        @Override
+        public long getId(@NonNull Order order) {
+            return order.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Order oldItem, @NonNull Order newItem) {
+            return Objects.equals(oldItem.getCourseTitle(), newItem.getCourseTitle())
+                    && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt())
+                    && oldItem.getPrice() == newItem.getPrice();
+        }
+    };
+
     public OrderAdapter(Context context, List<Order> orders) {
+        super(DIFF);
         this.context = context;
-        this.orders = orders;
+        setItems(orders);
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault());
         this.currencyFormat = NumberFormat.getCurrencyInstance(Locale.CHINA);
     }
@@ -43,7 +59,7 @@ public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHol
 
     @Override
     public void onBindViewHolder(@NonNull OrderViewHolder holder, int position) {
-        Order order = orders.get(position);
+        Order order = getItem(position);
         
         holder.titleTextView.setText(order.getCourseTitle());
         holder.idTextView.setText(String.valueOf(order.getId()));
@@ -61,14 +77,15 @@ public class OrderAdapter extends RecyclerView.Adapter<OrderAdapter.OrderViewHol
         holder.priceTextView.setText(currencyFormat.format(order.getPrice()));
     }
 
-    @Override
-    public int getItemCount() {
-        return orders != null ? orders.size() : 0;
+    public void setOrders(List<Order> orders) {
+        setItems(orders);
     }
 
-    public void setOrders(List<Order> orders) {
-        this.orders = orders;
-        notifyDataSetChanged();
+    /**
+     * 追加一页订单，用于分页加载
+     */
+    public void addOrders(List<Order> batch) {
+        appendItems(batch);
     }
 
     static class OrderViewHolder extends RecyclerView.ViewHolder {
@@ -15,12 +15,11 @@ import com.example.yunclass.model.Course;
 import com.example.yunclass.model.CourseContent;
 import com.google.android.material.button.MaterialButton;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
-public class SubCourseAdapter extends RecyclerView.Adapter<SubCourseAdapter.SubCourseViewHolder> {
+public class SubCourseAdapter extends DiffListAdapter<Course, SubCourseAdapter.SubCourseViewHolder> {
 
-    private List<Course> subCourses;
     private Context context;
     private OnSubCourseClickListener listener;
 
@@ -30,10 +29,27 @@ public class SubCourseAdapter extends RecyclerView.Adapter<SubCourseAdapter.SubC
         void onContentClick(Course subCourse, CourseContent content);
     }
 
+    // 比较列表中显示的字段和内容选项
+    private static final ItemDiff<Course> DIFF = new ItemDiff<Course>() {
+        @Override
+        public long getId(@NonNull Course subCourse) {
+            return subCourse.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Course oldItem, @NonNull Course newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getDuration(), newItem.getDuration())
+                    && Objects.equals(oldItem.getContentType(), newItem.getContentType())
+                    && sameContents(oldItem.getContents(), newItem.getContents());
+        }
+    };
+
     public SubCourseAdapter(Context context, OnSubCourseClickListener listener) {
+        super(DIFF);
         this.context = context;
         this.listener = listener;
-        this.subCourses = new ArrayList<>();
     }
 
     @NonNull
@@ -45,7 +61,7 @@ public class SubCourseAdapter extends RecyclerView.Adapter<SubCourseAdapter.SubC
 
     @Override
     public void onBindViewHolder(@NonNull SubCourseViewHolder holder, int position) {
-        Course subCourse = subCourses.get(position);
+        Course subCourse = getItem(position);
         
         holder.titleTextView.setText(subCourse.getTitle());
         holder.descriptionTextView.setText(subCourse.getDescription());
@@ -126,14 +142,26 @@ public class SubCourseAdapter extends RecyclerView.Adapter<SubCourseAdapter.SubC
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return subCourses != null ? subCourses.size() : 0;
+    public void setSubCourses(List<Course> subCourses) {
+        setItems(subCourses);
     }
 
-    public void setSubCourses(List<Course> subCourses) {
-        this.subCourses = subCourses != null ? subCourses : new ArrayList<>();
-        notifyDataSetChanged();
+    private static boolean sameContents(List<CourseContent> a, List<CourseContent> b) {
+        int sizeA = a != null ? a.size() : 0;
+        int sizeB = b != null ? b.size() : 0;
+        if (sizeA != sizeB) {
+            return false;
+        }
+        for (int i = 0; i < sizeA; i++) {
+            CourseContent x = a.get(i);
+            CourseContent y = b.get(i);
+            if (!Objects.equals(x.getType(), y.getType())
+                    || !Objects.equals(x.getPath(), y.getPath())
+                    || !Objects.equals(x.getLabel(), y.getLabel())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     static class SubCourseViewHolder extends RecyclerView.ViewHolder {
@@ -14,18 +14,36 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.example.yunclass.R;
+import com.example.yunclass.image.ImageRequests;
 import com.example.yunclass.model.Website;
 
 import java.util.List;
+import java.util.Objects;
 
-public class WebsiteAdapter extends RecyclerView.Adapter<WebsiteAdapter.WebsiteViewHolder> {
+public class WebsiteAdapter extends DiffListAdapter<Website, WebsiteAdapter.WebsiteViewHolder> {
 
-    private List<Website> websites;
     private Context context;
 
+    // 比较列表中显示的字段
+    private static final ItemDiff<Website> DIFF = new ItemDiff<Website>() {
+        @Override
+        public long getId(@NonNull Website website) {
+            return website.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Website oldItem, @NonNull Website newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && Objects.equals(oldItem.getImage(), newItem.getImage())
+                    && Objects.equals(oldItem.getUrl(), newItem.getUrl());
+        }
+    };
+
     public WebsiteAdapter(Context context, List<Website> websites) {
+        super(DIFF);
         this.context = context;
-        this.websites = websites;
+        setItems(websites);
     }
 
     @NonNull
@@ -37,13 +55,14 @@ public class WebsiteAdapter extends RecyclerView.Adapter<WebsiteAdapter.WebsiteV
 
     @Override
     public void onBindViewHolder(@NonNull WebsiteViewHolder holder, int position) {
-        Website website = websites.get(position);
+        Website website = getItem(position);
         holder.nameTextView.setText(website.getName());
         holder.descriptionTextView.setText(website.getDescription());
 
         // 加载图片
         Glide.with(context)
                 .load(website.getImage())
+                .apply(ImageRequests.cover())
                 .placeholder(R.mipmap.ic_launcher)
                 .error(R.mipmap.ic_launcher)
                 .into(holder.imageView);
@@ -55,14 +74,8 @@ public class WebsiteAdapter extends RecyclerView.Adapter<WebsiteAdapter.WebsiteV
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return websites != null ? websites.size() : 0;
-    }
-
     public void setWebsites(List<Website> websites) {
-        this.websites = websites;
-        notifyDataSetChanged();
+        setItems(websites);
     }
 
     static class WebsiteViewHolder extends RecyclerView.ViewHolder {
@@ -1,162 +1,179 @@
 package com.example.yunclass.api;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.File;
 import java.util.concurrent.TimeUnit;
 import java.util.Date;
-import java.lang.reflect.Type;
-import java.text.SimpleDateFormat;
-import java.util.Locale;
-import java.util.TimeZone;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
 import com.example.yunclass.config.AppConfig;
 
-import okhttp3.Cookie;
-import okhttp3.CookieJar;
+import okhttp3.Cache;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Response;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.util.Log;
 
 public class ApiClient {
     
     // 从AppConfig获取BASE_URL，便于统一管理
     private static Retrofit retrofit = null;
-    private static final Map<String, List<Cookie>> cookieStore = new HashMap<>();
+    private static ApiService apiService = null;
+    private static OkHttpClient sharedClient = null;
+    private static OkHttpClient okHttpClient = null;
+    private static PersistentCookieJar cookieJar = null;
     
-    public static ApiService getApiService() {
-        if (retrofit == null) {
+    // HTTP磁盘缓存配置
+    private static final String HTTP_CACHE_DIR = "http_cache";
+    private static final long HTTP_CACHE_SIZE = 20L * 1024 * 1024; // 20MB
+    
+    private static Context appContext = null;
+    private static Gson gson = null;
+    private static volatile Runnable unauthorizedHandler = null;
+    
+    /**
+     * 初始化网络客户端，应在Application.onCreate中调用
+     * 提供Context后才会启用磁盘响应缓存
+     * @param context 上下文
+     */
+    public static synchronized void init(Context context) {
+        if (appContext == null && context != null) {
+            appContext = context.getApplicationContext();
+        }
+    }
+    
+    /**
+     * 设置服务器返回401（登录会话已失效，如服务器重启或会话过期）时的处理，在OkHttp的线程中调用
+     */
+    public static void setUnauthorizedHandler(Runnable handler) {
+        unauthorizedHandler = handler;
+    }
+    
+    /**
+     * 获取接口服务，代理对象只创建一次，所有调用方共用
+     */
+    public static synchronized ApiService getApiService() {
+        if (apiService == null) {
+            // 创建Retrofit实例
+            retrofit = new Retrofit.Builder()
+                    .baseUrl(AppConfig.BASE_URL)
+                    .client(getOkHttpClient())
+                    .addConverterFactory(GsonConverterFactory.create(getGson()))
+                    .build();
+            apiService = retrofit.create(ApiService.class);
+        }
+        
+        return apiService;
+    }
+    
+    /**
+     * 获取应用内所有OkHttpClient共用的基础客户端
+     * 不带Cookie、缓存和拦截器，访问第三方服务（如AI客服）时用newBuilder()在此基础上创建，
+     * 与接口、图片和视频请求共用连接池和线程池
+     */
+    public static synchronized OkHttpClient getSharedClient() {
+        if (sharedClient == null) {
+            sharedClient = new OkHttpClient();
+        }
+        return sharedClient;
+    }
+    
+    /**
+     * 获取接口使用的OkHttpClient，访问本应用服务器的其他组件（如图片、视频加载）应基于它创建，共用连接池和Cookie
+     */
+    public static synchronized OkHttpClient getOkHttpClient() {
+        if (okHttpClient == null) {
             // 创建日志拦截器
             HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor(message -> {
                 Log.d("OkHttp", message);
             });
-            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
+            // BODY级别会把整个响应体读入内存，破坏流式解析，因此调试版只记录请求头，发布版不记录
+            loggingInterceptor.setLevel(isDebuggable()
+                    ? HttpLoggingInterceptor.Level.HEADERS
+                    : HttpLoggingInterceptor.Level.NONE);
+            
+            // 课程、网站等目录接口：优先返回缓存，后台条件请求刷新
+            StaleWhileRevalidateInterceptor staleWhileRevalidate =
+                    new StaleWhileRevalidateInterceptor("/api/courses", "/api/websites");
             
             // 创建OkHttpClient，添加Cookie管理
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .addInterceptor(loggingInterceptor)
-                    .cookieJar(new CookieJar() {
-                        @Override
-                        public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
-                            Log.d("ApiClient", "Saving cookies for host: " + url.host());
-                            cookieStore.put(url.host(), cookies);
-                        }
-
-                        @Override
-                        public List<Cookie> loadForRequest(HttpUrl url) {
-                            List<Cookie> cookies = cookieStore.get(url.host());
-                            Log.d("ApiClient", "Loading cookies for host: " + url.host() + 
-                                    ", found: " + (cookies != null ? cookies.size() : 0));
-                            return cookies != null ? cookies : new ArrayList<>();
+            OkHttpClient.Builder clientBuilder = getSharedClient().newBuilder()
+                    .addInterceptor(chain -> {
+                        // 保存的Cookie对应的会话在服务器上已不存在
+                        Response response = chain.proceed(chain.request());
+                        Runnable handler = unauthorizedHandler;
+                        if (response.code() == 401 && handler != null) {
+                            handler.run();
                         }
+                        return response;
                     })
+                    .addInterceptor(staleWhileRevalidate)
+                    .addInterceptor(loggingInterceptor)
+                    .cookieJar(getCookieJar())
                     .connectTimeout(15, TimeUnit.SECONDS)
                     .readTimeout(15, TimeUnit.SECONDS)
-                    .writeTimeout(15, TimeUnit.SECONDS)
-                    .build();
+                    .writeTimeout(15, TimeUnit.SECONDS);
             
-            // 创建自定义Gson实例以正确处理日期格式
-            Gson gson = new GsonBuilder()
-                    .registerTypeAdapter(Date.class, new JsonDeserializer<Date>() {
-                        @Override
-                        public Date deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-                            try {
-                                // 打印接收到的日期字符串，用于调试
-                                String jsonString = json.toString();
-                                System.out.println("Date JSON: " + jsonString);
-                                
-                                // 优先使用当前时间而不是硬编码的时间
-                                Date currentDate = new Date();
-                                System.out.println("Current system date: " + currentDate);
-                                
-                                // 尝试作为时间戳处理
-                                if (json.isJsonPrimitive() && json.getAsJsonPrimitive().isNumber()) {
-                                    return new Date(json.getAsLong());
-                                }
-                                
-                                // 尝试作为字符串处理
-                                if (json.isJsonPrimitive() && json.getAsJsonPrimitive().isString()) {
-                                    String dateStr = json.getAsString();
-                                    System.out.println("Parsing date string: " + dateStr);
-                                    
-                                    // 处理ISO格式 (2023-05-29T10:07:18.000Z)
-                                    if (dateStr.contains("T") && (dateStr.contains("Z") || dateStr.contains("+"))) {
-                                        try {
-                                            SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
-                                            isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-                                            Date parsedDate = isoFormat.parse(dateStr);
-                                            System.out.println("Successfully parsed ISO date: " + parsedDate);
-                                            return parsedDate;
-                                        } catch (Exception e) {
-                                            System.out.println("ISO date parse error: " + e.getMessage());
-                                            // 尝试不同的ISO格式
-                                            try {
-                                                SimpleDateFormat altIsoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
-                                                Date parsedDate = altIsoFormat.parse(dateStr);
-                                                System.out.println("Successfully parsed alternative ISO date: " + parsedDate);
-                                                return parsedDate;
-                                            } catch (Exception e2) {
-                                                System.out.println("Alternative ISO date parse error: " + e2.getMessage());
-                                            }
-                                        }
-                                    }
-                                    
-                                    // 处理MySQL格式 (2023-05-29 10:07:18)
-                                    if (dateStr.contains("-") && dateStr.contains(":")) {
-                                        try {
-                                            SimpleDateFormat mysqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
-                                            Date parsedDate = mysqlFormat.parse(dateStr);
-                                            System.out.println("Successfully parsed MySQL date: " + parsedDate);
-                                            return parsedDate;
-                                        } catch (Exception e) {
-                                            System.out.println("MySQL date parse error: " + e.getMessage());
-                                        }
-                                    }
-                                    
-                                    // 处理简单日期格式 (2023-05-29)
-                                    if (dateStr.contains("-") && dateStr.length() == 10) {
-                                        try {
-                                            SimpleDateFormat simpleFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-                                            Date parsedDate = simpleFormat.parse(dateStr);
-                                            System.out.println("Successfully parsed simple date: " + parsedDate);
-                                            return parsedDate;
-                                        } catch (Exception e) {
-                                            System.out.println("Simple date parse error: " + e.getMessage());
-                                        }
-                                    }
-                                }
-                                
-                                // 如果无法解析，返回当前时间
-                                System.out.println("Returning current date as fallback");
-                                return currentDate;
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                                return new Date(); // 出错时返回当前时间
-                            }
-                        }
-                    })
-                    .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
-                    .create();
+            // 启用磁盘缓存（需要先调用init）
+            if (appContext != null) {
+                File cacheDir = new File(appContext.getCacheDir(), HTTP_CACHE_DIR);
+                clientBuilder.cache(new Cache(cacheDir, HTTP_CACHE_SIZE));
+            } else {
+                Log.w("ApiClient", "ApiClient未初始化，HTTP缓存未启用");
+            }
             
-            // 创建Retrofit实例
-            retrofit = new Retrofit.Builder()
-                    .baseUrl(AppConfig.BASE_URL)
-                    .client(client)
-                    .addConverterFactory(GsonConverterFactory.create(gson))
-                    .build();
+            okHttpClient = clientBuilder.build();
+            if (okHttpClient.cache() != null) {
+                staleWhileRevalidate.attach(okHttpClient);
+            }
         }
         
-        return retrofit.create(ApiService.class);
+        return okHttpClient;
+    }
+    
+    private static synchronized PersistentCookieJar getCookieJar() {
+        if (cookieJar == null) {
+            // 登录会话的Cookie保存在磁盘上，应用重启后不需要重新登录
+            cookieJar = new PersistentCookieJar(appContext);
+        }
+        return cookieJar;
+    }
+    
+    /**
+     * 是否保存有服务器的登录会话Cookie，没有时接口请求会返回401
+     */
+    public static boolean hasSession() {
+        HttpUrl url = HttpUrl.parse(AppConfig.BASE_URL);
+        return url != null && getCookieJar().hasCookies(url);
+    }
+    
+    /**
+     * 删除所有Cookie，退出登录时调用
+     */
+    public static void clearCookies() {
+        getCookieJar().clear();
+    }
+    
+    /**
+     * 获取与Retrofit共用的Gson实例，流式解析时使用
+     */
+    public static synchronized Gson getGson() {
+        if (gson == null) {
+            // 创建自定义Gson实例以正确处理日期格式
+            gson = new GsonBuilder()
+                    .registerTypeAdapter(Date.class, new DateTypeAdapter())
+                    .create();
+        }
+        return gson;
+    }
+    
+    private static boolean isDebuggable() {
+        return appContext != null
+                && (appContext.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
     }
 } 
\ No newline at end of file
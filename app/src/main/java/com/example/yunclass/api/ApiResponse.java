@@ -2,6 +2,7 @@ package com.example.yunclass.api;
 
 import com.example.yunclass.model.Account;
 import com.example.yunclass.model.Course;
+import com.example.yunclass.model.Entitlements;
 import com.example.yunclass.model.Order;
 import com.example.yunclass.model.Question;
 import com.example.yunclass.model.Reply;
@@ -23,6 +24,7 @@ public class ApiResponse<T> {
     private List<Question> questions;
     private Question question;
     private Reply reply;
+    private Entitlements entitlements;
 
     @SerializedName("data")
     private T data;
@@ -125,4 +127,12 @@ public class ApiResponse<T> {
     public void setReply(Reply reply) {
         this.reply = reply;
     }
+
+    public Entitlements getEntitlements() {
+        return entitlements;
+    }
+
+    public void setEntitlements(Entitlements entitlements) {
+        this.entitlements = entitlements;
+    }
 } 
\ No newline at end of file
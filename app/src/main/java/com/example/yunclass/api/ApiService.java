@@ -3,8 +3,10 @@ package com.example.yunclass.api;
 import com.example.yunclass.model.Account;
 import com.example.yunclass.model.Course;
 import com.example.yunclass.model.Order;
+import com.example.yunclass.model.PlaybackProgress;
 import com.example.yunclass.model.Question;
 import com.example.yunclass.model.Reply;
+import com.example.yunclass.model.SyncData;
 import com.example.yunclass.model.User;
 import com.example.yunclass.model.Website;
 
@@ -17,6 +19,9 @@ import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
+import retrofit2.http.HEAD;
+import retrofit2.http.Header;
+import retrofit2.http.Headers;
 import retrofit2.http.Multipart;
 import retrofit2.http.POST;
 import retrofit2.http.Part;
@@ -39,6 +44,25 @@ public interface ApiService {
     @GET("api/courses")
     Call<ApiResponse<List<Course>>> getCourses();
     
+    /**
+     * 分页流式获取课程列表，配合JsonListStreamer边下载边解析
+     * @param after 上一页返回的nextCursor，第一页传null
+     * @param limit 每页条数
+     */
+    @Streaming
+    @GET("api/courses")
+    Call<ResponseBody> streamCourses(@Query("after") String after, @Query("limit") int limit);
+    
+    /**
+     * 服务器端全文搜索课程，用于本地课程目录不完整时
+     * 不使用"先用缓存"策略，每次都向服务器查询
+     * @param query 搜索内容
+     * @param limit 最多返回的结果数
+     */
+    @Headers("Cache-Control: no-cache")
+    @GET("api/courses/search")
+    Call<ApiResponse<List<Course>>> searchCourses(@Query("q") String query, @Query("limit") int limit);
+    
     @GET("api/websites")
     Call<ApiResponse<List<Website>>> getWebsites();
     
@@ -48,6 +72,15 @@ public interface ApiService {
     @GET("api/orders")
     Call<ApiResponse<List<Order>>> getOrders();
     
+    /**
+     * 分页流式获取订单列表
+     * @param after 上一页返回的nextCursor，第一页传null
+     * @param limit 每页条数
+     */
+    @Streaming
+    @GET("api/orders")
+    Call<ResponseBody> streamOrders(@Query("after") String after, @Query("limit") int limit);
+    
     @POST("api/purchase")
     Call<ApiResponse<Order>> purchaseCourse(@Body Map<String, Object> purchaseData);
     
@@ -60,6 +93,21 @@ public interface ApiService {
     @GET("api/my-questions")
     Call<ApiResponse<List<Question>>> getMyQuestions();
     
+    /**
+     * 分页流式获取问题列表，配合JsonListStreamer边下载边解析
+     * @param after 上一页返回的nextCursor，第一页传null
+     * @param limit 每页条数
+     */
+    @Streaming
+    @GET("api/questions")
+    Call<ResponseBody> streamQuestions(@Query("all") String all,
+                                       @Query("after") String after,
+                                       @Query("limit") int limit);
+    
+    @Streaming
+    @GET("api/my-questions")
+    Call<ResponseBody> streamMyQuestions(@Query("after") String after, @Query("limit") int limit);
+    
     @GET("api/questions/{id}")
     Call<ApiResponse<Question>> getQuestionDetail(@Path("id") int questionId);
     
@@ -87,6 +135,29 @@ public interface ApiService {
     @GET
     Call<ResponseBody> downloadFile(@Url String url);
     
+    /**
+     * 分段下载文件，用于断点续传
+     * @param url 文件URL
+     * @param range Range请求头，如 bytes=0-1023
+     * @param ifRange 文件的ETag或Last-Modified，文件已变化时服务器忽略Range返回完整文件；为null时不发送
+     * @return 206时为请求的片段，200时为完整文件
+     */
+    @Streaming
+    @GET
+    @Headers("Cache-Control: no-store")
+    Call<ResponseBody> downloadRange(
+            @Url String url,
+            @Header("Range") String range,
+            @Header("If-Range") String ifRange);
+    
+    /**
+     * 检查文件是否可访问，只获取响应头
+     * @param url 文件URL
+     */
+    @HEAD
+    @Headers("Cache-Control: no-store")
+    Call<Void> head(@Url String url);
+    
     /**
      * 获取课程详情，包括内容类型和路径
      * @param courseId 课程ID
@@ -102,4 +173,33 @@ public interface ApiService {
      */
     @GET("api/courses/{id}/subcourses")
     Call<ApiResponse<List<Course>>> getSubCourses(@Path("id") int courseId);
+    
+    /**
+     * 增量同步课程和订单
+     * @param since 上次同步返回的令牌，为null时全量同步
+     * @return 变化的课程、已删除课程ID和新增订单
+     */
+    @GET("api/sync")
+    Call<ApiResponse<SyncData>> sync(@Query("since") String since);
+    
+    /**
+     * 批量上传播放进度，服务器按updatedAt保留较新的记录
+     * @param body {"items": [进度, ...]}
+     */
+    @POST("api/progress")
+    Call<ApiResponse<Void>> uploadProgress(@Body Map<String, List<PlaybackProgress>> body);
+    
+    /**
+     * 获取当前用户在所有设备上的播放进度
+     * @param since 上次获取到的记录中最大的modifiedAt（服务器写入时间），为null时返回全部
+     */
+    @GET("api/progress")
+    Call<ApiResponse<List<PlaybackProgress>>> getProgress(@Query("since") Long since);
+    
+    /**
+     * 获取服务器签名的离线授权令牌，包含当前用户已购买的全部课程
+     */
+    @Headers("Cache-Control: no-store")
+    @GET("api/entitlements")
+    Call<ApiResponse<Void>> getEntitlements();
 } 
\ No newline at end of file
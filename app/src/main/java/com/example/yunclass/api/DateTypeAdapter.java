@@ -0,0 +1,57 @@
+package com.example.yunclass.api;
+
+import android.util.Log;
+
+import com.example.yunclass.utils.DateParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Gson日期适配器
+ * 直接在JsonReader上读取，不构建JsonElement树，解析交给线程安全的DateParser
+ */
+public class DateTypeAdapter extends TypeAdapter<Date> {
+    private static final String TAG = "DateTypeAdapter";
+
+    @Override
+    public void write(JsonWriter out, Date value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else {
+            out.value(DateParser.formatIso(value.getTime()));
+        }
+    }
+
+    @Override
+    public Date read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        // 时间戳
+        if (token == JsonToken.NUMBER) {
+            return new Date(in.nextLong());
+        }
+
+        if (token == JsonToken.STRING) {
+            String text = in.nextString();
+            long millis = DateParser.parse(text);
+            if (millis != DateParser.INVALID) {
+                return new Date(millis);
+            }
+            Log.w(TAG, "无法解析的日期: " + text);
+        } else {
+            in.skipValue();
+        }
+
+        // 如果无法解析，返回当前时间
+        return new Date();
+    }
+}
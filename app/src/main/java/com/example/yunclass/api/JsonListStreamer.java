@@ -0,0 +1,202 @@
+package com.example.yunclass.api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 列表接口的流式解析器
+ *
+ * 服务器返回 {"success": true, "courses": [...]} 这样的结构，本类用JsonReader边下载边解析，
+ * 每解析出 batchSize 个元素就回调一次，不需要先把整个响应体读入内存再转换成ApiResponse。
+ * 接口需要在ApiService中声明为 @Streaming 并返回 Call&lt;ResponseBody&gt;。
+ */
+public class JsonListStreamer<T> {
+    private static final String TAG = "JsonListStreamer";
+
+    // 读取响应体的线程，Retrofit的enqueue回调在主线程，不能在那里读取网络流
+    private static final ExecutorService STREAM_EXECUTOR = Executors.newFixedThreadPool(2);
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final TypeAdapter<T> adapter;
+    private final Gson gson;
+    private final String listField;
+    private final int batchSize;
+
+    /**
+     * 流式回调，始终在主线程执行
+     */
+    public interface StreamCallback<T> {
+        /**
+         * 解析出一批数据
+         */
+        void onBatch(List<T> batch);
+
+        /**
+         * 全部数据解析完成
+         * @param total 数据总数
+         * @param nextCursor 分页接口返回的下一页游标，没有更多数据或接口不分页时为null
+         */
+        void onComplete(int total, String nextCursor);
+
+        void onError(String message);
+    }
+
+    /**
+     * 解析线程上的批次回调
+     */
+    public interface BatchListener<T> {
+        void onBatch(List<T> batch);
+    }
+
+    /**
+     * 解析结果
+     */
+    public static class Result {
+        private boolean success;
+        private String message;
+        private int count;
+        private String nextCursor;
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    /**
+     * @param gson 与Retrofit共用的Gson实例
+     * @param type 列表元素类型
+     * @param listField 列表所在的字段名，如 "courses"、"questions"
+     * @param batchSize 每批回调的元素个数
+     */
+    public JsonListStreamer(Gson gson, Class<T> type, String listField, int batchSize) {
+        this.gson = gson;
+        this.adapter = gson.getAdapter(type);
+        this.listField = listField;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 在后台线程执行请求并流式解析，结果回调到主线程
+     * @return 传入的Call，可用于取消请求
+     */
+    public Call<ResponseBody> enqueue(Call<ResponseBody> call, StreamCallback<T> callback) {
+        STREAM_EXECUTOR.execute(() -> {
+            try {
+                Response<ResponseBody> response = call.execute();
+                // 错误响应（如401）同样是JSON格式，解析其中的message
+                ResponseBody body = response.isSuccessful() ? response.body() : response.errorBody();
+                if (body == null) {
+                    postError(call, callback, "请求失败: " + response.code());
+                    return;
+                }
+
+                Result result = read(body, batch -> MAIN_HANDLER.post(() -> {
+                    if (!call.isCanceled()) {
+                        callback.onBatch(batch);
+                    }
+                }));
+
+                if (!response.isSuccessful() || !result.isSuccess()) {
+                    postError(call, callback, result.getMessage() != null
+                            ? result.getMessage() : "请求失败: " + response.code());
+                } else {
+                    MAIN_HANDLER.post(() -> {
+                        if (!call.isCanceled()) {
+                            callback.onComplete(result.getCount(), result.getNextCursor());
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                if (call.isCanceled()) {
+                    return;
+                }
+                Log.e(TAG, "流式解析失败: " + listField, e);
+                postError(call, callback, "网络错误: " + e.getMessage());
+            }
+        });
+        return call;
+    }
+
+    /**
+     * 在当前线程读取并解析响应体
+     * @param listener 每解析出一批数据时在当前线程回调
+     */
+    public Result read(ResponseBody body, BatchListener<T> listener) throws IOException {
+        Result result = new Result();
+        try (JsonReader reader = gson.newJsonReader(body.charStream())) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if ("success".equals(name) && token == JsonToken.BOOLEAN) {
+                    result.success = reader.nextBoolean();
+                } else if ("message".equals(name) && token == JsonToken.STRING) {
+                    result.message = reader.nextString();
+                } else if ("nextCursor".equals(name) && token == JsonToken.STRING) {
+                    result.nextCursor = reader.nextString();
+                } else if (listField.equals(name) && token == JsonToken.BEGIN_ARRAY) {
+                    result.count += readArray(reader, listener);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return result;
+    }
+
+    private int readArray(JsonReader reader, BatchListener<T> listener) throws IOException {
+        int count = 0;
+        List<T> batch = new ArrayList<>(batchSize);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            batch.add(adapter.read(reader));
+            count++;
+            if (batch.size() >= batchSize) {
+                listener.onBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        reader.endArray();
+        if (!batch.isEmpty()) {
+            listener.onBatch(batch);
+        }
+        return count;
+    }
+
+    private void postError(Call<ResponseBody> call, StreamCallback<T> callback, String message) {
+        MAIN_HANDLER.post(() -> {
+            if (!call.isCanceled()) {
+                callback.onError(message);
+            }
+        });
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.yunclass.api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Cookie;
+import okhttp3.CookieJar;
+import okhttp3.HttpUrl;
+
+/**
+ * 保存在磁盘上的Cookie
+ *
+ * Cookie按名称、域名和路径区分，同名Cookie以最新的为准；发送请求时由 {@link Cookie#matches} 判断域名、路径和secure属性，
+ * 过期的Cookie在读取时删除。带过期时间的Cookie（如登录会话）同时写入SharedPreferences，应用重启后继续使用，
+ * 不需要重新登录；没有过期时间的Cookie只保存在内存中。
+ * OkHttp会在多个线程中同时调用，内存中使用ConcurrentHashMap，写磁盘使用apply()在后台完成。
+ */
+public class PersistentCookieJar implements CookieJar {
+    private static final String TAG = "PersistentCookieJar";
+    private static final String PREF_NAME = "cookie_store";
+
+    private final Map<String, Cookie> cookies = new ConcurrentHashMap<>();
+    // 未提供Context时只保存在内存中
+    private final SharedPreferences prefs;
+
+    /**
+     * 从磁盘读取保存的Cookie
+     * @param context 为null时不保存到磁盘
+     */
+    public PersistentCookieJar(Context context) {
+        prefs = context != null ? context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE) : null;
+        if (prefs == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        SharedPreferences.Editor expired = prefs.edit();
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            Cookie cookie = entry.getValue() instanceof String ? decode((String) entry.getValue()) : null;
+            if (cookie == null || cookie.expiresAt() <= now) {
+                expired.remove(entry.getKey());
+            } else {
+                cookies.put(entry.getKey(), cookie);
+            }
+        }
+        expired.apply();
+        Log.d(TAG, "已恢复Cookie: " + cookies.size() + "个");
+    }
+
+    @Override
+    public void saveFromResponse(@NonNull HttpUrl url, @NonNull List<Cookie> responseCookies) {
+        SharedPreferences.Editor editor = prefs != null ? prefs.edit() : null;
+        long now = System.currentTimeMillis();
+        for (Cookie cookie : responseCookies) {
+            String key = keyOf(cookie);
+            // 服务器用已过期的时间删除Cookie
+            if (cookie.expiresAt() <= now) {
+                cookies.remove(key);
+                if (editor != null) editor.remove(key);
+                continue;
+            }
+            cookies.put(key, cookie);
+            if (editor != null) {
+                if (cookie.persistent()) {
+                    editor.putString(key, encode(cookie));
+                } else {
+                    editor.remove(key);
+                }
+            }
+        }
+        if (editor != null) {
+            editor.apply();
+        }
+    }
+
+    @NonNull
+    @Override
+    public List<Cookie> loadForRequest(@NonNull HttpUrl url) {
+        List<Cookie> result = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Cookie>> iterator = cookies.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Cookie> entry = iterator.next();
+            Cookie cookie = entry.getValue();
+            if (cookie.expiresAt() <= now) {
+                iterator.remove();
+                if (prefs != null) {
+                    prefs.edit().remove(entry.getKey()).apply();
+                }
+            } else if (cookie.matches(url)) {
+                result.add(cookie);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 是否有发往该地址的有效Cookie
+     */
+    public boolean hasCookies(HttpUrl url) {
+        return !loadForRequest(url).isEmpty();
+    }
+
+    /**
+     * 删除所有Cookie，退出登录时调用
+     */
+    public void clear() {
+        cookies.clear();
+        if (prefs != null) {
+            prefs.edit().clear().apply();
+        }
+    }
+
+    private static String keyOf(Cookie cookie) {
+        return cookie.name() + "|" + cookie.domain() + "|" + cookie.path();
+    }
+
+    // 保存为 域名|Set-Cookie头；仅限主机的Cookie在Set-Cookie头中不含domain属性，用所属域名解析即可还原
+    private static String encode(Cookie cookie) {
+        return cookie.domain() + "|" + cookie;
+    }
+
+    private static Cookie decode(String value) {
+        int separator = value.indexOf('|');
+        if (separator < 0) {
+            return null;
+        }
+        HttpUrl url = HttpUrl.parse("http://" + value.substring(0, separator) + "/");
+        return url != null ? Cookie.parse(url, value.substring(separator + 1)) : null;
+    }
+}
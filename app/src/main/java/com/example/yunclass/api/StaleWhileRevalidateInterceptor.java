@@ -0,0 +1,133 @@
+package com.example.yunclass.api;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.CacheControl;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Okio;
+
+/**
+ * 目录类接口的"先用缓存、后台刷新"拦截器
+ *
+ * 对课程列表、网站列表等GET请求：如果磁盘缓存中已有响应（即使已过期），立即返回缓存内容，
+ * 同时在后台发起一次带 If-None-Match / If-Modified-Since 的条件请求刷新缓存，
+ * 下次打开页面即可拿到最新数据。缓存未命中时走正常网络请求。
+ */
+public class StaleWhileRevalidateInterceptor implements Interceptor {
+    private static final String TAG = "SWRInterceptor";
+
+    // 后台刷新请求使用 max-age=0，强制OkHttp向服务器做条件校验
+    private static final CacheControl REVALIDATE = new CacheControl.Builder()
+            .maxAge(0, TimeUnit.SECONDS)
+            .build();
+
+    private final String[] pathPrefixes;
+    private final Set<String> inFlight = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile OkHttpClient client;
+
+    /**
+     * @param pathPrefixes 需要启用此策略的接口路径前缀，如 "/api/courses"
+     */
+    public StaleWhileRevalidateInterceptor(String... pathPrefixes) {
+        this.pathPrefixes = pathPrefixes;
+    }
+
+    /**
+     * 绑定用于后台刷新的客户端，必须在客户端构建完成后调用
+     */
+    public void attach(OkHttpClient client) {
+        this.client = client;
+    }
+
+    @NonNull
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!shouldServeStale(request)) {
+            return chain.proceed(request);
+        }
+
+        // 先只查缓存，未命中时OkHttp返回504
+        Response cached = chain.proceed(request.newBuilder()
+                .cacheControl(CacheControl.FORCE_CACHE)
+                .build());
+        if (cached.code() != 504) {
+            Log.d(TAG, "返回缓存内容并后台刷新: " + request.url().encodedPath());
+            revalidateInBackground(request);
+            return cached;
+        }
+        cached.close();
+
+        return chain.proceed(request);
+    }
+
+    private boolean shouldServeStale(Request request) {
+        if (client == null || !"GET".equals(request.method())) {
+            return false;
+        }
+
+        // 调用方显式指定了缓存策略（包括本类发起的后台刷新）时不做处理
+        CacheControl cacheControl = request.cacheControl();
+        if (cacheControl.noCache() || cacheControl.onlyIfCached() || cacheControl.maxAgeSeconds() == 0) {
+            return false;
+        }
+
+        String path = request.url().encodedPath();
+        for (String prefix : pathPrefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void revalidateInBackground(Request request) {
+        final String key = request.url().toString();
+        // 同一URL同时只保留一个刷新请求
+        if (!inFlight.add(key)) {
+            return;
+        }
+
+        Request revalidate = request.newBuilder()
+                .cacheControl(REVALIDATE)
+                .build();
+        client.newCall(revalidate).enqueue(new Callback() {
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                try (ResponseBody body = response.body()) {
+                    // 必须读完响应体，OkHttp才会把新内容写入缓存
+                    if (body != null) {
+                        body.source().readAll(Okio.blackhole());
+                    }
+                    Log.d(TAG, "后台刷新完成: " + key + ", code=" + response.code()
+                            + (response.networkResponse() != null
+                                    && response.networkResponse().code() == 304 ? " (未修改)" : ""));
+                } catch (IOException e) {
+                    Log.w(TAG, "后台刷新读取失败: " + key, e);
+                } finally {
+                    inFlight.remove(key);
+                }
+            }
+
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                Log.w(TAG, "后台刷新失败: " + key + ", " + e.getMessage());
+                inFlight.remove(key);
+            }
+        });
+    }
+}
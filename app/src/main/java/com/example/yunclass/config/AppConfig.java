@@ -17,4 +17,10 @@ public class AppConfig {
      * 自动根据HOST和PORT生成
      */
     public static final String BASE_URL = "http://" + HOST + ":" + PORT + "/";
+    
+    /**
+     * 离线授权令牌的验证公钥（X.509格式的Base64）
+     * 与服务器 html/.keys 中的私钥对应，运行 npm run update-config 自动写入；为空时不使用授权令牌
+     */
+    public static final String ENTITLEMENT_PUBLIC_KEY = "";
 } 
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.example.yunclass.data;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * 应用本地数据库
+ */
+@Database(entities = {CourseEntity.class, CourseContentEntity.class, DownloadEntity.class,
+        PlaybackProgressEntity.class}, version = 4, exportSchema = false)
+public abstract class AppDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "yunclass.db";
+
+    private static volatile AppDatabase instance;
+
+    // 下载队列不是服务器数据的缓存，升级时需要保留
+    private static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `downloads` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL,"
+                    + " `url` TEXT NOT NULL, `title` TEXT, `queue` TEXT, `targetPath` TEXT,"
+                    + " `priority` INTEGER NOT NULL, `status` INTEGER NOT NULL, `attempts` INTEGER NOT NULL,"
+                    + " `downloadedBytes` INTEGER NOT NULL, `totalBytes` INTEGER NOT NULL, `error` TEXT,"
+                    + " `createdAt` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_downloads_url` ON `downloads` (`url`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_downloads_queue_status` ON `downloads` (`queue`, `status`)");
+        }
+    };
+
+    // 新增播放进度表；其中可能有尚未上传的进度，以后的升级也不能直接重建
+    private static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `playback_progress` (`contentPath` TEXT NOT NULL,"
+                    + " `positionMs` INTEGER NOT NULL, `durationMs` INTEGER NOT NULL, `updatedAt` INTEGER NOT NULL,"
+                    + " `synced` INTEGER NOT NULL, PRIMARY KEY(`contentPath`))");
+        }
+    };
+
+    // 下载队列增加重试时间
+    private static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `downloads` ADD COLUMN `nextAttemptAt` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    public abstract CourseDao courseDao();
+
+    public abstract DownloadDao downloadDao();
+
+    public abstract PlaybackProgressDao playbackProgressDao();
+
+    public static AppDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AppDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    AppDatabase.class, DATABASE_NAME)
+                            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4)
+                            // 课程数据仅为服务器数据的缓存，没有对应迁移时直接重建
+                            .fallbackToDestructiveMigration()
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.yunclass.data;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.example.yunclass.model.CourseContent;
+
+import java.util.Objects;
+
+/**
+ * 课程内容（视频/PDF）本地缓存表
+ */
+@Entity(tableName = "course_contents", indices = {@Index("courseId")})
+public class CourseContentEntity {
+    @PrimaryKey(autoGenerate = true)
+    public long rowId;
+    public int courseId;
+    public int position;
+    public String type;
+    public String path;
+    public String label;
+
+    public static CourseContentEntity fromContent(int courseId, CourseContent content, int position) {
+        CourseContentEntity entity = new CourseContentEntity();
+        entity.courseId = courseId;
+        entity.position = position;
+        entity.type = content.getType();
+        entity.path = content.getPath();
+        entity.label = content.getLabel();
+        return entity;
+    }
+
+    public CourseContent toContent() {
+        return new CourseContent(type, path, label);
+    }
+
+    /**
+     * 比较内容是否相同，忽略自增主键
+     */
+    public boolean sameContentAs(CourseContentEntity other) {
+        return other != null
+                && courseId == other.courseId
+                && position == other.position
+                && Objects.equals(type, other.type)
+                && Objects.equals(path, other.path)
+                && Objects.equals(label, other.label);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.yunclass.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface CourseDao {
+
+    @Query("SELECT * FROM courses WHERE isSubCourse = 0 ORDER BY position")
+    List<CourseEntity> getCourses();
+
+    @Query("SELECT COUNT(*) FROM courses WHERE isSubCourse = 0")
+    int countCourses();
+
+    @Query("SELECT * FROM courses WHERE parentCourseId = :parentCourseId AND isSubCourse = 1 ORDER BY position")
+    List<CourseEntity> getSubCourses(int parentCourseId);
+
+    @Query("SELECT * FROM course_contents WHERE courseId IN (:courseIds) ORDER BY courseId, position")
+    List<CourseContentEntity> getContents(List<Integer> courseIds);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertCourses(List<CourseEntity> courses);
+
+    @Query("DELETE FROM courses WHERE id IN (:courseIds)")
+    void deleteCourses(List<Integer> courseIds);
+
+    @Insert
+    void insertContents(List<CourseContentEntity> contents);
+
+    @Query("DELETE FROM course_contents WHERE courseId IN (:courseIds)")
+    void deleteContents(List<Integer> courseIds);
+}
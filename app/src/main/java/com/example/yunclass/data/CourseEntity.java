@@ -0,0 +1,91 @@
+package com.example.yunclass.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.example.yunclass.model.Course;
+
+import java.util.Objects;
+
+/**
+ * 课程本地缓存表，顶级课程与子课程共用一张表
+ * 子课程通过 parentCourseId 关联父课程，顶级课程的 parentCourseId 为0
+ */
+@Entity(tableName = "courses", indices = {@Index("parentCourseId")})
+public class CourseEntity {
+    @PrimaryKey
+    public int id;
+    public String title;
+    public String description;
+    public String image;
+    public String author;
+    public String duration;
+    public String level;
+    public double rating;
+    public int students;
+    public double price;
+    public String contentType;
+    public String contentPath;
+    public boolean isSubCourse;
+    public int parentCourseId;
+    // 服务器返回列表中的顺序，用于保持原有排序
+    public int position;
+
+    public static CourseEntity fromCourse(Course course, int position) {
+        CourseEntity entity = new CourseEntity();
+        entity.id = course.getId();
+        entity.title = course.getTitle();
+        entity.description = course.getDescription();
+        entity.image = course.getImage();
+        entity.author = course.getAuthor();
+        entity.duration = course.getDuration();
+        entity.level = course.getLevel();
+        entity.rating = course.getRating();
+        entity.students = course.getStudents();
+        entity.price = course.getPrice();
+        entity.contentType = course.getContentType();
+        entity.contentPath = course.getContentPath();
+        entity.isSubCourse = course.isSubCourse();
+        entity.parentCourseId = course.getParentCourseId();
+        entity.position = position;
+        return entity;
+    }
+
+    @NonNull
+    public Course toCourse() {
+        Course course = new Course(id, title, description, image, author, duration, level,
+                rating, students, price, contentType, contentPath);
+        course.setSubCourse(isSubCourse);
+        course.setParentCourseId(parentCourseId);
+        return course;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CourseEntity that = (CourseEntity) o;
+        return id == that.id
+                && Double.compare(that.rating, rating) == 0
+                && students == that.students
+                && Double.compare(that.price, price) == 0
+                && isSubCourse == that.isSubCourse
+                && parentCourseId == that.parentCourseId
+                && position == that.position
+                && Objects.equals(title, that.title)
+                && Objects.equals(description, that.description)
+                && Objects.equals(image, that.image)
+                && Objects.equals(author, that.author)
+                && Objects.equals(duration, that.duration)
+                && Objects.equals(level, that.level)
+                && Objects.equals(contentType, that.contentType)
+                && Objects.equals(contentPath, that.contentPath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, parentCourseId, position);
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.yunclass.data;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.api.ApiResponse;
+import com.example.yunclass.api.JsonListStreamer;
+import com.example.yunclass.model.Course;
+import com.example.yunclass.model.CourseContent;
+import com.example.yunclass.model.SyncData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 课程数据仓库
+ *
+ * 本地Room数据库是课程和子课程数据的唯一来源：先从本地读取并立即回调，
+ * 再从服务器拉取最新数据，只把有变化的行写回数据库，数据确有变化时再回调一次。
+ */
+public class CourseRepository {
+    private static final String TAG = "CourseRepository";
+    // SQLite单条语句的参数个数有上限（旧版本为999），IN查询需要分批
+    private static final int MAX_QUERY_ARGS = 500;
+    // 流式解析课程列表时每批回调的课程数
+    private static final int STREAM_BATCH_SIZE = 50;
+    // 分页拉取课程目录时每页的课程数
+    private static final int COURSE_PAGE_SIZE = 100;
+
+    private static volatile CourseRepository instance;
+
+    private final CourseDao courseDao;
+    private final AppDatabase database;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final JsonListStreamer<Course> courseStreamer =
+            new JsonListStreamer<>(ApiClient.getGson(), Course.class, "courses", STREAM_BATCH_SIZE);
+
+    /**
+     * 数据回调，始终在主线程执行
+     */
+    public interface DataCallback<T> {
+        /**
+         * @param data 数据
+         * @param fromCache 是否来自本地缓存（之后可能还会收到服务器的新数据）
+         */
+        void onData(T data, boolean fromCache);
+
+        /**
+         * 本地无缓存且网络请求失败时调用
+         */
+        void onError(String message);
+    }
+
+    /**
+     * 支持分批接收的数据回调，始终在主线程执行
+     * 本地无缓存时，服务器数据每解析出一批就通过onPartialData回调，全部完成后仍会回调onData
+     */
+    public interface PartialDataCallback<T> extends DataCallback<T> {
+        void onPartialData(T items);
+    }
+
+    private CourseRepository(Context context) {
+        database = AppDatabase.getInstance(context);
+        courseDao = database.courseDao();
+    }
+
+    public static CourseRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (CourseRepository.class) {
+                if (instance == null) {
+                    instance = new CourseRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取课程列表
+     */
+    public void getCourses(DataCallback<List<Course>> callback) {
+        diskExecutor.execute(() -> {
+            List<Course> local = readCourses(courseDao.getCourses());
+            final boolean hasLocal = !local.isEmpty();
+            if (hasLocal) {
+                postData(callback, local, true);
+            }
+
+            fetchCoursePage(null, new ArrayList<>(), hasLocal, callback);
+        });
+    }
+
+    /**
+     * 按游标逐页拉取课程目录，每页边下载边解析；本地没有数据时把每一批直接交给界面显示
+     * 全部页面拉取完成后再与本地数据比较写入
+     */
+    private void fetchCoursePage(String after, List<Course> remote, boolean hasLocal,
+                                 DataCallback<List<Course>> callback) {
+        courseStreamer.enqueue(ApiClient.getApiService().streamCourses(after, COURSE_PAGE_SIZE),
+                new JsonListStreamer.StreamCallback<Course>() {
+            @Override
+            public void onBatch(List<Course> batch) {
+                remote.addAll(batch);
+                if (!hasLocal && callback instanceof PartialDataCallback) {
+                    ((PartialDataCallback<List<Course>>) callback).onPartialData(batch);
+                }
+            }
+
+            @Override
+            public void onComplete(int total, String nextCursor) {
+                if (nextCursor != null) {
+                    fetchCoursePage(nextCursor, remote, hasLocal, callback);
+                } else {
+                    syncCourses(remote, 0, hasLocal, callback);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                if (!hasLocal) {
+                    callback.onError(message);
+                } else {
+                    Log.w(TAG, "课程同步失败: " + message + "，继续使用本地数据");
+                }
+            }
+        });
+    }
+
+    /**
+     * 只读取本地缓存的课程列表，不访问网络
+     * 用于增量同步完成之后，此时本地数据已是最新
+     */
+    public void getCachedCourses(DataCallback<List<Course>> callback) {
+        diskExecutor.execute(() -> postData(callback, readCourses(courseDao.getCourses()), true));
+    }
+
+    /**
+     * 获取指定课程的子课程列表
+     * @param courseId 父课程ID
+     */
+    public void getSubCourses(int courseId, DataCallback<List<Course>> callback) {
+        diskExecutor.execute(() -> {
+            List<Course> local = readCourses(courseDao.getSubCourses(courseId));
+            final boolean hasLocal = !local.isEmpty();
+            if (hasLocal) {
+                postData(callback, local, true);
+            }
+
+            ApiClient.getApiService().getSubCourses(courseId).enqueue(new Callback<ApiResponse<List<Course>>>() {
+                @Override
+                public void onResponse(Call<ApiResponse<List<Course>>> call, Response<ApiResponse<List<Course>>> response) {
+                    if (response.isSuccessful() && response.body() != null
+                            && response.body().isSuccess() && response.body().getData() != null) {
+                        List<Course> subCourses = response.body().getData();
+                        for (Course subCourse : subCourses) {
+                            subCourse.setSubCourse(true);
+                            subCourse.setParentCourseId(courseId);
+                        }
+                        syncCourses(subCourses, courseId, hasLocal, callback);
+                    } else if (!hasLocal) {
+                        callback.onError("加载子课程失败");
+                    } else {
+                        Log.w(TAG, "子课程同步失败: " + response.code() + "，继续使用本地数据");
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<ApiResponse<List<Course>>> call, Throwable t) {
+                    if (!hasLocal) {
+                        callback.onError("加载失败: " + t.getMessage());
+                    } else {
+                        Log.w(TAG, "子课程同步网络错误，继续使用本地数据", t);
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * 同步数据写入结果
+     */
+    interface ApplyCallback {
+        /**
+         * @param success 数据是否已全部写入；失败时不应保存同步令牌，下次重新拉取这部分变化
+         */
+        void onApplied(boolean success);
+    }
+
+    /**
+     * 应用增量同步结果
+     * @param callback 写入结束后在主线程执行
+     */
+    void applySyncData(SyncData data, ApplyCallback callback) {
+        diskExecutor.execute(() -> {
+            List<Course> courses = data.getCourses() != null ? data.getCourses() : new ArrayList<>();
+            boolean success;
+            try {
+                if (data.isReset()) {
+                    applyDiff(courses, 0);
+                } else {
+                    applyDelta(courses, data.getDeletedCourseIds() != null
+                            ? data.getDeletedCourseIds() : new ArrayList<>());
+                }
+                success = true;
+            } catch (Exception e) {
+                Log.e(TAG, "应用同步数据失败", e);
+                success = false;
+            }
+            final boolean applied = success;
+            mainHandler.post(() -> callback.onApplied(applied));
+        });
+    }
+
+    /**
+     * 在数据库线程执行任务
+     */
+    void runOnDiskThread(Runnable task) {
+        diskExecutor.execute(task);
+    }
+
+    /**
+     * 本地是否已有课程目录，只能在数据库线程调用
+     */
+    boolean hasCachedCourses() {
+        return courseDao.countCourses() > 0;
+    }
+
+    /**
+     * 将服务器数据与本地数据比较，只写入有变化的行
+     * @param parentCourseId 0表示顶级课程列表，否则为子课程所属的父课程ID
+     */
+    private void syncCourses(List<Course> remote, int parentCourseId, boolean hasLocal,
+                             DataCallback<List<Course>> callback) {
+        diskExecutor.execute(() -> {
+            try {
+                boolean changed = applyDiff(remote, parentCourseId);
+                // 本地原本没有数据时必须回调；有数据时只在内容变化后回调
+                if (changed || !hasLocal) {
+                    postData(callback, remote, false);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "写入本地课程数据失败", e);
+                postData(callback, remote, false);
+            }
+        });
+    }
+
+    private boolean applyDiff(List<Course> remote, int parentCourseId) {
+        List<CourseEntity> existing = parentCourseId == 0
+                ? courseDao.getCourses()
+                : courseDao.getSubCourses(parentCourseId);
+        Map<Integer, CourseEntity> existingById = new HashMap<>();
+        for (CourseEntity entity : existing) {
+            existingById.put(entity.id, entity);
+        }
+        Map<Integer, List<CourseContentEntity>> existingContents = groupContents(loadContents(idsOf(existing)));
+
+        List<CourseEntity> upserts = new ArrayList<>();
+        List<Integer> contentChangedIds = new ArrayList<>();
+        List<CourseContentEntity> newContents = new ArrayList<>();
+
+        for (int i = 0; i < remote.size(); i++) {
+            Course course = remote.get(i);
+            CourseEntity entity = CourseEntity.fromCourse(course, i);
+            CourseEntity old = existingById.remove(entity.id);
+            if (!entity.equals(old)) {
+                upserts.add(entity);
+            }
+
+            List<CourseContentEntity> contents = toContentEntities(course);
+            if (!sameContents(contents, existingContents.get(entity.id))) {
+                contentChangedIds.add(entity.id);
+                newContents.addAll(contents);
+            }
+        }
+
+        // 剩余的是服务器已删除的课程
+        List<Integer> removedIds = new ArrayList<>(existingById.keySet());
+
+        if (upserts.isEmpty() && contentChangedIds.isEmpty() && removedIds.isEmpty()) {
+            Log.d(TAG, "课程数据无变化, parent=" + parentCourseId);
+            return false;
+        }
+
+        database.runInTransaction(() -> {
+            for (List<Integer> chunk : chunks(removedIds)) {
+                courseDao.deleteContents(chunk);
+                courseDao.deleteCourses(chunk);
+            }
+            if (!upserts.isEmpty()) {
+                courseDao.upsertCourses(upserts);
+            }
+            if (!contentChangedIds.isEmpty()) {
+                for (List<Integer> chunk : chunks(contentChangedIds)) {
+                    courseDao.deleteContents(chunk);
+                }
+                if (!newContents.isEmpty()) {
+                    courseDao.insertContents(newContents);
+                }
+            }
+        });
+
+        Log.d(TAG, "课程数据已同步, parent=" + parentCourseId + ", 更新: " + upserts.size()
+                + ", 内容更新: " + contentChangedIds.size() + ", 删除: " + removedIds.size());
+        return true;
+    }
+
+    /**
+     * 只写入变化的课程和删除的课程，未出现的课程保持不变
+     */
+    private void applyDelta(List<Course> changed, List<Integer> deletedIds) {
+        if (changed.isEmpty() && deletedIds.isEmpty()) {
+            Log.d(TAG, "增量同步: 课程无变化");
+            return;
+        }
+
+        // 保留已有课程的位置，新课程追加到末尾
+        Map<Integer, Integer> positions = new HashMap<>();
+        int maxPosition = -1;
+        for (CourseEntity entity : courseDao.getCourses()) {
+            positions.put(entity.id, entity.position);
+            maxPosition = Math.max(maxPosition, entity.position);
+        }
+
+        List<CourseEntity> upserts = new ArrayList<>(changed.size());
+        List<Integer> changedIds = new ArrayList<>(changed.size());
+        List<CourseContentEntity> newContents = new ArrayList<>();
+        for (Course course : changed) {
+            Integer position = positions.get(course.getId());
+            upserts.add(CourseEntity.fromCourse(course, position != null ? position : ++maxPosition));
+            changedIds.add(course.getId());
+            newContents.addAll(toContentEntities(course));
+        }
+
+        database.runInTransaction(() -> {
+            for (List<Integer> chunk : chunks(deletedIds)) {
+                courseDao.deleteContents(chunk);
+                courseDao.deleteCourses(chunk);
+            }
+            for (List<Integer> chunk : chunks(changedIds)) {
+                courseDao.deleteContents(chunk);
+            }
+            if (!upserts.isEmpty()) {
+                courseDao.upsertCourses(upserts);
+            }
+            if (!newContents.isEmpty()) {
+                courseDao.insertContents(newContents);
+            }
+        });
+
+        Log.d(TAG, "增量同步: 更新 " + upserts.size() + " 门课程, 删除 " + deletedIds.size() + " 门课程");
+    }
+
+    private List<Course> readCourses(List<CourseEntity> entities) {
+        List<Course> courses = new ArrayList<>(entities.size());
+        if (entities.isEmpty()) {
+            return courses;
+        }
+
+        Map<Integer, List<CourseContentEntity>> contents = groupContents(loadContents(idsOf(entities)));
+        for (CourseEntity entity : entities) {
+            Course course = entity.toCourse();
+            List<CourseContentEntity> courseContents = contents.get(entity.id);
+            if (courseContents != null) {
+                List<CourseContent> list = new ArrayList<>(courseContents.size());
+                for (CourseContentEntity content : courseContents) {
+                    list.add(content.toContent());
+                }
+                course.setContents(list);
+            }
+            courses.add(course);
+        }
+        return courses;
+    }
+
+    private static List<CourseContentEntity> toContentEntities(Course course) {
+        List<CourseContentEntity> result = new ArrayList<>();
+        if (course.getContents() != null) {
+            List<CourseContent> contents = course.getContents();
+            for (int i = 0; i < contents.size(); i++) {
+                result.add(CourseContentEntity.fromContent(course.getId(), contents.get(i), i));
+            }
+        }
+        return result;
+    }
+
+    private static boolean sameContents(List<CourseContentEntity> a, List<CourseContentEntity> b) {
+        int sizeA = a != null ? a.size() : 0;
+        int sizeB = b != null ? b.size() : 0;
+        if (sizeA != sizeB) {
+            return false;
+        }
+        for (int i = 0; i < sizeA; i++) {
+            if (!a.get(i).sameContentAs(b.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<Integer, List<CourseContentEntity>> groupContents(List<CourseContentEntity> contents) {
+        Map<Integer, List<CourseContentEntity>> grouped = new HashMap<>();
+        for (CourseContentEntity content : contents) {
+            List<CourseContentEntity> list = grouped.get(content.courseId);
+            if (list == null) {
+                list = new ArrayList<>();
+                grouped.put(content.courseId, list);
+            }
+            list.add(content);
+        }
+        return grouped;
+    }
+
+    private List<CourseContentEntity> loadContents(List<Integer> courseIds) {
+        List<CourseContentEntity> result = new ArrayList<>();
+        for (List<Integer> chunk : chunks(courseIds)) {
+            result.addAll(courseDao.getContents(chunk));
+        }
+        return result;
+    }
+
+    private static List<List<Integer>> chunks(List<Integer> ids) {
+        List<List<Integer>> result = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += MAX_QUERY_ARGS) {
+            result.add(ids.subList(start, Math.min(ids.size(), start + MAX_QUERY_ARGS)));
+        }
+        return result;
+    }
+
+    private static List<Integer> idsOf(List<CourseEntity> entities) {
+        List<Integer> ids = new ArrayList<>(entities.size());
+        for (CourseEntity entity : entities) {
+            ids.add(entity.id);
+        }
+        return ids;
+    }
+
+    private <T> void postData(DataCallback<T> callback, T data, boolean fromCache) {
+        mainHandler.post(() -> callback.onData(data, fromCache));
+    }
+}
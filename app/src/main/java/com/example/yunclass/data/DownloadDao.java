@@ -0,0 +1,57 @@
+package com.example.yunclass.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import java.util.List;
+
+@Dao
+public interface DownloadDao {
+
+    @Query("SELECT * FROM downloads ORDER BY status, priority DESC, createdAt, id")
+    List<DownloadEntity> getAll();
+
+    /**
+     * 队列中下一个要下载的文件：优先级高的先下载，同优先级按加入顺序；失败后还没到重试时间的文件跳过
+     */
+    @Query("SELECT * FROM downloads WHERE queue = :queue AND status = " + DownloadEntity.STATUS_PENDING
+            + " AND nextAttemptAt <= :now ORDER BY priority DESC, createdAt, id LIMIT 1")
+    DownloadEntity nextPending(String queue, long now);
+
+    @Query("SELECT COUNT(*) FROM downloads WHERE queue = :queue AND status = " + DownloadEntity.STATUS_PENDING)
+    int countPending(String queue);
+
+    /**
+     * 已在队列中的地址会被忽略
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertAll(List<DownloadEntity> downloads);
+
+    @Update
+    void update(DownloadEntity download);
+
+    /**
+     * 重新加入队列时，已结束（完成或失败）的文件重新等待下载，优先级取较高者
+     * 本地文件仍存在时下载会立即完成，已被删除的文件则重新下载
+     */
+    @Query("UPDATE downloads SET status = " + DownloadEntity.STATUS_PENDING + ", attempts = 0, error = NULL,"
+            + " nextAttemptAt = 0, priority = MAX(priority, :priority) WHERE url IN (:urls) AND status IN ("
+            + DownloadEntity.STATUS_COMPLETED + ", " + DownloadEntity.STATUS_FAILED + ")")
+    void resetFinished(List<String> urls, int priority);
+
+    /**
+     * 进程被杀时正在下载的文件重新标记为等待
+     */
+    @Query("UPDATE downloads SET status = " + DownloadEntity.STATUS_PENDING + " WHERE queue = :queue AND status = "
+            + DownloadEntity.STATUS_RUNNING)
+    void resetRunning(String queue);
+
+    @Query("UPDATE downloads SET downloadedBytes = :downloaded, totalBytes = :total WHERE id = :id")
+    void updateProgress(long id, long downloaded, long total);
+
+    @Query("DELETE FROM downloads WHERE status = " + DownloadEntity.STATUS_COMPLETED)
+    void deleteCompleted();
+}
@@ -0,0 +1,40 @@
+package com.example.yunclass.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 后台下载队列表，记录每个待下载文件的优先级、状态和进度
+ * 队列保存在数据库中，进程被杀后由WorkManager重新调度时从这里继续
+ */
+@Entity(tableName = "downloads", indices = {@Index(value = "url", unique = true), @Index({"queue", "status"})})
+public class DownloadEntity {
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_RUNNING = 1;
+    public static final int STATUS_COMPLETED = 2;
+    public static final int STATUS_FAILED = 3;
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    @NonNull
+    public String url = "";
+    public String title;
+    // 所属队列（pdf/video），各队列的并发数单独限制
+    public String queue;
+    public String targetPath;
+    // 数值越大越先下载
+    public int priority;
+    public int status;
+    // 已失败的次数
+    public int attempts;
+    // 失败后等待重试，在此时间之前不会被取出下载
+    @ColumnInfo(defaultValue = "0")
+    public long nextAttemptAt;
+    public long downloadedBytes;
+    public long totalBytes;
+    public String error;
+    public long createdAt;
+}
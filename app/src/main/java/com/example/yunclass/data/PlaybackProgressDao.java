@@ -0,0 +1,30 @@
+package com.example.yunclass.data;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface PlaybackProgressDao {
+
+    @Query("SELECT * FROM playback_progress")
+    List<PlaybackProgressEntity> getAll();
+
+    @Query("SELECT * FROM playback_progress WHERE synced = 0 ORDER BY updatedAt LIMIT :limit")
+    List<PlaybackProgressEntity> getUnsynced(int limit);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<PlaybackProgressEntity> progress);
+
+    /**
+     * 标记为已上传；上传期间又有新进度（updatedAt已变化）的记录保持未上传
+     */
+    @Query("UPDATE playback_progress SET synced = 1 WHERE contentPath = :contentPath AND updatedAt = :updatedAt")
+    void markSynced(String contentPath, long updatedAt);
+
+    @Query("DELETE FROM playback_progress")
+    void deleteAll();
+}
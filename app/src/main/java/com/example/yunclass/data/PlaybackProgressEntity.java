@@ -0,0 +1,36 @@
+package com.example.yunclass.data;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.example.yunclass.model.PlaybackProgress;
+
+/**
+ * 视频播放进度表，每个视频一条记录
+ */
+@Entity(tableName = "playback_progress")
+public class PlaybackProgressEntity {
+    @PrimaryKey
+    @NonNull
+    public String contentPath = "";
+    public long positionMs;
+    public long durationMs;
+    public long updatedAt;
+    // 是否已上传到服务器
+    public boolean synced;
+
+    public static PlaybackProgressEntity fromProgress(PlaybackProgress progress, boolean synced) {
+        PlaybackProgressEntity entity = new PlaybackProgressEntity();
+        entity.contentPath = progress.getContentPath();
+        entity.positionMs = progress.getPositionMs();
+        entity.durationMs = progress.getDurationMs();
+        entity.updatedAt = progress.getUpdatedAt();
+        entity.synced = synced;
+        return entity;
+    }
+
+    public PlaybackProgress toProgress() {
+        return new PlaybackProgress(contentPath, positionMs, durationMs, updatedAt);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.yunclass.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.api.ApiResponse;
+import com.example.yunclass.download.DownloadQueue;
+import com.example.yunclass.model.PlaybackProgress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 视频播放进度
+ *
+ * 进度先写入本地数据库（进程被杀后仍可恢复），同时保存在内存中，打开视频时可以同步读取，
+ * 在播放器prepare之前就定位到上次的位置。上传到服务器是批量的：保存进度只标记为未上传，
+ * 每隔一段时间（或退出播放时）把所有未上传的记录合并成一个请求，而不是每次保存都请求一次。
+ * 服务器上的进度用于在其他设备上继续观看，两边都以更新时间较新的记录为准。
+ * 进度按课程记录（见 {@link #keyOf}），多门课程共用一个视频时各自保存位置，视频由MP4改为HLS后位置不丢失。
+ * 本地只保存当前登录用户的进度，退出登录时调用 {@link #clearAll()} 清除，避免上传到下一个登录的账号。
+ */
+public class ProgressManager {
+    private static final String TAG = "ProgressManager";
+    private static final String PREF_NAME = "progress_sync";
+    // 已拉取到的服务器写入时间（modifiedAt）。旧版本按updatedAt记录在"last_pull"中，换了键名以便重新全量拉取
+    private static final String KEY_LAST_PULL = "last_pull_modified";
+
+    // 两次上传之间的最短间隔
+    private static final long UPLOAD_INTERVAL_MS = 30 * 1000;
+    // 一个请求最多上传的记录数，与服务器的限制一致
+    private static final int UPLOAD_BATCH_SIZE = 100;
+    // 看到这个比例以后视为已看完，下次从头播放
+    private static final float FINISHED_RATIO = 0.95f;
+    // 打开视频时等待本地进度加载的最长时间
+    private static final long LOAD_TIMEOUT_MS = 300;
+
+    private static volatile ProgressManager instance;
+
+    private final PlaybackProgressDao dao;
+    private final SharedPreferences prefs;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, PlaybackProgress> progressMap = new ConcurrentHashMap<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final Runnable uploadTask = this::flush;
+    private boolean uploadScheduled = false;
+    private boolean uploading = false;
+    // 每次清除后加一，清除之前发出的拉取请求返回后不再合并
+    private volatile int generation;
+
+    private ProgressManager(Context context) {
+        dao = AppDatabase.getInstance(context).playbackProgressDao();
+        prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        diskExecutor.execute(() -> {
+            for (PlaybackProgressEntity entity : dao.getAll()) {
+                progressMap.put(entity.contentPath, entity.toProgress());
+            }
+            loaded.countDown();
+            Log.d(TAG, "已加载本地播放进度: " + progressMap.size() + "条");
+        });
+    }
+
+    public static ProgressManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ProgressManager.class) {
+                if (instance == null) {
+                    instance = new ProgressManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 进度的键：course/课程ID/视频路径，HLS主播放列表换算为原MP4路径；没有课程ID时只用视频路径
+     * @param courseId 课程或子课程ID，未知时传0
+     */
+    public static String keyOf(int courseId, String contentPath) {
+        String path = DownloadQueue.progressivePathOf(contentPath);
+        return courseId > 0 ? "course/" + courseId + "/" + path : path;
+    }
+
+    /**
+     * 获取上次的播放位置，可在主线程调用
+     * @param courseId 课程或子课程ID，未知时传0
+     * @param contentPath 视频的contentPath
+     * @return 播放位置（毫秒），没有记录或已看完时为0
+     */
+    public long getPosition(int courseId, String contentPath) {
+        try {
+            // 应用启动时已开始加载，通常早已完成
+            loaded.await(LOAD_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PlaybackProgress progress = progressMap.get(keyOf(courseId, contentPath));
+        if (progress == null) {
+            // 旧版本按视频路径保存的进度
+            progress = progressMap.get(DownloadQueue.progressivePathOf(contentPath));
+        }
+        if (progress == null) {
+            progress = progressMap.get(contentPath);
+        }
+        if (progress == null) {
+            return 0;
+        }
+        if (progress.getDurationMs() > 0
+                && progress.getPositionMs() >= progress.getDurationMs() * FINISHED_RATIO) {
+            return 0;
+        }
+        return progress.getPositionMs();
+    }
+
+    /**
+     * 保存播放位置，稍后与其他记录一起上传
+     * @param courseId 课程或子课程ID，未知时传0
+     * @param durationMs 视频总时长，未知时传0
+     */
+    public void save(int courseId, String contentPath, long positionMs, long durationMs) {
+        String key = keyOf(courseId, contentPath);
+        PlaybackProgress old = progressMap.get(key);
+        if (old != null && old.getPositionMs() == positionMs) {
+            // 暂停时位置不变，不重复写入
+            return;
+        }
+        if (durationMs <= 0 && old != null) {
+            durationMs = old.getDurationMs();
+        }
+        PlaybackProgress progress = new PlaybackProgress(key, positionMs, durationMs,
+                System.currentTimeMillis());
+        progressMap.put(key, progress);
+        diskExecutor.execute(() ->
+                dao.upsert(Collections.singletonList(PlaybackProgressEntity.fromProgress(progress, false))));
+        scheduleUpload();
+    }
+
+    /**
+     * 立即上传所有未上传的进度（如退出播放时），上传失败的记录保留到下次
+     */
+    public void flush() {
+        mainHandler.post(() -> {
+            mainHandler.removeCallbacks(uploadTask);
+            uploadScheduled = false;
+            if (uploading) {
+                // 上一批完成后会检查是否还有未上传的记录
+                return;
+            }
+            uploading = true;
+            diskExecutor.execute(this::uploadPending);
+        });
+    }
+
+    /**
+     * 从服务器获取其他设备上更新的进度（如登录后），只合并比本地更新的记录
+     */
+    public void pullRemote() {
+        final int requestGeneration = generation;
+        long since = prefs.getLong(KEY_LAST_PULL, 0);
+        ApiClient.getApiService().getProgress(since > 0 ? since : null)
+                .enqueue(new Callback<ApiResponse<List<PlaybackProgress>>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<List<PlaybackProgress>>> call,
+                                   Response<ApiResponse<List<PlaybackProgress>>> response) {
+                if (!response.isSuccessful() || response.body() == null || response.body().getData() == null) {
+                    Log.w(TAG, "获取服务器播放进度失败: " + response.code());
+                    return;
+                }
+                List<PlaybackProgress> remote = response.body().getData();
+                diskExecutor.execute(() -> {
+                    if (requestGeneration == generation) {
+                        merge(remote);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Call<ApiResponse<List<PlaybackProgress>>> call, Throwable t) {
+                Log.w(TAG, "获取服务器播放进度网络错误: " + t.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 清除本地的全部进度和拉取位置（退出登录时），尚未上传的进度一并丢弃
+     */
+    public void clearAll() {
+        mainHandler.post(() -> {
+            mainHandler.removeCallbacks(uploadTask);
+            uploadScheduled = false;
+        });
+        generation++;
+        progressMap.clear();
+        diskExecutor.execute(() -> {
+            // 在此之前排队的保存已写入，一起删除
+            dao.deleteAll();
+            progressMap.clear();
+            prefs.edit().clear().apply();
+            Log.d(TAG, "已清除本地播放进度");
+        });
+    }
+
+    private void scheduleUpload() {
+        mainHandler.post(() -> {
+            if (!uploadScheduled) {
+                uploadScheduled = true;
+                mainHandler.postDelayed(uploadTask, UPLOAD_INTERVAL_MS);
+            }
+        });
+    }
+
+    // 在数据库线程执行
+    private void uploadPending() {
+        List<PlaybackProgressEntity> pending = dao.getUnsynced(UPLOAD_BATCH_SIZE);
+        if (pending.isEmpty()) {
+            mainHandler.post(() -> uploading = false);
+            return;
+        }
+
+        List<PlaybackProgress> items = new ArrayList<>();
+        for (PlaybackProgressEntity entity : pending) {
+            items.add(entity.toProgress());
+        }
+        Map<String, List<PlaybackProgress>> body = Collections.singletonMap("items", items);
+        ApiClient.getApiService().uploadProgress(body).enqueue(new Callback<ApiResponse<Void>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<Void>> call, Response<ApiResponse<Void>> response) {
+                if (!response.isSuccessful() || response.body() == null || !response.body().isSuccess()) {
+                    // 未登录时进度只保存在本地，登录后再上传
+                    Log.w(TAG, "上传播放进度失败: " + response.code());
+                    uploading = false;
+                    return;
+                }
+                Log.d(TAG, "已上传播放进度: " + items.size() + "条");
+                diskExecutor.execute(() -> {
+                    for (PlaybackProgress progress : items) {
+                        dao.markSynced(progress.getContentPath(), progress.getUpdatedAt());
+                    }
+                    if (items.size() == UPLOAD_BATCH_SIZE) {
+                        // 可能还有下一批
+                        uploadPending();
+                    } else {
+                        mainHandler.post(() -> uploading = false);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Call<ApiResponse<Void>> call, Throwable t) {
+                Log.w(TAG, "上传播放进度网络错误: " + t.getMessage());
+                uploading = false;
+            }
+        });
+    }
+
+    // 在数据库线程执行
+    private void merge(List<PlaybackProgress> remote) {
+        List<PlaybackProgressEntity> newer = new ArrayList<>();
+        long latest = prefs.getLong(KEY_LAST_PULL, 0);
+        for (PlaybackProgress progress : remote) {
+            // 按服务器写入时间推进拉取位置；updatedAt是上传设备记录的时间，离线设备稍后上传的记录可能更早
+            latest = Math.max(latest, progress.getModifiedAt());
+            PlaybackProgress local = progressMap.get(progress.getContentPath());
+            if (local == null || local.getUpdatedAt() < progress.getUpdatedAt()) {
+                progressMap.put(progress.getContentPath(), progress);
+                newer.add(PlaybackProgressEntity.fromProgress(progress, true));
+            }
+        }
+        if (!newer.isEmpty()) {
+            dao.upsert(newer);
+        }
+        prefs.edit().putLong(KEY_LAST_PULL, latest).apply();
+        Log.d(TAG, "服务器播放进度: " + remote.size() + "条, 合并: " + newer.size() + "条");
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.yunclass.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.api.ApiResponse;
+import com.example.yunclass.model.Order;
+import com.example.yunclass.model.SyncData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 课程与订单增量同步
+ *
+ * 每个用户保存一个服务器下发的同步令牌，下次同步时提交，服务器只返回之后变化的课程和新增的订单。
+ * 课程写入本地数据库，新增订单通过回调交给调用方处理。
+ */
+public class SyncManager {
+    private static final String TAG = "SyncManager";
+    private static final String PREF_NAME = "sync_preferences";
+    private static final String KEY_TOKEN_PREFIX = "sync_token_";
+
+    private static volatile SyncManager instance;
+
+    private final SharedPreferences prefs;
+    private final CourseRepository courseRepository;
+
+    /**
+     * 同步回调，始终在主线程执行
+     */
+    public interface SyncCallback {
+        /**
+         * @param newOrders 上次同步之后新增的订单（全量同步时为全部订单）
+         */
+        void onSynced(List<Order> newOrders);
+
+        void onError(String message);
+    }
+
+    private SyncManager(Context context) {
+        prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        courseRepository = CourseRepository.getInstance(context);
+    }
+
+    public static SyncManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SyncManager.class) {
+                if (instance == null) {
+                    instance = new SyncManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 与服务器同步课程和订单
+     * @param userId 当前用户ID
+     */
+    public void sync(int userId, SyncCallback callback) {
+        final String tokenKey = KEY_TOKEN_PREFIX + userId;
+
+        courseRepository.runOnDiskThread(() -> {
+            // 本地课程目录为空时（首次使用或数据库被重建）必须全量同步
+            String since = courseRepository.hasCachedCourses() ? prefs.getString(tokenKey, null) : null;
+            Log.d(TAG, "开始同步, 用户ID: " + userId + ", 令牌: " + since);
+
+            ApiClient.getApiService().sync(since).enqueue(new Callback<ApiResponse<SyncData>>() {
+                @Override
+                public void onResponse(Call<ApiResponse<SyncData>> call, Response<ApiResponse<SyncData>> response) {
+                    if (!response.isSuccessful() || response.body() == null) {
+                        callback.onError("同步失败: " + response.code());
+                        return;
+                    }
+
+                    ApiResponse<SyncData> apiResponse = response.body();
+                    final SyncData data = apiResponse.getData();
+                    if (!apiResponse.isSuccess() || data == null) {
+                        callback.onError(apiResponse.getMessage() != null ? apiResponse.getMessage() : "同步失败");
+                        return;
+                    }
+
+                    courseRepository.applySyncData(data, success -> {
+                        if (!success) {
+                            // 保留旧令牌，下次同步时重新拉取这部分变化
+                            callback.onError("保存同步数据失败");
+                            return;
+                        }
+                        // 数据写入完成后才保存令牌，避免中途失败导致漏数据
+                        prefs.edit().putString(tokenKey, data.getToken()).apply();
+
+                        List<Order> orders = data.getOrders() != null ? data.getOrders() : new ArrayList<>();
+                        Log.d(TAG, "同步完成, 全量: " + data.isReset()
+                                + ", 课程变化: " + (data.getCourses() != null ? data.getCourses().size() : 0)
+                                + ", 新订单: " + orders.size());
+                        callback.onSynced(orders);
+                    });
+                }
+
+                @Override
+                public void onFailure(Call<ApiResponse<SyncData>> call, Throwable t) {
+                    Log.e(TAG, "同步网络请求失败", t);
+                    callback.onError("网络错误: " + t.getMessage());
+                }
+            });
+        });
+    }
+
+    /**
+     * 清除所有同步令牌，下次同步时重新全量拉取
+     */
+    public void clearTokens() {
+        prefs.edit().clear().apply();
+    }
+}
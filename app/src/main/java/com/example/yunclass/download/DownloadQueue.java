@@ -0,0 +1,273 @@
+package com.example.yunclass.download;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.example.yunclass.config.AppConfig;
+import com.example.yunclass.data.AppDatabase;
+import com.example.yunclass.data.DownloadDao;
+import com.example.yunclass.data.DownloadEntity;
+import com.example.yunclass.model.Course;
+import com.example.yunclass.model.CourseContent;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台下载队列
+ *
+ * 待下载的课程文件保存在数据库中，由WorkManager按队列调度 {@link DownloadWorker} 依次下载：
+ * 优先级高的先下载，PDF和视频分两个队列各自限制并发数；可以设置仅在Wi-Fi、仅在充电时下载以及总下载速度。
+ * 应用退出或进程被杀后WorkManager会在满足条件时重新启动下载，已下载的部分由 {@link RangeDownloader} 续传。
+ */
+public class DownloadQueue {
+    private static final String TAG = "DownloadQueue";
+
+    public static final String QUEUE_PDF = "pdf";
+    public static final String QUEUE_VIDEO = "video";
+
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 5;
+    public static final int PRIORITY_HIGH = 10;
+
+    // 各队列同时下载的文件数，视频文件大，一次只下一个
+    private static final int PDF_CONCURRENCY = 3;
+    private static final int VIDEO_CONCURRENCY = 1;
+
+    private static final String PREF_NAME = "download_settings";
+    private static final String KEY_WIFI_ONLY = "wifi_only";
+    private static final String KEY_CHARGING_ONLY = "charging_only";
+    private static final String KEY_MAX_BYTES_PER_SECOND = "max_bytes_per_second";
+
+    // SQLite单条语句的参数个数有上限（旧版本为999），按地址批量更新时需要分批
+    private static final int MAX_QUERY_ARGS = 500;
+
+    private static final String WORK_NAME_PREFIX = "download_";
+    private static final String HLS_MASTER_PLAYLIST = "master.m3u8";
+
+    private static volatile DownloadQueue instance;
+
+    private final Context context;
+    private final DownloadDao dao;
+    private final SharedPreferences prefs;
+    private final Throttle throttle;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+
+    private DownloadQueue(Context context) {
+        this.context = context.getApplicationContext();
+        this.dao = AppDatabase.getInstance(this.context).downloadDao();
+        this.prefs = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.throttle = new Throttle(prefs.getLong(KEY_MAX_BYTES_PER_SECOND, 0));
+    }
+
+    public static DownloadQueue getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DownloadQueue.class) {
+                if (instance == null) {
+                    instance = new DownloadQueue(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 课程文件的本地保存位置，PDF查看和视频播放也从这里查找已下载的文件
+     * @param type 内容类型（pdf/video）
+     * @param path 课程的contentPath或CourseContent的path
+     */
+    public static File getLocalFile(Context context, String type, String path) {
+        String url = resolveUrl(QUEUE_VIDEO.equalsIgnoreCase(type) ? progressivePathOf(path) : path);
+        return localFileOf(context, type, url);
+    }
+
+    /**
+     * 由下载地址得到本地保存位置。文件名为完整路径的哈希加原文件名，
+     * 不同目录下的同名文件（如 a/intro.pdf 和 b/intro.pdf）不会保存到同一个文件
+     */
+    static File localFileOf(Context context, String type, String url) {
+        String dir = QUEUE_VIDEO.equalsIgnoreCase(type) ? QUEUE_VIDEO : QUEUE_PDF;
+        int query = url.indexOf('?');
+        String path = query >= 0 ? url.substring(0, query) : url;
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        String hash = Integer.toHexString(path.hashCode());
+        return new File(new File(context.getFilesDir(), dir), name.isEmpty() ? hash : hash + "_" + name);
+    }
+
+    /**
+     * HLS视频离线下载时改为下载原MP4：服务器把 book/<名称>.mp4 打包到 book/hls/<名称>/master.m3u8，
+     * 按这个约定由主播放列表路径得到原文件路径，其他路径原样返回
+     */
+    public static String progressivePathOf(String path) {
+        int hls = path.lastIndexOf("/hls/");
+        if (hls < 0 || !path.endsWith("/" + HLS_MASTER_PLAYLIST)) {
+            return path;
+        }
+        String name = path.substring(hls + 5, path.length() - HLS_MASTER_PLAYLIST.length() - 1);
+        if (name.isEmpty() || name.contains("/")) {
+            return path;
+        }
+        return path.substring(0, hls + 1) + name + ".mp4";
+    }
+
+    /**
+     * 将相对路径转换为完整URL
+     */
+    public static String resolveUrl(String path) {
+        if (path.startsWith("http")) {
+            return path;
+        }
+        String baseUrl = AppConfig.BASE_URL;
+        if (!baseUrl.endsWith("/")) {
+            baseUrl += "/";
+        }
+        return baseUrl + (path.startsWith("/") ? path.substring(1) : path);
+    }
+
+    /**
+     * 将课程的全部资料（contentPath及contents中的视频、PDF）加入下载队列
+     */
+    public void enqueueCourses(List<Course> courses, int priority) {
+        List<DownloadEntity> downloads = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Course course : courses) {
+            if (course.getContents() != null && !course.getContents().isEmpty()) {
+                for (CourseContent content : course.getContents()) {
+                    addDownload(downloads, content.getType(), content.getPath(),
+                            course.getTitle() + " - " + content.getLabel(), priority, now);
+                }
+            } else {
+                addDownload(downloads, course.getContentType(), course.getContentPath(), course.getTitle(),
+                        priority, now);
+            }
+        }
+        enqueue(downloads, priority);
+    }
+
+    /**
+     * 将单个文件加入下载队列
+     */
+    public void enqueue(String type, String path, String title, int priority) {
+        List<DownloadEntity> downloads = new ArrayList<>();
+        addDownload(downloads, type, path, title, priority, System.currentTimeMillis());
+        enqueue(downloads, priority);
+    }
+
+    private void addDownload(List<DownloadEntity> downloads, String type, String path, String title,
+                             int priority, long now) {
+        if (path == null || path.isEmpty()
+                || !(QUEUE_PDF.equalsIgnoreCase(type) || QUEUE_VIDEO.equalsIgnoreCase(type))) {
+            return;
+        }
+        DownloadEntity entity = new DownloadEntity();
+        entity.url = resolveUrl(QUEUE_VIDEO.equalsIgnoreCase(type) ? progressivePathOf(path) : path);
+        entity.title = title;
+        entity.queue = QUEUE_VIDEO.equalsIgnoreCase(type) ? QUEUE_VIDEO : QUEUE_PDF;
+        entity.targetPath = getLocalFile(context, type, path).getAbsolutePath();
+        entity.priority = priority;
+        entity.status = DownloadEntity.STATUS_PENDING;
+        // 同一批加入的文件保持原有顺序
+        entity.createdAt = now + downloads.size();
+        downloads.add(entity);
+    }
+
+    private void enqueue(List<DownloadEntity> downloads, int priority) {
+        if (downloads.isEmpty()) {
+            return;
+        }
+        diskExecutor.execute(() -> {
+            List<String> urls = new ArrayList<>();
+            Set<String> queues = new LinkedHashSet<>();
+            for (DownloadEntity download : downloads) {
+                urls.add(download.url);
+                queues.add(download.queue);
+            }
+            dao.insertAll(downloads);
+            for (int start = 0; start < urls.size(); start += MAX_QUERY_ARGS) {
+                dao.resetFinished(urls.subList(start, Math.min(urls.size(), start + MAX_QUERY_ARGS)), priority);
+            }
+            Log.d(TAG, "加入下载队列: " + downloads.size() + "个文件");
+            for (String queue : queues) {
+                schedule(queue, ExistingWorkPolicy.APPEND_OR_REPLACE);
+            }
+        });
+    }
+
+    /**
+     * 设置下载条件，修改后按新条件重新调度各队列
+     */
+    public void setConstraints(boolean wifiOnly, boolean chargingOnly) {
+        prefs.edit()
+                .putBoolean(KEY_WIFI_ONLY, wifiOnly)
+                .putBoolean(KEY_CHARGING_ONLY, chargingOnly)
+                .apply();
+        diskExecutor.execute(() -> {
+            for (String queue : new String[]{QUEUE_PDF, QUEUE_VIDEO}) {
+                if (dao.countPending(queue) > 0) {
+                    schedule(queue, ExistingWorkPolicy.REPLACE);
+                }
+            }
+        });
+    }
+
+    public boolean isWifiOnly() {
+        return prefs.getBoolean(KEY_WIFI_ONLY, true);
+    }
+
+    public boolean isChargingOnly() {
+        return prefs.getBoolean(KEY_CHARGING_ONLY, false);
+    }
+
+    /**
+     * 设置后台下载的总速度上限，立即对正在进行的下载生效
+     * @param bytesPerSecond 每秒字节数，小于等于0表示不限速
+     */
+    public void setMaxBytesPerSecond(long bytesPerSecond) {
+        prefs.edit().putLong(KEY_MAX_BYTES_PER_SECOND, bytesPerSecond).apply();
+        throttle.setBytesPerSecond(bytesPerSecond);
+    }
+
+    public long getMaxBytesPerSecond() {
+        return throttle.getBytesPerSecond();
+    }
+
+    Throttle getThrottle() {
+        return throttle;
+    }
+
+    static int concurrencyOf(String queue) {
+        return QUEUE_VIDEO.equals(queue) ? VIDEO_CONCURRENCY : PDF_CONCURRENCY;
+    }
+
+    /**
+     * 每个队列对应一个唯一的WorkManager任务，由它串行调度队列中的文件
+     */
+    private void schedule(String queue, ExistingWorkPolicy policy) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(isWifiOnly() ? NetworkType.UNMETERED : NetworkType.CONNECTED)
+                .setRequiresCharging(isChargingOnly())
+                .setRequiresStorageNotLow(true)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(DownloadWorker.class)
+                .setConstraints(constraints)
+                .setInputData(new Data.Builder().putString(DownloadWorker.KEY_QUEUE, queue).build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, 30, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME_PREFIX + queue, policy, request);
+    }
+}
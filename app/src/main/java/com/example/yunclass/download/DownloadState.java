@@ -0,0 +1,76 @@
+package com.example.yunclass.download;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 下载进度记录，以JSON形式保存在目标文件旁边（xxx.pdf.download），用于应用重启后断点续传
+ */
+class DownloadState {
+    String url;
+    // 文件总长度
+    long length;
+    // 服务器返回的校验信息，续传前与服务器比较，不一致说明文件已变化，需要重新下载
+    String etag;
+    String lastModified;
+    // 服务器提供的SHA-256，下载完成后用于校验文件完整性，可能为null
+    String sha256;
+    List<Segment> segments = new ArrayList<>();
+
+    /**
+     * 文件中的一段，[start, end] 为闭区间，downloaded 为已写入的字节数
+     */
+    static class Segment {
+        long start;
+        long end;
+        long downloaded;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long size() {
+            return end - start + 1;
+        }
+
+        boolean isComplete() {
+            return downloaded >= size();
+        }
+    }
+
+    long downloadedBytes() {
+        long total = 0;
+        for (Segment segment : segments) {
+            total += segment.downloaded;
+        }
+        return total;
+    }
+
+    /**
+     * 续传时的If-Range校验值，优先使用强ETag
+     */
+    String validator() {
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return lastModified;
+    }
+
+    /**
+     * 服务器上的文件是否与记录时相同
+     */
+    boolean matches(long length, String etag, String lastModified) {
+        if (this.length != length) {
+            return false;
+        }
+        // 服务器算出内容摘要前返回弱ETag，之后返回强ETag，两者不可比较，此时改用Last-Modified
+        if (this.etag != null && etag != null && this.etag.startsWith("W/") == etag.startsWith("W/")) {
+            return this.etag.equals(etag);
+        }
+        if (this.lastModified != null && lastModified != null) {
+            return this.lastModified.equals(lastModified);
+        }
+        return true;
+    }
+}
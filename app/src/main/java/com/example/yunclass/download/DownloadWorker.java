@@ -0,0 +1,200 @@
+package com.example.yunclass.download;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.work.ForegroundInfo;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.yunclass.data.AppDatabase;
+import com.example.yunclass.data.DownloadDao;
+import com.example.yunclass.data.DownloadEntity;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载队列的执行者，每个队列同一时间只有一个实例在运行
+ *
+ * 按优先级从数据库取出等待中的文件交给 {@link RangeDownloader}，同时进行的下载不超过队列的并发数，
+ * 队列清空后结束。失败的文件等待一段时间后重试，只剩等待重试的文件时交给WorkManager按退避时间重新调度。
+ * 下载回调在主线程，这里把它们转交给工作线程处理，数据库只在工作线程读写。
+ * 条件不再满足（如断开Wi-Fi）时WorkManager会停止本任务，已下载的部分保留，条件恢复后继续。
+ */
+public class DownloadWorker extends Worker {
+    private static final String TAG = "DownloadWorker";
+
+    static final String KEY_QUEUE = "queue";
+
+    // 同一文件失败这么多次后不再重试
+    private static final int MAX_ATTEMPTS = 3;
+    // 失败后第一次重试的等待时间，之后每次翻倍；与 DownloadQueue.schedule 的退避时间一致
+    private static final long RETRY_DELAY_MS = 30_000;
+    private static final String CHANNEL_ID = "downloads";
+    private static final int NOTIFICATION_ID_BASE = 2000;
+
+    private final DownloadDao dao;
+    // 下载回调转交给工作线程执行
+    private final BlockingQueue<Runnable> events = new LinkedBlockingQueue<>();
+    // 正在下载的文件，只在工作线程访问
+    private final Map<Long, RangeDownloader.Task> running = new HashMap<>();
+
+    public DownloadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        dao = AppDatabase.getInstance(context).downloadDao();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String queue = getInputData().getString(KEY_QUEUE);
+        if (queue == null) {
+            return Result.failure();
+        }
+        int concurrency = DownloadQueue.concurrencyOf(queue);
+        Throttle throttle = DownloadQueue.getInstance(getApplicationContext()).getThrottle();
+
+        // 上次运行时进程被杀，正在下载的文件重新排队
+        dao.resetRunning(queue);
+        updateForeground(queue);
+
+        try {
+            while (!isStopped()) {
+                while (running.size() < concurrency) {
+                    DownloadEntity next = dao.nextPending(queue, System.currentTimeMillis());
+                    if (next == null) {
+                        break;
+                    }
+                    start(next, throttle);
+                    updateForeground(queue);
+                }
+                if (running.isEmpty()) {
+                    break;
+                }
+                Runnable event = events.poll(1, TimeUnit.SECONDS);
+                if (event != null) {
+                    event.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!running.isEmpty()) {
+            // 被系统停止，取消正在进行的下载，等条件满足后重新调度
+            Log.d(TAG, "下载队列被停止: " + queue + ", 进行中: " + running.size());
+            for (RangeDownloader.Task task : running.values()) {
+                task.cancel();
+            }
+            running.clear();
+            dao.resetRunning(queue);
+            return Result.retry();
+        }
+        if (dao.countPending(queue) > 0) {
+            // 剩下的都是失败后等待重试的文件，不占着前台任务空等
+            Log.d(TAG, "等待重试: " + queue);
+            return Result.retry();
+        }
+        Log.d(TAG, "下载队列已完成: " + queue);
+        return Result.success();
+    }
+
+    private void start(DownloadEntity download, Throttle throttle) {
+        // 按地址重新计算保存位置，旧版本按文件名保存的记录也会下载到现在查找的位置
+        File target = DownloadQueue.localFileOf(getApplicationContext(), download.queue, download.url);
+        download.targetPath = target.getAbsolutePath();
+        download.status = DownloadEntity.STATUS_RUNNING;
+        download.error = null;
+        dao.update(download);
+        Log.d(TAG, "开始下载: " + download.title + ", 优先级: " + download.priority);
+
+        final long id = download.id;
+        RangeDownloader.Task task = RangeDownloader.getInstance().download(download.url,
+                target, throttle, new RangeDownloader.Listener() {
+            @Override
+            public void onProgress(long downloaded, long total) {
+                events.add(() -> dao.updateProgress(id, downloaded, total));
+            }
+
+            @Override
+            public void onComplete(File file) {
+                events.add(() -> {
+                    running.remove(id);
+                    download.status = DownloadEntity.STATUS_COMPLETED;
+                    download.downloadedBytes = file.length();
+                    download.totalBytes = file.length();
+                    dao.update(download);
+                    Log.d(TAG, "下载完成: " + download.title);
+                });
+            }
+
+            @Override
+            public void onError(String message) {
+                events.add(() -> {
+                    if (running.remove(id) == null) {
+                        // 任务已被本Worker取消
+                        return;
+                    }
+                    download.attempts++;
+                    download.error = message;
+                    download.status = download.attempts >= MAX_ATTEMPTS
+                            ? DownloadEntity.STATUS_FAILED : DownloadEntity.STATUS_PENDING;
+                    // 网络短暂中断时立即重试多半还会失败，等一段时间再试
+                    download.nextAttemptAt = System.currentTimeMillis()
+                            + (RETRY_DELAY_MS << (download.attempts - 1));
+                    dao.update(download);
+                    Log.w(TAG, "下载失败: " + download.title + ", 第" + download.attempts + "次, " + message);
+                });
+            }
+        });
+        running.put(id, task);
+    }
+
+    /**
+     * 以前台任务运行并显示通知，避免下载时间较长时被系统停止
+     */
+    private void updateForeground(String queue) {
+        int pending = dao.countPending(queue);
+        String text = "正在下载" + running.size() + "个文件，等待中" + pending + "个";
+        try {
+            setForegroundAsync(createForegroundInfo(queue, text)).get();
+        } catch (Exception e) {
+            // Android 12以上从后台启动前台服务可能被拒绝，此时按普通后台任务继续
+            Log.w(TAG, "无法切换为前台任务: " + e.getMessage());
+        }
+    }
+
+    private ForegroundInfo createForegroundInfo(String queue, String text) {
+        Context context = getApplicationContext();
+        NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                && manager.getNotificationChannel(CHANNEL_ID) == null) {
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "课程下载",
+                    NotificationManager.IMPORTANCE_LOW));
+        }
+        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.stat_sys_download)
+                .setContentTitle(DownloadQueue.QUEUE_VIDEO.equals(queue) ? "课程视频下载" : "课程资料下载")
+                .setContentText(text)
+                .setOngoing(true)
+                .setOnlyAlertOnce(true)
+                .build();
+        int notificationId = NOTIFICATION_ID_BASE + (DownloadQueue.QUEUE_VIDEO.equals(queue) ? 1 : 0);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return new ForegroundInfo(notificationId, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+        }
+        return new ForegroundInfo(notificationId, notification);
+    }
+}
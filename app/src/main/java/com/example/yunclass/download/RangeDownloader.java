@@ -0,0 +1,694 @@
+package com.example.yunclass.download;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.api.ApiService;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * 断点续传下载器
+ *
+ * 基于HTTP Range请求：先请求第一个字节得到文件长度和ETag，较大的文件切成几段并行下载，
+ * 各段用RandomAccessFile写入同一个临时文件（xxx.part）的对应位置。
+ * 每段的进度定期写入 xxx.download，下载中断或应用重启后再次下载同一文件时只请求缺失的部分；
+ * 服务器文件发生变化（ETag不一致）时自动丢弃旧数据重新下载。
+ * 全部完成后校验文件长度，服务器提供了 X-Content-SHA256 时再校验摘要，通过后才重命名为目标文件。
+ */
+public class RangeDownloader {
+    private static final String TAG = "RangeDownloader";
+
+    // 小于该大小的文件不分段
+    private static final long SEGMENT_THRESHOLD = 4L * 1024 * 1024;
+    private static final long MIN_SEGMENT_SIZE = 2L * 1024 * 1024;
+    private static final int MAX_SEGMENTS = 4;
+    // 单段失败后的重试次数，重试时从已下载的位置继续
+    private static final int MAX_RETRIES = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 每段每写入这么多数据保存一次进度
+    private static final long SAVE_INTERVAL_BYTES = 512L * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 200;
+
+    private static final String PART_SUFFIX = ".part";
+    private static final String STATE_SUFFIX = ".download";
+    private static final String HEADER_SHA256 = "X-Content-SHA256";
+
+    private static volatile RangeDownloader instance;
+
+    // 调度线程负责探测、等待各段完成和校验；分段下载在单独的线程池中执行，避免互相等待
+    private final ExecutorService controlExecutor = Executors.newCachedThreadPool();
+    private final ExecutorService segmentExecutor = Executors.newFixedThreadPool(MAX_SEGMENTS);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 按目标文件路径记录正在进行的下载，同一文件重复下载时共用
+    private final Map<String, Job> activeJobs = new HashMap<>();
+
+    /**
+     * 下载回调，始终在主线程执行
+     */
+    public interface Listener {
+        void onProgress(long downloaded, long total);
+
+        void onComplete(File file);
+
+        void onError(String message);
+    }
+
+    /**
+     * 一个调用方的下载，可以取消；取消后已下载的部分保留，下次下载同一文件时继续。
+     * 同一文件的多个调用方共用一次下载，取消只是不再通知该调用方，所有调用方都取消后才停止下载
+     */
+    public static final class Task {
+        private final Job job;
+        private final Listener listener;
+        private volatile boolean canceled;
+
+        private Task(Job job, Listener listener) {
+            this.job = job;
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            if (!canceled) {
+                canceled = true;
+                job.detach(listener);
+            }
+        }
+
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
+    // 同一目标文件正在进行的下载，由各调用方的Task共用
+    private static final class Job {
+        private final String url;
+        private final File target;
+        private final Throttle throttle;
+        // 同一文件上一次已取消但尚未结束的下载，开始前等它停止，避免同时写入临时文件
+        private Job previous;
+        // 上一次下载的是另一个地址，已有的文件和下载记录都不能沿用
+        private final boolean replace;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+        private final List<Call<ResponseBody>> calls = new CopyOnWriteArrayList<>();
+        private final AtomicLong downloaded = new AtomicLong();
+        private volatile long total = -1;
+        private volatile boolean canceled;
+        // 被同一文件的新地址下载取代时的提示，调用方并未取消，仍需通知
+        private volatile String supersededMessage;
+        private long lastProgressTime;
+
+        private Job(String url, File target, Throttle throttle, Job previous) {
+            this.url = url;
+            this.target = target;
+            this.throttle = throttle;
+            this.previous = previous;
+            this.replace = previous != null && !url.equals(previous.url);
+        }
+
+        // 已取消的下载不再接受新的调用方
+        private synchronized boolean attach(Listener listener) {
+            if (canceled) {
+                return false;
+            }
+            listeners.add(listener);
+            return true;
+        }
+
+        // 所有调用方都取消后停止下载
+        private synchronized void detach(Listener listener) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                stop();
+            }
+        }
+
+        // 同一文件改为下载另一个地址，停止本次下载并通知现有调用方失败
+        private synchronized void supersede() {
+            if (!canceled) {
+                supersededMessage = "文件已改为从新地址下载";
+                stop();
+            }
+        }
+
+        private void stop() {
+            if (!canceled) {
+                canceled = true;
+                for (Call<ResponseBody> call : calls) {
+                    call.cancel();
+                }
+            }
+        }
+
+        private Call<ResponseBody> track(Call<ResponseBody> call) throws IOException {
+            calls.add(call);
+            if (canceled) {
+                call.cancel();
+                throw new CanceledException();
+            }
+            return call;
+        }
+    }
+
+    private static class CanceledException extends IOException {
+        CanceledException() {
+            super("下载已取消");
+        }
+    }
+
+    // 服务器上的文件在续传过程中发生了变化
+    private static class FileChangedException extends IOException {
+        FileChangedException() {
+            super("服务器文件已变化");
+        }
+    }
+
+    private RangeDownloader() {
+    }
+
+    public static RangeDownloader getInstance() {
+        if (instance == null) {
+            synchronized (RangeDownloader.class) {
+                if (instance == null) {
+                    instance = new RangeDownloader();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 下载文件到指定位置。目标文件已存在且没有未完成的下载记录时直接回调完成
+     * @param url 文件地址，可以是完整URL或相对于BASE_URL的路径
+     * @param target 保存位置，应放在不会被系统清理的目录中以便续传
+     */
+    public Task download(String url, File target, Listener listener) {
+        return download(url, target, null, listener);
+    }
+
+    /**
+     * 限速下载，同一文件已在下载时沿用原任务的限速设置
+     * @param throttle 限速器，为null时不限速
+     */
+    public Task download(String url, File target, Throttle throttle, Listener listener) {
+        synchronized (activeJobs) {
+            Job existing = activeJobs.get(target.getAbsolutePath());
+            if (existing != null && url.equals(existing.url) && existing.attach(listener)) {
+                return new Task(existing, listener);
+            }
+            if (existing != null && !url.equals(existing.url)) {
+                // 地址已变，旧地址的下载没有必要继续
+                existing.supersede();
+            }
+            Job job = new Job(url, target, throttle, existing);
+            job.attach(listener);
+            activeJobs.put(target.getAbsolutePath(), job);
+            controlExecutor.execute(() -> run(job));
+            return new Task(job, listener);
+        }
+    }
+
+    /**
+     * 删除目标文件及未完成的下载数据
+     */
+    public void delete(File target) {
+        target.delete();
+        partFile(target).delete();
+        stateFile(target).delete();
+    }
+
+    private void run(Job job) {
+        try {
+            if (job.previous != null) {
+                // 地址变化或上一次已取消时，等上一次下载停止后再开始
+                job.previous.done.await();
+                job.previous = null;
+            }
+            File target = job.target;
+            if (job.replace) {
+                // 旧地址可能已经下载完成，不能当作新地址的文件
+                delete(target);
+            }
+            if (target.exists() && !stateFile(target).exists()) {
+                finish(job, null);
+                return;
+            }
+            File parent = target.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+
+            // 文件在续传过程中变化时重新下载一次
+            try {
+                fetch(job);
+            } catch (FileChangedException e) {
+                Log.w(TAG, "服务器文件已变化，重新下载: " + job.url);
+                partFile(target).delete();
+                stateFile(target).delete();
+                fetch(job);
+            }
+            finish(job, null);
+        } catch (CanceledException | InterruptedException e) {
+            if (job.canceled) {
+                Log.d(TAG, "下载已取消: " + job.url);
+                finish(job, null);
+            } else {
+                // 线程被中断而不是调用方取消，按失败通知
+                finish(job, "下载已中断");
+            }
+        } catch (Exception e) {
+            if (job.canceled) {
+                finish(job, null);
+            } else {
+                Log.e(TAG, "下载失败: " + job.url, e);
+                finish(job, e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }
+    }
+
+    private void fetch(Job job) throws IOException {
+        ApiService api = ApiClient.getApiService();
+        File target = job.target;
+        File part = partFile(target);
+
+        // 请求第一个字节，得到文件长度和校验信息
+        Response<ResponseBody> probe = job.track(api.downloadRange(job.url, "bytes=0-0", null)).execute();
+        if (probe.code() == 200) {
+            // 服务器不支持Range，只能整体下载
+            Log.w(TAG, "服务器不支持分段下载: " + job.url);
+            downloadWhole(job, probe, part);
+            return;
+        }
+        long length;
+        try (ResponseBody ignored = probe.body()) {
+            if (probe.code() != 206) {
+                closeErrorBody(probe);
+                throw new IOException("下载失败，HTTP状态码: " + probe.code());
+            }
+            length = parseTotalLength(probe.headers().get("Content-Range"));
+        }
+        if (length <= 0) {
+            throw new IOException("无法获取文件大小");
+        }
+        String etag = probe.headers().get("ETag");
+        String lastModified = probe.headers().get("Last-Modified");
+        String sha256 = probe.headers().get(HEADER_SHA256);
+
+        DownloadState state = loadState(target);
+        if (state != null && (!job.url.equals(state.url) || !state.matches(length, etag, lastModified)
+                || !part.exists() || part.length() != length)) {
+            Log.d(TAG, "丢弃过期的下载记录: " + job.url);
+            state = null;
+        }
+        if (state == null) {
+            state = createState(job.url, length, etag, lastModified, sha256);
+            try (RandomAccessFile file = new RandomAccessFile(part, "rw")) {
+                file.setLength(length);
+            }
+            saveState(target, state);
+        } else if (state.sha256 == null) {
+            state.sha256 = sha256;
+        }
+
+        job.total = length;
+        job.downloaded.set(state.downloadedBytes());
+        Log.d(TAG, "开始下载: " + job.url + ", 大小: " + length + ", 分段: " + state.segments.size()
+                + ", 已下载: " + job.downloaded.get());
+        notifyProgress(job, true);
+
+        // 并行下载未完成的各段。一段失败后立即中止其余各段（不再重试），已下载的部分留给下次续传
+        final DownloadState current = state;
+        final AtomicBoolean aborted = new AtomicBoolean();
+        final AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (DownloadState.Segment segment : state.segments) {
+            if (!segment.isComplete()) {
+                futures.add(segmentExecutor.submit(() -> {
+                    try {
+                        downloadSegment(job, current, segment, part, aborted);
+                    } catch (Exception e) {
+                        if (aborted.compareAndSet(false, true)) {
+                            failure.set(e instanceof IOException ? (IOException) e : new IOException(e));
+                            for (Call<ResponseBody> call : job.calls) {
+                                call.cancel();
+                            }
+                        }
+                        throw e;
+                    }
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                // 失败原因已在分段任务中记录
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CanceledException();
+            }
+        }
+        saveState(target, state);
+        if (failure.get() != null) {
+            throw job.canceled ? new CanceledException() : failure.get();
+        }
+
+        verify(part, target, state);
+        commit(part, target);
+    }
+
+    /**
+     * @param aborted 其他分段已失败，本段不再继续
+     */
+    private void downloadSegment(Job job, DownloadState state, DownloadState.Segment segment, File part,
+                                 AtomicBoolean aborted) throws IOException {
+        ApiService api = ApiClient.getApiService();
+        int attempt = 0;
+        while (true) {
+            if (job.canceled || aborted.get()) {
+                throw new CanceledException();
+            }
+            long from = segment.start + segment.downloaded;
+            if (from > segment.end) {
+                return;
+            }
+            try {
+                Response<ResponseBody> response = job.track(api.downloadRange(job.url,
+                        "bytes=" + from + "-" + segment.end, state.validator())).execute();
+                try (ResponseBody body = response.body()) {
+                    if (response.code() == 200) {
+                        // If-Range不匹配时服务器返回完整文件
+                        throw new FileChangedException();
+                    }
+                    if (response.code() != 206 || body == null) {
+                        closeErrorBody(response);
+                        throw new IOException("下载失败，HTTP状态码: " + response.code());
+                    }
+                    writeSegment(job, state, segment, part, body.byteStream(), from, aborted);
+                }
+                return;
+            } catch (FileChangedException | CanceledException e) {
+                throw e;
+            } catch (IOException e) {
+                // 请求被中止时抛出的也是IOException，不能当作网络错误重试
+                if (job.canceled || aborted.get()) {
+                    throw new CanceledException();
+                }
+                if (++attempt > MAX_RETRIES) {
+                    throw e;
+                }
+                Log.w(TAG, "分段下载中断，第" + attempt + "次重试: " + from + "-" + segment.end, e);
+            }
+        }
+    }
+
+    private void writeSegment(Job job, DownloadState state, DownloadState.Segment segment, File part,
+                              InputStream input, long from, AtomicBoolean aborted) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(part, "rw")) {
+            file.seek(from);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = segment.end - from + 1;
+            long unsaved = 0;
+            int count;
+            while (remaining > 0
+                    && (count = input.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                if (job.canceled || aborted.get()) {
+                    throw new CanceledException();
+                }
+                file.write(buffer, 0, count);
+                remaining -= count;
+                throttle(job, count);
+                // 先写数据再更新进度，保存的进度不会超过实际写入的数据
+                synchronized (state) {
+                    segment.downloaded += count;
+                }
+                job.downloaded.addAndGet(count);
+                notifyProgress(job, false);
+
+                unsaved += count;
+                if (unsaved >= SAVE_INTERVAL_BYTES) {
+                    unsaved = 0;
+                    saveState(job.target, state);
+                }
+            }
+            if (remaining > 0) {
+                throw new IOException("连接提前关闭，还剩" + remaining + "字节");
+            }
+        }
+    }
+
+    /**
+     * 服务器不支持Range时整体下载，不能续传
+     */
+    private void downloadWhole(Job job, Response<ResponseBody> response, File part) throws IOException {
+        try (ResponseBody body = response.body()) {
+            if (body == null) {
+                throw new IOException("响应内容为空");
+            }
+            long length = body.contentLength();
+            job.total = length;
+            job.downloaded.set(0);
+            try (RandomAccessFile file = new RandomAccessFile(part, "rw")) {
+                file.setLength(0);
+                InputStream input = body.byteStream();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    if (job.canceled) {
+                        throw new CanceledException();
+                    }
+                    file.write(buffer, 0, count);
+                    throttle(job, count);
+                    job.downloaded.addAndGet(count);
+                    notifyProgress(job, false);
+                }
+            }
+            if (length > 0 && part.length() != length) {
+                part.delete();
+                throw new IOException("文件不完整");
+            }
+            DownloadState state = new DownloadState();
+            state.length = part.length();
+            state.sha256 = response.headers().get(HEADER_SHA256);
+            verify(part, job.target, state);
+            commit(part, job.target);
+        }
+    }
+
+    private void verify(File part, File target, DownloadState state) throws IOException {
+        if (part.length() != state.length) {
+            throw new IOException("文件大小不正确: " + part.length() + "/" + state.length);
+        }
+        if (state.sha256 == null || state.sha256.isEmpty()) {
+            return;
+        }
+        String actual = sha256(part);
+        if (!state.sha256.equalsIgnoreCase(actual)) {
+            // 数据已损坏，删除后下次重新下载
+            Log.e(TAG, "文件校验失败，期望: " + state.sha256 + ", 实际: " + actual);
+            part.delete();
+            stateFile(target).delete();
+            throw new IOException("文件校验失败，请重新下载");
+        }
+    }
+
+    private void commit(File part, File target) throws IOException {
+        if (target.exists() && !target.delete()) {
+            throw new IOException("无法覆盖文件: " + target);
+        }
+        if (!part.renameTo(target)) {
+            throw new IOException("无法保存文件: " + target);
+        }
+        stateFile(target).delete();
+        Log.d(TAG, "下载完成: " + target + ", 大小: " + target.length());
+    }
+
+    private static void throttle(Job job, int bytes) throws IOException {
+        if (job.throttle == null) {
+            return;
+        }
+        try {
+            job.throttle.acquire(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CanceledException();
+        }
+    }
+
+    private void finish(Job job, String error) {
+        synchronized (activeJobs) {
+            if (activeJobs.get(job.target.getAbsolutePath()) == job) {
+                activeJobs.remove(job.target.getAbsolutePath());
+            }
+        }
+        job.done.countDown();
+        if (job.canceled && job.supersededMessage == null) {
+            // 所有调用方都已取消，没有需要通知的
+            return;
+        }
+        final String message = job.canceled ? job.supersededMessage : error;
+        mainHandler.post(() -> {
+            for (Listener listener : job.listeners) {
+                if (message == null) {
+                    listener.onComplete(job.target);
+                } else {
+                    listener.onError(message);
+                }
+            }
+        });
+    }
+
+    private void notifyProgress(Job job, boolean force) {
+        long now = System.currentTimeMillis();
+        synchronized (job) {
+            if (!force && now - job.lastProgressTime < PROGRESS_INTERVAL_MS) {
+                return;
+            }
+            job.lastProgressTime = now;
+        }
+        final long downloaded = job.downloaded.get();
+        final long total = job.total;
+        mainHandler.post(() -> {
+            if (job.canceled) {
+                return;
+            }
+            for (Listener listener : job.listeners) {
+                listener.onProgress(downloaded, total);
+            }
+        });
+    }
+
+    private static void closeErrorBody(Response<ResponseBody> response) {
+        if (response.errorBody() != null) {
+            response.errorBody().close();
+        }
+    }
+
+    private static DownloadState createState(String url, long length, String etag, String lastModified,
+                                             String sha256) {
+        DownloadState state = new DownloadState();
+        state.url = url;
+        state.length = length;
+        state.etag = etag;
+        state.lastModified = lastModified;
+        state.sha256 = sha256;
+
+        int count = 1;
+        if (length >= SEGMENT_THRESHOLD) {
+            count = (int) Math.min(MAX_SEGMENTS, length / MIN_SEGMENT_SIZE);
+        }
+        long segmentSize = (length + count - 1) / count;
+        for (long start = 0; start < length; start += segmentSize) {
+            state.segments.add(new DownloadState.Segment(start, Math.min(start + segmentSize, length) - 1));
+        }
+        return state;
+    }
+
+    /**
+     * 解析 Content-Range: bytes 0-0/12345 中的总长度
+     */
+    public static long parseTotalLength(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        if (slash < 0 || slash == contentRange.length() - 1) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static DownloadState loadState(File target) {
+        File file = stateFile(target);
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = new FileReader(file)) {
+            return ApiClient.getGson().fromJson(reader, DownloadState.class);
+        } catch (Exception e) {
+            Log.w(TAG, "读取下载记录失败: " + file, e);
+            return null;
+        }
+    }
+
+    private static void saveState(File target, DownloadState state) {
+        File file = stateFile(target);
+        File temp = new File(file.getPath() + ".tmp");
+        synchronized (state) {
+            // 先写临时文件再重命名，避免进程被杀时留下不完整的记录
+            try (Writer writer = new FileWriter(temp)) {
+                ApiClient.getGson().toJson(state, writer);
+            } catch (IOException e) {
+                Log.w(TAG, "保存下载记录失败: " + file, e);
+                return;
+            }
+            if (!temp.renameTo(file)) {
+                Log.w(TAG, "保存下载记录失败: " + file);
+            }
+        }
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (InputStream input = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static File partFile(File target) {
+        return new File(target.getPath() + PART_SUFFIX);
+    }
+
+    private static File stateFile(File target) {
+        return new File(target.getPath() + STATE_SUFFIX);
+    }
+}
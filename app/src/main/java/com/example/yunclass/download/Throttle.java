@@ -0,0 +1,57 @@
+package com.example.yunclass.download;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下载限速（令牌桶）
+ *
+ * 每秒补充 bytesPerSecond 个令牌，最多积累1秒的量；每读到一块数据先取走对应数量的令牌，
+ * 令牌不足时睡眠到补足为止。多个下载共用同一个实例时限制的是它们的总速度。
+ */
+public class Throttle {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private long bytesPerSecond;
+    private long available;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond 每秒最多下载的字节数，小于等于0表示不限速
+     */
+    public Throttle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.available = 0;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public synchronized long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * 取走 bytes 个令牌，令牌不足时阻塞当前线程
+     */
+    public void acquire(int bytes) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long rate = bytesPerSecond;
+            if (rate <= 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            long elapsed = Math.min(now - lastRefill, NANOS_PER_SECOND);
+            available = Math.min(rate, available + elapsed * rate / NANOS_PER_SECOND);
+            lastRefill = now;
+            // 先预支令牌再睡眠，其他线程随后取令牌时会排在后面等待
+            available -= bytes;
+            waitNanos = available >= 0 ? 0 : -available * NANOS_PER_SECOND / rate;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
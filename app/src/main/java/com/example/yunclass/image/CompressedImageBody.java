@@ -0,0 +1,189 @@
+package com.example.yunclass.image;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * 上传用的压缩图片请求体
+ *
+ * 手机拍摄的照片有上千万像素、几MB大小，直接上传在移动网络下很慢，还可能超过服务器的5MB限制。
+ * {@link #fromUri} 按 {@link #MAX_DIMENSION} 缩小解码并按EXIF方向旋转，上传时由JPEG编码器直接写入请求，
+ * 不生成临时文件。压缩后的大小事先未知，请求以分块方式发送。
+ */
+public class CompressedImageBody extends RequestBody {
+    private static final String TAG = "CompressedImageBody";
+    private static final MediaType MEDIA_TYPE = MediaType.parse("image/jpeg");
+
+    // 长边的最大像素数，足够看清题目中的文字
+    public static final int MAX_DIMENSION = 1920;
+    private static final int JPEG_QUALITY = 80;
+
+    /**
+     * 上传进度回调，在网络线程执行
+     */
+    public interface ProgressListener {
+        /**
+         * @param bytesWritten 已发送的字节数
+         */
+        void onProgress(long bytesWritten);
+    }
+
+    private final Bitmap bitmap;
+    private final ProgressListener listener;
+
+    private CompressedImageBody(Bitmap bitmap, @Nullable ProgressListener listener) {
+        this.bitmap = bitmap;
+        this.listener = listener;
+    }
+
+    /**
+     * 读取并缩小图片，耗时较长，应在后台线程调用
+     * @throws IOException 图片无法读取或解码
+     */
+    public static CompressedImageBody fromUri(Context context, Uri uri, @Nullable ProgressListener listener)
+            throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+
+        // 先只读取尺寸，按2的幂缩小解码，解码时的内存占用不超过目标尺寸的4倍
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream input = openStream(resolver, uri)) {
+            BitmapFactory.decodeStream(input, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new IOException("无法识别的图片格式");
+        }
+        int longSide = Math.max(options.outWidth, options.outHeight);
+        int sampleSize = 1;
+        while (longSide / (sampleSize * 2) >= MAX_DIMENSION) {
+            sampleSize *= 2;
+        }
+
+        options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        Bitmap decoded;
+        try (InputStream input = openStream(resolver, uri)) {
+            decoded = BitmapFactory.decodeStream(input, null, options);
+        }
+        if (decoded == null) {
+            throw new IOException("图片解码失败");
+        }
+
+        // 缩放到目标尺寸并转正，JPEG中不再保留EXIF方向
+        Matrix matrix = new Matrix();
+        int decodedLongSide = Math.max(decoded.getWidth(), decoded.getHeight());
+        if (decodedLongSide > MAX_DIMENSION) {
+            float scale = (float) MAX_DIMENSION / decodedLongSide;
+            matrix.postScale(scale, scale);
+        }
+        applyOrientation(matrix, readOrientation(resolver, uri));
+        Bitmap bitmap = decoded;
+        if (!matrix.isIdentity()) {
+            bitmap = Bitmap.createBitmap(decoded, 0, 0, decoded.getWidth(), decoded.getHeight(), matrix, true);
+            if (bitmap != decoded) {
+                decoded.recycle();
+            }
+        }
+        Log.d(TAG, "压缩图片: " + options.outWidth + "x" + options.outHeight + " -> "
+                + bitmap.getWidth() + "x" + bitmap.getHeight());
+        return new CompressedImageBody(bitmap, listener);
+    }
+
+    private static InputStream openStream(ContentResolver resolver, Uri uri) throws IOException {
+        InputStream input = resolver.openInputStream(uri);
+        if (input == null) {
+            throw new IOException("无法打开图片: " + uri);
+        }
+        return input;
+    }
+
+    private static int readOrientation(ContentResolver resolver, Uri uri) {
+        try (InputStream input = openStream(resolver, uri)) {
+            return new ExifInterface(input).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException | RuntimeException e) {
+            // PNG等没有EXIF信息的图片
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static void applyOrientation(Matrix matrix, int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    // 连接失败重试时会再次调用，每次重新编码
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        OutputStream output = new FilterOutputStream(sink.outputStream()) {
+            private long written;
+
+            @Override
+            public void write(@NonNull byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                written += len;
+                if (listener != null) {
+                    listener.onProgress(written);
+                }
+            }
+        };
+        if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, output)) {
+            throw new IOException("图片编码失败");
+        }
+        output.flush();
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.yunclass.image;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+/**
+ * 课程封面，交给Glide加载时由 {@link CourseImageLoader} 按控件的实际宽度请求服务器缩放后的图片
+ */
+public final class CourseImage {
+    private final String name;
+
+    /**
+     * @param name 课程的image字段
+     */
+    public CourseImage(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // 作为Glide内存缓存键的一部分
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CourseImage)) return false;
+        return Objects.equals(name, ((CourseImage) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(name);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "CourseImage{" + name + "}";
+    }
+}
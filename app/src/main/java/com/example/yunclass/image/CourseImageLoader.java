@@ -0,0 +1,56 @@
+package com.example.yunclass.image;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.model.stream.BaseGlideUrlLoader;
+
+import java.io.InputStream;
+
+/**
+ * 把 {@link CourseImage} 转换为带尺寸参数的图片地址
+ *
+ * Glide在控件测量完成后才开始加载，此时已知道目标宽度，服务器据此返回缩放后的WebP图片，
+ * 不再下载几MB的原图再在手机上缩小。服务器会把宽度向上取整到固定档位。
+ */
+public class CourseImageLoader extends BaseGlideUrlLoader<CourseImage> {
+    private static final String FORMAT = "webp";
+
+    CourseImageLoader(ModelLoader<GlideUrl, InputStream> urlLoader) {
+        super(urlLoader);
+    }
+
+    @Override
+    protected String getUrl(CourseImage model, int width, int height, Options options) {
+        Uri.Builder builder = Uri.parse(ImageRequests.courseImageUrl(model.getName())).buildUpon();
+        // 宽度为Target.SIZE_ORIGINAL（负数）时请求原尺寸
+        if (width > 0) {
+            builder.appendQueryParameter("w", String.valueOf(width));
+        }
+        builder.appendQueryParameter("fmt", FORMAT);
+        return builder.build().toString();
+    }
+
+    @Override
+    public boolean handles(@NonNull CourseImage model) {
+        return model.getName() != null && !model.getName().isEmpty();
+    }
+
+    public static class Factory implements ModelLoaderFactory<CourseImage, InputStream> {
+        @NonNull
+        @Override
+        public ModelLoader<CourseImage, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new CourseImageLoader(multiFactory.build(GlideUrl.class, InputStream.class));
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.yunclass.image;
+
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.request.RequestOptions;
+import com.example.yunclass.config.AppConfig;
+
+/**
+ * 常用的图片地址和加载选项
+ */
+public final class ImageRequests {
+
+    private ImageRequests() {
+    }
+
+    /**
+     * 课程封面原图地址，显示封面时应加载 {@link CourseImage}，按控件尺寸请求缩略图
+     * @param image 课程的image字段
+     */
+    public static String courseImageUrl(String image) {
+        return AppConfig.BASE_URL + "api/course-image/" + image;
+    }
+
+    /**
+     * 缩略图选项：直接解码为控件的像素尺寸并裁剪，内存和磁盘缓存中保存的也是这个尺寸；
+     * 没有透明通道的图片使用RGB_565，内存占用减半
+     */
+    public static RequestOptions thumbnail(int width, int height) {
+        return new RequestOptions()
+                .override(width, height)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565);
+    }
+
+    /**
+     * 大图选项：尺寸由控件决定，按控件裁剪后缓存
+     */
+    public static RequestOptions cover() {
+        return new RequestOptions()
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.yunclass.media;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.CacheKeyFactory;
+import androidx.media3.datasource.cache.CacheWriter;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.media3.datasource.okhttp.OkHttpDataSource;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
+import androidx.media3.exoplayer.source.MediaSource;
+
+import com.example.yunclass.api.ApiClient;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * 视频缓存
+ *
+ * 所有播放器共用一个 {@link SimpleCache}，播放过的视频片段保存在本地，回看或再次打开时不再从服务器读取；
+ * 缓存超过上限时按最近最少使用淘汰。还可以提前缓存下一节课的开头部分，打开时立即开始播放。
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class MediaCache {
+    private static final String TAG = "MediaCache";
+
+    private static final String CACHE_DIR = "media_cache";
+    private static final String PREF_NAME = "media_cache_settings";
+    private static final String KEY_MAX_SIZE_MB = "max_size_mb";
+    private static final long DEFAULT_MAX_SIZE_MB = 512;
+
+    // 预缓存的时长，按课程视频的平均码率（约1.5Mbps）换算成字节数
+    private static final int PRECACHE_SECONDS = 30;
+    private static final long PRECACHE_BYTES_PER_SECOND = 192L * 1024;
+
+    private static volatile MediaCache instance;
+
+    private final Context context;
+    private final SimpleCache cache;
+    private final CacheDataSource.Factory dataSourceFactory;
+    private final ExecutorService preCacheExecutor = Executors.newSingleThreadExecutor();
+    // 正在进行的预缓存，按缓存键记录，避免重复
+    private final Map<String, CacheWriter> preCaching = new HashMap<>();
+
+    /**
+     * 缓存键只取路径，并去掉 /html 前缀：/html/book/a.mp4 与 /book/a.mp4 是同一个文件，
+     * 服务器地址变化（如切换局域网IP）后已缓存的内容也仍然有效
+     */
+    private static final CacheKeyFactory CACHE_KEY_FACTORY = dataSpec -> {
+        if (dataSpec.key != null) {
+            return dataSpec.key;
+        }
+        String path = dataSpec.uri.getPath();
+        if (path == null) {
+            return dataSpec.uri.toString();
+        }
+        return path.startsWith("/html/") ? path.substring(5) : path;
+    };
+
+    private MediaCache(Context context) {
+        this.context = context.getApplicationContext();
+        long maxBytes = getMaxSizeMb(this.context) * 1024 * 1024;
+        cache = new SimpleCache(new File(this.context.getFilesDir(), CACHE_DIR),
+                new LeastRecentlyUsedCacheEvictor(maxBytes),
+                new StandaloneDatabaseProvider(this.context));
+
+        // 基于接口的OkHttpClient创建，共用连接池和Cookie；视频已有SimpleCache，不再写入HTTP缓存
+        OkHttpClient videoClient = ApiClient.getOkHttpClient().newBuilder()
+                .cache(null)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .build();
+        OkHttpDataSource.Factory httpFactory = new OkHttpDataSource.Factory(videoClient);
+        dataSourceFactory = new CacheDataSource.Factory()
+                .setCache(cache)
+                .setCacheKeyFactory(CACHE_KEY_FACTORY)
+                // DefaultDataSource同时支持http和本地file://地址
+                .setUpstreamDataSourceFactory(new DefaultDataSource.Factory(this.context, httpFactory))
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+        Log.d(TAG, "视频缓存上限: " + maxBytes / 1024 / 1024 + "MB, 已使用: " + cache.getCacheSpace() / 1024 / 1024 + "MB");
+    }
+
+    public static MediaCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MediaCache.class) {
+                if (instance == null) {
+                    instance = new MediaCache(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 缓存大小上限（MB）
+     */
+    public static long getMaxSizeMb(Context context) {
+        return prefs(context).getLong(KEY_MAX_SIZE_MB, DEFAULT_MAX_SIZE_MB);
+    }
+
+    /**
+     * 设置缓存大小上限，下次启动应用时生效
+     */
+    public static void setMaxSizeMb(Context context, long maxSizeMb) {
+        prefs(context).edit().putLong(KEY_MAX_SIZE_MB, maxSizeMb).apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 读写缓存的MediaSource工厂，创建播放器时传给 ExoPlayer.Builder#setMediaSourceFactory
+     */
+    public MediaSource.Factory createMediaSourceFactory() {
+        return new DefaultMediaSourceFactory(context).setDataSourceFactory(dataSourceFactory);
+    }
+
+    /**
+     * 在后台缓存视频开头的一段，已缓存的部分不会重复下载。使用按流量计费的网络时不预缓存
+     * @param url 视频地址
+     */
+    public void preCache(String url) {
+        if (url.endsWith(".m3u8")) {
+            // HLS视频从最低码率的小分片起播，本身启动就快，不需要预缓存
+            return;
+        }
+        ConnectivityManager connectivity =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null || connectivity.isActiveNetworkMetered()) {
+            Log.d(TAG, "当前网络按流量计费，跳过预缓存: " + url);
+            return;
+        }
+
+        DataSpec dataSpec = new DataSpec.Builder()
+                .setUri(Uri.parse(url))
+                .setLength(PRECACHE_SECONDS * PRECACHE_BYTES_PER_SECOND)
+                .build();
+        String key = CACHE_KEY_FACTORY.buildCacheKey(dataSpec);
+        CacheWriter writer = new CacheWriter(dataSourceFactory.createDataSource(), dataSpec, null, null);
+        synchronized (preCaching) {
+            if (preCaching.containsKey(key)) {
+                return;
+            }
+            preCaching.put(key, writer);
+        }
+
+        preCacheExecutor.execute(() -> {
+            try {
+                writer.cache();
+                Log.d(TAG, "预缓存完成: " + url);
+            } catch (Exception e) {
+                Log.w(TAG, "预缓存失败: " + url + ", " + e.getMessage());
+            } finally {
+                synchronized (preCaching) {
+                    preCaching.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * 取消所有未完成的预缓存
+     */
+    public void cancelPreCache() {
+        synchronized (preCaching) {
+            for (CacheWriter writer : preCaching.values()) {
+                writer.cancel();
+            }
+        }
+    }
+}
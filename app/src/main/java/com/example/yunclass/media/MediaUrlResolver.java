@@ -0,0 +1,179 @@
+package com.example.yunclass.media;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.config.AppConfig;
+import com.example.yunclass.download.DownloadQueue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * 视频地址解析
+ *
+ * 课程数据中的contentPath就是服务器给出的标准路径，正常情况下直接拼出完整URL交给播放器，不做任何探测；
+ * 解析结果会缓存，下次打开直接使用。只有播放器报告地址不可用时才调用 {@link #resolveFallback}，
+ * 对几个候选地址同时发HEAD请求，取最先成功的一个，超过时限仍没有结果则放弃。
+ */
+public class MediaUrlResolver {
+    private static final String TAG = "MediaUrlResolver";
+
+    private static final String PREF_NAME = "media_url_cache";
+    // 候选地址探测的总时限
+    private static final long FALLBACK_DEADLINE_MS = 3000;
+
+    private static volatile MediaUrlResolver instance;
+
+    private final SharedPreferences prefs;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 解析回调，在主线程执行
+     */
+    public interface ResolveCallback {
+        void onResolved(String url);
+
+        void onError(String message);
+    }
+
+    private MediaUrlResolver(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static MediaUrlResolver getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MediaUrlResolver.class) {
+                if (instance == null) {
+                    instance = new MediaUrlResolver(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 获取视频地址，不发起网络请求
+     * @param contentPath Course/CourseContent中的路径
+     * @return 上次验证可用的地址；没有记录时为标准地址
+     */
+    public String resolve(String contentPath) {
+        String cached = prefs.getString(contentPath, null);
+        // 服务器地址变更后旧记录作废
+        if (cached != null && cached.startsWith(AppConfig.BASE_URL)) {
+            return cached;
+        }
+        return DownloadQueue.resolveUrl(contentPath);
+    }
+
+    /**
+     * 地址不可用时，同时探测所有候选地址，使用最先响应成功的一个
+     * @param failedUrl 播放失败的地址，不再探测
+     */
+    public void resolveFallback(String contentPath, String failedUrl, ResolveCallback callback) {
+        prefs.edit().remove(contentPath).apply();
+
+        List<String> candidates = new ArrayList<>(candidatesFor(contentPath));
+        candidates.remove(failedUrl);
+        if (candidates.isEmpty()) {
+            callback.onError("视频地址不可用");
+            return;
+        }
+
+        Log.d(TAG, "探测候选地址: " + candidates);
+        final List<Call<Void>> calls = new ArrayList<>();
+        final boolean[] finished = {false};
+        final int[] failures = {0};
+
+        Runnable deadline = () -> {
+            if (!finished[0]) {
+                finished[0] = true;
+                cancelAll(calls);
+                callback.onError("视频地址探测超时");
+            }
+        };
+        mainHandler.postDelayed(deadline, FALLBACK_DEADLINE_MS);
+
+        for (String candidate : candidates) {
+            Call<Void> call = ApiClient.getApiService().head(candidate);
+            calls.add(call);
+            call.enqueue(new Callback<Void>() {
+                @Override
+                public void onResponse(@NonNull Call<Void> call, @NonNull Response<Void> response) {
+                    if (finished[0]) {
+                        return;
+                    }
+                    if (response.isSuccessful()) {
+                        finished[0] = true;
+                        mainHandler.removeCallbacks(deadline);
+                        cancelAll(calls);
+                        Log.d(TAG, "使用候选地址: " + candidate);
+                        prefs.edit().putString(contentPath, candidate).apply();
+                        callback.onResolved(candidate);
+                    } else {
+                        onFailed();
+                    }
+                }
+
+                @Override
+                public void onFailure(@NonNull Call<Void> call, @NonNull Throwable t) {
+                    if (!finished[0]) {
+                        onFailed();
+                    }
+                }
+
+                private void onFailed() {
+                    if (++failures[0] == candidates.size()) {
+                        finished[0] = true;
+                        mainHandler.removeCallbacks(deadline);
+                        callback.onError("所有候选地址均无法访问");
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 记录验证可用的地址（如已成功开始播放）
+     */
+    public void remember(String contentPath, String url) {
+        if (!url.equals(prefs.getString(contentPath, null))) {
+            prefs.edit().putString(contentPath, url).apply();
+        }
+    }
+
+    /**
+     * 候选地址：标准地址，以及服务器根目录静态托管下去掉 html/ 前缀的地址
+     */
+    private static Set<String> candidatesFor(String contentPath) {
+        Set<String> candidates = new LinkedHashSet<>();
+        candidates.add(DownloadQueue.resolveUrl(contentPath));
+        if (!contentPath.startsWith("http")) {
+            String path = contentPath.startsWith("/") ? contentPath.substring(1) : contentPath;
+            if (path.startsWith("html/")) {
+                candidates.add(DownloadQueue.resolveUrl(path.substring(5)));
+            } else {
+                candidates.add(DownloadQueue.resolveUrl("html/" + path));
+            }
+        }
+        return candidates;
+    }
+
+    private static void cancelAll(List<Call<Void>> calls) {
+        for (Call<Void> call : calls) {
+            call.cancel();
+        }
+    }
+}
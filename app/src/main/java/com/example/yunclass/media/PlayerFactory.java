@@ -0,0 +1,84 @@
+package com.example.yunclass.media;
+
+import android.content.Context;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.trackselection.AdaptiveTrackSelection;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
+
+/**
+ * 创建课程视频播放器
+ *
+ * 课程视频打包为360p/540p/720p三档HLS（见 html/scripts/package-hls.js），播放器根据测得的带宽自动切换。
+ * 参数针对移动网络调整：起播码率保守，降档比默认更快、升档更谨慎，避免在网速波动时频繁卡顿。
+ */
+@OptIn(markerClass = UnstableApi.class)
+public final class PlayerFactory {
+
+    // 缓冲：至少15秒、最多50秒，缓冲1.5秒即开始播放，卡顿后缓冲3秒再继续
+    private static final int MIN_BUFFER_MS = 15_000;
+    private static final int MAX_BUFFER_MS = 50_000;
+    private static final int BUFFER_FOR_PLAYBACK_MS = 1_500;
+    private static final int BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS = 3_000;
+
+    // 码率切换（括号内为AdaptiveTrackSelection的默认值）：
+    // 缓冲超过15秒才升档（10秒），升档时至少保留30秒已缓冲的低码率数据（25秒），少丢弃已下载的内容；
+    // 缓冲低于35秒时带宽下降就降档（25秒），网速变差时更早换到低码率
+    private static final int MIN_DURATION_FOR_QUALITY_INCREASE_MS = 15_000;
+    private static final int MAX_DURATION_FOR_QUALITY_DECREASE_MS = 35_000;
+    private static final int MIN_DURATION_TO_RETAIN_AFTER_DISCARD_MS = 30_000;
+    // 只按测得带宽的60%选择码率（70%），给移动网络的波动多留余量
+    private static final float BANDWIDTH_FRACTION = 0.6f;
+
+    private static DefaultBandwidthMeter bandwidthMeter;
+
+    private PlayerFactory() {
+    }
+
+    /**
+     * 创建播放器，视频经由共享的 {@link MediaCache} 读取
+     */
+    public static ExoPlayer create(Context context) {
+        Context appContext = context.getApplicationContext();
+        DefaultTrackSelector trackSelector = new DefaultTrackSelector(appContext,
+                new AdaptiveTrackSelection.Factory(
+                        MIN_DURATION_FOR_QUALITY_INCREASE_MS,
+                        MAX_DURATION_FOR_QUALITY_DECREASE_MS,
+                        MIN_DURATION_TO_RETAIN_AFTER_DISCARD_MS,
+                        BANDWIDTH_FRACTION));
+        DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
+                .setBufferDurationsMs(MIN_BUFFER_MS, MAX_BUFFER_MS,
+                        BUFFER_FOR_PLAYBACK_MS, BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS)
+                .build();
+
+        return new ExoPlayer.Builder(context)
+                .setMediaSourceFactory(MediaCache.getInstance(appContext).createMediaSourceFactory())
+                .setTrackSelector(trackSelector)
+                .setBandwidthMeter(getBandwidthMeter(appContext))
+                .setLoadControl(loadControl)
+                .build();
+    }
+
+    /**
+     * 所有播放器共用一个带宽估计，上一个视频测得的网速可以直接用于下一个视频的起播码率。
+     * 读取缓存的数据不计入带宽估计
+     */
+    private static synchronized DefaultBandwidthMeter getBandwidthMeter(Context context) {
+        if (bandwidthMeter == null) {
+            // 起播码率按网络类型估计，与码率阶梯对应：2G/3G从360p开始，4G从540p开始
+            bandwidthMeter = new DefaultBandwidthMeter.Builder(context)
+                    .setInitialBitrateEstimate(C.NETWORK_TYPE_2G, 300_000)
+                    .setInitialBitrateEstimate(C.NETWORK_TYPE_3G, 900_000)
+                    .setInitialBitrateEstimate(C.NETWORK_TYPE_4G, 2_000_000)
+                    .setInitialBitrateEstimate(C.NETWORK_TYPE_WIFI, 4_000_000)
+                    .setResetOnNetworkTypeChange(true)
+                    .build();
+        }
+        return bandwidthMeter;
+    }
+}
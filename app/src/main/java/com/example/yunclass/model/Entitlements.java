@@ -0,0 +1,28 @@
+package com.example.yunclass.model;
+
+/**
+ * 服务器签发的离线授权令牌，由 {@link com.example.yunclass.utils.EntitlementToken} 验证
+ */
+public class Entitlements {
+    private String token;
+    private long expiresAt;
+
+    public Entitlements() {
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
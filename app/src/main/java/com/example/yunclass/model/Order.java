@@ -1,14 +1,20 @@
 package com.example.yunclass.model;
 
+import com.google.gson.annotations.SerializedName;
+
 import java.util.Date;
 
 public class Order {
     private int id;
+    @SerializedName(value = "user_id", alternate = {"userId"})
     private int userId;
+    @SerializedName(value = "course_id", alternate = {"courseId"})
     private int courseId;
+    @SerializedName(value = "course_title", alternate = {"courseTitle"})
     private String courseTitle;
     private double price;
     private String status;
+    @SerializedName(value = "created_at", alternate = {"createdAt"})
     private Date createdAt;
 
     public Order() {
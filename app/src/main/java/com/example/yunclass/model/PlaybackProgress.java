@@ -0,0 +1,62 @@
+package com.example.yunclass.model;
+
+/**
+ * 视频播放进度
+ */
+public class PlaybackProgress {
+    private String contentPath; // 进度的键，见ProgressManager.keyOf，旧版本为视频的contentPath
+    private long positionMs; // 播放位置（毫秒）
+    private long durationMs; // 视频总时长（毫秒），未知时为0
+    private long updatedAt; // 记录时间，多台设备的进度以最新的为准
+    private long modifiedAt; // 服务器写入的时间，仅在从服务器获取时有值，用于增量拉取
+
+    public PlaybackProgress() {
+    }
+
+    public PlaybackProgress(String contentPath, long positionMs, long durationMs, long updatedAt) {
+        this.contentPath = contentPath;
+        this.positionMs = positionMs;
+        this.durationMs = durationMs;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getContentPath() {
+        return contentPath;
+    }
+
+    public void setContentPath(String contentPath) {
+        this.contentPath = contentPath;
+    }
+
+    public long getPositionMs() {
+        return positionMs;
+    }
+
+    public void setPositionMs(long positionMs) {
+        this.positionMs = positionMs;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public long getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(long modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.yunclass.model;
+
+import java.util.List;
+
+/**
+ * 增量同步结果
+ */
+public class SyncData {
+    private String token; // 下次同步时提交的令牌
+    private boolean reset; // 是否为全量同步（令牌无效或首次同步）
+    private List<Course> courses; // 变化的课程
+    private List<Integer> deletedCourseIds; // 已删除的课程ID
+    private List<Order> orders; // 新增的订单
+
+    public SyncData() {
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    public List<Course> getCourses() {
+        return courses;
+    }
+
+    public void setCourses(List<Course> courses) {
+        this.courses = courses;
+    }
+
+    public List<Integer> getDeletedCourseIds() {
+        return deletedCourseIds;
+    }
+
+    public void setDeletedCourseIds(List<Integer> deletedCourseIds) {
+        this.deletedCourseIds = deletedCourseIds;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<Order> orders) {
+        this.orders = orders;
+    }
+}
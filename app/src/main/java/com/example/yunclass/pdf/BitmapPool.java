@@ -0,0 +1,73 @@
+package com.example.yunclass.pdf;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按尺寸复用的Bitmap池
+ *
+ * 页面和分块的尺寸只有少数几种，被缓存淘汰的Bitmap放回池中，下次渲染同样尺寸时直接复用，
+ * 滚动时不会反复申请大块内存。池的总大小有上限，超出时直接回收。
+ */
+class BitmapPool {
+    private final long maxBytes;
+    private final Map<Long, ArrayDeque<Bitmap>> pool = new HashMap<>();
+    private long currentBytes;
+
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 取出一个指定尺寸的Bitmap，内容已清空为白色（PDF页面背景）
+     */
+    synchronized Bitmap get(int width, int height) {
+        ArrayDeque<Bitmap> bitmaps = pool.get(key(width, height));
+        Bitmap bitmap = bitmaps != null ? bitmaps.poll() : null;
+        if (bitmap == null) {
+            // PdfRenderer只支持ARGB_8888
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else {
+            currentBytes -= bitmap.getAllocationByteCount();
+        }
+        bitmap.eraseColor(Color.WHITE);
+        return bitmap;
+    }
+
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (currentBytes + size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        long key = key(bitmap.getWidth(), bitmap.getHeight());
+        ArrayDeque<Bitmap> bitmaps = pool.get(key);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            pool.put(key, bitmaps);
+        }
+        bitmaps.push(bitmap);
+        currentBytes += size;
+    }
+
+    synchronized void clear() {
+        for (ArrayDeque<Bitmap> bitmaps : pool.values()) {
+            for (Bitmap bitmap : bitmaps) {
+                bitmap.recycle();
+            }
+        }
+        pool.clear();
+        currentBytes = 0;
+    }
+
+    private static long key(int width, int height) {
+        return ((long) width << 32) | height;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.yunclass.pdf;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * PDF页面列表，每页一个 {@link PdfPageView}
+ */
+class PdfPageAdapter extends RecyclerView.Adapter<PdfPageAdapter.PageViewHolder> {
+    private final PdfPageRenderer renderer;
+
+    PdfPageAdapter(PdfPageRenderer renderer) {
+        this.renderer = renderer;
+        setHasStableIds(true);
+    }
+
+    @NonNull
+    @Override
+    public PageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        PdfPageView view = new PdfPageView(parent.getContext());
+        view.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        return new PageViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull PageViewHolder holder, int position) {
+        holder.pageView.bind(renderer, position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public int getItemCount() {
+        return renderer.getPageCount();
+    }
+
+    static class PageViewHolder extends RecyclerView.ViewHolder {
+        final PdfPageView pageView;
+
+        PageViewHolder(@NonNull PdfPageView pageView) {
+            super(pageView);
+            this.pageView = pageView;
+        }
+    }
+}
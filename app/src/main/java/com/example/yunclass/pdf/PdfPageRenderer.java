@@ -0,0 +1,364 @@
+package com.example.yunclass.pdf;
+
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDF页面渲染
+ *
+ * 基于系统的 {@link PdfRenderer}，直接读取本地文件，只渲染用到的页面：
+ * 页面和放大后的分块在一个后台线程中渲染，结果放入按字节数限制的LRU缓存，淘汰的Bitmap交给
+ * {@link BitmapPool} 复用。因此无论文档有多少页，内存占用都只与屏幕上和相邻的几页有关。
+ *
+ * 渲染请求分两种：当前显示的页面插到队首优先处理，相邻页面的预渲染排在队尾；
+ * 已滚出可见范围的页面和已过时的缩放比例的分块请求在轮到时直接丢弃。
+ * 除构造方法外，公开方法都应在主线程调用；缓存也只在主线程读写。
+ * 视图的显示列表在重绘之前仍引用上次绘制的Bitmap，因此被淘汰的Bitmap不会立即复用：
+ * 可见页面的Bitmap直接丢弃，由GC在不再显示后回收；其余的等下一帧绘制完成后才放回池中。
+ */
+public class PdfPageRenderer {
+    private static final String TAG = "PdfPageRenderer";
+
+    // 放大后的分块边长（像素）
+    static final int TILE_SIZE = 512;
+    // 可见范围前后保留的页数，范围外的请求会被丢弃
+    static final int PREFETCH_PAGES = 2;
+
+    /**
+     * 渲染回调，在主线程执行
+     */
+    public interface Listener {
+        void onPageRendered(int page);
+
+        /**
+         * 页面实际的宽高比与之前估计的不同，需要重新布局
+         */
+        void onPageSizeChanged(int page);
+    }
+
+    private static class Request {
+        final String key;
+        final int page;
+        final int width;
+        // 分块请求的缩放比例和位置，页面请求时tileX为-1
+        final float zoom;
+        final int tileX;
+        final int tileY;
+
+        Request(String key, int page, int width, float zoom, int tileX, int tileY) {
+            this.key = key;
+            this.page = page;
+            this.width = width;
+            this.zoom = zoom;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+    }
+
+    private final ParcelFileDescriptor fileDescriptor;
+    private final PdfRenderer pdfRenderer;
+    private final int pageCount;
+    // 各页的宽高比，渲染过的页面才知道实际值，其余按第一页估计
+    private final float[] aspects;
+
+    private final BitmapPool bitmapPool;
+    private final LruCache<String, Bitmap> cache;
+    private final LinkedBlockingDeque<Request> requests = new LinkedBlockingDeque<>();
+    // 已在队列中或正在渲染的请求，只在主线程访问
+    private final Set<String> pending = new HashSet<>();
+    // 已淘汰、等下一帧绘制完成后放回池中的Bitmap，只在主线程访问
+    private final List<Bitmap> retired = new ArrayList<>();
+    private boolean releaseScheduled;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Thread renderThread;
+
+    private Listener listener;
+    private volatile int firstVisible;
+    private volatile int lastVisible;
+    private volatile float tileZoom = 1f;
+    private volatile boolean closed;
+
+    /**
+     * 打开本地PDF文件，会读取文件结构，应在后台线程调用
+     * @throws IOException 文件无法读取或不是有效的PDF
+     * @throws SecurityException PDF设置了密码
+     */
+    public PdfPageRenderer(File file) throws IOException {
+        this(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 打开只包含前几页数据的PDF文件（见 {@link ProgressivePdfLoader}），只显示前pageLimit页
+     */
+    public PdfPageRenderer(File file, int pageLimit) throws IOException {
+        fileDescriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+        try {
+            pdfRenderer = new PdfRenderer(fileDescriptor);
+        } catch (IOException | RuntimeException e) {
+            fileDescriptor.close();
+            throw e;
+        }
+        pageCount = Math.min(pdfRenderer.getPageCount(), pageLimit);
+        aspects = new float[pageCount];
+        Arrays.fill(aspects, Float.NaN);
+        if (pageCount > 0) {
+            try (PdfRenderer.Page page = pdfRenderer.openPage(0)) {
+                aspects[0] = (float) page.getHeight() / page.getWidth();
+            }
+        }
+        lastVisible = Math.min(pageCount - 1, PREFETCH_PAGES);
+
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        bitmapPool = new BitmapPool(maxMemory / 16);
+        cache = new LruCache<String, Bitmap>((int) Math.min(maxMemory / 6, Integer.MAX_VALUE)) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                retire(key, oldValue);
+            }
+        };
+
+        renderThread = new Thread(this::renderLoop, "PdfPageRenderer");
+        renderThread.start();
+        Log.d(TAG, "打开PDF: " + file.getName() + ", 共" + pageCount + "页");
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * 页面的高宽比，尚未渲染的页面按第一页估计
+     */
+    public float getPageAspect(int page) {
+        float aspect = aspects[page];
+        if (Float.isNaN(aspect)) {
+            aspect = aspects[0];
+        }
+        return Float.isNaN(aspect) ? 1.414f : aspect;
+    }
+
+    /**
+     * 更新可见的页面范围，范围外较远的渲染请求会被丢弃
+     */
+    public void setVisibleRange(int first, int last) {
+        firstVisible = first;
+        lastVisible = last;
+    }
+
+    /**
+     * 设置当前的缩放比例，其他比例的分块请求会被丢弃
+     */
+    public void setTileZoom(float zoom) {
+        tileZoom = zoom;
+    }
+
+    /**
+     * 获取按指定宽度渲染的页面，尚未渲染时返回null并优先渲染，完成后通过Listener通知
+     */
+    public Bitmap getPage(int page, int width) {
+        String key = pageKey(page, width);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            enqueue(new Request(key, page, width, 1f, -1, -1), true);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 在后台预先渲染页面，已缓存或已在队列中时不做任何事
+     */
+    public void prefetch(int page, int width) {
+        if (page < 0 || page >= pageCount) {
+            return;
+        }
+        String key = pageKey(page, width);
+        if (cache.get(key) == null) {
+            enqueue(new Request(key, page, width, 1f, -1, -1), false);
+        }
+    }
+
+    /**
+     * 获取放大后页面上的一个分块
+     * @param width 页面未放大时的宽度
+     * @param zoom 缩放比例，放大后页面宽度为 width * zoom
+     * @param tileX 分块的列号，每块 {@link #TILE_SIZE} 像素
+     * @param tileY 分块的行号
+     */
+    public Bitmap getTile(int page, int width, float zoom, int tileX, int tileY) {
+        String key = "t:" + page + ":" + width + ":" + zoom + ":" + tileX + ":" + tileY;
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            enqueue(new Request(key, page, width, zoom, tileX, tileY), true);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 停止渲染并释放文件和所有Bitmap
+     */
+    public void close() {
+        closed = true;
+        renderThread.interrupt();
+        requests.clear();
+        pending.clear();
+        cache.evictAll();
+        retired.clear();
+        bitmapPool.clear();
+    }
+
+    // 在主线程执行；可见页面的Bitmap可能仍在屏幕上，不复用也不回收
+    private void retire(String key, Bitmap bitmap) {
+        int page = pageOf(key);
+        if (closed || (page >= firstVisible && page <= lastVisible)) {
+            return;
+        }
+        retired.add(bitmap);
+        if (!releaseScheduled) {
+            releaseScheduled = true;
+            // 帧回调在绘制之前执行，再post一次到这一帧绘制之后
+            Choreographer.getInstance().postFrameCallback(frameTimeNanos -> mainHandler.post(this::releaseRetired));
+        }
+    }
+
+    private void releaseRetired() {
+        releaseScheduled = false;
+        for (Bitmap bitmap : retired) {
+            if (closed) {
+                break;
+            }
+            bitmapPool.put(bitmap);
+        }
+        retired.clear();
+    }
+
+    // 缓存键的格式为 p:页码:... 或 t:页码:...
+    private static int pageOf(String key) {
+        int end = key.indexOf(':', 2);
+        return Integer.parseInt(end < 0 ? key.substring(2) : key.substring(2, end));
+    }
+
+    private static String pageKey(int page, int width) {
+        return "p:" + page + ":" + width;
+    }
+
+    private void enqueue(Request request, boolean urgent) {
+        if (closed || !pending.add(request.key)) {
+            return;
+        }
+        if (urgent) {
+            // 后请求的页面是刚滚动到的，先渲染
+            requests.addFirst(request);
+        } else {
+            requests.addLast(request);
+        }
+    }
+
+    private void renderLoop() {
+        try {
+            while (!closed) {
+                Request request = requests.pollFirst(1, TimeUnit.SECONDS);
+                if (request == null) {
+                    continue;
+                }
+                if (isStale(request)) {
+                    mainHandler.post(() -> pending.remove(request.key));
+                    continue;
+                }
+                Bitmap bitmap = render(request);
+                mainHandler.post(() -> deliver(request, bitmap));
+            }
+        } catch (InterruptedException e) {
+            // 已关闭
+        } finally {
+            pdfRenderer.close();
+            try {
+                fileDescriptor.close();
+            } catch (IOException e) {
+                Log.w(TAG, "关闭PDF文件失败", e);
+            }
+        }
+    }
+
+    private boolean isStale(Request request) {
+        if (request.page < firstVisible - PREFETCH_PAGES || request.page > lastVisible + PREFETCH_PAGES) {
+            return true;
+        }
+        return request.tileX >= 0 && request.zoom != tileZoom;
+    }
+
+    // 在渲染线程执行
+    private Bitmap render(Request request) {
+        try (PdfRenderer.Page page = pdfRenderer.openPage(request.page)) {
+            float aspect = (float) page.getHeight() / page.getWidth();
+            float estimated = getPageAspect(request.page);
+            aspects[request.page] = aspect;
+            if (Math.abs(aspect - estimated) > 0.01f) {
+                mainHandler.post(() -> {
+                    if (!closed && listener != null) {
+                        listener.onPageSizeChanged(request.page);
+                    }
+                });
+            }
+
+            Bitmap bitmap;
+            if (request.tileX < 0) {
+                bitmap = bitmapPool.get(request.width, Math.max(1, Math.round(request.width * aspect)));
+                page.render(bitmap, null, null, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+            } else {
+                // 只渲染放大后页面中分块所在的区域
+                float scale = request.width * request.zoom / page.getWidth();
+                Matrix matrix = new Matrix();
+                matrix.setScale(scale, scale);
+                matrix.postTranslate(-request.tileX * TILE_SIZE, -request.tileY * TILE_SIZE);
+                bitmap = bitmapPool.get(TILE_SIZE, TILE_SIZE);
+                page.render(bitmap, null, matrix, PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY);
+            }
+            return bitmap;
+        } catch (RuntimeException e) {
+            Log.e(TAG, "渲染第" + (request.page + 1) + "页失败", e);
+            return null;
+        }
+    }
+
+    // 在主线程执行
+    private void deliver(Request request, Bitmap bitmap) {
+        pending.remove(request.key);
+        if (bitmap == null) {
+            return;
+        }
+        if (closed) {
+            bitmap.recycle();
+            return;
+        }
+        cache.put(request.key, bitmap);
+        if (listener != null) {
+            listener.onPageRendered(request.page);
+        }
+    }
+}
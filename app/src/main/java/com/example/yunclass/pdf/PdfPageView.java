@@ -0,0 +1,79 @@
+package com.example.yunclass.pdf;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.view.View;
+
+/**
+ * 显示一页PDF
+ *
+ * 不持有Bitmap，每次绘制时从 {@link PdfPageRenderer} 的缓存中取：先画按视图宽度渲染的整页，
+ * 放大时再在上面画可见区域的高清分块。缓存中还没有的内容会被请求渲染，完成后重新绘制。
+ */
+class PdfPageView extends View {
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RectF dst = new RectF();
+    private final Rect visible = new Rect();
+    private PdfPageRenderer renderer;
+    private int page = -1;
+
+    PdfPageView(Context context) {
+        super(context);
+        setBackgroundColor(Color.WHITE);
+    }
+
+    void bind(PdfPageRenderer renderer, int page) {
+        this.renderer = renderer;
+        this.page = page;
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = renderer != null && page >= 0 ? Math.round(width * renderer.getPageAspect(page)) : width;
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int width = getWidth();
+        if (renderer == null || page < 0 || width == 0) {
+            return;
+        }
+        Bitmap bitmap = renderer.getPage(page, width);
+        if (bitmap != null) {
+            dst.set(0, 0, width, getHeight());
+            canvas.drawBitmap(bitmap, null, dst, paint);
+        }
+
+        if (!(getParent() instanceof PdfRecyclerView)) {
+            return;
+        }
+        PdfRecyclerView parent = (PdfRecyclerView) getParent();
+        float zoom = parent.getSettledZoom();
+        if (zoom <= 1f || !parent.getVisibleContentRect(this, visible)) {
+            return;
+        }
+        // 分块在视图坐标中的边长
+        float tileSize = PdfPageRenderer.TILE_SIZE / zoom;
+        int firstX = (int) (visible.left / tileSize);
+        int lastX = (int) ((visible.right - 1) / tileSize);
+        int firstY = (int) (visible.top / tileSize);
+        int lastY = (int) ((visible.bottom - 1) / tileSize);
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
+                Bitmap tile = renderer.getTile(page, width, zoom, x, y);
+                if (tile != null) {
+                    dst.set(x * tileSize, y * tileSize, (x + 1) * tileSize, (y + 1) * tileSize);
+                    canvas.drawBitmap(tile, null, dst, paint);
+                }
+            }
+        }
+    }
+}
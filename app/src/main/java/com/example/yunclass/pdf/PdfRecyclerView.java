@@ -0,0 +1,265 @@
+package com.example.yunclass.pdf;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 可缩放的PDF页面列表
+ *
+ * 页面按列表纵向排列，只有屏幕上的几页存在视图，滚动时复用。双指缩放或双击放大时整体绘制变换，
+ * 手势结束后再按新的比例请求可见区域的高清分块，缩放过程中不触发渲染。
+ */
+public class PdfRecyclerView extends RecyclerView {
+    private static final float MAX_ZOOM = 4f;
+    private static final float DOUBLE_TAP_ZOOM = 2f;
+    // 页面之间的间隔（dp）
+    private static final int PAGE_GAP_DP = 8;
+
+    private PdfPageRenderer renderer;
+    private LinearLayoutManager layoutManager;
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    // 当前的绘制变换：先缩放再平移
+    private float zoom = 1f;
+    private float translateX;
+    private float translateY;
+    // 手势结束时的缩放比例，分块按它渲染
+    private float settledZoom = 1f;
+    private boolean scaling;
+
+    public PdfRecyclerView(@NonNull Context context) {
+        this(context, null);
+    }
+
+    public PdfRecyclerView(@NonNull Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        layoutManager = new LinearLayoutManager(context);
+        setLayoutManager(layoutManager);
+        setHasFixedSize(true);
+        final int gap = Math.round(PAGE_GAP_DP * context.getResources().getDisplayMetrics().density);
+        addItemDecoration(new ItemDecoration() {
+            @Override
+            public void getItemOffsets(@NonNull Rect outRect, @NonNull View view, @NonNull RecyclerView parent,
+                                       @NonNull State state) {
+                outRect.bottom = gap;
+            }
+        });
+        addOnScrollListener(new OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                updateVisibleRange();
+            }
+        });
+
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScaleBegin(@NonNull ScaleGestureDetector detector) {
+                scaling = true;
+                return true;
+            }
+
+            @Override
+            public boolean onScale(@NonNull ScaleGestureDetector detector) {
+                zoomTo(zoom * detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+
+            @Override
+            public void onScaleEnd(@NonNull ScaleGestureDetector detector) {
+                scaling = false;
+                settle();
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDoubleTap(@NonNull MotionEvent e) {
+                zoomTo(zoom > 1f ? 1f : DOUBLE_TAP_ZOOM, e.getX(), e.getY());
+                settle();
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float distanceX,
+                                    float distanceY) {
+                if (zoom <= 1f || scaling) {
+                    return false;
+                }
+                translateX = clamp(translateX - distanceX, getWidth() * (1 - zoom), 0);
+                // 纵向先在放大后的范围内移动，到边缘后再滚动列表
+                float targetY = translateY - distanceY;
+                float clampedY = clamp(targetY, getHeight() * (1 - zoom), 0);
+                translateY = clampedY;
+                int scrollDy = Math.round((clampedY - targetY) / zoom);
+                if (scrollDy != 0) {
+                    scrollBy(0, scrollDy);
+                }
+                invalidateAll();
+                return true;
+            }
+
+            @Override
+            public boolean onFling(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float velocityX,
+                                   float velocityY) {
+                if (zoom <= 1f) {
+                    return false;
+                }
+                fling(0, Math.round(-velocityY / zoom));
+                return true;
+            }
+        });
+    }
+
+    /**
+     * 显示一个PDF文档，传入null时清空
+     */
+    public void setRenderer(@Nullable PdfPageRenderer renderer) {
+        this.renderer = renderer;
+        zoom = 1f;
+        settledZoom = 1f;
+        translateX = 0;
+        translateY = 0;
+        if (renderer == null) {
+            setAdapter(null);
+            return;
+        }
+        renderer.setTileZoom(1f);
+        renderer.setListener(new PdfPageRenderer.Listener() {
+            @Override
+            public void onPageRendered(int page) {
+                ViewHolder holder = findViewHolderForAdapterPosition(page);
+                if (holder != null) {
+                    holder.itemView.invalidate();
+                }
+            }
+
+            @Override
+            public void onPageSizeChanged(int page) {
+                Adapter<?> adapter = getAdapter();
+                if (adapter != null) {
+                    adapter.notifyItemChanged(page);
+                }
+            }
+        });
+        setAdapter(new PdfPageAdapter(renderer));
+    }
+
+    /**
+     * 当前显示的第一页（从0开始）
+     */
+    public int getCurrentPage() {
+        return layoutManager.findFirstVisibleItemPosition();
+    }
+
+    float getSettledZoom() {
+        return settledZoom;
+    }
+
+    /**
+     * 计算子视图在屏幕上可见的区域（子视图自身坐标）
+     * @return 不可见时返回false
+     */
+    boolean getVisibleContentRect(View child, Rect out) {
+        int left = (int) Math.floor(-translateX / zoom) - child.getLeft();
+        int top = (int) Math.floor(-translateY / zoom) - child.getTop();
+        int right = (int) Math.ceil((getWidth() - translateX) / zoom) - child.getLeft();
+        int bottom = (int) Math.ceil((getHeight() - translateY) / zoom) - child.getTop();
+        out.set(left, top, right, bottom);
+        return out.intersect(0, 0, child.getWidth(), child.getHeight());
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent e) {
+        boolean wasScaling = scaling;
+        scaleDetector.onTouchEvent(e);
+        gestureDetector.onTouchEvent(e);
+        if (scaling && !wasScaling) {
+            // 开始缩放，结束列表自身的拖动
+            MotionEvent cancel = MotionEvent.obtain(e);
+            cancel.setAction(MotionEvent.ACTION_CANCEL);
+            super.onTouchEvent(cancel);
+            cancel.recycle();
+        }
+        if (scaling || zoom > 1f) {
+            int action = e.getActionMasked();
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                // 平移结束，请求新露出区域的分块
+                invalidateAll();
+            }
+            return true;
+        }
+        return super.onTouchEvent(e);
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        canvas.save();
+        canvas.translate(translateX, translateY);
+        canvas.scale(zoom, zoom);
+        super.dispatchDraw(canvas);
+        canvas.restore();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        updateVisibleRange();
+    }
+
+    private void zoomTo(float newZoom, float focusX, float focusY) {
+        newZoom = clamp(newZoom, 1f, MAX_ZOOM);
+        // 保持焦点下的内容不动
+        translateX = clamp(focusX - (focusX - translateX) * newZoom / zoom, getWidth() * (1 - newZoom), 0);
+        translateY = clamp(focusY - (focusY - translateY) * newZoom / zoom, getHeight() * (1 - newZoom), 0);
+        zoom = newZoom;
+        invalidate();
+    }
+
+    private void settle() {
+        settledZoom = zoom;
+        if (renderer != null) {
+            renderer.setTileZoom(zoom);
+        }
+        invalidateAll();
+    }
+
+    // 变换改变后子视图要重新绘制，才会请求新的分块
+    private void invalidateAll() {
+        invalidate();
+        for (int i = 0; i < getChildCount(); i++) {
+            getChildAt(i).invalidate();
+        }
+    }
+
+    // 告诉渲染器当前可见的页面，并预渲染前后相邻的页面
+    private void updateVisibleRange() {
+        if (renderer == null || getWidth() == 0) {
+            return;
+        }
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == NO_POSITION) {
+            return;
+        }
+        renderer.setVisibleRange(first, last);
+        for (int i = 1; i <= PdfPageRenderer.PREFETCH_PAGES; i++) {
+            renderer.prefetch(last + i, getWidth());
+            renderer.prefetch(first - i, getWidth());
+        }
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.yunclass.pdf;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.download.RangeDownloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * PDF渐进加载
+ *
+ * 服务器上的PDF已线性化（见 html/scripts/linearize-pdf.js）：第一页所需的对象都在文件开头，
+ * 长度由线性化字典中的 /E 给出。打开时一方面交给 {@link RangeDownloader} 下载完整文件，
+ * 另一方面用Range请求只取回显示第一页需要的几段：
+ * <ol>
+ *     <li>文件开头到 /E（线性化字典、第一页交叉引用表、文档目录和第一页的全部对象）</li>
+ *     <li>/T 到文件末尾（主交叉引用表和trailer）</li>
+ *     <li>页面树根对象（线性化时被放在文件中部，PdfRenderer打开文档时要读取页数）</li>
+ * </ol>
+ * 这几段写入一个与原文件等长的稀疏文件，其余位置留空，先交给PdfRenderer显示第一页；
+ * 完整文件下载完成后再切换过去。服务器文件未线性化、或不是普通交叉引用表时跳过预览，等待完整文件。
+ */
+public class ProgressivePdfLoader {
+    private static final String TAG = "ProgressivePdfLoader";
+
+    // 线性化字典必须位于文件开头1024字节内
+    private static final int HEADER_BYTES = 1024;
+    // 第一页部分超过这个大小时（如首页是大图）单独获取已没有意义
+    private static final long MAX_PREVIEW_BYTES = 4L * 1024 * 1024;
+    // 页面树根对象的最大长度，qpdf线性化时会把页面树展平，/Kids中每页约10字节
+    private static final long MAX_PAGES_OBJECT_BYTES = 256L * 1024;
+    private static final String PREVIEW_DIR = "pdf_preview";
+
+    private static final Pattern LINEARIZED = Pattern.compile("/Linearized\\b[^>]*");
+    private static final Pattern XREF = Pattern.compile("(?<![a-z])xref\\s");
+    private static final Pattern ROOT_REF = Pattern.compile("/Root\\s+(\\d+)\\s+\\d+\\s+R");
+    private static final Pattern PAGES_REF = Pattern.compile("/Pages\\s+(\\d+)\\s+\\d+\\s+R");
+
+    /**
+     * 加载回调，在主线程执行
+     */
+    public interface Listener {
+        /**
+         * 第一页已可以显示
+         * @param previewFile 只包含第一页数据的稀疏文件，只能渲染第一页
+         */
+        void onPreviewReady(File previewFile);
+
+        void onProgress(long downloaded, long total);
+
+        void onComplete(File file);
+
+        void onError(String message);
+    }
+
+    private final String url;
+    private final File target;
+    private final File previewFile;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<Call<ResponseBody>> calls = new ArrayList<>();
+    private RangeDownloader.Task downloadTask;
+    private volatile boolean finished;
+
+    /**
+     * @param url PDF地址
+     * @param target 完整文件的保存位置
+     */
+    public ProgressivePdfLoader(Context context, String url, File target) {
+        this.url = url;
+        this.target = target;
+        this.previewFile = new File(new File(context.getCacheDir(), PREVIEW_DIR), target.getName());
+    }
+
+    public void start(Listener listener) {
+        if (target.exists()) {
+            listener.onComplete(target);
+            return;
+        }
+
+        downloadTask = RangeDownloader.getInstance().download(url, target, new RangeDownloader.Listener() {
+            @Override
+            public void onProgress(long downloaded, long total) {
+                if (!finished) {
+                    listener.onProgress(downloaded, total);
+                }
+            }
+
+            @Override
+            public void onComplete(File file) {
+                if (!finished) {
+                    finish();
+                    listener.onComplete(file);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                if (!finished) {
+                    finish();
+                    listener.onError(message);
+                }
+            }
+        });
+
+        executor.execute(() -> {
+            try {
+                long started = System.currentTimeMillis();
+                if (loadPreview()) {
+                    Log.d(TAG, "第一页数据已就绪，用时" + (System.currentTimeMillis() - started) + "ms");
+                    mainHandler.post(() -> {
+                        if (!finished) {
+                            listener.onPreviewReady(previewFile);
+                        }
+                    });
+                }
+            } catch (IOException e) {
+                // 预览只是加快显示，失败时等待完整文件即可
+                if (!finished) {
+                    Log.w(TAG, "获取第一页数据失败: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * 停止加载，已下载的部分保留到下次继续
+     */
+    public void cancel() {
+        if (downloadTask != null) {
+            downloadTask.cancel();
+        }
+        finish();
+    }
+
+    private void finish() {
+        synchronized (calls) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            for (Call<ResponseBody> call : calls) {
+                call.cancel();
+            }
+        }
+        executor.execute(previewFile::delete);
+        executor.shutdown();
+    }
+
+    // 在后台线程执行，成功写入预览文件时返回true
+    private boolean loadPreview() throws IOException {
+        Response<ResponseBody> head = fetch(0, HEADER_BYTES - 1, null);
+        if (head == null) {
+            return false;
+        }
+        byte[] headBytes = readBody(head);
+        long length = RangeDownloader.parseTotalLength(head.headers().get("Content-Range"));
+        String validator = validatorOf(head);
+
+        // 线性化字典：/L 文件长度，/E 第一页部分的结束位置，/T 主交叉引用表的位置
+        Matcher matcher = LINEARIZED.matcher(latin1(headBytes));
+        if (!matcher.find()) {
+            Log.d(TAG, "PDF未线性化，等待完整文件: " + url);
+            return false;
+        }
+        String dict = matcher.group();
+        long fileLength = numberOf(dict, "L");
+        long firstPageEnd = numberOf(dict, "E");
+        long mainXref = numberOf(dict, "T");
+        if (fileLength != length || firstPageEnd <= 0 || firstPageEnd > MAX_PREVIEW_BYTES
+                || mainXref <= firstPageEnd || mainXref >= length) {
+            Log.d(TAG, "线性化信息无效或第一页过大: " + dict);
+            return false;
+        }
+
+        byte[] firstPage = headBytes;
+        if (firstPageEnd > headBytes.length) {
+            byte[] rest = fetchBytes(headBytes.length, firstPageEnd - 1, validator);
+            if (rest == null) {
+                return false;
+            }
+            firstPage = new byte[headBytes.length + rest.length];
+            System.arraycopy(headBytes, 0, firstPage, 0, headBytes.length);
+            System.arraycopy(rest, 0, firstPage, headBytes.length, rest.length);
+        }
+        byte[] tail = fetchBytes(mainXref, length - 1, validator);
+        if (tail == null) {
+            return false;
+        }
+
+        // 由两个交叉引用表找到页面树根对象的位置
+        String firstPageText = latin1(firstPage);
+        Map<Integer, Long> offsets = new HashMap<>();
+        boolean parsed = parseXref(firstPageText, offsets);
+        parsed &= parseXref(latin1(tail), offsets);
+        if (!parsed) {
+            Log.d(TAG, "不是普通交叉引用表，等待完整文件");
+            return false;
+        }
+        // /Root在第一页部分的trailer中
+        Matcher root = ROOT_REF.matcher(firstPageText);
+        Long rootOffset = root.find() ? offsets.get(Integer.parseInt(root.group(1))) : null;
+        if (rootOffset == null || rootOffset >= firstPage.length) {
+            return false;
+        }
+        Matcher pages = PAGES_REF.matcher(objectAt(firstPage, rootOffset.intValue()));
+        Long pagesOffset = pages.find() ? offsets.get(Integer.parseInt(pages.group(1))) : null;
+        if (pagesOffset == null) {
+            return false;
+        }
+        byte[] pagesObject = null;
+        if (pagesOffset >= firstPage.length) {
+            long pagesEnd = Math.min(nextOffset(offsets, pagesOffset, mainXref),
+                    pagesOffset + MAX_PAGES_OBJECT_BYTES);
+            pagesObject = fetchBytes(pagesOffset, pagesEnd - 1, validator);
+            if (pagesObject == null) {
+                return false;
+            }
+        }
+
+        File dir = previewFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(previewFile, "rw")) {
+            // 只写入取回的几段，其余位置不占用磁盘空间
+            file.setLength(0);
+            file.setLength(length);
+            file.seek(0);
+            file.write(firstPage);
+            file.seek(mainXref);
+            file.write(tail);
+            if (pagesObject != null) {
+                file.seek(pagesOffset);
+                file.write(pagesObject);
+            }
+        }
+        return !finished;
+    }
+
+    private Response<ResponseBody> fetch(long start, long end, String validator) throws IOException {
+        Call<ResponseBody> call = ApiClient.getApiService().downloadRange(url, "bytes=" + start + "-" + end,
+                validator);
+        synchronized (calls) {
+            if (finished) {
+                return null;
+            }
+            calls.add(call);
+        }
+        Response<ResponseBody> response = call.execute();
+        if (response.code() != 206) {
+            // 200表示服务器文件已变化或不支持Range
+            if (response.body() != null) {
+                response.body().close();
+            } else if (response.errorBody() != null) {
+                response.errorBody().close();
+            }
+            Log.d(TAG, "Range请求未返回部分内容: " + response.code());
+            return null;
+        }
+        return response;
+    }
+
+    private byte[] fetchBytes(long start, long end, String validator) throws IOException {
+        Response<ResponseBody> response = fetch(start, end, validator);
+        if (response == null) {
+            return null;
+        }
+        byte[] bytes = readBody(response);
+        return bytes.length == end - start + 1 ? bytes : null;
+    }
+
+    private static byte[] readBody(Response<ResponseBody> response) throws IOException {
+        try (ResponseBody body = response.body()) {
+            if (body == null) {
+                throw new IOException("响应内容为空");
+            }
+            return body.bytes();
+        }
+    }
+
+    // If-Range只接受强ETag，否则使用Last-Modified
+    private static String validatorOf(Response<ResponseBody> response) {
+        String etag = response.headers().get("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.headers().get("Last-Modified");
+    }
+
+    /**
+     * 解析普通交叉引用表（xref ... trailer），结果合并到offsets
+     * @return 找到并解析了至少一个表
+     */
+    private static boolean parseXref(String text, Map<Integer, Long> offsets) {
+        boolean found = false;
+        Matcher matcher = XREF.matcher(text);
+        while (matcher.find()) {
+            int trailer = text.indexOf("trailer", matcher.end());
+            if (trailer < 0) {
+                break;
+            }
+            String[] tokens = text.substring(matcher.end(), trailer).trim().split("\\s+");
+            try {
+                int i = 0;
+                while (i + 1 < tokens.length) {
+                    int first = Integer.parseInt(tokens[i]);
+                    int count = Integer.parseInt(tokens[i + 1]);
+                    i += 2;
+                    for (int n = 0; n < count && i + 2 < tokens.length; n++, i += 3) {
+                        if ("n".equals(tokens[i + 2])) {
+                            offsets.put(first + n, Long.parseLong(tokens[i]));
+                        }
+                    }
+                }
+                found = true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return found;
+    }
+
+    // 从offset开始到endobj的对象内容
+    private static String objectAt(byte[] bytes, int offset) {
+        String text = latin1(bytes, offset, Math.min(bytes.length - offset, 4096));
+        int end = text.indexOf("endobj");
+        return end >= 0 ? text.substring(0, end) : text;
+    }
+
+    // 位置在offset之后的下一个对象的位置，没有时为limit
+    private static long nextOffset(Map<Integer, Long> offsets, long offset, long limit) {
+        long next = limit;
+        for (long value : offsets.values()) {
+            if (value > offset && value < next) {
+                next = value;
+            }
+        }
+        return next;
+    }
+
+    private static long numberOf(String dict, String key) {
+        Matcher matcher = Pattern.compile("/" + key + "\\s+(\\d+)").matcher(dict);
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static String latin1(byte[] bytes) {
+        return latin1(bytes, 0, bytes.length);
+    }
+
+    private static String latin1(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+}
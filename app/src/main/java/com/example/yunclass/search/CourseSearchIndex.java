@@ -0,0 +1,218 @@
+package com.example.yunclass.search;
+
+import com.example.yunclass.model.Course;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 课程搜索索引
+ *
+ * 对标题、作者、简介分词后建立倒排索引（见 {@link SearchTokenizer}），查询时按词查倒排表取交集。
+ * 建索引时课程按评分、学习人数从高到低排好序，文档编号即排名，结果按编号顺序输出即为排序结果；
+ * 标题命中的课程排在只有作者或简介命中的课程之前。
+ *
+ * 索引建好后只读，可以在任意线程查询。建索引耗时与课程数成正比，应在后台线程调用 {@link #build}。
+ */
+public final class CourseSearchIndex {
+
+    private static final CourseSearchIndex EMPTY = new CourseSearchIndex(new Course[0],
+            TermIndex.empty(), TermIndex.empty());
+
+    // 按排名排序的课程，下标即文档编号
+    private final Course[] courses;
+    // 只包含标题的索引，用于把标题命中的结果排在前面
+    private final TermIndex titleIndex;
+    // 包含标题、作者、简介的索引
+    private final TermIndex allIndex;
+
+    private CourseSearchIndex(Course[] courses, TermIndex titleIndex, TermIndex allIndex) {
+        this.courses = courses;
+        this.titleIndex = titleIndex;
+        this.allIndex = allIndex;
+    }
+
+    public static CourseSearchIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 为课程列表建立索引
+     */
+    public static CourseSearchIndex build(List<Course> catalogue) {
+        if (catalogue == null || catalogue.isEmpty()) {
+            return EMPTY;
+        }
+
+        Course[] courses = catalogue.toArray(new Course[0]);
+        Arrays.sort(courses, (a, b) -> {
+            int byRating = Double.compare(b.getRating(), a.getRating());
+            if (byRating != 0) {
+                return byRating;
+            }
+            int byStudents = Integer.compare(b.getStudents(), a.getStudents());
+            return byStudents != 0 ? byStudents : Integer.compare(a.getId(), b.getId());
+        });
+
+        TermIndex.Builder title = new TermIndex.Builder();
+        TermIndex.Builder all = new TermIndex.Builder();
+        for (int doc = 0; doc < courses.length; doc++) {
+            final int docId = doc;
+            Course course = courses[doc];
+            SearchTokenizer.tokenizeForIndex(course.getTitle(), true, (term, prefix) -> {
+                title.add(term, docId);
+                all.add(term, docId);
+            });
+            SearchTokenizer.tokenizeForIndex(course.getAuthor(), true, (term, prefix) -> all.add(term, docId));
+            SearchTokenizer.tokenizeForIndex(course.getDescription(), false, (term, prefix) -> all.add(term, docId));
+        }
+        return new CourseSearchIndex(courses, title.build(), all.build());
+    }
+
+    public int size() {
+        return courses.length;
+    }
+
+    /**
+     * 搜索课程
+     * @param query 查询内容，多个词之间为"与"的关系
+     * @param limit 最多返回的结果数
+     * @return 按相关性和排名排序的课程，查询为空时返回空列表
+     */
+    public List<Course> search(String query, int limit) {
+        if (courses.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        final long[][] matched = {null, null}; // [0]所有字段 [1]标题
+        SearchTokenizer.tokenizeQuery(query, (term, prefix) -> {
+            matched[0] = intersect(matched[0], allIndex.match(term, prefix, courses.length));
+            matched[1] = intersect(matched[1], titleIndex.match(term, prefix, courses.length));
+        });
+        long[] all = matched[0];
+        long[] title = matched[1];
+        if (all == null) {
+            return Collections.emptyList();
+        }
+
+        List<Course> results = new ArrayList<>(Math.min(limit, 32));
+        // 先输出标题命中的课程，再输出其余字段命中的课程，各自按排名顺序
+        for (int w = 0; w < all.length && results.size() < limit; w++) {
+            collect(all[w] & title[w], w, results, limit);
+        }
+        for (int w = 0; w < all.length && results.size() < limit; w++) {
+            collect(all[w] & ~title[w], w, results, limit);
+        }
+        return results;
+    }
+
+    private void collect(long bits, int word, List<Course> results, int limit) {
+        while (bits != 0 && results.size() < limit) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            results.add(courses[(word << 6) + bit]);
+            bits &= bits - 1;
+        }
+    }
+
+    private static long[] intersect(long[] current, long[] next) {
+        if (current == null) {
+            return next;
+        }
+        for (int i = 0; i < current.length; i++) {
+            current[i] &= next[i];
+        }
+        return current;
+    }
+
+    /**
+     * 倒排索引：按字典序排列的词表，以及每个词对应的文档编号（升序）
+     */
+    static final class TermIndex {
+        private final String[] terms;
+        private final int[][] postings;
+
+        private TermIndex(String[] terms, int[][] postings) {
+            this.terms = terms;
+            this.postings = postings;
+        }
+
+        /**
+         * 查询命中的文档集合
+         * @param prefix 为true时匹配所有以term开头的词
+         * @return 长度为 (docCount + 63) / 64 的位图
+         */
+        long[] match(String term, boolean prefix, int docCount) {
+            long[] bits = new long[(docCount + 63) >>> 6];
+            int index = Arrays.binarySearch(terms, term);
+            if (!prefix) {
+                if (index >= 0) {
+                    set(bits, postings[index]);
+                }
+                return bits;
+            }
+
+            // 以term为前缀的词在词表中是连续的一段
+            for (int i = index >= 0 ? index : -index - 1; i < terms.length && terms[i].startsWith(term); i++) {
+                set(bits, postings[i]);
+            }
+            return bits;
+        }
+
+        private static void set(long[] bits, int[] docs) {
+            for (int doc : docs) {
+                bits[doc >>> 6] |= 1L << doc;
+            }
+        }
+
+        static TermIndex empty() {
+            return new TermIndex(new String[0], new int[0][]);
+        }
+
+        static final class Builder {
+            private final Map<String, Posting> postings = new HashMap<>();
+
+            /**
+             * 添加词与文档的对应关系，文档编号必须按升序添加
+             */
+            void add(String term, int doc) {
+                Posting posting = postings.get(term);
+                if (posting == null) {
+                    posting = new Posting();
+                    postings.put(term, posting);
+                }
+                posting.add(doc);
+            }
+
+            TermIndex build() {
+                String[] terms = postings.keySet().toArray(new String[0]);
+                Arrays.sort(terms);
+                int[][] lists = new int[terms.length][];
+                for (int i = 0; i < terms.length; i++) {
+                    Posting posting = postings.get(terms[i]);
+                    lists[i] = Arrays.copyOf(posting.docs, posting.size);
+                }
+                return new TermIndex(terms, lists);
+            }
+        }
+
+        private static final class Posting {
+            int[] docs = new int[4];
+            int size;
+
+            void add(int doc) {
+                // 同一文档中重复出现的词只记录一次
+                if (size > 0 && docs[size - 1] == doc) {
+                    return;
+                }
+                if (size == docs.length) {
+                    docs = Arrays.copyOf(docs, size * 2);
+                }
+                docs[size++] = doc;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.yunclass.search;
+
+import java.nio.charset.Charset;
+
+/**
+ * 汉字拼音首字母
+ *
+ * GB2312一级汉字（3755个常用字）按拼音排序，根据字符在GB2312中的编码区间即可得到拼音首字母，
+ * 不需要引入拼音库。二级汉字按部首排序，无法这样推算，返回0。
+ */
+public final class PinyinInitials {
+
+    private static final Charset GB2312 = Charset.forName("GB2312");
+
+    // 各拼音首字母在GB2312一级汉字中的起始编码，没有以i、u、v开头的拼音
+    private static final int[] SECTION_STARTS = {
+            0xB0A1, 0xB0C5, 0xB2C1, 0xB4EE, 0xB6EA, 0xB7A2, 0xB8C1, 0xB9FE, 0xBBF7,
+            0xBFA6, 0xC0AC, 0xC2E8, 0xC4C3, 0xC5B6, 0xC5BE, 0xC6DA, 0xC8BB, 0xC8F6,
+            0xCBFA, 0xCDDA, 0xCEF4, 0xD1B9, 0xD4D1
+    };
+    private static final char[] SECTION_LETTERS = "abcdefghjklmnopqrstwxyz".toCharArray();
+    private static final int LEVEL1_END = 0xD7FA;
+
+    private static final char CJK_FIRST = '一';
+    private static final char CJK_LAST = '龥';
+    private static final char NONE = '-';
+
+    // 按字符缓存查询结果，0表示尚未计算；多线程下重复计算结果相同，不需要加锁
+    private static final char[] CACHE = new char[CJK_LAST - CJK_FIRST + 1];
+
+    private PinyinInitials() {
+    }
+
+    /**
+     * 是否为常用汉字（CJK统一表意文字基本区）
+     */
+    public static boolean isHanzi(char c) {
+        return c >= CJK_FIRST && c <= CJK_LAST;
+    }
+
+    /**
+     * 获取汉字的拼音首字母（小写）
+     * @return 首字母，不是汉字或不是GB2312一级汉字时返回0
+     */
+    public static char of(char c) {
+        if (!isHanzi(c)) {
+            return 0;
+        }
+        int index = c - CJK_FIRST;
+        char cached = CACHE[index];
+        if (cached == 0) {
+            cached = lookup(c);
+            CACHE[index] = cached;
+        }
+        return cached == NONE ? 0 : cached;
+    }
+
+    private static char lookup(char c) {
+        byte[] bytes = String.valueOf(c).getBytes(GB2312);
+        if (bytes.length != 2) {
+            return NONE;
+        }
+        int code = ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+        if (code < SECTION_STARTS[0] || code >= LEVEL1_END) {
+            return NONE;
+        }
+        for (int i = SECTION_STARTS.length - 1; i >= 0; i--) {
+            if (code >= SECTION_STARTS[i]) {
+                return SECTION_LETTERS[i];
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.yunclass.search;
+
+/**
+ * 搜索分词
+ *
+ * - 字母数字连续段作为一个词，统一转为小写
+ * - 汉字连续段切分为单字和相邻两字（二元分词），不依赖词典即可匹配任意连续的中文片段
+ * - 建索引时额外为汉字段生成拼音首字母词，如"数据结构"生成"sjjg"，支持用首字母搜索
+ */
+final class SearchTokenizer {
+
+    /**
+     * 接收分词结果
+     */
+    interface Sink {
+        /**
+         * @param term 词
+         * @param prefix 是否按前缀匹配（仅查询时使用，表示用户可能还没输入完）
+         */
+        void accept(String term, boolean prefix);
+    }
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 建索引时的分词
+     * @param withInitials 是否为汉字段生成拼音首字母词
+     */
+    static void tokenizeForIndex(String text, boolean withInitials, Sink sink) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (PinyinInitials.isHanzi(c)) {
+                int end = hanziRunEnd(text, i);
+                for (int j = i; j < end; j++) {
+                    sink.accept(String.valueOf(text.charAt(j)), false);
+                    if (j + 1 < end) {
+                        sink.accept(text.substring(j, j + 2), false);
+                    }
+                }
+                if (withInitials && end - i >= 2) {
+                    String initials = initialsOf(text, i, end);
+                    if (initials.length() >= 2) {
+                        sink.accept(initials, false);
+                    }
+                }
+                i = end;
+            } else if (Character.isLetterOrDigit(c)) {
+                int end = wordRunEnd(text, i);
+                sink.accept(text.substring(i, end).toLowerCase(), false);
+                i = end;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * 查询时的分词
+     *
+     * 中文片段切分为二元词后按精确匹配（单个汉字按单字匹配）；
+     * 字母数字词中，位于查询末尾的按前缀匹配，以支持边输入边搜索，其余按精确匹配。
+     */
+    static void tokenizeQuery(String query, Sink sink) {
+        if (query == null) {
+            return;
+        }
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            if (PinyinInitials.isHanzi(c)) {
+                int end = hanziRunEnd(query, i);
+                if (end - i == 1) {
+                    sink.accept(String.valueOf(c), false);
+                } else {
+                    for (int j = i; j + 1 < end; j++) {
+                        sink.accept(query.substring(j, j + 2), false);
+                    }
+                }
+                i = end;
+            } else if (Character.isLetterOrDigit(c)) {
+                int end = wordRunEnd(query, i);
+                sink.accept(query.substring(i, end).toLowerCase(), end == length);
+                i = end;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static int hanziRunEnd(String text, int start) {
+        int end = start + 1;
+        while (end < text.length() && PinyinInitials.isHanzi(text.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static int wordRunEnd(String text, int start) {
+        int end = start + 1;
+        while (end < text.length()) {
+            char c = text.charAt(end);
+            if (PinyinInitials.isHanzi(c) || !Character.isLetterOrDigit(c)) {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    private static String initialsOf(String text, int start, int end) {
+        StringBuilder builder = new StringBuilder(end - start);
+        for (int j = start; j < end; j++) {
+            char initial = PinyinInitials.of(text.charAt(j));
+            if (initial != 0) {
+                builder.append(initial);
+            }
+        }
+        return builder.toString();
+    }
+}
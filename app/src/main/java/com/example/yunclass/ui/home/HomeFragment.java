@@ -2,6 +2,11 @@ package com.example.yunclass.ui.home;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,6 +14,7 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.widget.NestedScrollView;
 import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
@@ -17,12 +23,16 @@ import com.example.yunclass.adapter.CourseAdapter;
 import com.example.yunclass.adapter.WebsiteAdapter;
 import com.example.yunclass.api.ApiClient;
 import com.example.yunclass.api.ApiResponse;
+import com.example.yunclass.data.CourseRepository;
 import com.example.yunclass.databinding.FragmentHomeBinding;
 import com.example.yunclass.model.Course;
 import com.example.yunclass.model.Website;
+import com.example.yunclass.search.CourseSearchIndex;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import retrofit2.Call;
 import retrofit2.Callback;
@@ -30,11 +40,34 @@ import retrofit2.Response;
 
 public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClickListener {
 
+    private static final String TAG = "HomeFragment";
+
     private FragmentHomeBinding binding;
     private WebsiteAdapter websiteAdapter;
     private CourseAdapter courseAdapter;
     private CourseAdapter searchAdapter; // 搜索结果适配器
     private boolean isInSearchMode = false; // 是否处于搜索模式
+    
+    // 完整的课程目录；首页列表嵌在NestedScrollView中会一次绑定全部条目，因此只逐页显示其中一部分
+    private List<Course> catalogue = new ArrayList<>();
+    private static final int COURSE_PAGE_SIZE = 20;
+    
+    // 课程搜索索引，课程目录加载完成后在后台线程重建
+    private static final ExecutorService INDEX_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private CourseSearchIndex searchIndex = CourseSearchIndex.empty();
+    private int indexGeneration = 0;
+    
+    // 课程目录是否已完整加载；未完整时搜索会再向服务器查询
+    private boolean catalogueComplete = false;
+    // 课程目录加载失败，此时多半没有网络，搜索只用已加载的部分
+    private boolean catalogueFailed = false;
+    // 每次加载课程目录时加一，视图重建前发出的加载返回后不再使用
+    private int catalogueGeneration = 0;
+    private static final long REMOTE_SEARCH_DELAY_MS = 300;
+    private Runnable pendingRemoteSearch;
+    private Call<ApiResponse<List<Course>>> remoteSearchCall;
 
     @Nullable
     @Override
@@ -71,21 +104,40 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
 
     private void setupSearch() {
         // 设置搜索按钮点击事件
-        binding.searchButton.setOnClickListener(v -> performSearch());
+        binding.searchButton.setOnClickListener(v -> performSearch(true));
         
         // 设置输入法搜索动作
         binding.searchEditText.setOnEditorActionListener((v, actionId, event) -> {
             if (actionId == android.view.inputmethod.EditorInfo.IME_ACTION_SEARCH) {
-                performSearch();
+                performSearch(true);
                 return true;
             }
             return false;
         });
         
+        // 边输入边搜索
+        binding.searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (isInSearchMode) {
+                    performSearch(false);
+                }
+            }
+        });
+        
         // 初始化搜索结果适配器
         searchAdapter = new CourseAdapter(requireContext(), new ArrayList<>(), this);
         binding.searchResultsRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.searchResultsRecyclerView.setAdapter(searchAdapter);
+        searchAdapter.attachPreloader(binding.searchResultsRecyclerView);
         
         // 点击搜索输入框时，如果不是搜索模式则进入搜索模式
         binding.searchEditText.setOnFocusChangeListener((v, hasFocus) -> {
@@ -100,7 +152,10 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
         });
     }
     
-    private void performSearch() {
+    /**
+     * @param fromUser 是否由用户点击搜索触发；边输入边搜索时不收起键盘、不弹提示
+     */
+    private void performSearch(boolean fromUser) {
         String query = binding.searchEditText.getText().toString().trim();
         
         // 进入搜索模式
@@ -110,42 +165,135 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
         
         if (query.isEmpty()) {
             // 查询为空，显示所有课程
-            searchAdapter.setCourses(courseAdapter.getAllCourses());
+            searchAdapter.setCourses(new ArrayList<>(catalogue));
             binding.noResultsTextView.setVisibility(View.GONE);
-            Toast.makeText(requireContext(), "已显示所有课程", Toast.LENGTH_SHORT).show();
+            if (fromUser) {
+                Toast.makeText(requireContext(), "已显示所有课程", Toast.LENGTH_SHORT).show();
+            }
         } else {
-            // 隐藏键盘
-            android.view.inputmethod.InputMethodManager imm = (android.view.inputmethod.InputMethodManager) 
-                    requireContext().getSystemService(android.content.Context.INPUT_METHOD_SERVICE);
-            imm.hideSoftInputFromWindow(binding.searchEditText.getWindowToken(), 0);
-            
-            // 在当前加载的课程中进行过滤
-            List<Course> allCourses = courseAdapter.getAllCourses();
-            List<Course> filteredCourses = new ArrayList<>();
-            
-            // 不区分大小写的搜索
-            String lowerQuery = query.toLowerCase();
-            
-            for (Course course : allCourses) {
-                if (course.getTitle().toLowerCase().contains(lowerQuery) || 
-                    course.getAuthor().toLowerCase().contains(lowerQuery) ||
-                    (course.getDescription() != null && course.getDescription().toLowerCase().contains(lowerQuery))) {
-                    filteredCourses.add(course);
-                }
+            if (fromUser) {
+                // 隐藏键盘
+                android.view.inputmethod.InputMethodManager imm = (android.view.inputmethod.InputMethodManager) 
+                        requireContext().getSystemService(android.content.Context.INPUT_METHOD_SERVICE);
+                imm.hideSoftInputFromWindow(binding.searchEditText.getWindowToken(), 0);
             }
             
-            if (filteredCourses.isEmpty()) {
-                // 没有结果，显示"暂无结果"提示
-                binding.noResultsTextView.setVisibility(View.VISIBLE);
-                searchAdapter.setCourses(new ArrayList<>());
+            // 索引尚未建好时（课程目录还在加载）退回到逐个比较
+            List<Course> filteredCourses = searchIndex.size() > 0
+                    ? searchIndex.search(query, MAX_SEARCH_RESULTS)
+                    : scanCatalogue(query);
+            
+            if (catalogueComplete || catalogueFailed) {
+                showSearchResults(filteredCourses, fromUser);
             } else {
-                // 有结果，更新列表
-                binding.noResultsTextView.setVisibility(View.GONE);
-                searchAdapter.setCourses(filteredCourses);
+                // 本地课程目录不完整，先显示本地结果，再向服务器查询完整结果
+                showSearchResults(filteredCourses, false);
+                scheduleRemoteSearch(query, fromUser);
+            }
+        }
+    }
+    
+    private void showSearchResults(List<Course> filteredCourses, boolean showToast) {
+        if (filteredCourses.isEmpty()) {
+            // 没有结果，显示"暂无结果"提示
+            binding.noResultsTextView.setVisibility(View.VISIBLE);
+            searchAdapter.setCourses(new ArrayList<>());
+        } else {
+            // 有结果，更新列表
+            binding.noResultsTextView.setVisibility(View.GONE);
+            searchAdapter.setCourses(filteredCourses);
+            if (showToast) {
                 Toast.makeText(requireContext(), "找到 " + filteredCourses.size() + " 个匹配课程", Toast.LENGTH_SHORT).show();
             }
         }
     }
+    
+    /**
+     * 服务器端搜索，边输入边搜索时延迟发起，避免每输入一个字就请求一次
+     * @param immediate 是否立即发起（用户点击搜索时）
+     */
+    private void scheduleRemoteSearch(final String query, final boolean immediate) {
+        cancelRemoteSearch();
+        pendingRemoteSearch = () -> {
+            pendingRemoteSearch = null;
+            remoteSearchCall = ApiClient.getApiService().searchCourses(query, MAX_SEARCH_RESULTS);
+            remoteSearchCall.enqueue(new Callback<ApiResponse<List<Course>>>() {
+                @Override
+                public void onResponse(Call<ApiResponse<List<Course>>> call, Response<ApiResponse<List<Course>>> response) {
+                    // 页面已销毁、已退出搜索或输入已变化时丢弃结果
+                    if (binding == null || !isInSearchMode
+                            || !query.equals(binding.searchEditText.getText().toString().trim())) {
+                        return;
+                    }
+                    if (response.isSuccessful() && response.body() != null
+                            && response.body().isSuccess() && response.body().getCourses() != null) {
+                        showSearchResults(response.body().getCourses(), immediate);
+                    } else {
+                        Log.w(TAG, "服务器搜索失败: " + response.code());
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<ApiResponse<List<Course>>> call, Throwable t) {
+                    if (!call.isCanceled()) {
+                        Log.w(TAG, "服务器搜索网络错误: " + t.getMessage());
+                    }
+                }
+            });
+        };
+        mainHandler.postDelayed(pendingRemoteSearch, immediate ? 0 : REMOTE_SEARCH_DELAY_MS);
+    }
+    
+    private void cancelRemoteSearch() {
+        if (pendingRemoteSearch != null) {
+            mainHandler.removeCallbacks(pendingRemoteSearch);
+            pendingRemoteSearch = null;
+        }
+        if (remoteSearchCall != null) {
+            remoteSearchCall.cancel();
+            remoteSearchCall = null;
+        }
+    }
+    
+    private List<Course> scanCatalogue(String query) {
+        List<Course> filteredCourses = new ArrayList<>();
+        
+        // 不区分大小写的搜索
+        String lowerQuery = query.toLowerCase();
+        
+        for (Course course : catalogue) {
+            if ((course.getTitle() != null && course.getTitle().toLowerCase().contains(lowerQuery)) || 
+                (course.getAuthor() != null && course.getAuthor().toLowerCase().contains(lowerQuery)) ||
+                (course.getDescription() != null && course.getDescription().toLowerCase().contains(lowerQuery))) {
+                filteredCourses.add(course);
+                if (filteredCourses.size() >= MAX_SEARCH_RESULTS) {
+                    break;
+                }
+            }
+        }
+        return filteredCourses;
+    }
+    
+    /**
+     * 在后台线程为当前课程目录重建搜索索引
+     */
+    private void rebuildSearchIndex() {
+        final List<Course> snapshot = new ArrayList<>(catalogue);
+        final int generation = ++indexGeneration;
+        INDEX_EXECUTOR.execute(() -> {
+            CourseSearchIndex index = CourseSearchIndex.build(snapshot);
+            mainHandler.post(() -> {
+                // 期间课程目录又有更新时丢弃旧索引
+                if (generation != indexGeneration) {
+                    return;
+                }
+                searchIndex = index;
+                if (binding != null && isInSearchMode) {
+                    performSearch(false);
+                }
+            });
+        });
+    }
 
     private void enterSearchMode() {
         isInSearchMode = true;
@@ -160,6 +308,7 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
     
     private void exitSearchMode() {
         isInSearchMode = false;
+        cancelRemoteSearch();
         // 显示轮播和背景图区域
         binding.bannerContainer.setVisibility(View.VISIBLE);
         binding.websiteContainer.setVisibility(View.VISIBLE);
@@ -189,6 +338,27 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
         courseAdapter = new CourseAdapter(requireContext(), new ArrayList<>(), this);
         binding.coursesRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.coursesRecyclerView.setAdapter(courseAdapter);
+        
+        // 距离底部不到一屏时显示下一页课程
+        binding.homeScrollView.setOnScrollChangeListener((NestedScrollView.OnScrollChangeListener)
+                (v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+            View content = v.getChildAt(0);
+            if (scrollY > oldScrollY && content != null
+                    && scrollY + 2 * v.getHeight() >= content.getHeight()) {
+                showCourses(courseAdapter.getItems().size() + COURSE_PAGE_SIZE);
+            }
+        });
+    }
+    
+    /**
+     * 从课程目录中追加显示课程，直到列表中有count门课程或目录已全部显示
+     */
+    private void showCourses(int count) {
+        int shown = courseAdapter.getItems().size();
+        int end = Math.min(count, catalogue.size());
+        if (end > shown) {
+            courseAdapter.addCourses(new ArrayList<>(catalogue.subList(shown, end)));
+        }
     }
 
     private void loadWebsites() {
@@ -209,7 +379,7 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
                     }
                     
                     // 如果课程也加载完成，隐藏进度条
-                    if (courseAdapter.getItemCount() > 0) {
+                    if (!courseAdapter.getItems().isEmpty()) {
                         binding.progressBar.setVisibility(View.GONE);
                     }
                 }
@@ -221,7 +391,7 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
                     Toast.makeText(requireContext(), "网络错误: " + t.getMessage(), Toast.LENGTH_SHORT).show();
                     
                     // 如果课程已加载完成，隐藏进度条
-                    if (courseAdapter.getItemCount() > 0) {
+                    if (!courseAdapter.getItems().isEmpty()) {
                         binding.progressBar.setVisibility(View.GONE);
                     }
                 }
@@ -232,34 +402,50 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
     private void loadCourses() {
         binding.progressBar.setVisibility(View.VISIBLE);
         
-        Call<ApiResponse<List<Course>>> call = ApiClient.getApiService().getCourses();
-        call.enqueue(new Callback<ApiResponse<List<Course>>>() {
+        // Fragment实例在返回本页时会被复用，重新加载前清空上一次的目录，否则逐批到达的课程会再追加一遍
+        final int generation = ++catalogueGeneration;
+        catalogue = new ArrayList<>();
+        catalogueComplete = false;
+        catalogueFailed = false;
+        
+        // 先显示本地缓存的课程，再由仓库在后台与服务器同步
+        CourseRepository.getInstance(requireContext()).getCourses(new CourseRepository.PartialDataCallback<List<Course>>() {
             @Override
-            public void onResponse(Call<ApiResponse<List<Course>>> call, Response<ApiResponse<List<Course>>> response) {
-                if (isAdded()) {
-                    if (response.isSuccessful() && response.body() != null) {
-                        ApiResponse<List<Course>> apiResponse = response.body();
-                        if (apiResponse.isSuccess() && apiResponse.getCourses() != null) {
-                            courseAdapter.setCourses(apiResponse.getCourses());
-                        }
-                    } else {
-                        Toast.makeText(requireContext(), "加载课程数据失败", Toast.LENGTH_SHORT).show();
-                    }
+            public void onPartialData(List<Course> batch) {
+                if (isAdded() && binding != null && generation == catalogueGeneration) {
+                    // 首次加载时课程逐批到达，收到第一批就可以显示第一页
+                    catalogue.addAll(batch);
+                    showCourses(COURSE_PAGE_SIZE);
+                    binding.progressBar.setVisibility(View.GONE);
+                }
+            }
+
+            @Override
+            public void onData(List<Course> courses, boolean fromCache) {
+                if (isAdded() && binding != null && generation == catalogueGeneration) {
+                    catalogueComplete = true;
+                    // 保留用户已经翻到的页数，只替换显示的内容
+                    catalogue = new ArrayList<>(courses);
+                    int count = Math.min(Math.max(courseAdapter.getItems().size(), COURSE_PAGE_SIZE), catalogue.size());
+                    courseAdapter.setCourses(new ArrayList<>(catalogue.subList(0, count)));
+                    rebuildSearchIndex();
                     
                     // 如果网站也加载完成，隐藏进度条
-                    if (websiteAdapter.getItemCount() > 0) {
+                    if (!websiteAdapter.getItems().isEmpty()) {
                         binding.progressBar.setVisibility(View.GONE);
                     }
                 }
             }
 
             @Override
-            public void onFailure(Call<ApiResponse<List<Course>>> call, Throwable t) {
-                if (isAdded()) {
-                    Toast.makeText(requireContext(), "网络错误: " + t.getMessage(), Toast.LENGTH_SHORT).show();
+            public void onError(String message) {
+                if (isAdded() && binding != null && generation == catalogueGeneration) {
+                    catalogueFailed = true;
+                    cancelRemoteSearch();
+                    Toast.makeText(requireContext(), message, Toast.LENGTH_SHORT).show();
                     
                     // 如果网站已加载完成，隐藏进度条
-                    if (websiteAdapter.getItemCount() > 0) {
+                    if (!websiteAdapter.getItems().isEmpty()) {
                         binding.progressBar.setVisibility(View.GONE);
                     }
                 }
@@ -287,6 +473,7 @@ public class HomeFragment extends Fragment implements CourseAdapter.OnCourseClic
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        cancelRemoteSearch();
         binding = null;
     }
 } 
\ No newline at end of file
@@ -34,6 +34,11 @@ public class ProfileFragment extends Fragment {
 
     private FragmentProfileBinding binding;
     private SessionManager sessionManager;
+    private final SessionManager.SessionListener sessionListener = user -> {
+        if (binding != null) {
+            displayUserInfo();
+        }
+    };
 
     @Nullable
     @Override
@@ -46,10 +51,11 @@ public class ProfileFragment extends Fragment {
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         super.onViewCreated(view, savedInstanceState);
 
-        sessionManager = new SessionManager(requireContext());
+        sessionManager = SessionManager.getInstance(requireContext());
         
-        // 显示用户信息
+        // 显示用户信息，登录状态变化时更新
         displayUserInfo();
+        sessionManager.addListener(sessionListener);
         
         // 加载账户信息
         loadAccountInfo();
@@ -131,6 +137,7 @@ public class ProfileFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        sessionManager.removeListener(sessionListener);
         binding = null;
     }
 } 
\ No newline at end of file
@@ -12,24 +12,42 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.yunclass.R;
+import com.example.yunclass.adapter.DiffListAdapter;
 import com.example.yunclass.model.Question;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.ArrayList;
+import java.util.Objects;
 
-public class QuestionAdapter extends RecyclerView.Adapter<QuestionAdapter.QuestionViewHolder> {
+public class QuestionAdapter extends DiffListAdapter<Question, QuestionAdapter.QuestionViewHolder> {
 
     private Context context;
-    private List<Question> questions;
     private SimpleDateFormat dateFormat;
     private static final String TAG = "QuestionAdapter";
 
+    // 比较列表中显示的字段
+    private static final ItemDiff<Question> DIFF = new ItemDiff<Question>() {
+        @Override
+        public long getId(@NonNull Question question) {
+            return question.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Question oldItem, @NonNull Question newItem) {
+            return Objects.equals(oldItem.getTitle(), newItem.getTitle())
+                    && Objects.equals(oldItem.getContent(), newItem.getContent())
+                    && Objects.equals(oldItem.getUserName(), newItem.getUserName())
+                    && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt())
+                    && Objects.equals(oldItem.getStatus(), newItem.getStatus());
+        }
+    };
+
     public QuestionAdapter(Context context, List<Question> questions) {
+        super(DIFF);
         this.context = context;
-        this.questions = questions;
+        setItems(questions);
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
     }
 
@@ -42,7 +60,7 @@ public class QuestionAdapter extends RecyclerView.Adapter<QuestionAdapter.Questi
 
     @Override
     public void onBindViewHolder(@NonNull QuestionViewHolder holder, int position) {
-        Question question = questions.get(position);
+        Question question = getItem(position);
         
         holder.titleTextView.setText(question.getTitle());
         holder.contentTextView.setText(question.getContent());
@@ -76,21 +94,18 @@ public class QuestionAdapter extends RecyclerView.Adapter<QuestionAdapter.Questi
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return questions != null ? questions.size() : 0;
-    }
-
     public void setQuestions(List<Question> questions) {
-        if (questions == null) {
-            this.questions = new ArrayList<>();
-        } else {
-            this.questions = new ArrayList<>(questions);
-        }
-        notifyDataSetChanged();
+        setItems(questions);
         
         // 记录问题数量，便于调试
-        Log.d(TAG, "更新问题列表，数量: " + this.questions.size());
+        Log.d(TAG, "更新问题列表，数量: " + getItems().size());
+    }
+    
+    /**
+     * 追加一批问题，用于流式加载时逐批显示
+     */
+    public void addQuestions(List<Question> batch) {
+        appendItems(batch);
     }
 
     static class QuestionViewHolder extends RecyclerView.ViewHolder {
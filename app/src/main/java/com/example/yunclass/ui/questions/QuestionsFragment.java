@@ -14,25 +14,25 @@ import androidx.fragment.app.Fragment;
 import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.example.yunclass.AddQuestionActivity;
-import com.example.yunclass.R;
 import com.example.yunclass.api.ApiClient;
-import com.example.yunclass.api.ApiResponse;
 import com.example.yunclass.databinding.FragmentQuestionsBinding;
 import com.example.yunclass.model.Question;
+import com.example.yunclass.utils.PagingLoader;
 import com.google.android.material.tabs.TabLayout;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
-
 public class QuestionsFragment extends Fragment {
 
     private FragmentQuestionsBinding binding;
     private QuestionAdapter adapter;
     private boolean showAllQuestions = true;
+    private PagingLoader<Question> pagingLoader;
+    
+    // 每页问题数，以及距离列表末尾还剩多少条时预取下一页
+    private static final int PAGE_SIZE = 20;
+    private static final int PREFETCH_DISTANCE = 5;
 
     @Nullable
     @Override
@@ -65,6 +65,55 @@ public class QuestionsFragment extends Fragment {
         adapter = new QuestionAdapter(requireContext(), new ArrayList<>());
         binding.questionsRecyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
         binding.questionsRecyclerView.setAdapter(adapter);
+        
+        // 按选项卡请求对应接口的某一页，滚动接近末尾时自动加载下一页
+        pagingLoader = new PagingLoader<>(Question.class, "questions", PAGE_SIZE, PREFETCH_DISTANCE,
+                (after, limit) -> showAllQuestions
+                        ? ApiClient.getApiService().streamQuestions("true", after, limit)
+                        : ApiClient.getApiService().streamMyQuestions(after, limit),
+                new PagingLoader.Listener<Question>() {
+            @Override
+            public void onItems(List<Question> items, boolean reset) {
+                if (binding == null) {
+                    return;
+                }
+                
+                // 刷新后的第一批替换旧列表，之后逐批追加
+                if (reset) {
+                    adapter.setQuestions(items);
+                    binding.progressBar.setVisibility(View.GONE);
+                } else {
+                    adapter.addQuestions(items);
+                }
+            }
+
+            @Override
+            public void onPageLoaded(int totalLoaded, boolean hasMore) {
+                if (binding == null) {
+                    return;
+                }
+                
+                binding.progressBar.setVisibility(View.GONE);
+                binding.noQuestionsTextView.setVisibility(totalLoaded == 0 ? View.VISIBLE : View.GONE);
+            }
+
+            @Override
+            public void onError(String message) {
+                if (binding == null) {
+                    return;
+                }
+                
+                Log.e("QuestionsFragment", "加载问题失败: " + message);
+                binding.progressBar.setVisibility(View.GONE);
+                
+                // 显示错误信息
+                Toast.makeText(getContext(), message, Toast.LENGTH_SHORT).show();
+                if (adapter.getItems().isEmpty()) {
+                    binding.noQuestionsTextView.setVisibility(View.VISIBLE);
+                }
+            }
+        });
+        pagingLoader.attachTo(binding.questionsRecyclerView);
     }
 
     private void setupTabListener() {
@@ -105,9 +154,9 @@ public class QuestionsFragment extends Fragment {
         
         // 如果是"我的问题"选项卡，使用专用端点
         if (!isAllQuestionsTab) {
-            com.example.yunclass.utils.SessionManager sessionManager = new com.example.yunclass.utils.SessionManager(requireContext());
-            if (!sessionManager.isLoggedIn()) {
+            if (!com.example.yunclass.utils.SessionManager.getInstance(requireContext()).isLoggedIn()) {
                 Log.e("QuestionsFragment", "用户未登录，无法加载我的问题");
+                pagingLoader.cancel();
                 binding.progressBar.setVisibility(View.GONE);
                 binding.noQuestionsTextView.setText("请先登录");
                 binding.noQuestionsTextView.setVisibility(View.VISIBLE);
@@ -115,78 +164,10 @@ public class QuestionsFragment extends Fragment {
             }
             
             Log.d("QuestionsFragment", "加载我的问题，使用专用API");
-            
-            Call<ApiResponse<List<Question>>> call = ApiClient.getApiService().getMyQuestions();
-            enqueueQuestionCall(call);
-        } else {
-            // 加载全部问题
-            Call<ApiResponse<List<Question>>> call = ApiClient.getApiService().getQuestions("true");
-            enqueueQuestionCall(call);
         }
-    }
-    
-    private void enqueueQuestionCall(Call<ApiResponse<List<Question>>> call) {
-        call.enqueue(new Callback<ApiResponse<List<Question>>>() {
-            @Override
-            public void onResponse(Call<ApiResponse<List<Question>>> call, Response<ApiResponse<List<Question>>> response) {
-                binding.progressBar.setVisibility(View.GONE);
-                
-                // Debug: 打印原始响应内容
-                try {
-                    if (response.errorBody() != null) {
-                        String errorBody = response.errorBody().string();
-                        Log.d("QuestionsFragment", "Error Body: " + errorBody);
-                    } else if (response.body() != null) {
-                        Log.d("QuestionsFragment", "Success Response: " + response.body());
-                        if (response.body().getQuestions() != null) {
-                            List<Question> questions = response.body().getQuestions();
-                            Log.d("QuestionsFragment", "获取到问题数量: " + questions.size());
-                            for (Question q : questions) {
-                                Log.d("QuestionsFragment", "问题ID: " + q.getId() + 
-                                      ", 用户ID: " + q.getUserId() +
-                                      ", 用户名: " + q.getUserName() +
-                                      ", 标题: " + q.getTitle() +
-                                      ", 日期: " + q.getCreatedAt());
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    Log.e("QuestionsFragment", "Debug error: " + e.getMessage());
-                }
-                
-                if (response.isSuccessful() && response.body() != null && response.body().isSuccess()) {
-                    List<Question> questions = response.body().getQuestions();
-                    
-                    // 确保先隐藏空视图
-                    binding.noQuestionsTextView.setVisibility(View.GONE);
-                    
-                    // 更新RecyclerView
-                    if (questions != null && !questions.isEmpty()) {
-                        adapter.setQuestions(questions);
-                    } else {
-                        binding.noQuestionsTextView.setVisibility(View.VISIBLE);
-                    }
-                } else {
-                    // 显示错误信息
-                    String errorMessage = response.body() != null ? 
-                            response.body().getMessage() : getString(R.string.unknown_error);
-                    Toast.makeText(getContext(), errorMessage, Toast.LENGTH_SHORT).show();
-                    binding.noQuestionsTextView.setVisibility(View.VISIBLE);
-                }
-            }
-
-            @Override
-            public void onFailure(Call<ApiResponse<List<Question>>> call, Throwable t) {
-                binding.progressBar.setVisibility(View.GONE);
-                
-                // Debug: 打印错误
-                Log.e("QuestionsFragment", "Network error: " + t.getMessage(), t);
-                
-                // 显示错误信息
-                Toast.makeText(getContext(), getString(R.string.network_error) + ": " + t.getMessage(), Toast.LENGTH_SHORT).show();
-                binding.noQuestionsTextView.setVisibility(View.VISIBLE);
-            }
-        });
+        
+        // 切换选项卡或刷新时从第一页重新加载，未完成的请求会被取消，避免旧数据混入
+        pagingLoader.refresh();
     }
 
     @Override
@@ -199,6 +180,7 @@ public class QuestionsFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        pagingLoader.cancel();
         binding = null;
     }
 } 
\ No newline at end of file
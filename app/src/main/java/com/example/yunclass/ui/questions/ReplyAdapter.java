@@ -10,23 +10,39 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.yunclass.R;
+import com.example.yunclass.adapter.DiffListAdapter;
 import com.example.yunclass.model.Reply;
 
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 
-public class ReplyAdapter extends RecyclerView.Adapter<ReplyAdapter.ReplyViewHolder> {
+public class ReplyAdapter extends DiffListAdapter<Reply, ReplyAdapter.ReplyViewHolder> {
     
     private final Context context;
-    private List<Reply> replies;
     private final SimpleDateFormat dateFormat;
     
+    // 比较列表中显示的字段
+    private static final ItemDiff<Reply> DIFF = new ItemDiff<Reply>() {
+        @Override
+        public long getId(@NonNull Reply reply) {
+            return reply.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Reply oldItem, @NonNull Reply newItem) {
+            return Objects.equals(oldItem.getUserName(), newItem.getUserName())
+                    && Objects.equals(oldItem.getContent(), newItem.getContent())
+                    && Objects.equals(oldItem.getCreatedAt(), newItem.getCreatedAt());
+        }
+    };
+    
     public ReplyAdapter(Context context, List<Reply> replies) {
+        super(DIFF);
         this.context = context;
-        this.replies = replies != null ? new ArrayList<>(replies) : new ArrayList<>();
+        setItems(replies);
         this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.getDefault());
     }
     
@@ -39,7 +55,7 @@ public class ReplyAdapter extends RecyclerView.Adapter<ReplyAdapter.ReplyViewHol
     
     @Override
     public void onBindViewHolder(@NonNull ReplyViewHolder holder, int position) {
-        Reply reply = replies.get(position);
+        Reply reply = getItem(position);
         
         // 设置用户名
         holder.userTextView.setText(reply.getUserName());
@@ -55,21 +71,12 @@ public class ReplyAdapter extends RecyclerView.Adapter<ReplyAdapter.ReplyViewHol
         }
     }
     
-    @Override
-    public int getItemCount() {
-        return replies.size();
-    }
-    
     public void setReplies(List<Reply> replies) {
-        this.replies = replies != null ? new ArrayList<>(replies) : new ArrayList<>();
-        notifyDataSetChanged();
+        setItems(replies);
     }
     
     public void addReply(Reply reply) {
-        if (reply != null) {
-            this.replies.add(0, reply);
-            notifyItemInserted(0);
-        }
+        prependItem(reply);
     }
     
     static class ReplyViewHolder extends RecyclerView.ViewHolder {
@@ -13,7 +13,7 @@ public class ClearPurchasesUtil {
      * @param context 上下文
      */
     public static void clearAllPurchases(Context context) {
-        PurchaseManager.clearPurchasedCourses(context);
+        PurchaseManager.getInstance(context).clearAll(context);
         Toast.makeText(context, "已清除所有购买记录", Toast.LENGTH_SHORT).show();
     }
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+package com.example.yunclass.utils;
+
+import java.util.TimeZone;
+
+/**
+ * 服务器日期字符串解析工具
+ *
+ * 通过逐字符检查识别以下格式，不创建SimpleDateFormat、不通过抛异常试探格式，可在多线程中直接使用：
+ * - ISO 8601：2023-05-29T10:07:18.000Z、2023-05-29T10:07:18+08:00、2023-05-29T10:07:18（本地时间）
+ * - MySQL：2023-05-29 10:07:18（本地时间）
+ * - 日期：2023-05-29（本地时间零点）
+ * - 时间戳：1685354838000（毫秒）
+ */
+public final class DateParser {
+
+    /**
+     * 无法解析时的返回值
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    // TimeZone.getDefault()每次都会克隆对象，这里缓存一份只读使用
+    private static final TimeZone LOCAL_ZONE = TimeZone.getDefault();
+
+    private DateParser() {
+    }
+
+    /**
+     * 解析日期字符串
+     * @param text 日期字符串
+     * @return 自1970-01-01T00:00:00Z起的毫秒数，无法解析时返回 {@link #INVALID}
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            return INVALID;
+        }
+
+        int length = text.length();
+        if (length == 0) {
+            return INVALID;
+        }
+
+        // 日期格式以 yyyy- 开头，其余按毫秒时间戳处理
+        if (length < 5 || text.charAt(4) != '-') {
+            return parseEpoch(text);
+        }
+
+        // yyyy-MM-dd
+        if (length < 10 || text.charAt(7) != '-') {
+            return INVALID;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return INVALID;
+        }
+
+        long localMillis = daysFromCivil(year, month, day) * MILLIS_PER_DAY;
+        if (length == 10) {
+            return toUtc(localMillis);
+        }
+
+        // 日期与时间之间为 'T' 或空格，之后为 HH:mm:ss
+        char separator = text.charAt(10);
+        if ((separator != 'T' && separator != ' ') || length < 19
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return INVALID;
+        }
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return INVALID;
+        }
+        localMillis += hour * MILLIS_PER_HOUR + minute * MILLIS_PER_MINUTE + second * MILLIS_PER_SECOND;
+
+        // 可选的小数秒，最多取前三位作为毫秒
+        int pos = 19;
+        if (pos < length && text.charAt(pos) == '.') {
+            pos++;
+            int fractionStart = pos;
+            int millis = 0;
+            while (pos < length && isDigit(text.charAt(pos))) {
+                if (pos - fractionStart < 3) {
+                    millis = millis * 10 + (text.charAt(pos) - '0');
+                }
+                pos++;
+            }
+            int fractionDigits = pos - fractionStart;
+            if (fractionDigits == 0) {
+                return INVALID;
+            }
+            for (int i = fractionDigits; i < 3; i++) {
+                millis *= 10;
+            }
+            localMillis += millis;
+        }
+
+        // 没有时区信息时按本地时间处理
+        if (pos == length) {
+            return toUtc(localMillis);
+        }
+
+        char zone = text.charAt(pos);
+        if (zone == 'Z' || zone == 'z') {
+            return pos + 1 == length ? localMillis : INVALID;
+        }
+        if (zone != '+' && zone != '-') {
+            return INVALID;
+        }
+
+        // ±HH:mm、±HHmm 或 ±HH
+        int offsetHours = digits(text, pos + 1, 2);
+        int offsetMinutes = 0;
+        int end = pos + 3;
+        if (end < length) {
+            if (text.charAt(end) == ':') {
+                end++;
+            }
+            offsetMinutes = digits(text, end, 2);
+            end += 2;
+        }
+        if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59 || end != length) {
+            return INVALID;
+        }
+        long offset = offsetHours * MILLIS_PER_HOUR + offsetMinutes * MILLIS_PER_MINUTE;
+        return zone == '+' ? localMillis - offset : localMillis + offset;
+    }
+
+    /**
+     * 格式化为UTC的ISO 8601字符串，如 2023-05-29T10:07:18.000Z
+     */
+    public static String formatIso(long epochMillis) {
+        long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        long millisOfDay = Math.floorMod(epochMillis, MILLIS_PER_DAY);
+
+        // civil_from_days，参见 http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] buf = new char[24];
+        writeDigits(buf, 0, (int) year, 4);
+        buf[4] = '-';
+        writeDigits(buf, 5, month, 2);
+        buf[7] = '-';
+        writeDigits(buf, 8, day, 2);
+        buf[10] = 'T';
+        writeDigits(buf, 11, (int) (millisOfDay / MILLIS_PER_HOUR), 2);
+        buf[13] = ':';
+        writeDigits(buf, 14, (int) (millisOfDay / MILLIS_PER_MINUTE % 60), 2);
+        buf[16] = ':';
+        writeDigits(buf, 17, (int) (millisOfDay / MILLIS_PER_SECOND % 60), 2);
+        buf[19] = '.';
+        writeDigits(buf, 20, (int) (millisOfDay % MILLIS_PER_SECOND), 3);
+        buf[23] = 'Z';
+        return new String(buf);
+    }
+
+    private static long parseEpoch(String text) {
+        int length = text.length();
+        int start = text.charAt(0) == '-' ? 1 : 0;
+        if (start == length || length - start > 18) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return INVALID;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return start == 1 ? -value : value;
+    }
+
+    /**
+     * 本地时间（以UTC毫秒数表示的墙上时间）转换为真正的UTC毫秒数
+     */
+    private static long toUtc(long localMillis) {
+        int offset = LOCAL_ZONE.getOffset(localMillis - LOCAL_ZONE.getRawOffset());
+        return localMillis - offset;
+    }
+
+    /**
+     * days_from_civil，返回自1970-01-01起的天数
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * 读取固定位数的十进制数，包含非数字字符或越界时返回-1
+     */
+    private static int digits(String text, int start, int count) {
+        if (start + count > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void writeDigits(char[] buf, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -7,6 +7,9 @@ import org.json.JSONObject;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
+
+import com.example.yunclass.api.ApiClient;
+
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -17,7 +20,8 @@ public class DeepSeekAIClient {
     private static final String TAG = "DeepSeekAIClient";
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     
-    private OkHttpClient client;
+    // 所有会话共用，基于应用的共享客户端创建，不带本应用服务器的Cookie
+    private static OkHttpClient client;
     private JSONArray messages;
     
     // 系统初始提示信息
@@ -36,14 +40,6 @@ public class DeepSeekAIClient {
     private int timeout;
     
     public DeepSeekAIClient() {
-        // 设置OkHttpClient
-        client = new OkHttpClient.Builder()
-                .connectTimeout(AppConfig.API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .readTimeout(AppConfig.API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .writeTimeout(AppConfig.API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
-                .retryOnConnectionFailure(true)
-                .build();
-        
         // 初始化对话历史
         resetConversation();
         
@@ -51,6 +47,18 @@ public class DeepSeekAIClient {
         initApiParameters();
     }
     
+    private static synchronized OkHttpClient getClient() {
+        if (client == null) {
+            client = ApiClient.getSharedClient().newBuilder()
+                    .connectTimeout(AppConfig.API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .readTimeout(AppConfig.API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .writeTimeout(AppConfig.API_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .retryOnConnectionFailure(true)
+                    .build();
+        }
+        return client;
+    }
+    
     /**
      * 初始化API参数
      */
@@ -105,7 +113,7 @@ public class DeepSeekAIClient {
             Log.d(TAG, "发送请求: " + requestJson.toString());
             
             // 发送请求
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = getClient().newCall(request).execute()) {
                 if (!response.isSuccessful() || response.body() == null) {
                     logApiError(response);
                     return "连接DeepSeek服务失败，请检查网络后重试。";
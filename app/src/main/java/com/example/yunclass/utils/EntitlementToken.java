@@ -0,0 +1,136 @@
+package com.example.yunclass.utils;
+
+import android.util.Base64;
+import android.util.Log;
+
+import com.example.yunclass.config.AppConfig;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * 验证后的离线授权令牌
+ *
+ * 令牌由服务器用ECDSA P-256私钥签名（见 html/scripts/entitlements.js），格式为
+ * base64url(载荷JSON).base64url(签名)。签名只在 {@link #verify} 中验证一次，
+ * 之后的 {@link #contains} 只是集合查找，可以在列表绑定时调用。
+ */
+public final class EntitlementToken {
+    private static final String TAG = "EntitlementToken";
+    private static final int BASE64_FLAGS = Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP;
+
+    private static PublicKey publicKey;
+
+    private final String token;
+    private final int userId;
+    private final IntHashSet courseIds = new IntHashSet();
+    private final long issuedAt;
+    private final long expiresAt;
+
+    private EntitlementToken(String token, int userId, long issuedAt, long expiresAt) {
+        this.token = token;
+        this.userId = userId;
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * 是否配置了验证公钥，未配置时不能使用授权令牌
+     */
+    public static boolean isEnabled() {
+        return !AppConfig.ENTITLEMENT_PUBLIC_KEY.isEmpty();
+    }
+
+    /**
+     * 验证签名并解析令牌
+     * @return 签名无效、格式错误或未配置公钥时返回null；已过期的令牌仍会返回
+     */
+    public static EntitlementToken verify(String token) {
+        if (token == null || !isEnabled()) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0) {
+            return null;
+        }
+        try {
+            String encodedPayload = token.substring(0, dot);
+            Signature signature = Signature.getInstance("SHA256withECDSA");
+            signature.initVerify(getPublicKey());
+            signature.update(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+            if (!signature.verify(Base64.decode(token.substring(dot + 1), BASE64_FLAGS))) {
+                Log.w(TAG, "授权令牌签名无效");
+                return null;
+            }
+
+            JSONObject payload = new JSONObject(
+                    new String(Base64.decode(encodedPayload, BASE64_FLAGS), StandardCharsets.UTF_8));
+            EntitlementToken result = new EntitlementToken(token, payload.getInt("uid"),
+                    payload.getLong("iat"), payload.getLong("exp"));
+            JSONArray courses = payload.getJSONArray("courses");
+            for (int i = 0; i < courses.length(); i++) {
+                result.courseIds.add(courses.getInt(i));
+            }
+            return result;
+        } catch (GeneralSecurityException | JSONException | IllegalArgumentException e) {
+            Log.e(TAG, "授权令牌验证失败", e);
+            return null;
+        }
+    }
+
+    private static synchronized PublicKey getPublicKey() throws GeneralSecurityException {
+        if (publicKey == null) {
+            byte[] encoded = Base64.decode(AppConfig.ENTITLEMENT_PUBLIC_KEY, Base64.DEFAULT);
+            publicKey = KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(encoded));
+        }
+        return publicKey;
+    }
+
+    /**
+     * 原始令牌字符串，用于保存
+     */
+    public String getToken() {
+        return token;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * 签发时间，此后的本地购买记录不在令牌中
+     */
+    public long getIssuedAt() {
+        return issuedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+
+    /**
+     * 令牌中是否包含该课程，不检查是否过期
+     */
+    public boolean contains(int courseId) {
+        return courseIds.contains(courseId);
+    }
+
+    /**
+     * 令牌中的全部课程ID
+     */
+    public int[] getCourseIds() {
+        return courseIds.toArray();
+    }
+}
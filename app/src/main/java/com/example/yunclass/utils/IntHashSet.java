@@ -0,0 +1,114 @@
+package com.example.yunclass.utils;
+
+import java.util.Arrays;
+
+/**
+ * 基本类型int的哈希集合
+ *
+ * 开放寻址、线性探测，不装箱，查找为O(1)。只支持添加和整体清空，满足购买记录只增不删的用法。
+ * 非线程安全，由调用方加锁。
+ */
+final class IntHashSet {
+    // 0作为空槽标记，集合中是否含有0单独记录
+    private static final int EMPTY = 0;
+
+    private int[] slots;
+    private int size;
+    private boolean hasZero;
+
+    IntHashSet() {
+        slots = new int[16];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int value) {
+        if (value == EMPTY) {
+            return hasZero;
+        }
+        int mask = slots.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            int slot = slots[i];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == EMPTY) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return 集合中原来没有该值时返回true
+     */
+    boolean add(int value) {
+        if (value == EMPTY) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        // 负载因子不超过0.5
+        if ((size + 1) * 2 > slots.length) {
+            resize(slots.length * 2);
+        }
+        if (!insert(slots, value)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(slots, EMPTY);
+        size = 0;
+        hasZero = false;
+    }
+
+    int[] toArray() {
+        int[] result = new int[size];
+        int n = 0;
+        if (hasZero) {
+            result[n++] = EMPTY;
+        }
+        for (int slot : slots) {
+            if (slot != EMPTY) {
+                result[n++] = slot;
+            }
+        }
+        return result;
+    }
+
+    private void resize(int capacity) {
+        int[] newSlots = new int[capacity];
+        for (int slot : slots) {
+            if (slot != EMPTY) {
+                insert(newSlots, slot);
+            }
+        }
+        slots = newSlots;
+    }
+
+    private static boolean insert(int[] table, int value) {
+        int mask = table.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return false;
+            }
+            if (table[i] == EMPTY) {
+                table[i] = value;
+                return true;
+            }
+        }
+    }
+
+    // 连续的课程ID打散到不同的槽
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.yunclass.utils;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.api.JsonListStreamer;
+
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+
+/**
+ * 游标分页加载器
+ *
+ * 配合服务器的 ?after=&limit= 分页接口使用：每次只请求一页，记录服务器返回的nextCursor，
+ * 列表滚动到距离末尾 prefetchDistance 条以内时自动请求下一页。
+ * 同一时间只有一个请求在进行，刷新时会取消未完成的请求。
+ */
+public class PagingLoader<T> {
+    private static final String TAG = "PagingLoader";
+
+    private final JsonListStreamer<T> streamer;
+    private final PageRequest request;
+    private final Listener<T> listener;
+    private final int pageSize;
+    private final int prefetchDistance;
+
+    private RecyclerView recyclerView;
+    private Call<ResponseBody> currentCall;
+    private String nextCursor;
+    private boolean hasMore = true;
+    private boolean loading = false;
+    private int loadedCount = 0;
+
+    /**
+     * 创建某一页的请求
+     */
+    public interface PageRequest {
+        /**
+         * @param after 上一页返回的游标，第一页为null
+         * @param limit 每页条数
+         */
+        Call<ResponseBody> create(String after, int limit);
+    }
+
+    /**
+     * 分页回调，始终在主线程执行
+     */
+    public interface Listener<T> {
+        /**
+         * 收到一批数据
+         * @param reset 为true时表示刷新后的第一批数据，应替换列表中的旧数据
+         */
+        void onItems(List<T> items, boolean reset);
+
+        /**
+         * 一页加载完成
+         * @param totalLoaded 自上次刷新以来加载的总条数，为0表示列表为空
+         * @param hasMore 是否还有下一页
+         */
+        void onPageLoaded(int totalLoaded, boolean hasMore);
+
+        void onError(String message);
+    }
+
+    /**
+     * @param type 列表元素类型
+     * @param listField 响应中列表所在的字段名
+     * @param pageSize 每页条数
+     * @param prefetchDistance 距离列表末尾还剩多少条时预取下一页
+     */
+    public PagingLoader(Class<T> type, String listField, int pageSize, int prefetchDistance,
+                        PageRequest request, Listener<T> listener) {
+        this.streamer = new JsonListStreamer<>(ApiClient.getGson(), type, listField, pageSize);
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.request = request;
+        this.listener = listener;
+    }
+
+    /**
+     * 监听列表滚动，接近末尾时加载下一页
+     */
+    public void attachTo(RecyclerView recyclerView) {
+        this.recyclerView = recyclerView;
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (dy > 0) {
+                    checkPrefetch();
+                }
+            }
+        });
+    }
+
+    /**
+     * 从第一页重新加载
+     */
+    public void refresh() {
+        cancel();
+        nextCursor = null;
+        hasMore = true;
+        loadedCount = 0;
+        loadPage(true);
+    }
+
+    /**
+     * 加载下一页，正在加载或已没有更多数据时忽略
+     */
+    public void loadMore() {
+        if (!loading && hasMore) {
+            loadPage(false);
+        }
+    }
+
+    /**
+     * 取消正在进行的请求，页面销毁时调用
+     */
+    public void cancel() {
+        if (currentCall != null) {
+            currentCall.cancel();
+            currentCall = null;
+        }
+        loading = false;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    private void loadPage(final boolean reset) {
+        loading = true;
+        final boolean[] firstBatch = {reset};
+
+        currentCall = streamer.enqueue(request.create(nextCursor, pageSize),
+                new JsonListStreamer.StreamCallback<T>() {
+            @Override
+            public void onBatch(List<T> batch) {
+                loadedCount += batch.size();
+                listener.onItems(batch, firstBatch[0]);
+                firstBatch[0] = false;
+            }
+
+            @Override
+            public void onComplete(int total, String cursor) {
+                loading = false;
+                currentCall = null;
+                nextCursor = cursor;
+                hasMore = cursor != null;
+                if (reset && total == 0) {
+                    // 刷新后没有任何数据，通知调用方清空旧列表
+                    listener.onItems(Collections.<T>emptyList(), true);
+                }
+                Log.d(TAG, "加载一页完成: " + total + "条, 累计: " + loadedCount + ", 还有更多: " + hasMore);
+                listener.onPageLoaded(loadedCount, hasMore);
+
+                // 一页数据不足以填满屏幕时不会产生滚动事件，这里主动检查一次
+                if (hasMore && recyclerView != null) {
+                    recyclerView.post(PagingLoader.this::checkPrefetch);
+                }
+            }
+
+            @Override
+            public void onError(String message) {
+                loading = false;
+                currentCall = null;
+                listener.onError(message);
+            }
+        });
+    }
+
+    private void checkPrefetch() {
+        if (loading || !hasMore || recyclerView == null) {
+            return;
+        }
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+        int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        if (lastVisible >= layoutManager.getItemCount() - 1 - prefetchDistance) {
+            loadMore();
+        }
+    }
+}
@@ -3,175 +3,342 @@ package com.example.yunclass.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.util.SparseLongArray;
+
+import com.example.yunclass.api.ApiClient;
+import com.example.yunclass.api.ApiResponse;
+import com.example.yunclass.data.SyncManager;
+import com.example.yunclass.model.Entitlements;
+import com.example.yunclass.model.Order;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
 
 /**
- * 管理已购买课程的工具类
+ * 管理已购买课程
+ *
+ * 每个用户的已购买课程ID保存在内存中的int集合里，查询不读取SharedPreferences，也不创建对象。
+ * 修改后延迟 {@link #FLUSH_DELAY_MS} 毫秒在后台线程写入磁盘，期间的多次修改合并为一次写入；
+ * 同步大量订单时应使用 {@link #saveAll}。磁盘上仍按用户保存为字符串集合，与旧版本格式相同。
+ *
+ * 配置了验证公钥时，能否打开课程以服务器签名的授权令牌（{@link EntitlementToken}）为准：
+ * 令牌验证后缓存在内存和磁盘上，离线时也能判断；过期后需要调用 {@link #refreshEntitlements} 联网更新。
+ * 令牌签发之后的本地购买记录同样有效，购买后没能及时取得新令牌时不会把刚买的课程锁住。
  */
 public class PurchaseManager {
     private static final String TAG = "PurchaseManager";
     private static final String PREF_NAME = "purchase_preferences";
-    private static final String KEY_PURCHASED_COURSES = "purchased_course_ids";
     private static final String KEY_USER_COURSES_PREFIX = "user_courses_";
-    // 调试模式标记，用于在无购买记录时提供测试数据
-    private static final boolean DEBUG_MODE = false;
-    
+    private static final String KEY_ENTITLEMENT_PREFIX = "entitlement_";
+    private static final String KEY_PURCHASE_TIMES_PREFIX = "purchase_times_";
+    // 令牌剩余有效期少于此值时刷新
+    private static final long ENTITLEMENT_REFRESH_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final long FLUSH_DELAY_MS = 200;
+
+    private static volatile PurchaseManager instance;
+
+    private final SharedPreferences prefs;
+    private final ScheduledExecutorService diskExecutor = Executors.newSingleThreadScheduledExecutor();
+    // 以下字段由this加锁保护
+    private final SparseArray<IntHashSet> userCourses = new SparseArray<>();
+    // 每个用户的课程ID -> 本地记录的购买时间，用于和令牌签发时间比较
+    private final SparseArray<SparseLongArray> purchaseTimes = new SparseArray<>();
+    private final Set<Integer> dirtyUsers = new HashSet<>();
+    private final SparseArray<EntitlementToken> entitlements = new SparseArray<>();
+    private final SparseBooleanArray entitlementsLoaded = new SparseBooleanArray();
+    private final Set<Integer> dirtyEntitlements = new HashSet<>();
+    private boolean flushScheduled;
+
+    private PurchaseManager(Context context) {
+        // 开始在后台读取文件，第一次查询时通常已读取完成
+        prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static PurchaseManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (PurchaseManager.class) {
+                if (instance == null) {
+                    instance = new PurchaseManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
     /**
-     * 保存已购买的课程ID
-     * @param context 上下文
-     * @param courseId 课程ID
+     * 用户能否打开课程，只查找内存，可以在列表绑定时调用
+     *
+     * 有授权令牌时以令牌为准，另外接受令牌签发之后的本地购买记录；令牌过期后只接受这些新记录。
+     * 没有令牌（未配置公钥或尚未获取）时使用本地购买记录
      */
-    public static void savePurchasedCourse(Context context, int courseId) {
-        if (context == null) return;
-        
-        try {
-            SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-            Set<String> purchasedCourses = prefs.getStringSet(KEY_PURCHASED_COURSES, new HashSet<>());
-            
-            // 由于SharedPreferences返回的是不可变集合，需要创建一个新的集合
-            Set<String> updatedCourses = new HashSet<>(purchasedCourses);
-            updatedCourses.add(String.valueOf(courseId));
-            
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putStringSet(KEY_PURCHASED_COURSES, updatedCourses);
-            
-            // 同时保存到用户特定的课程集合中
-            SessionManager sessionManager = new SessionManager(context);
-            if (sessionManager.isLoggedIn()) {
-                int userId = sessionManager.getUserDetails().getId();
-                String userCoursesKey = KEY_USER_COURSES_PREFIX + userId;
-                Set<String> userCourses = prefs.getStringSet(userCoursesKey, new HashSet<>());
-                Set<String> updatedUserCourses = new HashSet<>(userCourses);
-                updatedUserCourses.add(String.valueOf(courseId));
-                editor.putStringSet(userCoursesKey, updatedUserCourses);
-                
-                Log.d(TAG, "已保存课程ID到用户 " + userId + " 的购买列表: " + courseId);
+    public synchronized boolean isPurchased(int userId, int courseId) {
+        EntitlementToken token = entitlementOf(userId);
+        if (token != null) {
+            if (!token.isExpired() && token.contains(courseId)) {
+                return true;
             }
-            
-            editor.apply();
-            
-            Log.d(TAG, "已保存购买的课程ID: " + courseId);
-            Log.d(TAG, "当前已购买课程总数: " + updatedCourses.size());
-            
-            // 确保写入成功
-            verifyPurchaseSaved(context, courseId);
-        } catch (Exception e) {
-            Log.e(TAG, "保存购买课程信息失败", e);
-        }
-    }
-    
+            return timesOf(userId).get(courseId, 0L) > token.getIssuedAt();
+        }
+        return coursesOf(userId).contains(courseId);
+    }
+
     /**
-     * 验证课程ID是否成功保存
+     * 用户已购买的全部课程ID，包括本地购买记录和授权令牌中的课程
+     * @return 新的集合，可以修改
      */
-    private static void verifyPurchaseSaved(Context context, int courseId) {
-        try {
-            SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-            Set<String> purchasedCourses = prefs.getStringSet(KEY_PURCHASED_COURSES, new HashSet<>());
-            if (purchasedCourses.contains(String.valueOf(courseId))) {
-                Log.d(TAG, "验证成功: 课程ID " + courseId + " 已正确保存");
-            } else {
-                Log.e(TAG, "验证失败: 课程ID " + courseId + " 未能成功保存");
-                
-                // 再次尝试保存
-                Set<String> updatedCourses = new HashSet<>(purchasedCourses);
-                updatedCourses.add(String.valueOf(courseId));
-                prefs.edit().putStringSet(KEY_PURCHASED_COURSES, updatedCourses).commit(); // 使用commit强制同步写入
-                Log.d(TAG, "已重新尝试保存课程ID: " + courseId);
+    public synchronized Set<Integer> getPurchasedCourseIds(int userId) {
+        int[] ids = coursesOf(userId).toArray();
+        Set<Integer> result = new HashSet<>(ids.length * 2);
+        for (int id : ids) {
+            result.add(id);
+        }
+        EntitlementToken token = entitlementOf(userId);
+        if (token != null && !token.isExpired()) {
+            for (int id : token.getCourseIds()) {
+                result.add(id);
             }
-        } catch (Exception e) {
-            Log.e(TAG, "验证保存状态失败", e);
         }
+        return result;
     }
-    
+
     /**
-     * 获取所有已购买的课程ID
-     * @param context 上下文
-     * @return 已购买课程ID的集合
+     * 保存服务器返回的授权令牌，签名无效或不属于该用户时忽略
+     * @return 令牌是否有效
      */
-    public static Set<Integer> getPurchasedCourseIds(Context context) {
-        if (context == null) return new HashSet<>();
-        
-        try {
-            SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-            Set<String> purchasedCourseStrings = new HashSet<>();
-            
-            // 获取全局购买记录
-            purchasedCourseStrings.addAll(prefs.getStringSet(KEY_PURCHASED_COURSES, new HashSet<>()));
-            
-            // 获取当前用户的购买记录
-            SessionManager sessionManager = new SessionManager(context);
-            if (sessionManager.isLoggedIn()) {
-                int userId = sessionManager.getUserDetails().getId();
-                String userCoursesKey = KEY_USER_COURSES_PREFIX + userId;
-                purchasedCourseStrings.addAll(prefs.getStringSet(userCoursesKey, new HashSet<>()));
-                Log.d(TAG, "已加载用户 " + userId + " 的课程购买记录");
+    public synchronized boolean applyEntitlements(int userId, Entitlements bundle) {
+        if (bundle == null) {
+            return false;
+        }
+        EntitlementToken token = EntitlementToken.verify(bundle.getToken());
+        if (token == null || token.getUserId() != userId) {
+            Log.w(TAG, "忽略无效的授权令牌，用户ID: " + userId);
+            return false;
+        }
+        entitlements.put(userId, token);
+        entitlementsLoaded.put(userId, true);
+        dirtyEntitlements.add(userId);
+        // 令牌中的课程同时计入本地购买记录，用于我的课程列表
+        IntHashSet courses = coursesOf(userId);
+        for (int id : token.getCourseIds()) {
+            courses.add(id);
+        }
+        // 签发之前的购买时间已由令牌覆盖，不再需要
+        SparseLongArray times = timesOf(userId);
+        for (int i = times.size() - 1; i >= 0; i--) {
+            if (times.valueAt(i) <= token.getIssuedAt()) {
+                times.removeAt(i);
             }
-            
-            // 添加手动测试数据，确保至少有一些课程可以显示
-            if (purchasedCourseStrings.isEmpty()) {
-                // 如果是开发环境，添加一些测试数据
-                if (DEBUG_MODE) {
-                    purchasedCourseStrings.add("1");
-                    purchasedCourseStrings.add("2");
-                    purchasedCourseStrings.add("3");
-                    Log.d(TAG, "已添加测试课程数据");
-                }
+        }
+        markDirty(userId);
+        Log.d(TAG, "已更新用户 " + userId + " 的授权令牌，课程数: " + token.getCourseIds().length);
+        return true;
+    }
+
+    /**
+     * 没有授权令牌或令牌即将过期时从服务器获取新令牌
+     * @param onUpdated 令牌更新后在主线程执行，可以为null
+     */
+    public void refreshEntitlements(int userId, Runnable onUpdated) {
+        if (!EntitlementToken.isEnabled() || userId <= 0) {
+            return;
+        }
+        synchronized (this) {
+            EntitlementToken token = entitlementOf(userId);
+            if (token != null && token.getExpiresAt() - System.currentTimeMillis() > ENTITLEMENT_REFRESH_MS) {
+                return;
             }
-            
-            Set<Integer> courseIds = new HashSet<>();
-            for (String idStr : purchasedCourseStrings) {
-                try {
-                    courseIds.add(Integer.parseInt(idStr));
-                } catch (NumberFormatException e) {
-                    Log.e(TAG, "解析课程ID失败: " + idStr, e);
+        }
+        fetchEntitlements(userId, onUpdated);
+    }
+
+    /**
+     * 从服务器获取新令牌，用于购买后令牌中还没有新课程的情况
+     * @param onUpdated 令牌更新后在主线程执行，可以为null
+     */
+    public void fetchEntitlements(int userId, Runnable onUpdated) {
+        if (!EntitlementToken.isEnabled() || userId <= 0) {
+            return;
+        }
+        ApiClient.getApiService().getEntitlements().enqueue(new Callback<ApiResponse<Void>>() {
+            @Override
+            public void onResponse(Call<ApiResponse<Void>> call, Response<ApiResponse<Void>> response) {
+                if (response.isSuccessful() && response.body() != null
+                        && applyEntitlements(userId, response.body().getEntitlements())
+                        && onUpdated != null) {
+                    onUpdated.run();
                 }
             }
-            
-            Log.d(TAG, "获取到已购买课程数量: " + courseIds.size());
-            for (Integer id : courseIds) {
-                Log.d(TAG, "已购买课程ID: " + id);
+
+            @Override
+            public void onFailure(Call<ApiResponse<Void>> call, Throwable t) {
+                Log.w(TAG, "获取授权令牌失败: " + t.getMessage());
             }
-            
-            return courseIds;
-        } catch (Exception e) {
-            Log.e(TAG, "获取已购买课程信息失败", e);
-            
-            // 出错时返回硬编码的测试数据，确保UI能显示一些内容
-            Set<Integer> fallbackIds = new HashSet<>();
-            fallbackIds.add(1);
-            fallbackIds.add(2);
-            fallbackIds.add(3);
-            Log.d(TAG, "返回备用测试数据");
-            return fallbackIds;
-        }
-    }
-    
+        });
+    }
+
     /**
-     * 清除所有已购买课程信息（仅用于测试）
-     * @param context 上下文
+     * 保存一条购买记录
      */
-    public static void clearPurchasedCourses(Context context) {
-        if (context == null) return;
-        
-        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        
-        // 清除全局购买记录
-        editor.remove(KEY_PURCHASED_COURSES);
-        
-        // 清除当前用户的购买记录
-        SessionManager sessionManager = new SessionManager(context);
-        if (sessionManager.isLoggedIn()) {
-            int userId = sessionManager.getUserDetails().getId();
-            String userCoursesKey = KEY_USER_COURSES_PREFIX + userId;
-            editor.remove(userCoursesKey);
-            Log.d(TAG, "已清除用户 " + userId + " 的购买记录");
-        }
-        
-        editor.apply();
-        
+    public synchronized void savePurchase(int userId, int courseId) {
+        boolean added = coursesOf(userId).add(courseId);
+        if (recordPurchaseTime(userId, courseId, System.currentTimeMillis()) || added) {
+            markDirty(userId);
+            Log.d(TAG, "已保存用户 " + userId + " 购买的课程ID: " + courseId);
+        }
+    }
+
+    /**
+     * 保存一批订单对应的购买记录，按订单中的用户ID归属，最多一次磁盘写入
+     */
+    public synchronized void saveAll(List<Order> orders) {
+        int added = 0;
+        for (Order order : orders) {
+            int userId = order.getUserId();
+            boolean timed = order.getCreatedAt() != null
+                    && recordPurchaseTime(userId, order.getCourseId(), order.getCreatedAt().getTime());
+            if (coursesOf(userId).add(order.getCourseId()) || timed) {
+                markDirty(userId);
+                added++;
+            }
+        }
+        Log.d(TAG, "保存" + orders.size() + "个订单，新增购买记录" + added + "条");
+    }
+
+    /**
+     * 清除所有用户的购买记录（仅用于测试），同时清除同步令牌，下次同步时重新拉取全部订单
+     */
+    public void clearAll(Context context) {
+        synchronized (this) {
+            userCourses.clear();
+            purchaseTimes.clear();
+            dirtyUsers.clear();
+            entitlements.clear();
+            entitlementsLoaded.clear();
+            dirtyEntitlements.clear();
+        }
+        // 与尚未执行的写入在同一线程，按顺序执行
+        diskExecutor.execute(() -> prefs.edit().clear().commit());
+        SyncManager.getInstance(context).clearTokens();
         Log.d(TAG, "已清除所有购买记录");
     }
-} 
\ No newline at end of file
+
+    // 调用方已持有锁；首次访问时从SharedPreferences加载
+    private IntHashSet coursesOf(int userId) {
+        IntHashSet courses = userCourses.get(userId);
+        if (courses == null) {
+            courses = new IntHashSet();
+            Set<String> stored = prefs.getStringSet(KEY_USER_COURSES_PREFIX + userId, null);
+            if (stored != null) {
+                for (String id : stored) {
+                    try {
+                        courses.add(Integer.parseInt(id));
+                    } catch (NumberFormatException e) {
+                        Log.e(TAG, "解析课程ID失败: " + id, e);
+                    }
+                }
+            }
+            userCourses.put(userId, courses);
+        }
+        return courses;
+    }
+
+    // 调用方已持有锁；首次访问时从SharedPreferences加载，格式为 课程ID:购买时间
+    private SparseLongArray timesOf(int userId) {
+        SparseLongArray times = purchaseTimes.get(userId);
+        if (times == null) {
+            times = new SparseLongArray();
+            Set<String> stored = prefs.getStringSet(KEY_PURCHASE_TIMES_PREFIX + userId, null);
+            if (stored != null) {
+                for (String entry : stored) {
+                    int separator = entry.indexOf(':');
+                    try {
+                        times.put(Integer.parseInt(entry.substring(0, separator)),
+                                Long.parseLong(entry.substring(separator + 1)));
+                    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                        Log.e(TAG, "解析购买时间失败: " + entry, e);
+                    }
+                }
+            }
+            purchaseTimes.put(userId, times);
+        }
+        return times;
+    }
+
+    // 调用方已持有锁；只保留较晚的时间
+    private boolean recordPurchaseTime(int userId, int courseId, long time) {
+        SparseLongArray times = timesOf(userId);
+        if (times.get(courseId, 0L) >= time) {
+            return false;
+        }
+        times.put(courseId, time);
+        return true;
+    }
+
+    // 调用方已持有锁；首次访问时读取保存的令牌并验证签名，之后不再验证
+    private EntitlementToken entitlementOf(int userId) {
+        if (!entitlementsLoaded.get(userId)) {
+            entitlementsLoaded.put(userId, true);
+            EntitlementToken token = EntitlementToken.verify(
+                    prefs.getString(KEY_ENTITLEMENT_PREFIX + userId, null));
+            if (token != null && token.getUserId() == userId) {
+                entitlements.put(userId, token);
+            }
+        }
+        return entitlements.get(userId);
+    }
+
+    // 调用方已持有锁
+    private void markDirty(int userId) {
+        dirtyUsers.add(userId);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            diskExecutor.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // 在磁盘线程执行，把修改过的用户一次写入
+    private void flush() {
+        SharedPreferences.Editor editor = prefs.edit();
+        int users;
+        synchronized (this) {
+            flushScheduled = false;
+            users = dirtyUsers.size();
+            for (int userId : dirtyUsers) {
+                int[] ids = coursesOf(userId).toArray();
+                Set<String> stored = new HashSet<>(ids.length * 2);
+                for (int id : ids) {
+                    stored.add(String.valueOf(id));
+                }
+                editor.putStringSet(KEY_USER_COURSES_PREFIX + userId, stored);
+                SparseLongArray times = timesOf(userId);
+                Set<String> storedTimes = new HashSet<>(times.size() * 2);
+                for (int i = 0; i < times.size(); i++) {
+                    storedTimes.add(times.keyAt(i) + ":" + times.valueAt(i));
+                }
+                editor.putStringSet(KEY_PURCHASE_TIMES_PREFIX + userId, storedTimes);
+            }
+            dirtyUsers.clear();
+            for (int userId : dirtyEntitlements) {
+                EntitlementToken token = entitlements.get(userId);
+                if (token != null) {
+                    editor.putString(KEY_ENTITLEMENT_PREFIX + userId, token.getToken());
+                    users++;
+                }
+            }
+            dirtyEntitlements.clear();
+        }
+        if (users > 0 && !editor.commit()) {
+            Log.e(TAG, "写入购买记录失败");
+        }
+    }
+}
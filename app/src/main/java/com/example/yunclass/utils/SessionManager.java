@@ -2,9 +2,23 @@ package com.example.yunclass.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.Nullable;
 
 import com.example.yunclass.model.User;
 
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 登录状态管理
+ *
+ * 应用内只有一个实例，当前用户在创建时读取一次后保存在内存中，之后的查询不再读取SharedPreferences，
+ * {@link #getUserId()} 和 {@link #getUserDetails()} 也不创建对象，可以在列表绑定等频繁调用的地方使用。
+ * 登录和退出时先更新内存，再用apply()在后台写入磁盘，并在主线程通知 {@link SessionListener}。
+ */
 public class SessionManager {
     private static final String PREF_NAME = "YunClassSession";
     private static final String KEY_IS_LOGGED_IN = "isLoggedIn";
@@ -13,44 +27,107 @@ public class SessionManager {
     private static final String KEY_USER_EMAIL = "userEmail";
     private static final String KEY_USER_PHONE = "userPhone";
 
-    private SharedPreferences pref;
-    private SharedPreferences.Editor editor;
-    private Context context;
+    private static volatile SessionManager instance;
+
+    /**
+     * 登录状态变化回调，在主线程执行
+     */
+    public interface SessionListener {
+        /**
+         * @param user 新登录的用户，退出登录时为null
+         */
+        void onSessionChanged(@Nullable User user);
+    }
+
+    private final SharedPreferences pref;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<SessionListener> listeners = new CopyOnWriteArrayList<>();
+    // 当前用户，未登录时为null；替换而不修改，其他线程读取到的总是完整的对象
+    private volatile User currentUser;
 
-    public SessionManager(Context context) {
-        this.context = context;
+    private SessionManager(Context context) {
         pref = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        editor = pref.edit();
+        if (pref.getBoolean(KEY_IS_LOGGED_IN, false)) {
+            currentUser = new User(
+                    pref.getInt(KEY_USER_ID, 0),
+                    pref.getString(KEY_USER_NAME, ""),
+                    pref.getString(KEY_USER_PHONE, ""),
+                    pref.getString(KEY_USER_EMAIL, ""));
+        }
+    }
+
+    public static SessionManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SessionManager.class) {
+                if (instance == null) {
+                    instance = new SessionManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
     }
 
     public void createLoginSession(User user) {
-        editor.putBoolean(KEY_IS_LOGGED_IN, true);
-        editor.putInt(KEY_USER_ID, user.getId());
-        editor.putString(KEY_USER_NAME, user.getName());
-        editor.putString(KEY_USER_EMAIL, user.getEmail());
-        editor.putString(KEY_USER_PHONE, user.getPhone());
-        editor.apply();
+        // 保存副本，调用方之后修改传入的对象不影响当前会话
+        User sessionUser = new User(user.getId(), user.getName(), user.getPhone(), user.getEmail());
+        currentUser = sessionUser;
+        pref.edit()
+                .putBoolean(KEY_IS_LOGGED_IN, true)
+                .putInt(KEY_USER_ID, sessionUser.getId())
+                .putString(KEY_USER_NAME, sessionUser.getName())
+                .putString(KEY_USER_EMAIL, sessionUser.getEmail())
+                .putString(KEY_USER_PHONE, sessionUser.getPhone())
+                .apply();
+        notifyListeners(sessionUser);
     }
 
+    /**
+     * 当前登录的用户，未登录时返回null
+     * 返回的是会话内部保存的对象，所有调用方共用，不要修改
+     */
+    @Nullable
     public User getUserDetails() {
-        if (!isLoggedIn()) {
-            return null;
-        }
+        return currentUser;
+    }
 
-        User user = new User();
-        user.setId(pref.getInt(KEY_USER_ID, 0));
-        user.setName(pref.getString(KEY_USER_NAME, ""));
-        user.setEmail(pref.getString(KEY_USER_EMAIL, ""));
-        user.setPhone(pref.getString(KEY_USER_PHONE, ""));
-        return user;
+    /**
+     * 当前登录用户的ID，未登录时返回0
+     */
+    public int getUserId() {
+        User user = currentUser;
+        return user != null ? user.getId() : 0;
     }
 
     public void logoutUser() {
-        editor.clear();
-        editor.apply();
+        currentUser = null;
+        pref.edit().clear().apply();
+        notifyListeners(null);
     }
 
     public boolean isLoggedIn() {
-        return pref.getBoolean(KEY_IS_LOGGED_IN, false);
+        return currentUser != null;
+    }
+
+    /**
+     * 注册登录状态监听，需要在对应的生命周期结束时移除
+     */
+    @MainThread
+    public void addListener(SessionListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    @MainThread
+    public void removeListener(SessionListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(@Nullable User user) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            for (SessionListener listener : listeners) {
+                listener.onSessionChanged(user);
+            }
+        } else {
+            mainHandler.post(() -> notifyListeners(user));
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,179 @@
+package com.example.yunclass.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.yunclass.model.Course;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 列表差异比较测试：用课程列表的 {@link DiffListAdapter.ItemDiff} 在1000条数据上计算差异，
+ * 检查刷新和分页追加时只有真正变化的条目会被通知
+ *
+ * 比较由AsyncListDiffer在后台线程完成，这里直接调用DiffUtil得到同样的结果，不需要RecyclerView和主线程。
+ */
+public class DiffListAdapterTest {
+
+    private static final int ITEMS = 1000;
+
+    private static Course course(int id, String title, double rating, int students) {
+        return new Course(id, title, "简介" + id, "images/" + id + ".jpg", "老师" + id % 10, "10小时", "入门",
+                rating, students, 0, "video", "book/" + id + ".mp4");
+    }
+
+    private static List<Course> catalogue(int count) {
+        List<Course> courses = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            courses.add(course(id, "课程" + id, 4.5, 100));
+        }
+        return courses;
+    }
+
+    // 与AsyncListDiffer相同：用ItemCallback比较两个列表
+    private static DiffUtil.DiffResult diff(List<Course> oldList, List<Course> newList) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return CourseAdapter.DIFF.areItemsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return CourseAdapter.DIFF.areContentsTheSame(oldList.get(oldPosition), newList.get(newPosition));
+            }
+        });
+    }
+
+    // 记录差异结果通知的各类更新
+    private static class Updates implements ListUpdateCallback {
+        int inserted;
+        int removed;
+        int moved;
+        int changed;
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            changed += count;
+        }
+    }
+
+    private static Updates dispatch(DiffUtil.DiffResult result) {
+        Updates updates = new Updates();
+        result.dispatchUpdatesTo(updates);
+        return updates;
+    }
+
+    @Test
+    public void courseIdIsTheStableId() {
+        Course a = course(7, "课程7", 4.5, 100);
+        Course b = course(7, "改名后的课程7", 4.0, 200);
+        assertEquals(7, CourseAdapter.DIFF.getId(a));
+        assertTrue(CourseAdapter.DIFF.areItemsTheSame(a, b));
+        assertFalse(CourseAdapter.DIFF.areItemsTheSame(a, course(8, "课程7", 4.5, 100)));
+    }
+
+    @Test
+    public void onlyDisplayedFieldsCountAsChanges() {
+        Course original = course(1, "课程1", 4.5, 100);
+        // 学习人数不在列表中显示
+        assertTrue(CourseAdapter.DIFF.areContentsTheSame(original, course(1, "课程1", 4.5, 999)));
+        assertFalse(CourseAdapter.DIFF.areContentsTheSame(original, course(1, "课程一", 4.5, 100)));
+        assertFalse(CourseAdapter.DIFF.areContentsTheSame(original, course(1, "课程1", 4.6, 100)));
+    }
+
+    @Test
+    public void unchangedRefreshDispatchesNothing() {
+        // 刷新返回的是新对象，内容相同时不应重新绑定
+        Updates updates = dispatch(diff(catalogue(ITEMS), catalogue(ITEMS)));
+        assertEquals(0, updates.inserted + updates.removed + updates.moved + updates.changed);
+    }
+
+    @Test
+    public void refreshDispatchesOnlyChangedRows() {
+        List<Course> oldList = catalogue(ITEMS);
+        List<Course> newList = catalogue(ITEMS);
+        newList.set(10, course(11, "课程11（更新）", 4.5, 100));
+        newList.set(500, course(501, "课程501", 4.9, 100));
+        newList.set(999, course(1000, "课程1000（更新）", 4.5, 100));
+        newList.remove(200);
+        newList.add(course(ITEMS + 1, "新课程", 4.5, 0));
+
+        long start = System.nanoTime();
+        DiffUtil.DiffResult result = diff(oldList, newList);
+        long nanos = System.nanoTime() - start;
+        Updates updates = dispatch(result);
+
+        assertEquals(3, updates.changed);
+        assertEquals(1, updates.removed);
+        assertEquals(1, updates.inserted);
+        assertEquals(0, updates.moved);
+        System.err.printf(Locale.US, "%d条列表差异比较: %.2f ms%n", ITEMS, nanos / 1_000_000.0);
+    }
+
+    @Test
+    public void appendingAPageOnlyInsertsAtTheEnd() {
+        List<Course> firstPage = catalogue(ITEMS);
+        List<Course> withNextPage = catalogue(ITEMS + 20);
+
+        final int[] insertedAt = {-1};
+        Updates updates = new Updates() {
+            @Override
+            public void onInserted(int position, int count) {
+                super.onInserted(position, count);
+                insertedAt[0] = position;
+            }
+        };
+        diff(firstPage, withNextPage).dispatchUpdatesTo(updates);
+
+        assertEquals(20, updates.inserted);
+        assertEquals(ITEMS, insertedAt[0]);
+        assertEquals(0, updates.removed + updates.moved + updates.changed);
+    }
+
+    @Test
+    public void reorderingIsReportedAsMovesNotRebinds() {
+        List<Course> oldList = catalogue(ITEMS);
+        List<Course> newList = new ArrayList<>(oldList);
+        // 评分变化导致排序变化，但内容未变
+        newList.add(0, newList.remove(ITEMS - 1));
+
+        Updates updates = dispatch(diff(oldList, newList));
+        assertEquals(1, updates.moved);
+        assertEquals(0, updates.changed + updates.inserted + updates.removed);
+    }
+}
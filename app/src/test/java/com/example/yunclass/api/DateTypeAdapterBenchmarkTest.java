@@ -0,0 +1,189 @@
+package com.example.yunclass.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Type;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * 日期解析基准测试：在JVM上比较 {@link DateTypeAdapter} 与原先ApiClient中的JsonDeserializer
+ *
+ * 每轮解析一个含1000条记录的列表，预热后取多轮的平均耗时，结果输出到标准错误。
+ * 只断言新适配器更快，不断言具体耗时，避免在较慢的机器上误报。
+ */
+public class DateTypeAdapterBenchmarkTest {
+
+    private static final int RECORDS = 1000;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURE_ROUNDS = 50;
+
+    private static final Type LIST_TYPE = new TypeToken<List<Item>>() {}.getType();
+
+    static class Item {
+        Date createdAt;
+    }
+
+    // 服务器实际下发的几种格式：mysql驱动序列化的ISO时间、MySQL字符串、日期、时间戳
+    private static String sampleJson() {
+        String[] samples = {
+                "\"2023-05-29T10:07:18.000Z\"",
+                "\"2023-05-29 10:07:18\"",
+                "\"2023-05-29\"",
+                "1685354838000"
+        };
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < RECORDS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"createdAt\":").append(samples[i % samples.length]).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    @Test
+    public void dateTypeAdapterIsFasterThanLegacyDeserializer() {
+        String json = sampleJson();
+        Gson current = new GsonBuilder().registerTypeAdapter(Date.class, new DateTypeAdapter()).create();
+        Gson legacy = new GsonBuilder().registerTypeAdapter(Date.class, legacyDeserializer()).create();
+
+        // 原实现每个字段都会打印多行日志，测试期间丢弃输出
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        long legacyNanos;
+        long currentNanos;
+        try {
+            // 两者解析结果一致
+            List<Item> expected = legacy.fromJson(json, LIST_TYPE);
+            List<Item> actual = current.fromJson(json, LIST_TYPE);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).createdAt, actual.get(i).createdAt);
+            }
+
+            legacyNanos = measure(legacy, json);
+            currentNanos = measure(current, json);
+        } finally {
+            System.setOut(out);
+        }
+
+        System.err.printf(Locale.US, "日期解析（每条）: JsonDeserializer %.0f ns, DateTypeAdapter %.0f ns, %.1fx%n",
+                legacyNanos / (double) RECORDS, currentNanos / (double) RECORDS,
+                legacyNanos / (double) currentNanos);
+        assertTrue(currentNanos < legacyNanos);
+    }
+
+    // 返回每轮的平均耗时（纳秒）
+    private static long measure(Gson gson, String json) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += ((List<?>) gson.fromJson(json, LIST_TYPE)).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += ((List<?>) gson.fromJson(json, LIST_TYPE)).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals((WARMUP_ROUNDS + MEASURE_ROUNDS) * RECORDS, sink);
+        return elapsed / MEASURE_ROUNDS;
+    }
+
+    /**
+     * 替换前ApiClient中的日期反序列化器，原样保留用于对比
+     */
+    private static JsonDeserializer<Date> legacyDeserializer() {
+        return (json, typeOfT, context) -> {
+            try {
+                // 打印接收到的日期字符串，用于调试
+                String jsonString = json.toString();
+                System.out.println("Date JSON: " + jsonString);
+
+                // 优先使用当前时间而不是硬编码的时间
+                Date currentDate = new Date();
+                System.out.println("Current system date: " + currentDate);
+
+                // 尝试作为时间戳处理
+                if (json.isJsonPrimitive() && json.getAsJsonPrimitive().isNumber()) {
+                    return new Date(json.getAsLong());
+                }
+
+                // 尝试作为字符串处理
+                if (json.isJsonPrimitive() && json.getAsJsonPrimitive().isString()) {
+                    String dateStr = json.getAsString();
+                    System.out.println("Parsing date string: " + dateStr);
+
+                    // 处理ISO格式 (2023-05-29T10:07:18.000Z)
+                    if (dateStr.contains("T") && (dateStr.contains("Z") || dateStr.contains("+"))) {
+                        try {
+                            SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+                            isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+                            Date parsedDate = isoFormat.parse(dateStr);
+                            System.out.println("Successfully parsed ISO date: " + parsedDate);
+                            return parsedDate;
+                        } catch (Exception e) {
+                            System.out.println("ISO date parse error: " + e.getMessage());
+                            // 尝试不同的ISO格式
+                            try {
+                                SimpleDateFormat altIsoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+                                Date parsedDate = altIsoFormat.parse(dateStr);
+                                System.out.println("Successfully parsed alternative ISO date: " + parsedDate);
+                                return parsedDate;
+                            } catch (Exception e2) {
+                                System.out.println("Alternative ISO date parse error: " + e2.getMessage());
+                            }
+                        }
+                    }
+
+                    // 处理MySQL格式 (2023-05-29 10:07:18)
+                    if (dateStr.contains("-") && dateStr.contains(":")) {
+                        try {
+                            SimpleDateFormat mysqlFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+                            Date parsedDate = mysqlFormat.parse(dateStr);
+                            System.out.println("Successfully parsed MySQL date: " + parsedDate);
+                            return parsedDate;
+                        } catch (Exception e) {
+                            System.out.println("MySQL date parse error: " + e.getMessage());
+                        }
+                    }
+
+                    // 处理简单日期格式 (2023-05-29)
+                    if (dateStr.contains("-") && dateStr.length() == 10) {
+                        try {
+                            SimpleDateFormat simpleFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+                            Date parsedDate = simpleFormat.parse(dateStr);
+                            System.out.println("Successfully parsed simple date: " + parsedDate);
+                            return parsedDate;
+                        } catch (Exception e) {
+                            System.out.println("Simple date parse error: " + e.getMessage());
+                        }
+                    }
+                }
+
+                // 如果无法解析，返回当前时间
+                System.out.println("Returning current date as fallback");
+                return currentDate;
+            } catch (Exception e) {
+                e.printStackTrace();
+                return new Date(); // 出错时返回当前时间
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.yunclass.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.yunclass.model.Course;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 搜索索引基准测试：在5万门课程的合成目录上测量建索引和查询的耗时
+ *
+ * 查询覆盖中文二元词、英文前缀、拼音首字母和中英混合多词查询，预热后取多轮的平均耗时，结果输出到标准错误。
+ * 断言平均每次查询不超过1毫秒。
+ */
+public class CourseSearchIndexBenchmarkTest {
+
+    private static final int COURSES = 50_000;
+    private static final int LIMIT = 100;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURE_ROUNDS = 1000;
+    private static final long MAX_QUERY_NANOS = 1_000_000;
+
+    private static final String[] TOPICS = {"数据结构", "算法", "机器学习", "深度学习", "操作系统", "计算机网络",
+            "数据库", "编译原理", "软件工程", "前端开发", "移动开发", "云计算", "信息安全", "人工智能", "数据分析"};
+    private static final String[] LANGUAGES = {"Java", "Python", "C++", "Go", "Kotlin", "JavaScript", "Rust",
+            "Android", "SQL", "Linux"};
+    private static final String[] LEVELS = {"入门", "基础", "进阶", "实战", "精讲", "高级"};
+    private static final String[] SURNAMES = {"张", "王", "李", "赵", "刘", "陈", "杨", "黄", "周", "吴"};
+    private static final String[] PHRASES = {"从零开始讲解", "结合大量项目案例", "适合有一定基础的同学",
+            "覆盖面试常见问题", "配套课后练习", "使用最新版本"};
+
+    private static final String[] QUERIES = {"数据", "机器学习", "java", "jav", "py", "sjjg", "sj", "android 开发",
+            "Python数据分析", "张老师", "操作系统 实战", "rust 入门", "项目案例", "量子计算"};
+
+    private static List<Course> syntheticCatalogue() {
+        Random random = new Random(42);
+        List<Course> courses = new ArrayList<>(COURSES);
+        for (int id = 1; id <= COURSES; id++) {
+            String topic = TOPICS[random.nextInt(TOPICS.length)];
+            String language = LANGUAGES[random.nextInt(LANGUAGES.length)];
+            String level = LEVELS[random.nextInt(LEVELS.length)];
+            String title = random.nextBoolean() ? language + topic + level : topic + level + "（" + language + "）";
+            String author = SURNAMES[random.nextInt(SURNAMES.length)] + "老师";
+            String description = topic + "课程，" + PHRASES[random.nextInt(PHRASES.length)] + "，使用" + language
+                    + "完成第" + (id % 50 + 1) + "章练习";
+            double rating = 3.0 + random.nextInt(21) / 10.0;
+            courses.add(new Course(id, title, description, null, author, null, null, rating,
+                    random.nextInt(10_000), 0, "video", null));
+        }
+        return courses;
+    }
+
+    @Test
+    public void searchFiftyThousandCoursesUnderOneMillisecond() {
+        List<Course> catalogue = syntheticCatalogue();
+
+        long buildStart = System.nanoTime();
+        CourseSearchIndex index = CourseSearchIndex.build(catalogue);
+        long buildNanos = System.nanoTime() - buildStart;
+        assertEquals(COURSES, index.size());
+
+        int hits = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String query : QUERIES) {
+                hits += index.search(query, LIMIT).size();
+            }
+        }
+        assertTrue(hits > 0);
+
+        StringBuilder report = new StringBuilder();
+        long totalNanos = 0;
+        for (String query : QUERIES) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURE_ROUNDS; i++) {
+                hits += index.search(query, LIMIT).size();
+            }
+            long nanos = (System.nanoTime() - start) / MEASURE_ROUNDS;
+            totalNanos += nanos;
+            report.append(String.format(Locale.US, "  %-16s %6.1f us%n", query, nanos / 1000.0));
+        }
+        long averageNanos = totalNanos / QUERIES.length;
+
+        System.err.printf(Locale.US, "%d门课程: 建索引 %d ms, 平均每次查询 %.1f us%n%s",
+                COURSES, buildNanos / 1_000_000, averageNanos / 1000.0, report);
+        assertTrue("平均查询耗时 " + averageNanos + " ns", averageNanos < MAX_QUERY_NANOS);
+    }
+}
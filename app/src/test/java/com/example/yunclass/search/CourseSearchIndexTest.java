@@ -0,0 +1,111 @@
+package com.example.yunclass.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.yunclass.model.Course;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CourseSearchIndexTest {
+
+    private static final List<Course> CATALOGUE = Arrays.asList(
+            course(1, "数据结构与算法", "张教授", "介绍堆、栈、队列等常见数据结构", 4.8, 1200),
+            course(2, "Java编程基础", "李老师", "面向对象与集合框架入门", 4.5, 3000),
+            course(3, "Android开发实战", "王工", "使用Java开发安卓应用", 4.9, 800),
+            course(4, "Python数据分析", "赵老师", "使用pandas处理表格", 4.8, 1500));
+
+    private static Course course(int id, String title, String author, String description,
+                                 double rating, int students) {
+        return new Course(id, title, description, null, author, null, null, rating, students, 0,
+                "video", null);
+    }
+
+    private static List<Integer> ids(List<Course> courses) {
+        List<Integer> ids = new ArrayList<>();
+        for (Course course : courses) {
+            ids.add(course.getId());
+        }
+        return ids;
+    }
+
+    private static List<Integer> search(String query) {
+        return ids(CourseSearchIndex.build(CATALOGUE).search(query, 100));
+    }
+
+    @Test
+    public void mixedChineseAndLatinTermsMustAllMatch() {
+        // Android开发实战的标题含"开发"，简介含"Java"
+        assertEquals(Arrays.asList(3), search("java 开发"));
+        assertEquals(Arrays.asList(3), search("Android开发"));
+    }
+
+    @Test
+    public void trailingLatinWordMatchesAsPrefix() {
+        assertEquals(Arrays.asList(3), search("andr"));
+        // 后面还有内容的词视为已输入完整，只按精确匹配
+        assertTrue(search("andr 开发").isEmpty());
+        assertTrue(search("andr开发").isEmpty());
+    }
+
+    @Test
+    public void titleMatchesRankBeforeOtherFields() {
+        // 课程3评分更高，但只有简介命中
+        assertEquals(Arrays.asList(2, 3), search("java"));
+    }
+
+    @Test
+    public void matchesWithinTheSameFieldGroupAreOrderedByRatingThenStudents() {
+        // 课程1和4评分相同，学习人数多的在前；课程1的简介也含"数据"，但标题已命中
+        assertEquals(Arrays.asList(4, 1), search("数据"));
+    }
+
+    @Test
+    public void pinyinInitialsMatchTitles() {
+        assertEquals(Arrays.asList(1), search("sjjg"));
+        // 前缀"sj"同时命中"sjjgysf"和"sjfx"
+        assertEquals(Arrays.asList(4, 1), search("sj"));
+    }
+
+    @Test
+    public void authorAndDescriptionAreSearchable() {
+        assertEquals(Arrays.asList(1), search("教授"));
+        assertEquals(Arrays.asList(4), search("pandas"));
+        assertEquals(Arrays.asList(1), search("堆"));
+    }
+
+    @Test
+    public void noMatchOrEmptyQueryReturnsNothing() {
+        assertTrue(search("量子").isEmpty());
+        assertTrue(search("").isEmpty());
+        assertTrue(search(null).isEmpty());
+        assertTrue(CourseSearchIndex.empty().search("java", 10).isEmpty());
+    }
+
+    @Test
+    public void limitIsRespected() {
+        assertEquals(Arrays.asList(4), ids(CourseSearchIndex.build(CATALOGUE).search("数据", 1)));
+    }
+
+    @Test
+    public void resultsSpanMultipleBitmapWords() {
+        List<Course> catalogue = new ArrayList<>();
+        for (int i = 1; i <= 130; i++) {
+            // 编号越大评分越低
+            catalogue.add(course(i, "课程" + i, "老师", "", 5.0 - i * 0.01, 0));
+        }
+        CourseSearchIndex index = CourseSearchIndex.build(catalogue);
+        assertEquals(130, index.size());
+
+        List<Integer> results = ids(index.search("课程", 200));
+        assertEquals(130, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(Integer.valueOf(i + 1), results.get(i));
+        }
+        assertEquals(Arrays.asList(129), ids(index.search("课程 129", 10)));
+    }
+}
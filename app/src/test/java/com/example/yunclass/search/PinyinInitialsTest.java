@@ -0,0 +1,47 @@
+package com.example.yunclass.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PinyinInitialsTest {
+
+    @Test
+    public void commonHanziMapToInitials() {
+        assertEquals('s', PinyinInitials.of('数'));
+        assertEquals('j', PinyinInitials.of('据'));
+        assertEquals('j', PinyinInitials.of('结'));
+        assertEquals('g', PinyinInitials.of('构'));
+        assertEquals('k', PinyinInitials.of('课'));
+        assertEquals('c', PinyinInitials.of('程'));
+    }
+
+    @Test
+    public void firstAndLastLevel1HanziAreCovered() {
+        // GB2312一级汉字的第一个字和最后一个字
+        assertEquals('a', PinyinInitials.of('啊'));
+        assertEquals('z', PinyinInitials.of('座'));
+    }
+
+    @Test
+    public void level2HanziHaveNoInitial() {
+        // 二级汉字按部首排序，无法推算
+        assertEquals(0, PinyinInitials.of('亍'));
+    }
+
+    @Test
+    public void nonHanziHaveNoInitial() {
+        assertEquals(0, PinyinInitials.of('A'));
+        assertEquals(0, PinyinInitials.of('1'));
+        assertEquals(0, PinyinInitials.of('，'));
+    }
+
+    @Test
+    public void isHanzi() {
+        assertTrue(PinyinInitials.isHanzi('堆'));
+        assertFalse(PinyinInitials.isHanzi('a'));
+        assertFalse(PinyinInitials.isHanzi('、'));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.yunclass.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SearchTokenizerTest {
+
+    // 前缀匹配的词以*结尾
+    private static List<String> index(String text, boolean withInitials) {
+        List<String> terms = new ArrayList<>();
+        SearchTokenizer.tokenizeForIndex(text, withInitials, (term, prefix) -> terms.add(prefix ? term + "*" : term));
+        return terms;
+    }
+
+    private static List<String> query(String text) {
+        List<String> terms = new ArrayList<>();
+        SearchTokenizer.tokenizeQuery(text, (term, prefix) -> terms.add(prefix ? term + "*" : term));
+        return terms;
+    }
+
+    @Test
+    public void indexSplitsMixedTextIntoWordsUnigramsBigramsAndInitials() {
+        assertEquals(Arrays.asList("java", "数", "数据", "据", "据结", "结", "结构", "构", "sjjg"),
+                index("Java数据结构", true));
+    }
+
+    @Test
+    public void indexWithoutInitials() {
+        assertEquals(Arrays.asList("数", "数据", "据"), index("数据", false));
+    }
+
+    @Test
+    public void singleHanziGetsNoInitialsTerm() {
+        assertEquals(Arrays.asList("堆"), index("堆", true));
+    }
+
+    @Test
+    public void indexIgnoresPunctuationAndLowercasesWords() {
+        assertEquals(Arrays.asList("web", "前", "前端", "端", "qd", "html5"), index("Web·前端，HTML5！", true));
+    }
+
+    @Test
+    public void queryUsesBigramsForHanziAndPrefixForTrailingWord() {
+        assertEquals(Arrays.asList("数据", "jav*"), query("数据 Jav"));
+        assertEquals(Arrays.asList("android", "开发"), query("Android开发"));
+        assertEquals(Arrays.asList("数据", "据结", "结构"), query("数据结构"));
+    }
+
+    @Test
+    public void singleHanziQueryMatchesUnigram() {
+        assertEquals(Arrays.asList("堆"), query("堆"));
+    }
+
+    @Test
+    public void emptyAndNullInput() {
+        assertTrue(query(null).isEmpty());
+        assertTrue(query("  ，。").isEmpty());
+        assertTrue(index(null, true).isEmpty());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.yunclass.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class DateParserTest {
+
+    // 2023-05-29T10:07:18Z
+    private static final long INSTANT = 1685354838000L;
+
+    // 用SimpleDateFormat按本地时区解析，作为不带时区信息的格式的期望值
+    private static long local(String pattern, String text) throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(TimeZone.getDefault());
+        return format.parse(text).getTime();
+    }
+
+    @Test
+    public void isoUtc() {
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T10:07:18.000Z"));
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T10:07:18Z"));
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T10:07:18z"));
+    }
+
+    @Test
+    public void isoOffsets() {
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T18:07:18+08:00"));
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T18:07:18+0800"));
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T18:07:18+08"));
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T05:07:18-05:00"));
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T15:37:18+05:30"));
+        assertEquals(INSTANT, DateParser.parse("2023-05-29T10:07:18+00:00"));
+        // 跨日期
+        assertEquals(INSTANT, DateParser.parse("2023-05-30T02:07:18+16:00"));
+    }
+
+    @Test
+    public void fractionalSeconds() {
+        assertEquals(INSTANT + 500, DateParser.parse("2023-05-29T10:07:18.5Z"));
+        assertEquals(INSTANT + 120, DateParser.parse("2023-05-29T10:07:18.12Z"));
+        assertEquals(INSTANT + 123, DateParser.parse("2023-05-29T10:07:18.123Z"));
+        // 超过三位的部分截断
+        assertEquals(INSTANT + 123, DateParser.parse("2023-05-29T10:07:18.123999Z"));
+        assertEquals(INSTANT + 123, DateParser.parse("2023-05-29T18:07:18.123+08:00"));
+    }
+
+    @Test
+    public void mysqlAndIsoWithoutZoneUseLocalTime() throws Exception {
+        assertEquals(local("yyyy-MM-dd HH:mm:ss", "2023-05-29 10:07:18"),
+                DateParser.parse("2023-05-29 10:07:18"));
+        assertEquals(local("yyyy-MM-dd HH:mm:ss", "2023-05-29 10:07:18"),
+                DateParser.parse("2023-05-29T10:07:18"));
+        assertEquals(local("yyyy-MM-dd HH:mm:ss.SSS", "2023-05-29 10:07:18.250"),
+                DateParser.parse("2023-05-29 10:07:18.25"));
+    }
+
+    @Test
+    public void dateOnlyIsLocalMidnight() throws Exception {
+        assertEquals(local("yyyy-MM-dd", "2023-05-29"), DateParser.parse("2023-05-29"));
+        assertEquals(local("yyyy-MM-dd", "2024-02-29"), DateParser.parse("2024-02-29"));
+    }
+
+    @Test
+    public void epochMillis() {
+        assertEquals(INSTANT, DateParser.parse("1685354838000"));
+        assertEquals(0, DateParser.parse("0"));
+        assertEquals(-1000, DateParser.parse("-1000"));
+    }
+
+    @Test
+    public void malformedOffsets() {
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18+8:00"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18+08:0"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18+08:00:00"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18+19:00"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18+08:60"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18+"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18Zjunk"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18 GMT"));
+    }
+
+    @Test
+    public void malformedDates() {
+        assertEquals(DateParser.INVALID, DateParser.parse(null));
+        assertEquals(DateParser.INVALID, DateParser.parse(""));
+        assertEquals(DateParser.INVALID, DateParser.parse("abc"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023/05/29"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-5-29"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-13-01"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-00"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T25:00:00Z"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:61:00Z"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29X10:07:18Z"));
+        assertEquals(DateParser.INVALID, DateParser.parse("2023-05-29T10:07:18.Z"));
+        assertEquals(DateParser.INVALID, DateParser.parse("12a45"));
+        assertEquals(DateParser.INVALID, DateParser.parse("-"));
+        // 超过18位的时间戳可能溢出
+        assertEquals(DateParser.INVALID, DateParser.parse("1234567890123456789"));
+    }
+
+    @Test
+    public void formatIso() {
+        assertEquals("2023-05-29T10:07:18.123Z", DateParser.formatIso(INSTANT + 123));
+        assertEquals("1970-01-01T00:00:00.000Z", DateParser.formatIso(0));
+        assertEquals("1969-12-31T23:59:59.999Z", DateParser.formatIso(-1));
+        assertEquals("2024-02-29T23:59:59.000Z", DateParser.formatIso(1709251199000L));
+    }
+
+    @Test
+    public void formatIsoRoundTrips() {
+        // 覆盖闰年、世纪年和1970年以前的日期
+        for (long millis = -5_000_000_000_000L; millis < 5_000_000_000_000L; millis += 7_777_777_777L) {
+            assertEquals(millis, DateParser.parse(DateParser.formatIso(millis)));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * 离线课程授权令牌
+ * 用ECDSA P-256私钥对用户已购买的课程列表签名，客户端用内置的公钥验证后缓存，
+ * 打开已购买的课程时不需要再请求服务器
+ *
+ * 令牌格式: base64url(载荷JSON) + "." + base64url(DER格式签名)
+ *   载荷: { uid: 用户ID, courses: [课程ID], iat: 签发时间（毫秒）, exp: 过期时间（毫秒） }
+ *
+ * 密钥对保存在 html/.keys 下（以点开头的目录不会被静态文件中间件公开），首次使用时自动生成。
+ * 公钥需要写入客户端 AppConfig.ENTITLEMENT_PUBLIC_KEY：运行 npm run update-config 会自动写入，
+ * 也可以运行 node scripts/entitlements.js 打印公钥
+ */
+const fs = require('fs');
+const path = require('path');
+const crypto = require('crypto');
+
+const KEY_DIR = path.resolve(__dirname, '../.keys');
+const PRIVATE_KEY_FILE = path.join(KEY_DIR, 'entitlement_private.pem');
+// 令牌有效期，过期后客户端需要联网刷新
+const TOKEN_TTL_MS = 30 * 24 * 60 * 60 * 1000;
+
+let privateKey;
+
+function loadPrivateKey() {
+  if (!privateKey) {
+    if (fs.existsSync(PRIVATE_KEY_FILE)) {
+      privateKey = crypto.createPrivateKey(fs.readFileSync(PRIVATE_KEY_FILE));
+    } else {
+      const pair = crypto.generateKeyPairSync('ec', { namedCurve: 'P-256' });
+      fs.mkdirSync(KEY_DIR, { recursive: true, mode: 0o700 });
+      fs.writeFileSync(PRIVATE_KEY_FILE, pair.privateKey.export({ type: 'pkcs8', format: 'pem' }), { mode: 0o600 });
+      privateKey = pair.privateKey;
+      console.warn('已生成新的授权签名密钥，请运行 npm run update-config 更新客户端公钥');
+    }
+  }
+  return privateKey;
+}
+
+/**
+ * 客户端使用的公钥，X.509 SubjectPublicKeyInfo DER的Base64
+ */
+function publicKeyBase64() {
+  return crypto.createPublicKey(loadPrivateKey())
+    .export({ type: 'spki', format: 'der' })
+    .toString('base64');
+}
+
+/**
+ * 为用户签发令牌
+ * @param {number} userId 用户ID
+ * @param {number[]} courseIds 用户已购买的全部课程ID
+ * @returns {{token: string, expiresAt: number}}
+ */
+function sign(userId, courseIds) {
+  const now = Date.now();
+  const payload = {
+    uid: userId,
+    courses: Array.from(new Set(courseIds.map(Number))).sort((a, b) => a - b),
+    iat: now,
+    exp: now + TOKEN_TTL_MS
+  };
+  const encodedPayload = Buffer.from(JSON.stringify(payload)).toString('base64url');
+  const signature = crypto.sign('sha256', Buffer.from(encodedPayload), { key: loadPrivateKey(), dsaEncoding: 'der' });
+  return { token: `${encodedPayload}.${signature.toString('base64url')}`, expiresAt: payload.exp };
+}
+
+module.exports = { sign, publicKeyBase64 };
+
+if (require.main === module) {
+  console.log(publicKeyBase64());
+}
@@ -0,0 +1,160 @@
+/**
+ * 课程封面缩略图
+ * 用sharp把 html/img 下的原图缩放为客户端需要的宽度，并转为WebP/AVIF等更小的格式，结果缓存在磁盘上
+ *
+ * 缓存目录: html/img/.variants/<图片名>/<宽度>_<质量>.<格式>
+ *   以点开头的目录不会被静态文件中间件公开；原图更新后旧的缩略图按修改时间失效并重新生成
+ * 请求的宽度向上取整到 WIDTHS 中的档位，避免每种屏幕尺寸各生成一份
+ *
+ * 未安装sharp时直接返回原图
+ */
+const fs = require('fs');
+const path = require('path');
+
+const IMG_DIR = path.resolve(__dirname, '../img');
+const CACHE_DIR = path.join(IMG_DIR, '.variants');
+
+const WIDTHS = [80, 120, 160, 240, 320, 480, 640, 960, 1280, 1920];
+const DEFAULT_QUALITY = 75;
+const MIN_QUALITY = 30;
+const MAX_QUALITY = 90;
+const FORMATS = ['jpeg', 'webp', 'avif', 'png'];
+const MIME_TYPES = { jpeg: 'image/jpeg', webp: 'image/webp', avif: 'image/avif', png: 'image/png' };
+
+// 正在生成的缩略图，同一份只生成一次
+const jobs = new Map();
+let sharp;
+let sharpChecked = false;
+
+function loadSharp() {
+  if (!sharpChecked) {
+    sharpChecked = true;
+    try {
+      sharp = require('sharp');
+    } catch (err) {
+      console.warn('未安装sharp，课程图片将按原图提供');
+    }
+  }
+  return sharp;
+}
+
+/**
+ * 原图路径，只允许 img 目录下的文件
+ * @returns {string|null} 文件不存在时返回null
+ */
+function sourcePathFor(imageName) {
+  const source = path.join(IMG_DIR, path.basename(imageName));
+  return fs.existsSync(source) ? source : null;
+}
+
+// 向上取整到最近的档位，超过最大档位时按最大档位
+function snapWidth(width) {
+  return WIDTHS.find(w => w >= width) || WIDTHS[WIDTHS.length - 1];
+}
+
+/**
+ * 解析请求参数
+ * @param {object} query w: 宽度（像素），q: 质量，fmt: 格式（jpeg/webp/avif/png，auto按Accept请求头选择）
+ * @param {string} accept 请求的Accept头
+ * @returns {object|null} 没有指定宽度和格式时返回null，表示使用原图
+ */
+function parseOptions(query, accept) {
+  const width = parseInt(query.w, 10);
+  let format = typeof query.fmt === 'string' ? query.fmt.toLowerCase() : '';
+  if (format === 'jpg') {
+    format = 'jpeg';
+  }
+  const negotiated = format === 'auto';
+  if (negotiated) {
+    const types = accept || '';
+    format = types.includes('image/avif') ? 'avif' : types.includes('image/webp') ? 'webp' : 'jpeg';
+  } else if (!FORMATS.includes(format)) {
+    format = '';
+  }
+  if (!(width > 0) && !format) {
+    return null;
+  }
+
+  let quality = parseInt(query.q, 10);
+  if (!(quality > 0)) {
+    quality = DEFAULT_QUALITY;
+  }
+  return {
+    width: width > 0 ? snapWidth(width) : 0,
+    quality: Math.min(MAX_QUALITY, Math.max(MIN_QUALITY, quality)),
+    format,
+    negotiated
+  };
+}
+
+function generate(source, target, options) {
+  const tempFile = target + '.' + process.pid + '.tmp';
+  const started = Date.now();
+  // rotate()按EXIF方向旋转，输出中不再保留EXIF
+  let pipeline = loadSharp()(source).rotate();
+  if (options.width > 0) {
+    pipeline = pipeline.resize({ width: options.width, withoutEnlargement: true });
+  }
+  const quality = options.quality;
+  switch (options.format) {
+    case 'webp':
+      pipeline = pipeline.webp({ quality });
+      break;
+    case 'avif':
+      // AVIF在相同画质下所需的质量参数更低
+      pipeline = pipeline.avif({ quality: Math.max(MIN_QUALITY, quality - 20) });
+      break;
+    case 'png':
+      pipeline = pipeline.png({ compressionLevel: 9 });
+      break;
+    default:
+      // JPEG不支持透明，透明区域填充为白色
+      pipeline = pipeline.flatten({ background: '#ffffff' }).jpeg({ quality, mozjpeg: true });
+  }
+
+  fs.mkdirSync(path.dirname(target), { recursive: true });
+  return pipeline.toFile(tempFile)
+    .then(() => {
+      fs.renameSync(tempFile, target);
+      console.log(`生成缩略图: ${path.relative(CACHE_DIR, target)}，用时 ${Date.now() - started} 毫秒`);
+      return target;
+    })
+    .catch(err => {
+      fs.rmSync(tempFile, { force: true });
+      throw err;
+    });
+}
+
+/**
+ * 获取缩略图文件，尚未生成或原图已更新时先生成
+ * @param {string} source 原图路径（sourcePathFor的返回值）
+ * @param {object} options parseOptions的返回值
+ * @returns {Promise<{file: string, type: string}>} 未安装sharp时返回原图
+ */
+function variantFor(source, options) {
+  if (!loadSharp()) {
+    return Promise.resolve({ file: source, type: null });
+  }
+  const sourceExt = path.extname(source).slice(1).toLowerCase();
+  const format = options.format || (sourceExt === 'png' ? 'png' : 'jpeg');
+  const name = `${options.width || 'full'}_${options.quality}.${format}`;
+  const target = path.join(CACHE_DIR, path.basename(source), name);
+  const result = { file: target, type: MIME_TYPES[format] };
+
+  try {
+    if (fs.statSync(target).mtimeMs >= fs.statSync(source).mtimeMs) {
+      return Promise.resolve(result);
+    }
+  } catch (err) {
+    // 尚未生成
+  }
+
+  if (!jobs.has(target)) {
+    const job = generate(source, target, Object.assign({}, options, { format }))
+      .finally(() => jobs.delete(target));
+    jobs.set(target, job);
+  }
+  return jobs.get(target).then(() => result);
+}
+
+module.exports = { sourcePathFor, parseOptions, variantFor };
@@ -0,0 +1,150 @@
+/**
+ * 课程PDF线性化脚本
+ * 用qpdf把 html/book 下的PDF改写为线性化（Fast Web View）格式：第一页所需的全部对象集中在文件开头，
+ * 客户端只需用Range请求取回开头一小段（以及末尾的交叉引用表）就能显示第一页，其余部分在后台继续下载
+ *
+ * 已线性化的文件会被跳过，原地替换（先写临时文件再改名），文件名和下载地址不变
+ *
+ * 用法:
+ *   node scripts/linearize-pdf.js            线性化所有尚未线性化的PDF
+ *   node scripts/linearize-pdf.js a.pdf      只处理指定文件
+ * server.js 启动时也会调用 watch()，book 目录中新增或替换的PDF会自动处理
+ */
+const fs = require('fs');
+const path = require('path');
+const { spawn, spawnSync } = require('child_process');
+
+const BOOK_DIR = path.resolve(__dirname, '../book');
+// 线性化字典必须位于文件开头1024字节内
+const HEADER_BYTES = 1024;
+
+// 正在处理的文件，避免重复启动；任务串行执行
+const jobs = new Map();
+let queue = Promise.resolve();
+let qpdfChecked = false;
+let qpdfAvailable = false;
+
+function hasQpdf() {
+  if (!qpdfChecked) {
+    qpdfChecked = true;
+    const result = spawnSync('qpdf', ['--version'], { stdio: 'ignore' });
+    qpdfAvailable = !result.error && result.status === 0;
+    if (!qpdfAvailable) {
+      console.warn('未找到qpdf，PDF将按原格式提供，客户端需下载完整文件后才能显示');
+    }
+  }
+  return qpdfAvailable;
+}
+
+// 文件开头是否有线性化字典
+function isLinearized(file) {
+  let fd;
+  try {
+    fd = fs.openSync(file, 'r');
+    const buffer = Buffer.alloc(HEADER_BYTES);
+    const length = fs.readSync(fd, buffer, 0, HEADER_BYTES, 0);
+    return buffer.toString('latin1', 0, length).includes('/Linearized');
+  } catch (err) {
+    return false;
+  } finally {
+    if (fd !== undefined) {
+      fs.closeSync(fd);
+    }
+  }
+}
+
+function runQpdf(source) {
+  return new Promise((resolve, reject) => {
+    // 临时文件不以.pdf结尾，不会再次触发目录监听
+    const tempFile = source + '.linearizing';
+    const started = Date.now();
+    // 不使用对象流，交叉引用表为普通文本格式，客户端可以直接查找页面树等对象的位置
+    const qpdf = spawn('qpdf', ['--linearize', '--object-streams=disable', source, tempFile],
+      { stdio: ['ignore', 'ignore', 'pipe'] });
+    let stderr = '';
+    qpdf.stderr.on('data', chunk => {
+      stderr = (stderr + chunk).slice(-4000);
+    });
+    qpdf.on('error', reject);
+    qpdf.on('close', code => {
+      // 退出码3表示有警告但输出可用
+      if (code !== 0 && code !== 3) {
+        fs.rmSync(tempFile, { force: true });
+        return reject(new Error(`qpdf退出码 ${code}\n${stderr}`));
+      }
+      fs.renameSync(tempFile, source);
+      console.log(`PDF线性化完成: ${path.basename(source)}，用时 ${Date.now() - started} 毫秒`);
+      resolve(true);
+    });
+  });
+}
+
+/**
+ * 线性化一个PDF，已线性化时直接返回
+ * @param {string} pdfFile book目录下的文件名或完整路径
+ * @returns {Promise<boolean>} 文件是否为线性化格式
+ */
+function linearize(pdfFile) {
+  const source = path.join(BOOK_DIR, path.basename(pdfFile));
+  if (!fs.existsSync(source)) {
+    return Promise.resolve(false);
+  }
+  if (isLinearized(source)) {
+    return Promise.resolve(true);
+  }
+  if (!hasQpdf()) {
+    return Promise.resolve(false);
+  }
+  if (jobs.has(source)) {
+    return jobs.get(source);
+  }
+
+  const job = queue.then(() => runQpdf(source));
+  queue = job.catch(() => {});
+  jobs.set(source, job);
+  job.catch(err => console.error(`PDF线性化失败: ${path.basename(source)}`, err.message))
+    .then(() => jobs.delete(source));
+  return job;
+}
+
+function listPdfs() {
+  return fs.readdirSync(BOOK_DIR).filter(name => name.toLowerCase().endsWith('.pdf'));
+}
+
+/**
+ * 处理所有尚未线性化的PDF，并监听book目录，新上传或替换的PDF自动处理
+ */
+function watch() {
+  if (!hasQpdf()) {
+    return;
+  }
+  listPdfs().forEach(name => linearize(name).catch(() => {}));
+
+  // 上传过程中会连续触发多次事件，等文件稳定后再处理；改名完成时的事件会因已线性化而跳过
+  const timers = new Map();
+  fs.watch(BOOK_DIR, (eventType, filename) => {
+    if (!filename || !filename.toLowerCase().endsWith('.pdf')) {
+      return;
+    }
+    clearTimeout(timers.get(filename));
+    timers.set(filename, setTimeout(() => {
+      timers.delete(filename);
+      linearize(filename).catch(() => {});
+    }, 5000));
+  });
+}
+
+module.exports = { linearize, isLinearized, watch };
+
+if (require.main === module) {
+  if (!hasQpdf()) {
+    process.exit(1);
+  }
+  const targets = process.argv.length > 2 ? process.argv.slice(2) : listPdfs();
+  Promise.all(targets.map(name => linearize(name).catch(() => false)))
+    .then(results => {
+      const failed = results.filter(r => !r).length;
+      console.log(`共 ${targets.length} 个PDF，失败 ${failed} 个`);
+      process.exit(failed > 0 ? 1 : 0);
+    });
+}
@@ -0,0 +1,222 @@
+/**
+ * 课程视频HLS打包脚本
+ * 用ffmpeg把 html/book 下的MP4转码为多码率HLS（360p/540p/720p），客户端根据网速自动切换清晰度
+ *
+ * 输出目录: html/book/hls/<视频名>/
+ *   master.m3u8        主播放列表，课程的contentPath指向它
+ *   <档位>/index.m3u8   各码率的播放列表
+ *   <档位>/seg_000.ts   6秒一个分片
+ * 原MP4保留不动，用于离线下载（客户端按同样的目录约定由主播放列表找回原文件）
+ *
+ * 用法:
+ *   node scripts/package-hls.js            打包所有尚未打包或已更新的视频
+ *   node scripts/package-hls.js dui.mp4    只打包指定视频
+ * server.js 启动时也会调用 watch()，book 目录中新增或替换的视频会自动打包
+ */
+const fs = require('fs');
+const path = require('path');
+const { spawn, spawnSync } = require('child_process');
+
+const BOOK_DIR = path.resolve(__dirname, '../book');
+const HLS_DIR = path.join(BOOK_DIR, 'hls');
+const MASTER_PLAYLIST = 'master.m3u8';
+const SEGMENT_SECONDS = 6;
+
+// 码率阶梯，从低到高；高于原视频分辨率的档位会被跳过
+const LADDER = [
+  { name: '360p', height: 360, videoBitrate: 800, audioBitrate: 64 },
+  { name: '540p', height: 540, videoBitrate: 1400, audioBitrate: 96 },
+  { name: '720p', height: 720, videoBitrate: 2800, audioBitrate: 128 }
+];
+
+// 正在打包的视频，避免重复启动；打包任务串行执行，不占满服务器CPU
+const jobs = new Map();
+let queue = Promise.resolve();
+let ffmpegChecked = false;
+let ffmpegAvailable = false;
+
+function hasFfmpeg() {
+  if (!ffmpegChecked) {
+    ffmpegChecked = true;
+    const result = spawnSync('ffmpeg', ['-version'], { stdio: 'ignore' });
+    ffmpegAvailable = !result.error && result.status === 0;
+    if (!ffmpegAvailable) {
+      console.warn('未找到ffmpeg，视频将以单一码率MP4提供');
+    }
+  }
+  return ffmpegAvailable;
+}
+
+// 视频对应的HLS输出目录
+function outputDirFor(videoFile) {
+  return path.join(HLS_DIR, path.basename(videoFile, path.extname(videoFile)));
+}
+
+/**
+ * 视频的主播放列表相对于 html 目录的路径，如 book/hls/dui/master.m3u8
+ * 尚未打包或原视频更新后未重新打包时返回null
+ */
+function manifestPathFor(videoFile) {
+  const source = path.join(BOOK_DIR, path.basename(videoFile));
+  const master = path.join(outputDirFor(videoFile), MASTER_PLAYLIST);
+  try {
+    if (fs.statSync(master).mtimeMs < fs.statSync(source).mtimeMs) {
+      return null;
+    }
+  } catch (err) {
+    return null;
+  }
+  return path.relative(path.resolve(BOOK_DIR, '..'), master).split(path.sep).join('/');
+}
+
+// 读取视频高度和是否有音轨
+function probe(source) {
+  const result = spawnSync('ffprobe', [
+    '-v', 'error', '-show_entries', 'stream=codec_type,height', '-of', 'json', source
+  ], { encoding: 'utf8' });
+  if (result.error || result.status !== 0) {
+    return { height: 720, hasAudio: true };
+  }
+  const streams = JSON.parse(result.stdout).streams || [];
+  const video = streams.find(s => s.codec_type === 'video');
+  return {
+    height: video && video.height ? video.height : 720,
+    hasAudio: streams.some(s => s.codec_type === 'audio')
+  };
+}
+
+function buildArgs(source, outDir, info) {
+  let renditions = LADDER.filter(r => r.height <= info.height);
+  if (renditions.length === 0) {
+    renditions = [LADDER[0]];
+  }
+
+  const split = renditions.map((r, i) => `[v${i}]`).join('');
+  const scales = renditions.map((r, i) => `[v${i}]scale=-2:${r.height}[v${i}out]`).join(';');
+  const args = ['-y', '-i', source,
+    '-filter_complex', `[0:v]split=${renditions.length}${split};${scales}`];
+
+  renditions.forEach((r, i) => {
+    args.push('-map', `[v${i}out]`,
+      `-c:v:${i}`, 'libx264',
+      `-b:v:${i}`, `${r.videoBitrate}k`,
+      `-maxrate:v:${i}`, `${Math.round(r.videoBitrate * 1.07)}k`,
+      `-bufsize:v:${i}`, `${r.videoBitrate * 1.5}k`);
+  });
+  if (info.hasAudio) {
+    renditions.forEach((r, i) => {
+      args.push('-map', 'a:0', `-c:a:${i}`, 'aac', `-b:a:${i}`, `${r.audioBitrate}k`, '-ac', '2');
+    });
+  }
+
+  // 关键帧与分片边界对齐，客户端切换码率时不会花屏
+  args.push('-preset', 'veryfast', '-sc_threshold', '0',
+    '-force_key_frames', `expr:gte(t,n_forced*${SEGMENT_SECONDS})`,
+    '-f', 'hls',
+    '-hls_time', String(SEGMENT_SECONDS),
+    '-hls_playlist_type', 'vod',
+    '-hls_flags', 'independent_segments',
+    '-hls_segment_filename', path.join(outDir, '%v', 'seg_%03d.ts'),
+    '-master_pl_name', MASTER_PLAYLIST,
+    '-var_stream_map', renditions.map((r, i) =>
+      (info.hasAudio ? `v:${i},a:${i}` : `v:${i}`) + `,name:${r.name}`).join(' '),
+    path.join(outDir, '%v', 'index.m3u8'));
+  return args;
+}
+
+function runFfmpeg(source) {
+  return new Promise((resolve, reject) => {
+    const outDir = outputDirFor(source);
+    // 先输出到临时目录，完成后再替换，打包过程中客户端仍可播放旧版本
+    const tempDir = outDir + '.tmp';
+    fs.rmSync(tempDir, { recursive: true, force: true });
+    fs.mkdirSync(tempDir, { recursive: true });
+
+    const started = Date.now();
+    const ffmpeg = spawn('ffmpeg', buildArgs(source, tempDir, probe(source)), { stdio: ['ignore', 'ignore', 'pipe'] });
+    let stderr = '';
+    ffmpeg.stderr.on('data', chunk => {
+      stderr = (stderr + chunk).slice(-4000);
+    });
+    ffmpeg.on('error', reject);
+    ffmpeg.on('close', code => {
+      if (code !== 0) {
+        fs.rmSync(tempDir, { recursive: true, force: true });
+        return reject(new Error(`ffmpeg退出码 ${code}\n${stderr}`));
+      }
+      fs.rmSync(outDir, { recursive: true, force: true });
+      fs.renameSync(tempDir, outDir);
+      console.log(`HLS打包完成: ${path.basename(source)}，用时 ${Math.round((Date.now() - started) / 1000)} 秒`);
+      resolve(manifestPathFor(source));
+    });
+  });
+}
+
+/**
+ * 打包一个视频，已是最新时直接返回主播放列表路径
+ * @param {string} videoFile book目录下的文件名或完整路径
+ * @returns {Promise<string|null>} 主播放列表相对于html目录的路径，无法打包时为null
+ */
+function packageVideo(videoFile) {
+  const source = path.join(BOOK_DIR, path.basename(videoFile));
+  const existing = manifestPathFor(source);
+  if (existing) {
+    return Promise.resolve(existing);
+  }
+  if (!hasFfmpeg() || !fs.existsSync(source)) {
+    return Promise.resolve(null);
+  }
+  if (jobs.has(source)) {
+    return jobs.get(source);
+  }
+
+  console.log(`开始HLS打包: ${path.basename(source)}`);
+  const job = queue.then(() => runFfmpeg(source));
+  queue = job.catch(() => {});
+  jobs.set(source, job);
+  job.catch(err => console.error(`HLS打包失败: ${path.basename(source)}`, err.message))
+    .then(() => jobs.delete(source));
+  return job;
+}
+
+function listVideos() {
+  return fs.readdirSync(BOOK_DIR).filter(name => name.toLowerCase().endsWith('.mp4'));
+}
+
+/**
+ * 打包所有需要打包的视频，并监听book目录，新上传或替换的视频自动打包
+ */
+function watch() {
+  if (!hasFfmpeg()) {
+    return;
+  }
+  listVideos().forEach(name => packageVideo(name).catch(() => {}));
+
+  // 上传过程中会连续触发多次事件，等文件稳定后再打包
+  const timers = new Map();
+  fs.watch(BOOK_DIR, (eventType, filename) => {
+    if (!filename || !filename.toLowerCase().endsWith('.mp4')) {
+      return;
+    }
+    clearTimeout(timers.get(filename));
+    timers.set(filename, setTimeout(() => {
+      timers.delete(filename);
+      packageVideo(filename).catch(() => {});
+    }, 5000));
+  });
+}
+
+module.exports = { packageVideo, manifestPathFor, watch };
+
+if (require.main === module) {
+  if (!hasFfmpeg()) {
+    process.exit(1);
+  }
+  const targets = process.argv.length > 2 ? process.argv.slice(2) : listVideos();
+  Promise.all(targets.map(name => packageVideo(name).catch(() => null)))
+    .then(results => {
+      const failed = results.filter(r => r === null).length;
+      console.log(`共 ${targets.length} 个视频，失败 ${failed} 个`);
+      process.exit(failed > 0 ? 1 : 0);
+    });
+}
@@ -8,6 +8,7 @@ const { execSync } = require('child_process');
 
 // 导入配置
 const config = require('../config');
+const entitlements = require('./entitlements');
 
 // 文件路径
 const androidConfigPath = path.resolve(__dirname, '../../app/src/main/java/com/example/yunclass/config/AppConfig.java');
@@ -40,6 +41,12 @@ function updateAndroidConfig() {
     `private static final int PORT = ${config.PORT};`
   );
   
+  // 写入授权令牌的验证公钥（服务器首次运行时生成密钥对）
+  appConfigContent = appConfigContent.replace(
+    /public static final String ENTITLEMENT_PUBLIC_KEY = "(.*)";/,
+    `public static final String ENTITLEMENT_PUBLIC_KEY = "${entitlements.publicKeyBase64()}";`
+  );
+  
   // 写回文件
   fs.writeFileSync(androidConfigPath, appConfigContent);
   console.log('Android AppConfig.java 已更新');
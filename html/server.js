@@ -6,9 +6,14 @@ const path = require('path');
 const session = require('express-session');
 const fs = require('fs');
 const multer = require('multer');
+const crypto = require('crypto');
 
 // 导入服务器配置
 const config = require('./config');
+const hls = require('./scripts/package-hls');
+const linearizePdf = require('./scripts/linearize-pdf');
+const imageVariants = require('./scripts/image-variants');
+const entitlements = require('./scripts/entitlements');
 
 // 配置文件上传存储
 const storage = multer.diskStorage({
@@ -56,7 +61,8 @@ app.use(express.static(path.join(__dirname)));
 app.use(session({
   secret: config.SESSION.SECRET,
   resave: false,
-  saveUninitialized: true,
+  // 只在登录后写入session并下发Cookie，客户端据此判断是否保存有登录会话
+  saveUninitialized: false,
   cookie: { 
     secure: false, // 在生产环境中应设置为true
     maxAge: config.SESSION.MAX_AGE
@@ -66,30 +72,71 @@ app.use(session({
 // 配置静态文件服务
 app.use('/uploads', express.static(path.join(__dirname, 'uploads')));
 
-// 添加静态文件服务 - 从根目录server.js合并
-app.use('/html', express.static(path.join(__dirname)));
+// 课程文件的SHA-256，按路径缓存，文件修改后重新计算
+const fileDigests = new Map();
+
+// 获取文件摘要：已缓存时直接返回，否则在后台计算并返回null，不阻塞本次请求
+function getFileDigest(filePath, stat) {
+  const cached = fileDigests.get(filePath);
+  if (cached && cached.mtimeMs === stat.mtimeMs && cached.size === stat.size) {
+    return cached.sha256;
+  }
+  if (!cached || !cached.pending) {
+    fileDigests.set(filePath, { mtimeMs: stat.mtimeMs, size: stat.size, pending: true });
+    const hash = crypto.createHash('sha256');
+    fs.createReadStream(filePath)
+      .on('data', chunk => hash.update(chunk))
+      .on('end', () => {
+        fileDigests.set(filePath, { mtimeMs: stat.mtimeMs, size: stat.size, sha256: hash.digest('hex') });
+      })
+      .on('error', err => {
+        console.error('计算文件摘要失败:', filePath, err.message);
+        fileDigests.delete(filePath);
+      });
+  }
+  return null;
+}
 
 // 添加特定路由处理PDF和视频文件 - 从根目录server.js合并
+// 需要注册在 /html 静态目录之前，否则请求会被静态中间件直接处理
+// 支持Range请求（断点续传、分段下载）：ETag使用内容摘要，便于客户端用If-Range判断文件是否变化
 app.get('/html/book/:filename', (req, res) => {
-  const filename = req.params.filename;
+  const filename = path.basename(req.params.filename);
   const filePath = path.join(__dirname, 'book', filename);
   
-  // 检查文件是否存在
-  if (fs.existsSync(filePath)) {
+  fs.stat(filePath, (err, stat) => {
+    // 检查文件是否存在
+    if (err || !stat.isFile()) {
+      return res.status(404).send('File not found: ' + filename);
+    }
+    
     // 设置正确的MIME类型
     if (filename.endsWith('.pdf')) {
       res.setHeader('Content-Type', 'application/pdf');
     } else if (filename.endsWith('.mp4')) {
       res.setHeader('Content-Type', 'video/mp4');
     }
+    res.setHeader('Accept-Ranges', 'bytes');
     
-    // 发送文件
-    res.sendFile(filePath);
-  } else {
-    res.status(404).send('File not found: ' + filename);
-  }
+    const sha256 = getFileDigest(filePath, stat);
+    if (sha256) {
+      // 摘要计算完成前使用sendFile默认的弱ETag
+      res.setHeader('ETag', '"' + sha256 + '"');
+      res.setHeader('X-Content-SHA256', sha256);
+    }
+    
+    // 发送文件，Range、If-Range和条件请求由sendFile处理
+    res.sendFile(filePath, { acceptRanges: true, lastModified: true }, sendErr => {
+      if (sendErr && !res.headersSent) {
+        res.status(sendErr.status || 500).end();
+      }
+    });
+  });
 });
 
+// 添加静态文件服务 - 从根目录server.js合并
+app.use('/html', express.static(path.join(__dirname)));
+
 // 添加Express JSON设置，确保日期正确格式化
 app.set('json replacer', (key, value) => {
   // 如果值是Date类型，确保返回ISO格式的日期字符串
@@ -133,6 +180,24 @@ app.use((req, res, next) => {
   next();
 });
 
+// 目录类接口（课程、网站）允许客户端缓存，但每次使用前需要向服务器校验
+// Express 会为 res.json 响应自动生成 ETag，并在 If-None-Match 匹配时返回 304
+app.use(['/api/courses', '/api/websites'], (req, res, next) => {
+  if (req.method === 'GET') {
+    res.set('Cache-Control', 'no-cache');
+  }
+  next();
+});
+
+// 根据数据文件的修改时间设置 Last-Modified，支持 If-Modified-Since 校验
+function setLastModified(res, filePath) {
+  try {
+    res.set('Last-Modified', fs.statSync(filePath).mtime.toUTCString());
+  } catch (error) {
+    // 文件不存在时不设置，仅依赖 ETag
+  }
+}
+
 console.log('服务器初始化中...');
 console.log('正在连接到MySQL数据库...');
 
@@ -394,6 +459,66 @@ function setupDatabase(connection) {
           console.log('回复表检查/创建成功');
         }
       });
+      
+      // 创建播放进度表，每个用户每个视频一条记录
+      // updated_at是客户端记录进度的时间，用于多台设备之间取较新的进度；
+      // modified_at是服务器写入的时间，客户端按它增量拉取
+      const createProgressTableQuery = `
+        CREATE TABLE IF NOT EXISTS playback_progress (
+          user_id INT NOT NULL,
+          content_path VARCHAR(500) NOT NULL,
+          position_ms BIGINT NOT NULL DEFAULT 0,
+          duration_ms BIGINT NOT NULL DEFAULT 0,
+          updated_at BIGINT NOT NULL,
+          modified_at BIGINT NOT NULL DEFAULT 0,
+          PRIMARY KEY (user_id, content_path),
+          KEY idx_progress_modified (user_id, modified_at),
+          FOREIGN KEY (user_id) REFERENCES users(id)
+        ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+      `;
+      
+      connection.query(createProgressTableQuery, (err, result) => {
+        if (err) {
+          console.error('创建播放进度表失败:', err);
+          return;
+        }
+        console.log('播放进度表检查/创建成功');
+        // 旧版本建的表没有modified_at，已有的记录为0，客户端首次全量拉取时会包含
+        const addModifiedAtQuery = `
+          ALTER TABLE playback_progress
+            ADD COLUMN modified_at BIGINT NOT NULL DEFAULT 0,
+            ADD KEY idx_progress_modified (user_id, modified_at)
+        `;
+        connection.query(addModifiedAtQuery, (alterErr) => {
+          if (alterErr && alterErr.code !== 'ER_DUP_FIELDNAME') {
+            console.error('播放进度表添加modified_at失败:', alterErr);
+          }
+        });
+      });
+      
+      // 创建课程搜索表，课程数据仍以courses.json为准，此表只用于全文检索
+      // ngram解析器按两字切分中文，MySQL 5.7.6及以上版本支持
+      const createCoursesTableQuery = `
+        CREATE TABLE IF NOT EXISTS courses (
+          id INT PRIMARY KEY,
+          title VARCHAR(255) NOT NULL,
+          description TEXT,
+          author VARCHAR(100),
+          rating DECIMAL(3, 2) DEFAULT 0,
+          students INT DEFAULT 0,
+          FULLTEXT KEY ft_courses_title (title) WITH PARSER ngram,
+          FULLTEXT KEY ft_courses_all (title, description, author) WITH PARSER ngram
+        ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4
+      `;
+      
+      connection.query(createCoursesTableQuery, (err, result) => {
+        if (err) {
+          console.error('创建课程搜索表失败:', err);
+        } else {
+          console.log('课程搜索表检查/创建成功');
+          syncCoursesTable();
+        }
+      });
     });
   });
 }
@@ -636,45 +761,107 @@ app.post('/api/logout', (req, res) => {
   }
 });
 
+// 视频已打包为HLS时返回主播放列表路径，客户端按网速自动切换码率；否则返回原MP4路径
+// 每个视频的检查结果缓存30秒，避免每门课程都访问文件系统
+const VIDEO_PATH_TTL = 30 * 1000;
+const videoPathCache = new Map();
+
+function videoContentPath(mp4Path) {
+  const cached = videoPathCache.get(mp4Path);
+  if (cached && Date.now() - cached.checkedAt < VIDEO_PATH_TTL) {
+    return cached.path;
+  }
+  const manifest = hls.manifestPathFor(path.basename(mp4Path));
+  const resolved = manifest ? 'html/' + manifest : mp4Path;
+  videoPathCache.set(mp4Path, { path: resolved, checkedAt: Date.now() });
+  return resolved;
+}
+
+// 根据课程ID或标题为课程添加内容类型和路径
+function withContentInfo(course) {
+  let contentType, contentPath;
+  
+  if (course.id === 1 || course.title.includes("Java")) {
+    contentType = "video";
+    contentPath = "html/book/dui.mp4";
+  } else if (course.id === 2 || course.title.includes("Android")) {
+    contentType = "video";
+    contentPath = "html/book/dui.mp4";
+  } else if (course.id === 3 || course.title.includes("数据结构")) {
+    contentType = "video";
+    contentPath = "html/book/dui.mp4";
+  } else if (course.id === 4 || course.title.includes("Web")) {
+    contentType = "pdf";
+    contentPath = "html/book/python.pdf";
+  } else if (course.id === 5 || course.title.includes("Python")) {
+    contentType = "pdf";
+    contentPath = "html/book/python.pdf";
+  } else {
+    // 默认值
+    contentType = "pdf";
+    contentPath = "html/book/python.pdf";
+  }
+  
+  return {
+    ...course,
+    contentType: contentType,
+    contentPath: contentType === "video" ? videoContentPath(contentPath) : contentPath
+  };
+}
+
+// 游标分页参数
+// 客户端传 ?after=<上一页返回的nextCursor>&limit=<条数>，不传limit时返回完整列表（兼容旧版本客户端）
+const MAX_PAGE_SIZE = 100;
+
+function parsePage(req) {
+  if (req.query.limit === undefined) {
+    return null;
+  }
+  const limit = Math.min(Math.max(parseInt(req.query.limit, 10) || 20, 1), MAX_PAGE_SIZE);
+  const after = parseInt(req.query.after, 10);
+  return {
+    limit: limit,
+    after: Number.isInteger(after) && after > 0 ? after : null
+  };
+}
+
+// 多查询一条用于判断是否还有下一页，返回本页数据和下一页游标（最后一条的id）
+function toPage(rows, page) {
+  const hasMore = rows.length > page.limit;
+  const items = hasMore ? rows.slice(0, page.limit) : rows;
+  return {
+    items: items,
+    nextCursor: hasMore ? String(items[items.length - 1].id) : null
+  };
+}
+
 // 新增API端点 - 获取课程列表 (合并自根目录server.js)
 app.get('/api/courses', (req, res) => {
   try {
     // 从courses.json文件读取课程数据
-    const coursesData = fs.readFileSync(path.join(__dirname, 'doc', 'courses.json'), 'utf8');
+    const coursesFile = path.join(__dirname, 'doc', 'courses.json');
+    const coursesData = fs.readFileSync(coursesFile, 'utf8');
     const coursesFromFile = JSON.parse(coursesData);
+    setLastModified(res, coursesFile);
+    
+    // 课程目录按id升序分页，游标为上一页最后一门课程的id；
+    // 与订单、问题一样按id比较而不是查找游标所在的位置，游标对应的课程在两页之间被删除时也能从正确的位置继续
+    const page = parsePage(req);
+    if (page) {
+      const rows = coursesFromFile
+        .filter(course => page.after === null || course.id > page.after)
+        .sort((a, b) => a.id - b.id)
+        .slice(0, page.limit + 1);
+      const result = toPage(rows, page);
+      return res.json({
+        success: true,
+        courses: result.items.map(withContentInfo),
+        nextCursor: result.nextCursor
+      });
+    }
     
     // 为每个课程添加contentType和contentPath
-    const courses = coursesFromFile.map(course => {
-      let contentType, contentPath;
-      
-      // 根据课程ID或标题决定内容类型和路径
-      if (course.id === 1 || course.title.includes("Java")) {
-        contentType = "video";
-        contentPath = "html/book/dui.mp4";
-      } else if (course.id === 2 || course.title.includes("Android")) {
-        contentType = "video";
-        contentPath = "html/book/dui.mp4";
-      } else if (course.id === 3 || course.title.includes("数据结构")) {
-        contentType = "video";
-        contentPath = "html/book/dui.mp4";
-      } else if (course.id === 4 || course.title.includes("Web")) {
-        contentType = "pdf";
-        contentPath = "html/book/python.pdf";
-      } else if (course.id === 5 || course.title.includes("Python")) {
-        contentType = "pdf";
-        contentPath = "html/book/python.pdf";
-      } else {
-        // 默认值
-        contentType = "pdf";
-        contentPath = "html/book/python.pdf";
-      }
-      
-      return {
-        ...course,
-        contentType: contentType,
-        contentPath: contentPath
-      };
-    });
+    const courses = coursesFromFile.map(withContentInfo);
     
     res.json({
       success: true,
@@ -710,8 +897,10 @@ app.get('/api/courses', (req, res) => {
 // 新增API端点 - 获取网站链接
 app.get('/api/websites', (req, res) => {
   try {
-    const websitesData = fs.readFileSync(path.join(__dirname, 'doc', 'websites.json'), 'utf8');
+    const websitesFile = path.join(__dirname, 'doc', 'websites.json');
+    const websitesData = fs.readFileSync(websitesFile, 'utf8');
     const websites = JSON.parse(websitesData);
+    setLastModified(res, websitesFile);
     res.json({ success: true, websites });
   } catch (error) {
     console.error('获取网站数据失败:', error);
@@ -720,15 +909,174 @@ app.get('/api/websites', (req, res) => {
 });
 
 // 新增API端点 - 获取课程图片
+// 可选参数 w（宽度，像素）、q（质量）、fmt（jpeg/webp/avif/png/auto），指定后返回缩放和转码后的图片
 app.get('/api/course-image/:imageName', (req, res) => {
-  const imageName = req.params.imageName;
-  const imagePath = path.join(__dirname, 'img', imageName);
+  const imagePath = imageVariants.sourcePathFor(req.params.imageName);
+  if (!imagePath) {
+    return res.status(404).json({ success: false, message: '图片不存在' });
+  }
   
-  if (fs.existsSync(imagePath)) {
-    res.sendFile(imagePath);
-  } else {
-    res.status(404).json({ success: false, message: '图片不存在' });
+  const options = imageVariants.parseOptions(req.query, req.get('Accept'));
+  if (!options) {
+    return res.sendFile(imagePath);
+  }
+  
+  imageVariants.variantFor(imagePath, options)
+    .then(({ file, type }) => {
+      if (options.negotiated) {
+        res.vary('Accept');
+      }
+      if (type) {
+        res.type(type);
+      }
+      res.sendFile(file, { maxAge: '1d' });
+    })
+    .catch(err => {
+      console.error('生成缩略图失败:', err.message);
+      res.sendFile(imagePath);
+    });
+});
+
+// 课程全文搜索
+// courses表由courses.json同步而来，文件修改后在下一次搜索前重新同步
+let coursesTableMtimeMs = -1;
+const MAX_SEARCH_RESULTS = 50;
+
+function readCoursesFile() {
+  return JSON.parse(fs.readFileSync(path.join(__dirname, 'doc', 'courses.json'), 'utf8'));
+}
+
+function syncCoursesTable(callback) {
+  const done = callback || (() => {});
+  try {
+    const coursesFile = path.join(__dirname, 'doc', 'courses.json');
+    const mtimeMs = fs.statSync(coursesFile).mtimeMs;
+    if (mtimeMs === coursesTableMtimeMs) {
+      return done(null);
+    }
+    
+    const courses = readCoursesFile();
+    const rows = courses.map(course => [
+      course.id, course.title, course.description || '', course.author || '',
+      course.rating || 0, course.students || 0
+    ]);
+    const upsertQuery = `
+      INSERT INTO courses (id, title, description, author, rating, students) VALUES ?
+      ON DUPLICATE KEY UPDATE title = VALUES(title), description = VALUES(description),
+        author = VALUES(author), rating = VALUES(rating), students = VALUES(students)
+    `;
+    
+    db.query(upsertQuery, [rows], (err) => {
+      if (err) {
+        console.error('同步课程搜索表失败:', err);
+        return done(err);
+      }
+      
+      // 删除courses.json中已不存在的课程
+      const ids = courses.map(course => course.id);
+      const deleteQuery = ids.length > 0 ? 'DELETE FROM courses WHERE id NOT IN (?)' : 'DELETE FROM courses';
+      db.query(deleteQuery, [ids], (err) => {
+        if (err) {
+          console.error('清理课程搜索表失败:', err);
+          return done(err);
+        }
+        coursesTableMtimeMs = mtimeMs;
+        console.log(`课程搜索表已同步: ${ids.length}门课程`);
+        done(null);
+      });
+    });
+  } catch (error) {
+    console.error('同步课程搜索表失败:', error);
+    done(error);
+  }
+}
+
+// 把用户输入转换为BOOLEAN MODE查询，每个词都必须出现；去掉全文检索的运算符，避免语法错误
+function toBooleanQuery(terms) {
+  return terms.map(term => `+"${term}"`).join(' ');
+}
+
+// 不使用全文索引的搜索：内存存储模式、查询词短于ngram长度或全文检索出错时使用
+function searchCoursesInFile(terms, limit) {
+  const lowerTerms = terms.map(term => term.toLowerCase());
+  return readCoursesFile()
+    .map((course, position) => {
+      const title = (course.title || '').toLowerCase();
+      const text = `${title} ${(course.description || '').toLowerCase()} ${(course.author || '').toLowerCase()}`;
+      if (!lowerTerms.every(term => text.includes(term))) {
+        return null;
+      }
+      const titleHits = lowerTerms.filter(term => title.includes(term)).length;
+      return { course, titleHits, position };
+    })
+    .filter(hit => hit !== null)
+    .sort((a, b) => (b.titleHits - a.titleHits)
+      || ((b.course.rating || 0) - (a.course.rating || 0))
+      || ((b.course.students || 0) - (a.course.students || 0))
+      || (a.position - b.position))
+    .slice(0, limit)
+    .map(hit => withContentInfo(hit.course));
+}
+
+app.get('/api/courses/search', (req, res) => {
+  const q = String(req.query.q || '').trim();
+  const limit = Math.min(Math.max(parseInt(req.query.limit, 10) || 20, 1), MAX_SEARCH_RESULTS);
+  const terms = q.replace(/[+\-<>()~*"@]/g, ' ').split(/\s+/).filter(term => term.length > 0);
+  
+  if (terms.length === 0) {
+    return res.json({ success: true, courses: [] });
   }
+  
+  const respondFromFile = () => {
+    try {
+      res.json({ success: true, courses: searchCoursesInFile(terms, limit) });
+    } catch (error) {
+      console.error('搜索课程失败:', error);
+      res.status(500).json({ success: false, message: '服务器错误' });
+    }
+  };
+  
+  // 单个汉字短于ngram分词长度（默认2），全文索引查不到，直接在文件中查找
+  if (useMemoryStorage || !db || terms.some(term => term.length < 2)) {
+    return respondFromFile();
+  }
+  
+  syncCoursesTable((syncErr) => {
+    if (syncErr) {
+      return respondFromFile();
+    }
+    
+    // 标题命中的相关度加倍，相关度相同时按评分和学习人数排序
+    const booleanQuery = toBooleanQuery(terms);
+    const searchQuery = `
+      SELECT id,
+        MATCH(title) AGAINST (? IN BOOLEAN MODE) * 2
+          + MATCH(title, description, author) AGAINST (? IN BOOLEAN MODE) AS score
+      FROM courses
+      WHERE MATCH(title, description, author) AGAINST (? IN BOOLEAN MODE)
+      ORDER BY score DESC, rating DESC, students DESC
+      LIMIT ?
+    `;
+    
+    db.query(searchQuery, [booleanQuery, booleanQuery, booleanQuery, limit], (err, results) => {
+      if (err) {
+        console.error('全文搜索课程失败，改为逐条匹配:', err);
+        return respondFromFile();
+      }
+      
+      try {
+        const coursesById = new Map(readCoursesFile().map(course => [course.id, course]));
+        const courses = results
+          .map(row => coursesById.get(row.id))
+          .filter(course => course !== undefined)
+          .map(withContentInfo);
+        res.json({ success: true, courses: courses });
+      } catch (error) {
+        console.error('读取课程数据失败:', error);
+        res.status(500).json({ success: false, message: '服务器错误' });
+      }
+    });
+  });
 });
 
 // 获取单个课程详情 (合并自根目录server.js)
@@ -751,33 +1099,7 @@ app.get('/api/courses/:id', (req, res) => {
     }
     
     // 为课程添加contentType和contentPath
-    let contentType, contentPath;
-    
-    if (courseFromFile.id === 1 || courseFromFile.title.includes("Java")) {
-      contentType = "video";
-      contentPath = "html/book/dui.mp4";
-    } else if (courseFromFile.id === 2 || courseFromFile.title.includes("Android")) {
-      contentType = "video";
-      contentPath = "html/book/dui.mp4";
-    } else if (courseFromFile.id === 3 || courseFromFile.title.includes("数据结构")) {
-      contentType = "video";
-      contentPath = "html/book/dui.mp4";
-    } else if (courseFromFile.id === 4 || courseFromFile.title.includes("Web")) {
-      contentType = "pdf";
-      contentPath = "html/book/python.pdf";
-    } else if (courseFromFile.id === 5 || courseFromFile.title.includes("Python")) {
-      contentType = "pdf";
-      contentPath = "html/book/python.pdf";
-    } else {
-      contentType = "pdf";
-      contentPath = "html/book/python.pdf";
-    }
-    
-    const course = {
-      ...courseFromFile,
-      contentType: contentType,
-      contentPath: contentPath
-    };
+    const course = withContentInfo(courseFromFile);
     
          res.json({
        success: true,
@@ -835,7 +1157,7 @@ app.get('/api/courses/:id/subcourses', (req, res) => {
       contents: [
         {
           type: "video",
-          path: videoPath,
+          path: videoContentPath(videoPath),
           label: "视频讲解"
         },
         {
@@ -997,17 +1319,39 @@ app.get('/api/orders', (req, res) => {
   }
   
   const userId = req.session.user.id;
+  const page = parsePage(req);
   
   // 如果使用内存存储
   if (useMemoryStorage) {
     // 内存存储中暂时没有订单系统，返回空数组
     return res.status(200).json({
       success: true,
-      orders: []
+      orders: [],
+      nextCursor: null
     });
   }
   
   // 使用数据库
+  if (page) {
+    // id自增，与创建时间顺序一致；按id做键集分页，翻页开销不随页数增长
+    const getOrdersPageQuery = 'SELECT * FROM orders WHERE user_id = ?' +
+      (page.after !== null ? ' AND id < ?' : '') + ' ORDER BY id DESC LIMIT ?';
+    const params = page.after !== null ? [userId, page.after, page.limit + 1] : [userId, page.limit + 1];
+    return db.query(getOrdersPageQuery, params, (err, results) => {
+      if (err) {
+        console.error('获取订单失败:', err);
+        return res.status(500).json({ success: false, message: '服务器错误' });
+      }
+      
+      const result = toPage(results, page);
+      res.status(200).json({
+        success: true,
+        orders: result.items,
+        nextCursor: result.nextCursor
+      });
+    });
+  }
+  
   const getOrdersQuery = 'SELECT * FROM orders WHERE user_id = ? ORDER BY created_at DESC';
   db.query(getOrdersQuery, [userId], (err, results) => {
     if (err) {
@@ -1022,6 +1366,279 @@ app.get('/api/orders', (req, res) => {
   });
 });
 
+// 增量同步 - 课程目录版本跟踪
+// 记录每门课程内容的哈希以及最后一次变化时的目录版本号，客户端凭令牌只拉取变化的部分
+const catalogueState = {
+  epoch: Date.now().toString(36), // 服务器启动标识，服务器重启后旧令牌失效，客户端做一次全量同步
+  version: 0,
+  mtimeMs: -1,
+  source: [],          // 上次读取的 courses.json 内容
+  contentPaths: '',    // 上次计算时各课程实际的内容路径，HLS打包完成后视频路径会变化
+  courses: new Map(), // id -> { hash, version, course }
+  deleted: new Map()  // id -> 删除时的版本号
+};
+
+// courses.json 修改或课程的内容路径变化（如视频打包为HLS）后重新计算各课程的版本
+function refreshCatalogueState() {
+  const coursesFile = path.join(__dirname, 'doc', 'courses.json');
+  const mtimeMs = fs.statSync(coursesFile).mtimeMs;
+  const fileChanged = mtimeMs !== catalogueState.mtimeMs;
+  const coursesFromFile = fileChanged
+    ? JSON.parse(fs.readFileSync(coursesFile, 'utf8'))
+    : catalogueState.source;
+  // 视频路径取决于磁盘上是否已有HLS清单，不在 courses.json 中，需要单独比较
+  const courses = coursesFromFile.map(withContentInfo);
+  const contentPaths = courses.map(course => course.id + ':' + course.contentPath).join('\n');
+  if (!fileChanged && contentPaths === catalogueState.contentPaths) {
+    return;
+  }
+  
+  const nextVersion = catalogueState.version + 1;
+  const seenIds = new Set();
+  let changed = false;
+  
+  courses.forEach(course => {
+    const hash = crypto.createHash('sha1').update(JSON.stringify(course)).digest('hex');
+    const entry = catalogueState.courses.get(course.id);
+    seenIds.add(course.id);
+    
+    if (!entry || entry.hash !== hash) {
+      catalogueState.courses.set(course.id, { hash: hash, version: nextVersion, course: course });
+      catalogueState.deleted.delete(course.id);
+      changed = true;
+    }
+  });
+  
+  catalogueState.courses.forEach((entry, id) => {
+    if (!seenIds.has(id)) {
+      catalogueState.courses.delete(id);
+      catalogueState.deleted.set(id, nextVersion);
+      changed = true;
+    }
+  });
+  
+  if (changed) {
+    catalogueState.version = nextVersion;
+  }
+  catalogueState.mtimeMs = mtimeMs;
+  catalogueState.source = coursesFromFile;
+  catalogueState.contentPaths = contentPaths;
+}
+
+// 解析同步令牌，格式为 "<epoch>.<目录版本>.<最后订单ID>"，无效时返回null表示需要全量同步
+function parseSyncToken(token) {
+  if (!token) {
+    return null;
+  }
+  
+  const parts = String(token).split('.');
+  if (parts.length !== 3 || parts[0] !== catalogueState.epoch) {
+    return null;
+  }
+  
+  const catalogueVersion = parseInt(parts[1]);
+  const lastOrderId = parseInt(parts[2]);
+  if (isNaN(catalogueVersion) || isNaN(lastOrderId) || catalogueVersion > catalogueState.version) {
+    return null;
+  }
+  
+  return { catalogueVersion: catalogueVersion, lastOrderId: lastOrderId };
+}
+
+// 增量同步课程和订单
+app.get('/api/sync', (req, res) => {
+  if (!req.session.user) {
+    return res.status(401).json({ success: false, message: '未登录' });
+  }
+  
+  const userId = req.session.user.id;
+  
+  try {
+    refreshCatalogueState();
+  } catch (error) {
+    console.error('读取课程数据失败:', error);
+    return res.status(500).json({ success: false, message: '服务器错误' });
+  }
+  
+  const since = parseSyncToken(req.query.since);
+  const reset = since === null;
+  const sinceVersion = reset ? 0 : since.catalogueVersion;
+  const sinceOrderId = reset ? 0 : since.lastOrderId;
+  
+  // 变化的课程：全量同步时返回全部课程
+  const courses = [];
+  catalogueState.courses.forEach(entry => {
+    if (reset || entry.version > sinceVersion) {
+      courses.push(entry.course);
+    }
+  });
+  
+  const deletedCourseIds = [];
+  if (!reset) {
+    catalogueState.deleted.forEach((version, id) => {
+      if (version > sinceVersion) {
+        deletedCourseIds.push(id);
+      }
+    });
+  }
+  
+  const respond = (orders) => {
+    const lastOrderId = orders.reduce((max, order) => Math.max(max, order.id), sinceOrderId);
+    res.status(200).json({
+      success: true,
+      data: {
+        token: `${catalogueState.epoch}.${catalogueState.version}.${lastOrderId}`,
+        reset: reset,
+        courses: courses,
+        deletedCourseIds: deletedCourseIds,
+        orders: orders
+      }
+    });
+  };
+  
+  // 如果使用内存存储
+  if (useMemoryStorage) {
+    // 内存存储中暂时没有订单系统
+    return respond([]);
+  }
+  
+  // 订单只会新增，按自增ID增量查询
+  const getNewOrdersQuery = 'SELECT * FROM orders WHERE user_id = ? AND id > ? ORDER BY id ASC';
+  db.query(getNewOrdersQuery, [userId, sinceOrderId], (err, results) => {
+    if (err) {
+      console.error('同步订单失败:', err);
+      return res.status(500).json({ success: false, message: '服务器错误' });
+    }
+    
+    respond(results);
+  });
+});
+
+// 内存存储模式下的播放进度，键为 用户ID + '\n' + contentPath
+const memoryProgress = new Map();
+// 单次上传的最大记录数
+const MAX_PROGRESS_ITEMS = 200;
+// 增量拉取时往前多取的时间：并发的上传可能晚于时间更大的记录提交，重复返回的记录客户端会按updatedAt忽略
+const PROGRESS_PULL_OVERLAP_MS = 60 * 1000;
+
+// 批量上传播放进度，客户端攒一批后一次提交
+app.post('/api/progress', (req, res) => {
+  if (!req.session.user) {
+    return res.status(401).json({ success: false, message: '未登录' });
+  }
+  
+  const userId = req.session.user.id;
+  const items = Array.isArray(req.body.items) ? req.body.items : null;
+  if (!items || items.length > MAX_PROGRESS_ITEMS) {
+    return res.status(400).json({ success: false, message: `items必须是不超过${MAX_PROGRESS_ITEMS}条的数组` });
+  }
+  
+  const now = Date.now();
+  const rows = [];
+  items.forEach(item => {
+    if (!item || typeof item.contentPath !== 'string' || item.contentPath.length === 0
+        || item.contentPath.length > 500) {
+      return;
+    }
+    const position = Math.max(0, Math.floor(Number(item.positionMs) || 0));
+    const duration = Math.max(0, Math.floor(Number(item.durationMs) || 0));
+    // 客户端时钟可能偏快，不接受未来的时间，避免这条记录永远覆盖其他设备的进度
+    const updatedAt = Math.min(now, Math.max(0, Math.floor(Number(item.updatedAt) || now)));
+    rows.push([userId, item.contentPath, position, duration, updatedAt, now]);
+  });
+  
+  if (rows.length === 0) {
+    return res.status(200).json({ success: true, message: '没有需要保存的进度' });
+  }
+  
+  // 如果使用内存存储
+  if (useMemoryStorage) {
+    rows.forEach(([uid, contentPath, position, duration, updatedAt, modifiedAt]) => {
+      const key = uid + '\n' + contentPath;
+      const existing = memoryProgress.get(key);
+      if (!existing || existing.updatedAt < updatedAt) {
+        memoryProgress.set(key, {
+          userId: uid, contentPath, positionMs: position, durationMs: duration, updatedAt, modifiedAt
+        });
+      } else {
+        existing.modifiedAt = modifiedAt;
+      }
+    });
+    return res.status(200).json({ success: true, message: '进度已保存' });
+  }
+  
+  // 一条语句写入整批记录，多台设备同时上传时保留更新时间较新的进度；
+  // MySQL按顺序执行赋值，updated_at必须最后更新。每次写入都更新modified_at，供其他设备增量拉取
+  const saveProgressQuery = `
+    INSERT INTO playback_progress (user_id, content_path, position_ms, duration_ms, updated_at, modified_at)
+    VALUES ?
+    ON DUPLICATE KEY UPDATE
+      position_ms = IF(VALUES(updated_at) > updated_at, VALUES(position_ms), position_ms),
+      duration_ms = IF(VALUES(updated_at) > updated_at, VALUES(duration_ms), duration_ms),
+      modified_at = VALUES(modified_at),
+      updated_at = GREATEST(updated_at, VALUES(updated_at))
+  `;
+  db.query(saveProgressQuery, [rows], (err) => {
+    if (err) {
+      console.error('保存播放进度失败:', err);
+      return res.status(500).json({ success: false, message: '服务器错误' });
+    }
+    
+    res.status(200).json({ success: true, message: '进度已保存' });
+  });
+});
+
+// 获取播放进度，since为上次获取到的记录中最大的modifiedAt（服务器写入时间），省略时返回全部。
+// 不能按updatedAt拉取：离线设备稍后上传的进度，updatedAt可能早于其他设备已拉取到的位置
+app.get('/api/progress', (req, res) => {
+  if (!req.session.user) {
+    return res.status(401).json({ success: false, message: '未登录' });
+  }
+  
+  const userId = req.session.user.id;
+  const since = Number(req.query.since) > 0 ? Number(req.query.since) - PROGRESS_PULL_OVERLAP_MS : -1;
+  
+  // 如果使用内存存储
+  if (useMemoryStorage) {
+    const data = [];
+    memoryProgress.forEach(progress => {
+      if (progress.userId === userId && progress.modifiedAt > since) {
+        data.push({
+          contentPath: progress.contentPath,
+          positionMs: progress.positionMs,
+          durationMs: progress.durationMs,
+          updatedAt: progress.updatedAt,
+          modifiedAt: progress.modifiedAt
+        });
+      }
+    });
+    return res.status(200).json({ success: true, data: data });
+  }
+  
+  const getProgressQuery = `
+    SELECT content_path AS contentPath, position_ms AS positionMs,
+           duration_ms AS durationMs, updated_at AS updatedAt, modified_at AS modifiedAt
+    FROM playback_progress WHERE user_id = ? AND modified_at > ?
+  `;
+  db.query(getProgressQuery, [userId, since], (err, results) => {
+    if (err) {
+      console.error('获取播放进度失败:', err);
+      return res.status(500).json({ success: false, message: '服务器错误' });
+    }
+    
+    res.status(200).json({
+      success: true,
+      data: results.map(row => ({
+        contentPath: row.contentPath,
+        positionMs: Number(row.positionMs),
+        durationMs: Number(row.durationMs),
+        updatedAt: Number(row.updatedAt),
+        modifiedAt: Number(row.modifiedAt)
+      }))
+    });
+  });
+});
+
 // 购买课程
 app.post('/api/purchase', (req, res) => {
   if (!req.session.user) {
@@ -1046,6 +1663,7 @@ app.post('/api/purchase', (req, res) => {
         status: 'completed',
         created_at: new Date()
       }
+      // 内存存储没有订单记录，签不出完整的令牌，不返回令牌，客户端使用本地购买记录
     });
   }
   
@@ -1108,18 +1726,25 @@ app.post('/api/purchase', (req, res) => {
               });
             }
             
-            res.status(200).json({
-              success: true,
-              message: '购买成功！',
-              order: {
-                id: result.insertId,
-                user_id: userId,
-                course_id: courseId,
-                course_title: courseTitle,
-                price: price,
-                status: 'completed',
-                created_at: new Date()
+            // 返回包含新课程的授权令牌；签发失败不影响购买结果，客户端之后会重新获取
+            signEntitlements(userId, (err, bundle) => {
+              if (err) {
+                console.error('签发授权令牌失败:', err);
               }
+              res.status(200).json({
+                success: true,
+                message: '购买成功！',
+                order: {
+                  id: result.insertId,
+                  user_id: userId,
+                  course_id: courseId,
+                  course_title: courseTitle,
+                  price: price,
+                  status: 'completed',
+                  created_at: new Date()
+                },
+                entitlements: bundle
+              });
             });
           });
         });
@@ -1128,6 +1753,43 @@ app.post('/api/purchase', (req, res) => {
   });
 });
 
+// 为用户已完成的全部订单签发离线授权令牌
+function signEntitlements(userId, callback) {
+  const query = "SELECT DISTINCT course_id FROM orders WHERE user_id = ? AND status = 'completed'";
+  db.query(query, [userId], (err, results) => {
+    if (err) {
+      return callback(err);
+    }
+    try {
+      callback(null, entitlements.sign(userId, results.map(row => row.course_id)));
+    } catch (error) {
+      callback(error);
+    }
+  });
+}
+
+// 获取离线授权令牌，客户端验证签名后缓存，打开已购买的课程时不再请求服务器
+app.get('/api/entitlements', (req, res) => {
+  if (!req.session.user) {
+    return res.status(401).json({ success: false, message: '未登录' });
+  }
+  
+  const userId = req.session.user.id;
+  
+  // 如果使用内存存储，没有订单记录，不签发令牌；空令牌会让客户端锁住所有已购买的课程
+  if (useMemoryStorage) {
+    return res.status(200).json({ success: true, entitlements: null });
+  }
+  
+  signEntitlements(userId, (err, bundle) => {
+    if (err) {
+      console.error('签发授权令牌失败:', err);
+      return res.status(500).json({ success: false, message: '服务器错误' });
+    }
+    res.status(200).json({ success: true, entitlements: bundle });
+  });
+});
+
 // 提交问题
 app.post('/api/questions', upload.single('image'), (req, res) => {
   if (!req.session.user) {
@@ -1217,10 +1879,31 @@ app.get('/api/questions', (req, res) => {
   }
   
   // 使用数据库
+  const page = parsePage(req);
   let getQuestionsQuery;
   let queryParams = [];
   
-  if (getAllQuestions) {
+  if (page) {
+    // 分页时按id做键集分页（id自增，与创建时间顺序一致）
+    const conditions = [];
+    if (!getAllQuestions) {
+      conditions.push('q.user_id = ?');
+      queryParams.push(userId);
+    }
+    if (page.after !== null) {
+      conditions.push('q.id < ?');
+      queryParams.push(page.after);
+    }
+    getQuestionsQuery = `
+      SELECT q.*, u.name as user_name 
+      FROM questions q 
+      JOIN users u ON q.user_id = u.id 
+      ${conditions.length > 0 ? 'WHERE ' + conditions.join(' AND ') : ''}
+      ORDER BY q.id DESC
+      LIMIT ?
+    `;
+    queryParams.push(page.limit + 1);
+  } else if (getAllQuestions) {
     // 获取所有问题
     getQuestionsQuery = `
       SELECT q.*, u.name as user_name 
@@ -1250,8 +1933,14 @@ app.get('/api/questions', (req, res) => {
     }
     
     console.log(`查询结果: ${results.length}条问题记录`);
-    if (results.length > 0) {
-      console.log(`第一条问题示例: ${JSON.stringify(results[0])}`);
+    
+    if (page) {
+      const result = toPage(results, page);
+      return res.status(200).json({
+        success: true,
+        questions: result.items,
+        nextCursor: result.nextCursor
+      });
     }
     
     // 确保创建一个有效的响应
@@ -1277,6 +1966,7 @@ app.get('/api/my-questions', (req, res) => {
   }
   
   const userId = req.session.user.id;
+  const page = parsePage(req);
   console.log(`获取我的问题列表: userId=${userId}`);
   
   // 如果使用内存存储
@@ -1290,26 +1980,49 @@ app.get('/api/my-questions', (req, res) => {
   }
   
   // 使用数据库
-  const getQuestionsQuery = `
-    SELECT q.*, u.name as user_name 
-    FROM questions q 
-    JOIN users u ON q.user_id = u.id 
-    WHERE q.user_id = ? 
-    ORDER BY q.created_at DESC
-  `;
+  const queryParams = [userId];
+  let getQuestionsQuery;
+  if (page) {
+    if (page.after !== null) {
+      queryParams.push(page.after);
+    }
+    queryParams.push(page.limit + 1);
+    getQuestionsQuery = `
+      SELECT q.*, u.name as user_name 
+      FROM questions q 
+      JOIN users u ON q.user_id = u.id 
+      WHERE q.user_id = ? ${page.after !== null ? 'AND q.id < ?' : ''}
+      ORDER BY q.id DESC
+      LIMIT ?
+    `;
+  } else {
+    getQuestionsQuery = `
+      SELECT q.*, u.name as user_name 
+      FROM questions q 
+      JOIN users u ON q.user_id = u.id 
+      WHERE q.user_id = ? 
+      ORDER BY q.created_at DESC
+    `;
+  }
   
   console.log(`执行SQL查询: ${getQuestionsQuery.replace(/\s+/g, ' ')}`);
-  console.log(`参数: [${userId}]`);
+  console.log(`参数: [${queryParams.join(', ')}]`);
   
-  db.query(getQuestionsQuery, [userId], (err, results) => {
+  db.query(getQuestionsQuery, queryParams, (err, results) => {
     if (err) {
       console.error('获取我的问题列表失败:', err);
       return res.status(500).json({ success: false, message: '服务器错误' });
     }
     
     console.log(`我的问题查询结果: ${results.length}条问题记录`);
-    if (results.length > 0) {
-      console.log(`第一条问题示例: ${JSON.stringify(results[0])}`);
+    
+    if (page) {
+      const result = toPage(results, page);
+      return res.status(200).json({
+        success: true,
+        questions: result.items,
+        nextCursor: result.nextCursor
+      });
     }
     
     // 确保创建一个有效的响应
@@ -1476,6 +2189,11 @@ app.listen(config.PORT, () => {
   console.log(`- PDF文件可通过 ${config.BASE_URL}/html/book/python.pdf 访问`);
   console.log(`- 视频文件可通过 ${config.BASE_URL}/html/book/dui.mp4 访问`);
   
+  // 将book目录中的视频打包为多码率HLS，之后新增的视频自动打包
+  hls.watch();
+  // PDF线性化，客户端可以先取回第一页所需的部分显示出来
+  linearizePdf.watch();
+  
   if (useMemoryStorage) {
     console.log('\n警告: 当前使用内存存储模式，所有数据将在服务器重启后丢失');
     console.log('示例用户: test@example.com (密码: 123456)');